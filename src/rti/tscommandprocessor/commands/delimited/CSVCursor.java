@@ -33,6 +33,7 @@ import RTi.Util.Time.DateTimeFormat;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -56,6 +57,11 @@ public class CSVCursor implements RowCursor {
     private boolean needParse;
     private final BufferedReader reader;
     private String rowText;
+    private final char delimiter;
+    private boolean needIndex;
+    private int fieldCount;
+    private int[] fieldStart;
+    private int[] fieldEnd;
 
     /**
      * Create a CSVCursor that uses the provided BufferedReader to parse CSV
@@ -70,6 +76,7 @@ public class CSVCursor implements RowCursor {
         this.reader = reader;
         this.commentPrefix = commentPrefix;
         splitter = new CSVParser(delimiter);
+        this.delimiter = toDelimiterChar(delimiter);
         parseCommentPatterns = new HashMap();
 
         // this is not so pretty, but we need to peek ahead and figure out how many
@@ -85,6 +92,7 @@ public class CSVCursor implements RowCursor {
         }
         rowSize = numCols;
         rowData = new ArrayList(rowSize);
+        initIndex();
         reader.reset();
     }
 
@@ -102,9 +110,27 @@ public class CSVCursor implements RowCursor {
         this.reader = reader;
         this.commentPrefix = commentPrefix;
         splitter = new CSVParser(delimiter);
+        this.delimiter = toDelimiterChar(delimiter);
         parseCommentPatterns = new HashMap();
         rowSize = numColumns;
         rowData = new ArrayList(rowSize);
+        initIndex();
+    }
+
+    /**
+     * Get the delimiter character, the same as used by CSVParser.
+     */
+    private static char toDelimiterChar(String delimiter) {
+        if ((delimiter != null) && (delimiter.length() > 0)) {
+            return delimiter.charAt(0);
+        }
+        return ',';
+    }
+
+    private void initIndex() {
+        fieldStart = new int[Math.max(rowSize, 16)];
+        fieldEnd = new int[fieldStart.length];
+        fieldCount = -1;
     }
 
     /**
@@ -162,11 +188,82 @@ public class CSVCursor implements RowCursor {
         return rowData;
     }
 
+    /**
+     * Find the trimmed field positions in the current row so that values can
+     * be provided without splitting the row into Strings. Rows containing quotes
+     * are not indexed and are split with the LineSplitter.
+     * @return true if the current row is indexed.
+     */
+    private boolean index() {
+        if (needIndex) {
+            needIndex = false;
+            fieldCount = -1;
+            if ((rowText != null) && (rowText.indexOf('"') < 0)) {
+                final int len = rowText.length();
+                int count = 0;
+                int pos = 0;
+                while (true) {
+                    int end = rowText.indexOf(delimiter, pos);
+                    if (end < 0) {
+                        end = len;
+                    }
+                    if (count == fieldStart.length) {
+                        fieldStart = Arrays.copyOf(fieldStart, count * 2);
+                        fieldEnd = Arrays.copyOf(fieldEnd, count * 2);
+                    }
+                    // trim the same as CSVParser
+                    int start = pos;
+                    int stop = end;
+                    while ((start < stop) && (rowText.charAt(start) <= ' ')) {
+                        start++;
+                    }
+                    while ((stop > start) && (rowText.charAt(stop - 1) <= ' ')) {
+                        stop--;
+                    }
+                    fieldStart[count] = start;
+                    fieldEnd[count] = stop;
+                    count++;
+                    if (end == len) {
+                        break;
+                    }
+                    pos = end + 1;
+                }
+                fieldCount = count;
+            }
+        }
+        return fieldCount >= 0;
+    }
+
     public int getLength() {
         return rowSize;
     }
 
+    public double getDouble(int col) {
+        if (index() && (col >= 0) && (col < fieldCount)) {
+            double value = DelimitedLineTokenizer.parseSimpleDouble(rowText, fieldStart[col], fieldEnd[col]);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return RowTools.toDouble(getValue(col));
+    }
+
+    public long getEpochMillis(int col) {
+        return RowTools.toEpochMillis(getValue(col));
+    }
+
+    public boolean isMissing(int col) {
+        if (index()) {
+            return (col >= fieldCount) || (fieldStart[col] == fieldEnd[col]);
+        }
+        List data = data();
+        return (col >= data.size()) || RowTools.isMissing(data.get(col));
+    }
+
     public Object getValue(int col) {
+        if (index() && (col >= 0) && (col < fieldCount)) {
+            return rowText.substring(fieldStart[col], fieldEnd[col]);
+        }
         try {
             return data().get(col);
         } catch (IndexOutOfBoundsException e) {
@@ -182,6 +279,7 @@ public class CSVCursor implements RowCursor {
             rowText = null;
         }
         needParse = true;
+        needIndex = true;
         return rowText != null;
     }
 
@@ -29,6 +29,8 @@ NoticeEnd */
 
 package rti.tscommandprocessor.commands.delimited;
 
+import rti.tscommandprocessor.core.DateTimeColumnParser;
+
 import RTi.Util.Time.DateTime;
 
 /**
@@ -56,30 +58,95 @@ public interface Converter {
         }
     };
 
+    /**
+     * A Converter that can also convert to a double without creating a Double.
+     */
+    public static interface ToDouble extends Converter {
+        /**
+         * Provide the converted value as a double.
+         * @param o The object to convert
+         * @return The converted value.
+         * @throws java.lang.IllegalArgumentException If the Converter is unable
+         * to convert the provided object.
+         */
+        double convertToDouble(Object o) throws IllegalArgumentException;
+    }
+
+    /**
+     * A Converter that can also convert to a date/time in milliseconds
+     * without creating a DateTime.
+     * @see RowCursor#getEpochMillis(int)
+     */
+    public static interface ToEpochMillis extends Converter {
+        /**
+         * Provide the converted value as milliseconds since 1970-01-01 00:00.
+         * @param o The object to convert
+         * @return The converted value.
+         * @throws java.lang.IllegalArgumentException If the Converter is unable
+         * to convert the provided object.
+         */
+        long convertToEpochMillis(Object o) throws IllegalArgumentException;
+    }
+
     /**
      * A String to Double converter that uses standard double parsing.
      */
-    public static Converter STRING_TO_DOUBLE = new Converter() {
+    public static ToDouble STRING_TO_DOUBLE = new ToDouble() {
         public Object convert(Object o) throws IllegalArgumentException {
             //return Double.parseDouble(o.toString());
             // FIXME SAM 2008-01-28 Need to talk to Ian about what is going on
             return Double.valueOf(o.toString());
         }
+        public double convertToDouble(Object o) throws IllegalArgumentException {
+            return Double.parseDouble(o.toString());
+        }
     };
 
     /**
      * A String to DateTime converter that uses all formats accepted by
-     * DateTime.
+     * DateTime. Strings are parsed with a DateTimeColumnParser, so strings in a
+     * column that share a simple format are parsed directly from the characters.
+     * An instance is not thread-safe and should be used for one column.
      */
-    public static Converter STRING_TO_DATE_TIME = new Converter() {
+    public static class StringToDateTime implements ToEpochMillis {
+        private final DateTimeColumnParser parser = new DateTimeColumnParser(null);
+
+        /**
+         * Return the parser to use for the current call.
+         * @return the parser
+         */
+        protected DateTimeColumnParser getParser() {
+            return parser;
+        }
+
         public Object convert(Object o) throws IllegalArgumentException {
             String s = o.toString();
             try {
-                return DateTime.parse(s);
+                return getParser().parse(null, s);
             } catch (Exception ex) {
                 //throw new IllegalArgumentException(ex);
                 throw new IllegalArgumentException(ex.toString());
             }
         }
+
+        public long convertToEpochMillis(Object o) throws IllegalArgumentException {
+            return RowTools.toEpochMillis((DateTime) convert(o));
+        }
+    }
+
+    /**
+     * A shared String to DateTime converter that uses all formats accepted by
+     * DateTime, using a parser for each thread.
+     */
+    public static ToEpochMillis STRING_TO_DATE_TIME = new StringToDateTime() {
+        private final ThreadLocal<DateTimeColumnParser> parsers = new ThreadLocal<DateTimeColumnParser>() {
+            protected DateTimeColumnParser initialValue() {
+                return new DateTimeColumnParser(null);
+            }
+        };
+
+        protected DateTimeColumnParser getParser() {
+            return parsers.get();
+        }
     };
 }
@@ -165,6 +165,33 @@ public class Converters {
             return converters[col].convert(row.getValue(col));
         }
 
+        public double getDouble(int col) {
+            Converter converter = converters[col];
+            if ((converter == Converter.IDENTITY) || (converter == Converter.STRING_TO_DOUBLE)) {
+                // let the source parse its own value, which may avoid creating a String
+                return row.getDouble(col);
+            }
+            if (converter instanceof Converter.ToDouble) {
+                return ((Converter.ToDouble) converter).convertToDouble(row.getValue(col));
+            }
+            return RowTools.toDouble(getValue(col));
+        }
+
+        public long getEpochMillis(int col) {
+            Converter converter = converters[col];
+            if (converter == Converter.IDENTITY) {
+                return row.getEpochMillis(col);
+            }
+            if (converter instanceof Converter.ToEpochMillis) {
+                return ((Converter.ToEpochMillis) converter).convertToEpochMillis(row.getValue(col));
+            }
+            return RowTools.toEpochMillis(getValue(col));
+        }
+
+        public boolean isMissing(int col) {
+            return row.isMissing(col);
+        }
+
         public int getLength() {
             return row.getLength();
         }
@@ -90,6 +90,18 @@ public class DefaultScrollableRowCursor implements ScrollableRowCursor, RowCurso
         return row.get(col);
     }
 
+    public double getDouble(int col) {
+        return RowTools.toDouble(row.get(col));
+    }
+
+    public long getEpochMillis(int col) {
+        return RowTools.toEpochMillis(row.get(col));
+    }
+
+    public boolean isMissing(int col) {
+        return RowTools.isMissing(row.get(col));
+    }
+
     public int getLength() {
         return columns;
     }
@@ -0,0 +1,373 @@
+// DelimitedLineTokenizer - tokenizer for delimited file lines that records token positions rather than creating strings
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.delimited;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.String.StringUtil;
+
+/**
+Tokenizer for lines in a delimited file, used by ReadDelimitedFile() to avoid creating a list of strings
+for each line.  The positions of tokens in the line are recorded, strings are only created when requested,
+and simple numbers (e.g., "-12.345") are parsed directly from the line.
+<p>
+Tokens are the same as from StringUtil.breakStringList(line,delim,StringUtil.DELIM_ALLOW_STRINGS),
+with StringUtil.DELIM_SKIP_BLANKS if consecutive delimiters are treated as one.
+Lines that contain quotes are passed to StringUtil.breakStringList() so that quoted strings are handled the same.
+The tokenizer is reused for each line and is not thread-safe.
+*/
+class DelimitedLineTokenizer
+{
+
+/**
+Powers of 10 that can be represented exactly as double, used to parse simple numbers.
+*/
+private static final double [] POW10 = {
+	1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+	1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+/**
+Maximum number of digits in a simple number, so that the digits can be represented exactly as double.
+*/
+private static final int MAX_SIMPLE_DIGITS = 15;
+
+/**
+Delimiter characters.
+*/
+private String __delim = null;
+
+/**
+Single delimiter character, used when only one delimiter is specified (the typical case), or -1.
+*/
+private int __delimChar = -1;
+
+/**
+Indicate whether consecutive delimiters are treated as one.
+*/
+private boolean __skipBlanks = false;
+
+/**
+Flag for StringUtil.breakStringList(), for lines that contain quotes.
+*/
+private int __breakFlag = 0;
+
+/**
+The current line.
+*/
+private String __line = null;
+
+/**
+Tokens from StringUtil.breakStringList() if the line contains quotes, otherwise null.
+*/
+private List<String> __tokenList = null;
+
+/**
+Start (inclusive) and end (exclusive) positions of tokens in the line, reused for each line.
+*/
+private int [] __tokenStart = new int[32];
+private int [] __tokenEnd = new int[32];
+
+/**
+Number of tokens in the line.
+*/
+private int __tokenCount = 0;
+
+/**
+Create a tokenizer.
+@param delim delimiter characters (any of the characters is a delimiter)
+@param treatConsecutiveDelimitersAsOne indicate whether consecutive delimiters are treated as one
+*/
+public DelimitedLineTokenizer ( String delim, boolean treatConsecutiveDelimitersAsOne )
+{
+	__delim = delim;
+	if ( delim.length() == 1 ) {
+		__delimChar = delim.charAt(0);
+	}
+	__skipBlanks = treatConsecutiveDelimitersAsOne;
+	__breakFlag = StringUtil.DELIM_ALLOW_STRINGS;
+	if ( treatConsecutiveDelimitersAsOne ) {
+		__breakFlag |= StringUtil.DELIM_SKIP_BLANKS;
+	}
+}
+
+/**
+Add a blank token at the end of the line.
+This is used when the line ends in a delimiter, which is not counted as a token.
+*/
+public void addEmptyToken ()
+{
+	if ( __tokenList != null ) {
+		__tokenList.add ( "" );
+	}
+	else {
+		addToken ( __line.length(), __line.length() );
+	}
+}
+
+/**
+Add a token position.
+*/
+private void addToken ( int start, int end )
+{
+	if ( __tokenCount == __tokenStart.length ) {
+		int [] tokenStart = new int[__tokenCount*2];
+		int [] tokenEnd = new int[__tokenCount*2];
+		System.arraycopy ( __tokenStart, 0, tokenStart, 0, __tokenCount );
+		System.arraycopy ( __tokenEnd, 0, tokenEnd, 0, __tokenCount );
+		__tokenStart = tokenStart;
+		__tokenEnd = tokenEnd;
+	}
+	__tokenStart[__tokenCount] = start;
+	__tokenEnd[__tokenCount] = end;
+	++__tokenCount;
+}
+
+/**
+Return the token count for the line.
+@return the token count for the line
+*/
+public int getTokenCount ()
+{
+	return __tokenCount;
+}
+
+/**
+Return a token.
+@param i token position (0+)
+@return the token
+*/
+public String getToken ( int i )
+{
+	if ( __tokenList != null ) {
+		return __tokenList.get(i);
+	}
+	return __line.substring(__tokenStart[i], __tokenEnd[i]);
+}
+
+/**
+Return a token with leading and trailing whitespace removed.
+@param i token position (0+)
+@return the trimmed token
+*/
+public String getTrimmedToken ( int i )
+{
+	if ( __tokenList != null ) {
+		return __tokenList.get(i).trim();
+	}
+	int start = trimStart(i);
+	return __line.substring(start, trimEnd(i, start));
+}
+
+/**
+Determine the position of the trimmed token in a list of values, ignoring case,
+without creating a string for the token.
+@param i token position (0+)
+@param values values to check
+@return the position in the list (0+) or -1 if not found
+*/
+public int indexOfTrimmedTokenIgnoreCase ( int i, List<String> values )
+{
+	if ( values == null ) {
+		return -1;
+	}
+	if ( __tokenList != null ) {
+		return StringUtil.indexOfIgnoreCase(values, __tokenList.get(i).trim());
+	}
+	int start = trimStart(i);
+	int len = trimEnd(i, start) - start;
+	for ( int iv = 0; iv < values.size(); iv++ ) {
+		String value = values.get(iv);
+		if ( (value != null) && (value.length() == len) && __line.regionMatches(true, start, value, 0, len) ) {
+			return iv;
+		}
+	}
+	return -1;
+}
+
+/**
+Indicate whether a trimmed token is empty.
+@param i token position (0+)
+@return true if the token is empty or only whitespace
+*/
+public boolean isTrimmedTokenEmpty ( int i )
+{
+	if ( __tokenList != null ) {
+		return __tokenList.get(i).trim().length() == 0;
+	}
+	int start = trimStart(i);
+	return trimEnd(i, start) == start;
+}
+
+/**
+Parse a trimmed token as a simple number, [-]digits[.digits], directly from the line.
+The result is the same as Double.parseDouble() because the digits and power of 10 are exact doubles
+and division is correctly rounded.
+@param i token position (0+)
+@return the number, or NaN if the token is not a simple number, in which case the caller should
+parse the string from getTrimmedToken()
+*/
+public double parseSimpleDouble ( int i )
+{
+	if ( __tokenList != null ) {
+		return Double.NaN;
+	}
+	int start = trimStart(i);
+	return parseSimpleDouble ( __line, start, trimEnd(i, start) );
+}
+
+/**
+Parse a range of a string as a simple number, [-]digits[.digits], without creating a substring.
+This is also used by CSVCursor.getDouble().
+@param s string containing the number
+@param pos starting position of the number (inclusive), with surrounding whitespace already trimmed
+@param end ending position of the number (exclusive)
+@return the number, or NaN if the range is not a simple number, in which case the caller should
+parse the substring with Double.parseDouble()
+*/
+static double parseSimpleDouble ( String s, int pos, int end )
+{
+	if ( pos == end ) {
+		return Double.NaN;
+	}
+	boolean negative = false;
+	char c = s.charAt(pos);
+	if ( c == '-' ) {
+		negative = true;
+		++pos;
+	}
+	long mantissa = 0;
+	int digits = 0;
+	int fractionDigits = 0;
+	boolean foundPoint = false;
+	boolean digitBeforePoint = false;
+	for ( ; pos < end; pos++ ) {
+		c = s.charAt(pos);
+		if ( (c >= '0') && (c <= '9') ) {
+			if ( ++digits > MAX_SIMPLE_DIGITS ) {
+				return Double.NaN;
+			}
+			mantissa = mantissa*10 + (c - '0');
+			if ( foundPoint ) {
+				++fractionDigits;
+			}
+			else {
+				digitBeforePoint = true;
+			}
+		}
+		else if ( (c == '.') && !foundPoint ) {
+			foundPoint = true;
+		}
+		else {
+			// Exponent, suffix, etc. - let Double.parseDouble() handle
+			return Double.NaN;
+		}
+	}
+	if ( !digitBeforePoint || (foundPoint && (fractionDigits == 0)) ) {
+		return Double.NaN;
+	}
+	double value = mantissa/POW10[fractionDigits];
+	return negative ? -value : value;
+}
+
+/**
+Tokenize a line.
+@param line line to tokenize, not null
+@return the number of tokens
+*/
+public int tokenize ( String line )
+{
+	__line = line;
+	__tokenCount = 0;
+	__tokenList = null;
+	if ( (line.indexOf('"') >= 0) || (line.indexOf('\'') >= 0) ) {
+		// Quoted strings - use the same handling as other code
+		__tokenList = StringUtil.breakStringList ( line, __delim, __breakFlag );
+		if ( __tokenList != null ) {
+			__tokenCount = __tokenList.size();
+		}
+		else {
+			__tokenList = new ArrayList<String>();
+		}
+		return __tokenCount;
+	}
+	int len = line.length();
+	int pos = 0;
+	while ( pos < len ) {
+		if ( __skipBlanks ) {
+			while ( (pos < len) && isDelim(line.charAt(pos)) ) {
+				++pos;
+			}
+			if ( pos >= len ) {
+				break;
+			}
+		}
+		int start = pos;
+		while ( (pos < len) && !isDelim(line.charAt(pos)) ) {
+			++pos;
+		}
+		addToken ( start, pos );
+		// Skip the delimiter that ended the token - a delimiter at the end does not start another token
+		++pos;
+	}
+	return __tokenCount;
+}
+
+/**
+Indicate whether a character is a delimiter.
+*/
+private boolean isDelim ( char c )
+{
+	if ( __delimChar >= 0 ) {
+		return c == __delimChar;
+	}
+	return __delim.indexOf(c) >= 0;
+}
+
+/**
+Return the end of a token (exclusive) after removing trailing whitespace, same as String.trim().
+*/
+private int trimEnd ( int i, int start )
+{
+	int end = __tokenEnd[i];
+	while ( (end > start) && (__line.charAt(end - 1) <= ' ') ) {
+		--end;
+	}
+	return end;
+}
+
+/**
+Return the start of a token after removing leading whitespace, same as String.trim().
+*/
+private int trimStart ( int i )
+{
+	int start = __tokenStart[i];
+	int end = __tokenEnd[i];
+	while ( (start < end) && (__line.charAt(start) <= ' ') ) {
+		++start;
+	}
+	return start;
+}
+
+}
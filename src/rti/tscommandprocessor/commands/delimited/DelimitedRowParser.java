@@ -0,0 +1,412 @@
+// DelimitedRowParser - parser for data rows in a delimited time series file, used to parse rows in parallel
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.delimited;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.String.StringUtil;
+import RTi.Util.Time.DateTime;
+
+import rti.tscommandprocessor.core.DateTimeColumnParser;
+
+/**
+Parser for data rows in a delimited time series file, used by ReadDelimitedFile().
+Rows are read from the file in order and added to a Rows chunk, which is parsed into date/times, values, and flags,
+and the results are then set in the time series in row order by the command.
+Because parsing does not depend on other rows, chunks can be parsed in parallel, each with its own parser.
+A parser is not thread-safe.
+*/
+class DelimitedRowParser
+{
+
+/**
+Value types for parsed values.
+*/
+public static final byte VALUE_NONE = 0; // Missing without a flag, or error - nothing to set
+public static final byte VALUE_MISSING_WITH_FLAG = 1; // Missing but need to set the flag
+public static final byte VALUE_NUMBER = 2; // Number to set
+
+/**
+Delimiter character(s).
+*/
+private String __delim = null;
+
+/**
+Tokenizer for rows.
+*/
+private DelimitedLineTokenizer __tokenizer = null;
+
+/**
+Date/time parser, which uses the format if specified, or DateTime.parse() to determine the format.
+*/
+private DateTimeColumnParser __dateTimeParser = null;
+
+/**
+Whether to reuse the same DateTime for each row, which is only allowed if the rows are set in the time series
+before the next row is parsed.
+*/
+private boolean __reuseDateTime = false;
+
+/**
+DateTime reused for each row if __reuseDateTime=true.
+*/
+private DateTime __dateTime = null;
+
+/**
+Number of columns expected in each row.
+*/
+private int __columnCount = 0;
+
+/**
+Column positions (0+) for date/time, date, and time, -1 if not used.
+*/
+private int __dateTimePos = -1;
+private int __datePos = -1;
+private int __timePos = -1;
+
+/**
+Date/time column name, for messages.
+*/
+private String __dateTimeColumn = null;
+
+/**
+Column positions (0+) for values and flags, -1 if not used.
+*/
+private int [] __valuePos = null;
+private int [] __flagPos = null;
+
+/**
+Value column names, for messages.
+*/
+private List<String> __valueColumns = null;
+
+/**
+Strings that indicate missing values.
+*/
+private List<String> __missing = null;
+
+/**
+Whether to parse data values (otherwise only date/times are parsed).
+*/
+private boolean __readData = true;
+
+/**
+Create a parser.
+@param delim delimiter character(s)
+@param treatConsecutiveDelimitersAsOne indicate whether consecutive delimiter characters should be treated as one
+@param columnCount number of columns expected in each row
+@param dateTimePos date/time column position (0+), or -1 if not used
+@param datePos date column position (0+), or -1 if not used
+@param timePos time column position (0+), or -1 if not used
+@param dateTimeColumn date/time column name, for messages
+@param dateTimeFormat the date/time format, or null to determine automatically
+@param valuePos value column positions (0+), -1 if the column was not matched
+@param flagPos flag column positions (0+), -1 if not used, same length as valuePos
+@param valueColumns value column names, for messages
+@param missing strings that indicate missing values
+@param readData whether to parse data values
+@param reuseDateTime whether to reuse the same DateTime for each row (only if rows are processed one at a time)
+*/
+public DelimitedRowParser ( String delim, boolean treatConsecutiveDelimitersAsOne, int columnCount,
+	int dateTimePos, int datePos, int timePos, String dateTimeColumn, String dateTimeFormat,
+	int [] valuePos, int [] flagPos, List<String> valueColumns, List<String> missing, boolean readData,
+	boolean reuseDateTime )
+{
+	__tokenizer = new DelimitedLineTokenizer ( delim, treatConsecutiveDelimitersAsOne );
+	__delim = delim;
+	__columnCount = columnCount;
+	__dateTimePos = dateTimePos;
+	__datePos = datePos;
+	__timePos = timePos;
+	__dateTimeColumn = dateTimeColumn;
+	__dateTimeParser = new DateTimeColumnParser ( dateTimeFormat );
+	__valuePos = valuePos;
+	__flagPos = flagPos;
+	__valueColumns = valueColumns;
+	__missing = missing;
+	__readData = readData;
+	__reuseDateTime = reuseDateTime;
+}
+
+/**
+Parse the rows in a chunk.  Problems are added to the chunk error messages and the rows are not used.
+@param rows the rows to parse
+*/
+public void parse ( Rows rows )
+{
+	DelimitedLineTokenizer tokenizer = __tokenizer;
+	String dateTimeString = null, dateString, timeString, valueString, flag;
+	double value;
+	for ( int i = 0; i < rows.__size; i++ ) {
+		String s = rows.__lines[i];
+		int row = rows.__rows[i];
+		rows.__dateTimes[i] = null;
+		// First break the row...
+		int ntokens = tokenizer.tokenize ( s );
+		if ( s.endsWith(__delim) ) {
+			// breakStringList() does not count a delimiter at the end as having data after but
+			// this command does some checks that make this required
+			tokenizer.addEmptyToken();
+			ntokens = tokenizer.getTokenCount();
+		}
+		if ( ntokens < __columnCount ) {
+			rows.__errorMessages.add ( "Read " + ntokens + " tokens for row " + row +
+				" but at least " + __columnCount + " are expected - not parsing line: \"" + s + "\"" );
+			continue;
+		}
+		// Determine the date/time...
+		if ( __dateTimePos >= 0 ) {
+			dateTimeString = tokenizer.getToken(__dateTimePos);
+		}
+		else if ( __datePos >= 0 ) {
+			dateString = tokenizer.getToken(__datePos);
+			if ( __timePos >= 0 ) {
+				timeString = tokenizer.getToken(__timePos);
+				dateTimeString = dateString + ":" + timeString;
+			}
+			else {
+				dateTimeString = dateString;
+			}
+		}
+		DateTime dateTime = null;
+		try {
+			// Reuse the date/time for performance if allowed
+			// This is safe because for regular time series only the parts are used
+			// and for irregular a copy is made when setting the value
+			dateTime = __dateTimeParser.parse((__reuseDateTime ? __dateTime : null),dateTimeString);
+			if ( __reuseDateTime ) {
+				__dateTime = dateTime;
+			}
+		}
+		catch ( Exception dte ) {
+			rows.__errorMessages.add ( "Error parsing date/time in row " + row + " column " +
+				__dateTimeColumn + " \"" + dateTimeString + "\" (" + dte + ")" );
+			++rows.__dateTimeErrorCount;
+			if ( rows.__firstDateTimeException == null ) {
+				rows.__firstDateTimeException = dte;
+			}
+			continue; // No reason to process the data in the row
+		}
+		rows.__dateTimes[i] = dateTime;
+		if ( !__readData ) {
+			continue;
+		}
+		// Parse the values for the row
+		byte [] valueTypes = rows.__valueTypes[i];
+		double [] values = rows.__values[i];
+		String [] flags = rows.__flags[i];
+		for ( int ival = 0; ival < __valuePos.length; ival++ ) {
+			valueTypes[ival] = VALUE_NONE;
+			flags[ival] = null;
+			if ( __valuePos[ival] < 0 ) {
+				// Error matching column in setup
+				continue;
+			}
+			// Get the flag if specified (can have flag even if value is missing)
+			flag = null;
+			if ( (__flagPos.length >= ival) && (__flagPos[ival] >= 0) ) {
+				flag = tokenizer.getTrimmedToken(__flagPos[ival]);
+				flag.replace("\"", "");
+			}
+			flags[ival] = flag;
+			if ( tokenizer.isTrimmedTokenEmpty(__valuePos[ival]) ||
+				(tokenizer.indexOfTrimmedTokenIgnoreCase(__valuePos[ival], __missing) >= 0) ) {
+				// Missing so just let it remain missing in the time series, unless flag needs to be set
+				if ( (flag != null) && !flag.equals("") ) {
+					valueTypes[ival] = VALUE_MISSING_WITH_FLAG;
+				}
+			}
+			else {
+				// Parse simple numbers directly from the line, otherwise check the string
+				value = tokenizer.parseSimpleDouble(__valuePos[ival]);
+				if ( Double.isNaN(value) ) {
+					valueString = tokenizer.getTrimmedToken(__valuePos[ival]);
+					if ( !StringUtil.isDouble(valueString) ) {
+						// Data error
+						rows.__errorMessages.add ( "Data value (" + valueString + ") in row " + row + " column " +
+							__valueColumns.get(ival) + " is not a number and is not a recognized missing value." );
+						continue;
+					}
+					value = Double.parseDouble(valueString);
+				}
+				values[ival] = value;
+				valueTypes[ival] = VALUE_NUMBER;
+			}
+		}
+	}
+}
+
+/**
+Chunk of rows read from a file and the parsed results.
+*/
+static class Rows
+{
+	private String [] __lines;
+	private int [] __rows;
+	private int [] __dataRowCounts;
+	private int __size = 0;
+	private DateTime [] __dateTimes;
+	private byte [][] __valueTypes;
+	private double [][] __values;
+	private String [][] __flags;
+	private List<String> __errorMessages = new ArrayList<String>();
+	private int __dateTimeErrorCount = 0;
+	private Exception __firstDateTimeException = null;
+
+	/**
+	Create a chunk.
+	@param capacity maximum number of rows in the chunk
+	@param valueCount number of value columns
+	*/
+	public Rows ( int capacity, int valueCount )
+	{
+		__lines = new String[capacity];
+		__rows = new int[capacity];
+		__dataRowCounts = new int[capacity];
+		__dateTimes = new DateTime[capacity];
+		__valueTypes = new byte[capacity][valueCount];
+		__values = new double[capacity][valueCount];
+		__flags = new String[capacity][valueCount];
+	}
+
+	/**
+	Add a row to the chunk.
+	@param line the line from the file
+	@param row the row number in the file (1+), for messages
+	@param dataRowCount the data row count (1+, including the header row if column names are read from the file)
+	*/
+	public void add ( String line, int row, int dataRowCount )
+	{
+		__lines[__size] = line;
+		__rows[__size] = row;
+		__dataRowCounts[__size] = dataRowCount;
+		++__size;
+	}
+
+	/**
+	Clear the chunk so that it can be reused.
+	*/
+	public void clear ()
+	{
+		for ( int i = 0; i < __size; i++ ) {
+			__lines[i] = null;
+			__dateTimes[i] = null;
+		}
+		__size = 0;
+		__errorMessages.clear();
+		__dateTimeErrorCount = 0;
+		__firstDateTimeException = null;
+	}
+
+	/**
+	Return the data row count for a row.
+	*/
+	public int getDataRowCount ( int i )
+	{
+		return __dataRowCounts[i];
+	}
+
+	/**
+	Return the row number in the file (1+) for a row.
+	*/
+	public int getRow ( int i )
+	{
+		return __rows[i];
+	}
+
+	/**
+	Return the number of date/time parse errors.
+	*/
+	public int getDateTimeErrorCount ()
+	{
+		return __dateTimeErrorCount;
+	}
+
+	/**
+	Return the parsed date/time for a row, or null if the row could not be parsed and should be ignored.
+	*/
+	public DateTime getDateTime ( int i )
+	{
+		return __dateTimes[i];
+	}
+
+	/**
+	Return the error messages for the chunk, in row order.
+	*/
+	public List<String> getErrorMessages ()
+	{
+		return __errorMessages;
+	}
+
+	/**
+	Return the first date/time parse exception, or null if none.
+	*/
+	public Exception getFirstDateTimeException ()
+	{
+		return __firstDateTimeException;
+	}
+
+	/**
+	Return the flag for a row and value column, or null if none.
+	*/
+	public String getFlag ( int i, int ival )
+	{
+		return __flags[i][ival];
+	}
+
+	/**
+	Return the value for a row and value column, only valid if the value type is VALUE_NUMBER.
+	*/
+	public double getValue ( int i, int ival )
+	{
+		return __values[i][ival];
+	}
+
+	/**
+	Return the value type for a row and value column.
+	*/
+	public byte getValueType ( int i, int ival )
+	{
+		return __valueTypes[i][ival];
+	}
+
+	/**
+	Indicate whether the chunk is full.
+	*/
+	public boolean isFull ()
+	{
+		return __size == __lines.length;
+	}
+
+	/**
+	Return the number of rows in the chunk.
+	*/
+	public int size ()
+	{
+		return __size;
+	}
+}
+
+}
@@ -34,7 +34,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import RTi.TS.TS;
 import RTi.TS.TSIdent;
@@ -75,6 +80,11 @@ For example FC(1:) indicates columns 1 through the total number of columns.
 */
 protected final String _FC = "FC[";
 
+/**
+Number of rows in each chunk when parsing rows in parallel.
+*/
+private final int PARSE_CHUNK_ROWS = 10000;
+
 /**
 List of time series read during discovery.  These are TS objects but with mainly the
 metadata (TSIdent) filled in.
@@ -102,6 +112,74 @@ Indicate whether to treat consecutive delimiters as one.
 */
 private boolean __treatConsecutiveDelimitersAsOne = false;
 
+/**
+Column headings read from the file for FC[] notation, with the reader left open after the heading row so that
+the data rows are read in the same pass.  Only set while the command is running (see runCommandInternal()).
+*/
+private HeaderScan __headerScan = null;
+
+/**
+Column headings read from a file, and the open reader positioned after the heading row.
+*/
+private static class HeaderScan
+{
+	/**
+	Key for the file and the parameters that control reading the header, used to determine whether the
+	headings can be reused.
+	*/
+	String key = null;
+
+	/**
+	The file that was read, and the parameters that determine which rows are skipped.
+	*/
+	String inputFileFull = null;
+	String commentChar = null;
+	int [][] skipRows = null;
+	int skipRowsAfterComments = -1;
+
+	/**
+	Column headings, or null if the file does not contain a header row.
+	*/
+	List<String> headingList = null;
+
+	/**
+	Row (1+) of the heading row.
+	*/
+	int headingRow = -1;
+
+	/**
+	Reader positioned after the heading row, or null if the reader was closed or handed to the data scan.
+	*/
+	BufferedReader in = null;
+
+	/**
+	Indicate whether reading data can continue after the heading row, which requires that the rows are
+	skipped in the same way.
+	*/
+	boolean canContinue ( String inputFileFull, String commentChar, int[][] skipRows, int skipRowsAfterComments )
+	{
+		return (in != null) && (headingList != null) && this.inputFileFull.equals(inputFileFull) &&
+			this.commentChar.equals(commentChar) && Arrays.deepEquals(this.skipRows,skipRows) &&
+			(this.skipRowsAfterComments == skipRowsAfterComments);
+	}
+
+	/**
+	Close the reader if it is open.
+	*/
+	void close ()
+	{
+		if ( in != null ) {
+			try {
+				in.close();
+			}
+			catch ( IOException e ) {
+				// Nothing else can be done
+			}
+			in = null;
+		}
+	}
+}
+
 /**
 Constructor.
 */
@@ -147,6 +225,7 @@ throws InvalidCommandParameterException
     String Alias = parameters.getValue("Alias" );
 	String InputStart = parameters.getValue("InputStart");
 	String InputEnd = parameters.getValue("InputEnd");
+	String ParseThreads = parameters.getValue("ParseThreads");
 	
     String InputFile_full = null;
     if ( (InputFile == null) || InputFile.isEmpty() ) {
@@ -369,9 +448,19 @@ throws InvalidCommandParameterException
                     message, "Remove spaces from the alias." ) );
         }
     }
+
+    if ( (ParseThreads != null) && !ParseThreads.equals("") ) {
+        if ( !StringUtil.isInteger(ParseThreads) || (Integer.parseInt(ParseThreads) <= 0) ) {
+            message = "The number of parse threads (" + ParseThreads + ") is invalid.";
+            warning += "\n" + message;
+            status.addToLog ( CommandPhaseType.INITIALIZATION,
+                new CommandLogRecord(CommandStatusType.FAILURE,
+                    message, "Specify an integer > 0." ) );
+        }
+    }
     
 	// Check for invalid parameters...
-    List<String> validList = new ArrayList<String>(23);
+    List<String> validList = new ArrayList<String>(24);
     validList.add ( "InputFile" );
     validList.add ( "Delimiter" );
     validList.add ( "TreatConsecutiveDelimitersAsOne" );
@@ -395,6 +484,7 @@ throws InvalidCommandParameterException
     validList.add ( "Alias" );
     validList.add ( "InputStart" );
     validList.add ( "InputEnd" );
+    validList.add ( "ParseThreads" );
     warning = TSCommandProcessorUtil.validateParameterNames ( validList, this, warning );
 
 	// Throw an InvalidCommandParameterException in case of errors.
@@ -1171,6 +1261,8 @@ private boolean needToSkipRow( int row, int firstNonHeaderRow, int[][] skipRows,
 Read the column names from the file.  This code is essentially a copy of some of the code used when
 actually processing the time series and should be kept consistent.  It mainly is concerned with handling
 initial comments in the file, skipped rows, and reading the first non-comment record as a header.
+The header is read once during a run, for all parameters that use FC[] notation, and the reader is left open
+so that readTimeSeriesList() continues reading the data rows after the header rather than reopening the file.
 @param inputFileFull the full path to the input file.
 @param columnNames0 the value of the ColumnNames parameter before special handling.  For example, this may contain
 FC[] notation.
@@ -1180,110 +1272,163 @@ protected List<String> readColumnNamesFromFile ( String inputFileFull, List<Stri
 throws IOException
 {   String routine = getClass().getSimpleName() + ".readColumnNamesFromFile";
     List<String> columnNames = new ArrayList<String>();
+    // The header is only read once for all the parameters that use FC[] notation,
+    // unless the file or the parameters that control reading the header are different
+    String headingKey = inputFileFull + "|" + delim + "|" + commentChar + "|" + Arrays.deepToString(skipRows) + "|" +
+        skipRowsAfterComments;
+    if ( (__headerScan != null) && headingKey.equals(__headerScan.key) ) {
+        Message.printStatus(2, routine, "Using the column headings already read from file \"" + inputFileFull + "\"" );
+    }
+    else {
+        closeHeaderScan();
+        __headerScan = readColumnHeadingsFromFile ( inputFileFull, delim, commentChar, skipRows, skipRowsAfterComments );
+        __headerScan.key = headingKey;
+    }
+    List<String> columnHeadingList = __headerScan.headingList;
+    if ( columnHeadingList == null ) {
+        // No header row in the file
+        return columnNames;
+    }
+    int nColumnHeadings = columnHeadingList.size();
+    // Loop through original column name tokens and, as requested, expand to what is in the file
+    for ( String columnName0 : columnNames0 ) {
+        if ( StringUtil.startsWithIgnoreCase(columnName0,_FC) ) {
+            // Need to process the column names from the file
+            int parenPos1 = columnName0.indexOf(_FC);
+            int parenPos2 = columnName0.indexOf("]");
+            if ( (parenPos1 >= 0) && (parenPos2 >= 0) ) {
+                // Need to interpret slice of field numbers in file
+                String slice = columnName0.substring((parenPos1 + _FC.length()),parenPos2);
+                int [] fileColPos = StringUtil.parseIntegerSlice( slice, ":", 0, nColumnHeadings );
+                Message.printStatus(2, routine, "Got " + fileColPos.length + " columns from slice \"" + slice + "\"" );
+                for ( int ipos = 0; ipos <fileColPos.length; ipos++ ) {
+                    // Positions from parameter parsing are 1+ so need to decrement to get 0+ indices
+                    Message.printStatus(2, routine, "Adding file column name \"" + columnHeadingList.get(fileColPos[ipos] - 1).trim() + "\"" );
+                    columnNames.add ( columnHeadingList.get(fileColPos[ipos] - 1).trim() );
+                }
+            }
+            else {
+                // Use all the file field names
+                for ( int ipos = 0; ipos <nColumnHeadings; ipos++ ) {
+                    Message.printStatus(2, routine, "Adding file column name \"" + columnHeadingList.get(ipos).trim() + "\"" );
+                    columnNames.add ( columnHeadingList.get(ipos).trim() );
+                }
+            }
+        }
+        else {
+            // A literal string that can be used as is
+            Message.printStatus(2, routine, "Adding user-specified column name \"" + columnName0 + "\"" );
+            columnNames.add ( columnName0 );
+        }
+    }
+    return columnNames;
+}
+
+/**
+Read the column headings from the file, which is the first non-comment record that is not skipped.
+@param inputFileFull the full path to the input file.
+@return the header scan, with the column headings (null if the file does not contain a header record)
+and the reader left open after the heading row (null if the file does not contain a header record).
+*/
+private HeaderScan readColumnHeadingsFromFile ( String inputFileFull, String delim,
+    String commentChar, int[][] skipRows, int skipRowsAfterComments )
+throws IOException
+{   String routine = getClass().getSimpleName() + ".readColumnHeadingsFromFile";
     BufferedReader in = null;
     Message.printStatus(2, routine, "Getting the column names from file \"" + inputFileFull + "\"" );
     in = new BufferedReader ( new InputStreamReader(IOUtil.getInputStream ( inputFileFull )) );
+    HeaderScan headerScan = new HeaderScan();
+    headerScan.inputFileFull = inputFileFull;
+    headerScan.commentChar = commentChar;
+    headerScan.skipRows = skipRows;
+    headerScan.skipRowsAfterComments = skipRowsAfterComments;
     String s, sTrimmed;
     List<String> columnHeadingList = null;
-    int nColumnHeadings = 0;
     int row = 0;
     boolean rowIsComment = false;
     int firstNonHeaderRow = -1; // first line that is not a header comment (1+)
     int dl = 10;
     int breakFlag = 0;
-    while ( true ) {
-        // Read a line and deal with skipping
-        s = in.readLine();
-        if ( s == null ) {
-            // No more data
-            break;
-        }
-        // Else handle the line
-        ++row;
-        //Message.printStatus(2, routine, "Processing line " + row + ": " + s );
-        if ( Message.isDebugOn ) {
-            Message.printDebug(dl, routine, "Processing line " + row + ": " + s );
-        }
-        rowIsComment = false;
-        sTrimmed = s.trim();
-        // Skip in the range of rows being skipped - this basically throws out rows without evaluating
-        // Don't even know if it is a comment.
-        if ( needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
-            Message.printStatus(2, routine, "Skipping row " + row );
-            continue;
-        }
-        if ( (sTrimmed.length() == 0) || (commentChar.indexOf(s.charAt(0)) >= 0) ) {
-            rowIsComment = true;
-        }
-        // Skip rows first, in particular user-specified skips before evaluating for the first non-comment row
-        if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
-            Message.printStatus(2, routine, "2 Skipping row " + row );
-            continue;
-        }
-        Message.printStatus(2, routine, "Line is not a comment and is not being skipped." );
-        if ( !rowIsComment ) {
-            if ( firstNonHeaderRow < 0 ) {
-                // This is the first non-comment data record
-                firstNonHeaderRow = row;
-                if ( Message.isDebugOn ) {
-                    Message.printDebug(dl, routine, "Found first non-comment (non-skipped) line at row " +
-                        firstNonHeaderRow + ": " + s );
-                }
+    try {
+        while ( true ) {
+            // Read a line and deal with skipping
+            s = in.readLine();
+            if ( s == null ) {
+                // No more data
+                break;
             }
-        }
-        // Check again in case the first non-header line is detected.
-        if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+            // Else handle the line
+            ++row;
+            //Message.printStatus(2, routine, "Processing line " + row + ": " + s );
             if ( Message.isDebugOn ) {
-                Message.printDebug(dl, routine, "Skipping the row because needToSkipRow()=true" );
+                Message.printDebug(dl, routine, "Processing line " + row + ": " + s );
             }
-            continue;
-        }
-        // Else continue reading data records from the file - this will be the file header with column names...
-        // First break the row (allow quoted strings since headers)...
-        Message.printStatus(2, routine, "Parsing the line to get column names." );
-        columnHeadingList = StringUtil.breakStringList ( s, delim, breakFlag | StringUtil.DELIM_ALLOW_STRINGS );
-        if ( columnHeadingList == null ) {
-            nColumnHeadings = 0;
-        }
-        else {
-            nColumnHeadings = columnHeadingList.size();
-        }
-        // Loop through original column name tokens and, as requested, expand to what is in the file
-        for ( String columnName0 : columnNames0 ) {
-            if ( StringUtil.startsWithIgnoreCase(columnName0,_FC) ) {
-                // Need to process the column names from the file
-                int parenPos1 = columnName0.indexOf(_FC);
-                int parenPos2 = columnName0.indexOf("]");
-                if ( (parenPos1 >= 0) && (parenPos2 >= 0) ) {
-                    // Need to interpret slice of field numbers in file
-                    String slice = columnName0.substring((parenPos1 + _FC.length()),parenPos2);
-                    int [] fileColPos = StringUtil.parseIntegerSlice( slice, ":", 0, nColumnHeadings );
-                    Message.printStatus(2, routine, "Got " + fileColPos.length + " columns from slice \"" + slice + "\"" );
-                    for ( int ipos = 0; ipos <fileColPos.length; ipos++ ) {
-                        // Positions from parameter parsing are 1+ so need to decrement to get 0+ indices
-                        Message.printStatus(2, routine, "Adding file column name \"" + columnHeadingList.get(fileColPos[ipos] - 1).trim() + "\"" );
-                        columnNames.add ( columnHeadingList.get(fileColPos[ipos] - 1).trim() );
+            rowIsComment = false;
+            sTrimmed = s.trim();
+            // Skip in the range of rows being skipped - this basically throws out rows without evaluating
+            // Don't even know if it is a comment.
+            if ( needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                Message.printStatus(2, routine, "Skipping row " + row );
+                continue;
+            }
+            if ( (sTrimmed.length() == 0) || (commentChar.indexOf(s.charAt(0)) >= 0) ) {
+                rowIsComment = true;
+            }
+            // Skip rows first, in particular user-specified skips before evaluating for the first non-comment row
+            if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                Message.printStatus(2, routine, "2 Skipping row " + row );
+                continue;
+            }
+            Message.printStatus(2, routine, "Line is not a comment and is not being skipped." );
+            if ( !rowIsComment ) {
+                if ( firstNonHeaderRow < 0 ) {
+                    // This is the first non-comment data record
+                    firstNonHeaderRow = row;
+                    if ( Message.isDebugOn ) {
+                        Message.printDebug(dl, routine, "Found first non-comment (non-skipped) line at row " +
+                            firstNonHeaderRow + ": " + s );
                     }
                 }
-                else {
-                    // Use all the file field names
-                    for ( int ipos = 0; ipos <nColumnHeadings; ipos++ ) {
-                        Message.printStatus(2, routine, "Adding file column name \"" + columnHeadingList.get(ipos).trim() + "\"" );
-                        columnNames.add ( columnHeadingList.get(ipos).trim() );
-                    }
+            }
+            // Check again in case the first non-header line is detected.
+            if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                if ( Message.isDebugOn ) {
+                    Message.printDebug(dl, routine, "Skipping the row because needToSkipRow()=true" );
                 }
+                continue;
             }
-            else {
-                // A literal string that can be used as is
-                Message.printStatus(2, routine, "Adding user-specified column name \"" + columnName0 + "\"" );
-                columnNames.add ( columnName0 );
+            // Else continue reading data records from the file - this will be the file header with column names...
+            // First break the row (allow quoted strings since headers)...
+            Message.printStatus(2, routine, "Parsing the line to get column names." );
+            columnHeadingList = StringUtil.breakStringList ( s, delim, breakFlag | StringUtil.DELIM_ALLOW_STRINGS );
+            if ( columnHeadingList == null ) {
+                columnHeadingList = new ArrayList<String>();
             }
+            // Currently headers in files can only be one row so break out of reading
+            // Leave the reader open so that the data rows can be read after the header
+            headerScan.headingList = columnHeadingList;
+            headerScan.headingRow = row;
+            headerScan.in = in;
+            return headerScan;
         }
-        // Currently headers in files can only be one row so break out of reading
-        break;
+    }
+    catch ( IOException e ) {
+        in.close();
+        throw e;
     }
     in.close();
-    return columnNames;
+    return headerScan;
+}
+
+/**
+Close the reader used to read the column headings, if open, and clear the headings, which are only used during a run.
+*/
+private void closeHeaderScan ()
+{
+    if ( __headerScan != null ) {
+        __headerScan.close();
+        __headerScan = null;
+    }
 }
 
 /**
@@ -1312,6 +1457,7 @@ Read a list of time series from a delimited file.
 @param inputStartReq requested start of data (null to return all).
 @param inputEndReq requested end of data (null to return all).
 @param readData True to read data, false to only read the header information.
+@param parseThreads the number of threads to use to parse data rows, 1 to parse as rows are read.
 @param errorMessages Error message strings to be propagated back to calling code.
 */
 private List<TS> readTimeSeriesList ( String inputFileFull,
@@ -1322,14 +1468,27 @@ private List<TS> readTimeSeriesList ( String inputFileFull,
     List<String> ids, List<String> providers, List<String> datatypes, TimeInterval interval,
     List<String> scenarios, List<String> units, List<String> missing,
     DateTime inputStartReq, DateTime inputEndReq,
-    boolean readData, List<String> errorMessages )
+    boolean readData, int parseThreads, List<String> errorMessages )
 throws IOException
 {   String routine = getClass().getSimpleName() + ".readTimeSeriesList";
     // Allocate the list
     List<TS> tslist = new ArrayList<TS>();
-    // Open the file
+    // Open the file, or continue reading after the header row if the header was read for FC[] notation,
+    // so that the file is read in one pass
     BufferedReader in = null;
-    in = new BufferedReader ( new InputStreamReader(IOUtil.getInputStream ( inputFileFull )) );
+    int headingRow = -1;
+    if ( doReadColumnNamesFromFile && (__headerScan != null) &&
+        __headerScan.canContinue(inputFileFull, commentChar, skipRows, skipRowsAfterComments) ) {
+        in = __headerScan.in;
+        headingRow = __headerScan.headingRow;
+        // The reader is closed below
+        __headerScan.in = null;
+        Message.printStatus(2, routine, "Reading data rows after the header row " + headingRow +
+            " that was read for column names." );
+    }
+    else {
+        in = new BufferedReader ( new InputStreamReader(IOUtil.getInputStream ( inputFileFull )) );
+    }
     // Translate column names to integer values to speed up processing below - these have been expanded for runtime
     int dateTimePos = getColumnNumberFromName(dateTimeColumn,columnNames);
     if ( Message.isDebugOn ) {
@@ -1431,12 +1590,12 @@ throws IOException
     }
     // Loop through reading the rows from the file, perform actions as needed
     int row = 0;
+    int rowBeingSet = -1; // Row for which values are being set, which may be before the row being read
+    ExecutorService executor = null;
     try {
         String s, sTrimmed;
         TS ts = null; // Time series to read
         boolean rowIsComment;
-        List<String> tokens;
-        String dateTimeString = null, dateString, timeString, valueString;
         DateTime dateTime;
         int breakFlag = 0;
         if ( treatConsecutiveDelimitersAsOne ) {
@@ -1445,229 +1604,251 @@ throws IOException
         int firstNonHeaderRow = -1; // first line that is not a header comment (1+)
         int ival; // index for values on line - reused
         int dataRowCount = 0; // Count of data rows that are processed
+        if ( headingRow > 0 ) {
+            // Continuing after the header row, which is the first non-comment row and is counted as a data row below
+            row = headingRow;
+            firstNonHeaderRow = headingRow;
+            dataRowCount = 1;
+        }
         int dl = 10;
-        int ntokens = 0; // Number of tokens parsed from a line
         double value; // Data value
         String flag; // Data flag
         int dtErrorCount = 0; // Count of errors parsing date/times
-        while ( true ) {
-            // Read a line and deal with skipping
-            s = in.readLine();
-            if ( s == null ) {
-                // No more data
-                break;
-            }
-            // Else handle the line
-            ++row;
-            if ( Message.isDebugOn ) {
-                Message.printDebug(dl, routine, "Processing line " + row + ": " + s );
-            }
-            rowIsComment = false;
-            sTrimmed = s.trim();
-            // Skip in the range of rows being skipped - this basically throws out rows without evaluating
-            // Don't even know if it is a comment.
-            if ( needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
-                continue;
-            }
-            if ( (sTrimmed.length() == 0) || (commentChar.indexOf(s.charAt(0)) >= 0) ) {
-                rowIsComment = true;
-            }
-            // Skip rows first, in particular user-specified skips before evaluating for the first non-comment row
-            if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
-                continue;
-            }
-            if ( !rowIsComment ) {
-                if ( firstNonHeaderRow < 0 ) {
-                    // This is the first non-comment data record
-                    firstNonHeaderRow = row;
+        // Rows are added to a chunk and parsed, and then the values are set in the time series in row order.
+        // If parsing in parallel, chunks are parsed by the executor, each with its own parser.
+        // Otherwise each row is parsed as it is read and the date/time is reused.
+        boolean parseInParallel = (parseThreads > 1) && readData;
+        DelimitedRowParser rowParser = null;
+        DelimitedRowParser.Rows rows = null;
+        List<Future<DelimitedRowParser.Rows>> futureList = new ArrayList<Future<DelimitedRowParser.Rows>>();
+        if ( parseInParallel ) {
+            Message.printStatus(2, routine, "Parsing rows in parallel using " + parseThreads + " threads." );
+            executor = Executors.newFixedThreadPool(parseThreads);
+            rows = new DelimitedRowParser.Rows ( PARSE_CHUNK_ROWS, valuePos.length );
+        }
+        else {
+            rowParser = new DelimitedRowParser ( delim, treatConsecutiveDelimitersAsOne, columnNames.size(),
+                dateTimePos, datePos, timePos, dateTimeColumn, dateTimeFormat, valuePos, flagPos, valueColumns,
+                missing, readData, true );
+            rows = new DelimitedRowParser.Rows ( 1, valuePos.length );
+        }
+        boolean endOfFile = false;
+        boolean done = false;
+        while ( !done ) {
+            if ( !endOfFile ) {
+                // Read a line and deal with skipping
+                s = in.readLine();
+                if ( s == null ) {
+                    // No more data - parse and set the rows that have been read
+                    endOfFile = true;
+                }
+                else {
+                    // Else handle the line
+                    ++row;
                     if ( Message.isDebugOn ) {
-                        Message.printDebug(dl, routine, "Found first non-comment (non-skipped) line at row " +
-                            firstNonHeaderRow + ": " + s );
+                        Message.printDebug(dl, routine, "Processing line " + row + ": " + s );
+                    }
+                    rowIsComment = false;
+                    sTrimmed = s.trim();
+                    // Skip in the range of rows being skipped - this basically throws out rows without evaluating
+                    // Don't even know if it is a comment.
+                    if ( needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                        continue;
+                    }
+                    if ( (sTrimmed.length() == 0) || (commentChar.indexOf(s.charAt(0)) >= 0) ) {
+                        rowIsComment = true;
+                    }
+                    // Skip rows first, in particular user-specified skips before evaluating for the first non-comment row
+                    if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                        continue;
+                    }
+                    if ( !rowIsComment ) {
+                        if ( firstNonHeaderRow < 0 ) {
+                            // This is the first non-comment data record
+                            firstNonHeaderRow = row;
+                            if ( Message.isDebugOn ) {
+                                Message.printDebug(dl, routine, "Found first non-comment (non-skipped) line at row " +
+                                    firstNonHeaderRow + ": " + s );
+                            }
+                        }
+                    }
+                    // Check again in case the first non-header line is detected.
+                    if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
+                        continue;
+                    }
+                    // If the ColumnNames contained _FC, then the first non-comment line is the file header.  This would
+                    // have been read during command setup so just read and ignore here - this is not considered a data row
+                    if ( doReadColumnNamesFromFile && (dataRowCount == 0) ) {
+                        Message.printDebug(dl, routine, "Skipping the row since it has file headers." );
+                        ++dataRowCount;
+                        continue;
+                    }
+                    // Else continue reading data records from the file...
+                    ++dataRowCount;
+                    rows.add ( s, row, dataRowCount );
+                    if ( !rows.isFull() ) {
+                        continue;
                     }
                 }
             }
-            // Check again in case the first non-header line is detected.
-            if ( rowIsComment || needToSkipRow( row, firstNonHeaderRow, skipRows, skipRowsAfterComments ) ) {
-                continue;
-            }
-            // If the ColumnNames contained _FC, then the first non-comment line is the file header.  This would
-            // have been read during command setup so just read and ignore here - this is not considered a data row
-            if ( doReadColumnNamesFromFile && (dataRowCount == 0) ) {
-                Message.printDebug(dl, routine, "Skipping the row since it has file headers." );
-                ++dataRowCount;
-                continue;
-            }
-            // Else continue reading data records from the file...
-            ++dataRowCount;
-            // First break the row...
-            tokens = StringUtil.breakStringList ( s, delim, breakFlag | StringUtil.DELIM_ALLOW_STRINGS);
-            if ( tokens == null ) {
-                ntokens = 0;
-            }
-            else {
-                if ( s.endsWith(delim) ) {
-                    // breakStringList() does not count a delimiter at the end as having data after but
-                    // this command does some checks that make this required
-                    tokens.add("");
+            // Parse the rows that have been read
+            DelimitedRowParser.Rows parsedRows = null;
+            if ( parseInParallel ) {
+                if ( rows.size() > 0 ) {
+                    final DelimitedRowParser.Rows rowsToParse = rows;
+                    final DelimitedRowParser chunkParser = new DelimitedRowParser ( delim, treatConsecutiveDelimitersAsOne,
+                        columnNames.size(), dateTimePos, datePos, timePos, dateTimeColumn, dateTimeFormat,
+                        valuePos, flagPos, valueColumns, missing, readData, false );
+                    futureList.add ( executor.submit ( new Callable<DelimitedRowParser.Rows>() {
+                        public DelimitedRowParser.Rows call () {
+                            chunkParser.parse ( rowsToParse );
+                            return rowsToParse;
+                        }
+                    }));
+                    rows = new DelimitedRowParser.Rows ( PARSE_CHUNK_ROWS, valuePos.length );
                 }
-                ntokens = tokens.size();
-            }
-            if ( tokens.size() < columnNames.size() ) {
-                errorMessages.add ( "Read " + ntokens + " tokens for row " + row +
-                    " but at least " + columnNames.size() + " are expected - not parsing line: \"" + s + "\"" );
-                continue;
-            }
-            // Determine the date/time...
-            if ( dateTimePos >= 0 ) {
-                dateTimeString = tokens.get(dateTimePos);
-            }
-            else if ( datePos >= 0 ) {
-                dateString = tokens.get(datePos);
-                if ( timePos >= 0 ) {
-                    timeString = tokens.get(timePos);
-                    dateTimeString = dateString + ":" + timeString;
+                if ( futureList.size() == 0 ) {
+                    // All rows have been read and set
+                    break;
                 }
-                else {
-                    dateTimeString = dateString;
+                if ( !endOfFile && (futureList.size() < parseThreads*2) ) {
+                    // Keep reading while the threads are busy, limiting the number of chunks in memory
+                    continue;
                 }
+                // Set values from the oldest chunk so that the rows are processed in order
+                parsedRows = futureList.remove(0).get();
             }
-            dateTime = null;
-            try {
-                if ( dateTimeParser != null ) {
-                    // Reuse the date/time for performance
-                    // This is safe because for regular time series only the parts are used
-                    // and for irregular a copy is made when setting the value
-                    dateTime = dateTimeParser.parse(dateTime,dateTimeString);
-                }
-                else {
-                    // Let the parse() method figure out the format
-                    dateTime = DateTime.parse(dateTimeString);
+            else {
+                if ( rows.size() == 0 ) {
+                    // All rows have been read and set
+                    break;
                 }
+                rowParser.parse ( rows );
+                parsedRows = rows;
             }
-            catch ( Exception dte ) {
-                if ( errorMessages != null ) {
-                    errorMessages.add ( "Error parsing date/time in row " + row + " column " +
-                        dateTimeColumn + " \"" + dateTimeString + "\" (" + dte + ")" );
-                }
-                ++dtErrorCount;
-                if ( dtErrorCount == 1 ) {
-                    // Print one exception to help with troubleshooting
-                    Message.printWarning(3, routine, dte);
-                }
-                continue; // No reason to process the data in the row
+            // Add the problems in the same order as rows, and print one exception to help with troubleshooting
+            errorMessages.addAll ( parsedRows.getErrorMessages() );
+            if ( (dtErrorCount == 0) && (parsedRows.getFirstDateTimeException() != null) ) {
+                Message.printWarning(3, routine, parsedRows.getFirstDateTimeException());
             }
-            // Process the time series for the row
-            for ( ival = 0; ival < valuePos.length; ival++ ) {
-                if ( valuePos[ival] < 0 ) {
-                    // Error matching column in setup so continue to avoid major problem
-                    // Will have null time series in result
+            dtErrorCount += parsedRows.getDateTimeErrorCount();
+            for ( int irow = 0; irow < parsedRows.size(); irow++ ) {
+                dateTime = parsedRows.getDateTime(irow);
+                if ( dateTime == null ) {
+                    // Row could not be parsed - problem was added above
                     continue;
                 }
-                // Time series corresponding to value.
-                ts = tslist.get(ival);
-                // If the first row being processed, need to allocate the data space for all the time series
-                // This also requires reading from the end of the file to get the end date
-                // Because some files have data in reverse chronological order (newest at top), compare
-                // the start and end date/times before setting.
-                if ( (doReadColumnNamesFromFile && (dataRowCount == 2)) ||
-                     (!doReadColumnNamesFromFile && dataRowCount == 1) ) {
-                    // The first date will be set from the first row of data
-                    if ( latest == null ) {
-                        // Determine the last date by reading the end of the file - only need to do for first time series
-                        DateTime lastFileDateTime = determineEndDateTimeFromFile (
-                            inputFileFull, dateTimePos, datePos, timePos, delim, breakFlag, dateTimeParser );
-                        if ( lastFileDateTime == null ) {
-                            throw new IOException ( "Unable to determine date/time from last line in file." );
+                rowBeingSet = parsedRows.getRow(irow);
+                int rowDataRowCount = parsedRows.getDataRowCount(irow);
+                // Process the time series for the row
+                for ( ival = 0; ival < valuePos.length; ival++ ) {
+                    if ( valuePos[ival] < 0 ) {
+                        // Error matching column in setup so continue to avoid major problem
+                        // Will have null time series in result
+                        continue;
+                    }
+                    // Time series corresponding to value.
+                    ts = tslist.get(ival);
+                    // If the first row being processed, need to allocate the data space for all the time series
+                    // This also requires reading from the end of the file to get the end date
+                    // Because some files have data in reverse chronological order (newest at top), compare
+                    // the start and end date/times before setting.
+                    if ( (doReadColumnNamesFromFile && (rowDataRowCount == 2)) ||
+                         (!doReadColumnNamesFromFile && rowDataRowCount == 1) ) {
+                        // The first date will be set from the first row of data
+                        if ( latest == null ) {
+                            // Determine the last date by reading the end of the file - only need to do for first time series
+                            DateTime lastFileDateTime = determineEndDateTimeFromFile (
+                                inputFileFull, dateTimePos, datePos, timePos, delim, breakFlag, dateTimeParser );
+                            if ( lastFileDateTime == null ) {
+                                throw new IOException ( "Unable to determine date/time from last line in file." );
+                            }
+                            if ( Message.isDebugOn ) {
+                                Message.printDebug(dl,routine,"Latest date/time in file is " + lastFileDateTime );
+                            }
+                            if ( dateTime.greaterThan(lastFileDateTime)) {
+                                earliest = lastFileDateTime;
+                                latest = dateTime;
+                            }
+                            else {
+                                earliest = dateTime;
+                                latest = lastFileDateTime;
+                            }
                         }
-                        if ( Message.isDebugOn ) {
-                            Message.printDebug(dl,routine,"Latest date/time in file is " + lastFileDateTime );
+                        // Always set the original to the file but only set period if not passed in
+                        if ( inputStartReq == null ) {
+                            ts.setDate1(earliest);
                         }
-                        if ( dateTime.greaterThan(lastFileDateTime)) {
-                            earliest = lastFileDateTime;
-                            latest = dateTime;
+                        ts.setDate1Original(earliest);
+                        if ( inputEndReq == null ) {
+                            ts.setDate2(latest);
                         }
-                        else {
-                            earliest = dateTime;
-                            latest = lastFileDateTime;
+                        ts.setDate2Original(latest);
+                        ts.addToGenesis ( "Read time series from file \"" + inputFileFull + "\" for period " +
+                            ts.getDate1() + " to " + ts.getDate2() );
+                        if ( readData ) {
+                            // Allocate the data space
+                            ts.allocateDataSpace();
+                        }
+                        if ( Message.isDebugOn ) {
+                            Message.printDebug(dl, routine, "Set period of time series " + ts.getIdentifierString() +
+                                ": " + ts.getDate1() + " to " + ts.getDate2() );
                         }
                     }
-                    // Always set the original to the file but only set period if not passed in
-                    if ( inputStartReq == null ) {
-                        ts.setDate1(earliest);
-                    }
-                    ts.setDate1Original(earliest);
-                    if ( inputEndReq == null ) {
-                        ts.setDate2(latest);
-                    }
-                    ts.setDate2Original(latest);
-                    ts.addToGenesis ( "Read time series from file \"" + inputFileFull + "\" for period " +
-                        ts.getDate1() + " to " + ts.getDate2() );
-                    if ( readData ) {
-                        // Allocate the data space
-                        ts.allocateDataSpace();
-                    }
-                    if ( Message.isDebugOn ) {
-                        Message.printDebug(dl, routine, "Set period of time series " + ts.getIdentifierString() +
-                            ": " + ts.getDate1() + " to " + ts.getDate2() );
-                    }
-                }
-                if ( !readData ) {
-                    // No need to process data for this time series (and will break out of main loop below when
-                    // done with all time series).
-                    continue;
-                }
-                valueString = tokens.get(valuePos[ival]).trim();
-                // Get the flag if specified (can have flag even if value is missing)
-                flag = null;
-                if ( (flagPos.length >= ival) && (flagPos[ival] >= 0) ) {
-                    flag = tokens.get(flagPos[ival]).trim();
-                    flag.replace("\"", "");
-                }
-                if ( valueString.equals("") || (StringUtil.indexOfIgnoreCase(missing, valueString) >= 0) ) {
-                    // Missing so just let it remain missing in the time series, unless flag needs to be set
-                    if ( (flag != null) && !flag.equals("") ) {
-                        value = ts.getMissing();
-                        ts.setDataValue ( dateTime, value, flag, 0 );
-                    }
-                }
-                else if ( !StringUtil.isDouble(valueString) ) {
-                    // Data error
-                    errorMessages.add ( "Data value (" + valueString + ") in row " + row + " column " +
-                        valueColumns.get(ival) + " is not a number and is not a recognized missing value." );
-                }
-                else {
-                    // Valid number so set in the time series
-                    value = Double.parseDouble(valueString);
-                    if ( Message.isDebugOn ) {
-                        Message.printDebug(dl, routine, "Setting value of " + valueColumns.get(ival) + " at " +
-                        dateTime + " -> " + value );
-                    }
-                    if ( periodRequested && dateTime.lessThan(earliest) || dateTime.greaterThan(latest) ) {
-                        // Data record is not in period so don't set
-                        // Need to check each one because there is no requirement that records be in order.
+                    if ( !readData ) {
+                        // No need to process data for this time series (and will break out of main loop below when
+                        // done with all time series).
                         continue;
                     }
-                    if ( (flag != null) && !flag.equals("") ) {
+                    flag = parsedRows.getFlag(irow, ival);
+                    if ( parsedRows.getValueType(irow, ival) == DelimitedRowParser.VALUE_MISSING_WITH_FLAG ) {
+                        // Missing so just let it remain missing in the time series, but set the flag
+                        value = ts.getMissing();
                         ts.setDataValue ( dateTime, value, flag, 0 );
                     }
-                    else {
-                        ts.setDataValue ( dateTime, value );
+                    else if ( parsedRows.getValueType(irow, ival) == DelimitedRowParser.VALUE_NUMBER ) {
+                        // Valid number so set in the time series
+                        value = parsedRows.getValue(irow, ival);
+                        if ( Message.isDebugOn ) {
+                            Message.printDebug(dl, routine, "Setting value of " + valueColumns.get(ival) + " at " +
+                            dateTime + " -> " + value );
+                        }
+                        if ( periodRequested && dateTime.lessThan(earliest) || dateTime.greaterThan(latest) ) {
+                            // Data record is not in period so don't set
+                            // Need to check each one because there is no requirement that records be in order.
+                            continue;
+                        }
+                        if ( (flag != null) && !flag.equals("") ) {
+                            ts.setDataValue ( dateTime, value, flag, 0 );
+                        }
+                        else {
+                            ts.setDataValue ( dateTime, value );
+                        }
                     }
                 }
+                // If reading the data, can break without allocating data and reading
+                if ( !readData ) {
+                    // No need to continue...
+                    done = true;
+                    break;
+                }
             }
-            // If reading the data, can break without allocating data and reading
-            if ( !readData ) {
-                // No need to continue...
-                break;
+            rowBeingSet = -1;
+            if ( !parseInParallel ) {
+                rows.clear();
             }
         }
         return tslist;
     }
     catch ( Exception e ) {
         Message.printWarning ( 3, routine, e );
-        throw new IOException ( "Error reading from file near line " + row + " (" + e + ")." );
+        throw new IOException ( "Error reading from file near line " + ((rowBeingSet > 0) ? rowBeingSet : row) + " (" + e + ")." );
     }
     finally {
+        if ( executor != null ) {
+            // Stop parsing if an error occurred
+            executor.shutdownNow();
+        }
         if ( in != null ) {
             in.close();
         }
@@ -1754,6 +1935,11 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 	if ( (InputEnd == null) || InputEnd.isEmpty() ) {
 		InputEnd = "${InputEnd}";
 	}
+	String ParseThreads = parameters.getValue("ParseThreads");
+	int parseThreads = 1; // Default
+	if ( (ParseThreads != null) && !ParseThreads.isEmpty() ) {
+		parseThreads = Integer.parseInt(ParseThreads);
+	}
 	String ColumnNames = parameters.getValue("ColumnNames");
     if ( (ColumnNames != null) && !ColumnNames.isEmpty() && (ColumnNames.indexOf("${") >= 0) && (commandPhase == CommandPhaseType.RUN)) {
     	ColumnNames = TSCommandProcessorUtil.expandParameterValue(processor, this, ColumnNames);
@@ -1988,7 +2174,7 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
             Comment, getSkipRows(), getSkipRowsAfterComments(),
             locationIDRuntime, providerRuntime, dataTypeRuntime, getInterval(), scenarioRuntime,
             unitsRuntime, missingValues,
-            InputStart_DateTime, InputEnd_DateTime, readData, errorMessages );
+            InputStart_DateTime, InputEnd_DateTime, readData, parseThreads, errorMessages );
         
 		if ( tslist != null ) {
 			int tscount = tslist.size();
@@ -2027,6 +2213,10 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
             new CommandLogRecord( CommandStatusType.FAILURE, message,"Check the log file for details."));
 		throw new CommandException ( message );
 	}
+	finally {
+		// The column headings are only reused within a run
+		closeHeaderScan();
+	}
 
     if ( commandPhase == CommandPhaseType.RUN ) {
         if ( tslist != null ) {
@@ -2146,6 +2336,7 @@ public String toString ( PropList props )
     String Alias = props.getValue("Alias" );
 	String InputStart = props.getValue("InputStart");
 	String InputEnd = props.getValue("InputEnd");
+	String ParseThreads = props.getValue("ParseThreads");
 
 	StringBuffer b = new StringBuffer ();
 
@@ -2285,6 +2476,12 @@ public String toString ( PropList props )
 		}
 		b.append("InputEnd=\"" + InputEnd + "\"");
 	}
+	if ((ParseThreads != null) && (ParseThreads.length() > 0)) {
+		if (b.length() > 0) {
+			b.append(",");
+		}
+		b.append("ParseThreads=" + ParseThreads );
+	}
 
 	return getCommandName() + "(" + b.toString() + ")";
 }
@@ -107,6 +107,7 @@ private JTextField __Units_JTextField = null;
 private JTextField __MissingValue_JTextField = null;
 private JTextField __InputStart_JTextField = null;
 private JTextField __InputEnd_JTextField = null;
+private JTextField __ParseThreads_JTextField = null;
 private JTextArea __Command_JTextArea = null;
 private boolean __error_wait = false;	// Is there an error to be cleared up or Cancel?
 private boolean __first_time = true;
@@ -273,6 +274,7 @@ private void checkInput () {
 	String Alias = __Alias_JTextField.getText().trim();
 	String InputStart = __InputStart_JTextField.getText().trim();
 	String InputEnd = __InputEnd_JTextField.getText().trim();
+	String ParseThreads = __ParseThreads_JTextField.getText().trim();
 	
 	__error_wait = false;
 	
@@ -345,6 +347,9 @@ private void checkInput () {
 	if (InputEnd.length() > 0 ) {
 		props.set("InputEnd", InputEnd);
 	}
+	if (ParseThreads.length() > 0 ) {
+		props.set("ParseThreads", ParseThreads);
+	}
 	try {
 	    // This will warn the user...
 		__command.checkCommandParameters ( props, null, 1 );
@@ -384,6 +389,7 @@ private void commitEdits() {
     String Alias = __Alias_JTextField.getText().trim();
     String InputStart = __InputStart_JTextField.getText().trim();
 	String InputEnd = __InputEnd_JTextField.getText().trim();
+	String ParseThreads = __ParseThreads_JTextField.getText().trim();
 
 	__command.setCommandParameter("InputFile", InputFile);
 	__command.setCommandParameter("Comment", Comment);
@@ -408,6 +414,7 @@ private void commitEdits() {
 	__command.setCommandParameter("Alias", Alias);
 	__command.setCommandParameter("InputStart", InputStart);
 	__command.setCommandParameter("InputEnd", InputEnd);
+	__command.setCommandParameter("ParseThreads", ParseThreads);
 }
 
 /**
@@ -758,6 +765,16 @@ private void initialize(JFrame parent, ReadDelimitedFile_Command command) {
     JGUIUtil.addComponent(data2_JPanel, new JLabel ( "Optional - overrides the global input end."),
         3, yData2, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST );
 
+    JGUIUtil.addComponent(data2_JPanel, new JLabel ( "Parse threads:"), 
+        0, ++yData2, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __ParseThreads_JTextField = new JTextField (10);
+    __ParseThreads_JTextField.setToolTipText("Number of threads to parse data rows, useful for large files");
+    __ParseThreads_JTextField.addKeyListener (this);
+    JGUIUtil.addComponent(data2_JPanel, __ParseThreads_JTextField,
+        1, yData2, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(data2_JPanel, new JLabel ( "Optional - number of threads to parse data rows (default=1)."),
+        3, yData2, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST );
+
     JGUIUtil.addComponent(main_JPanel, new JLabel ( "Command:"),
 		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
 	__Command_JTextArea = new JTextArea(5, 55);
@@ -864,6 +881,7 @@ private void refresh()
     String Alias = "";
     String InputStart = "";
     String InputEnd = "";
+    String ParseThreads = "";
 
 	PropList props = null;
 
@@ -895,6 +913,7 @@ private void refresh()
 	    Alias = props.getValue("Alias");
 		InputStart = props.getValue("InputStart");
 		InputEnd = props.getValue("InputEnd");
+		ParseThreads = props.getValue("ParseThreads");
 		// Set the control fields
 		if (InputFile != null) {
 			__InputFile_JTextField.setText(InputFile);
@@ -1008,6 +1027,9 @@ private void refresh()
 		if (InputEnd != null) {
 			__InputEnd_JTextField.setText(InputEnd);
 		}
+		if (ParseThreads != null) {
+			__ParseThreads_JTextField.setText(ParseThreads);
+		}
 	}
 
 	// Regardless, reset the command from the fields.  This is only  visible
@@ -1035,6 +1057,7 @@ private void refresh()
     Alias = __Alias_JTextField.getText().trim();
 	InputStart = __InputStart_JTextField.getText().trim();
 	InputEnd = __InputEnd_JTextField.getText().trim();
+	ParseThreads = __ParseThreads_JTextField.getText().trim();
 
 	props = new PropList(__command.getCommandName());
 	props.add("InputFile=" + InputFile);
@@ -1060,6 +1083,7 @@ private void refresh()
     props.add("Alias=" + Alias );
 	props.add("InputStart=" + InputStart);
 	props.add("InputEnd=" + InputEnd);
+	props.add("ParseThreads=" + ParseThreads);
 	
 	__Command_JTextArea.setText( __command.toString(props) );
 
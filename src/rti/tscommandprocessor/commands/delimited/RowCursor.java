@@ -56,6 +56,37 @@ public interface RowCursor extends Row {
      */
     boolean next() throws IOException;
 
+    /**
+     * Get the value of the current row at the given column as a double,
+     * without creating a Double where the implementation allows.
+     * @param col The column to get.
+     * @return the value as a double
+     * @throws java.lang.IllegalArgumentException If the value cannot be
+     * converted to a double.
+     */
+    double getDouble(int col) throws IllegalArgumentException;
+
+    /**
+     * Get the value of the current row at the given column as a date/time in
+     * milliseconds since 1970-01-01 00:00, without creating a DateTime where
+     * the implementation allows. The date/time parts are used as is (as if the
+     * time zone is UTC), so that the value can be set back into a DateTime
+     * without time zone or daylight saving adjustments.
+     * @param col The column to get.
+     * @return the date/time as milliseconds
+     * @throws java.lang.IllegalArgumentException If the value cannot be
+     * converted to a date/time.
+     */
+    long getEpochMillis(int col) throws IllegalArgumentException;
+
+    /**
+     * Determine whether the value of the current row at the given column is
+     * missing (null, blank, or not present in the row).
+     * @param col The column to check.
+     * @return true if the value is missing.
+     */
+    boolean isMissing(int col);
+
     /**
      * A Mutable RowCursor
      */
@@ -31,6 +31,8 @@ package rti.tscommandprocessor.commands.delimited;
 
 import java.io.IOException;
 
+import RTi.Util.Time.DateTime;
+
 //import rti.common.exception.LoggingRuntimeException;
 
 /**
@@ -39,6 +41,123 @@ import java.io.IOException;
  */
 public class RowTools {
 
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Determine whether a row value is missing (null or blank String).
+     * @param value the value to check
+     * @return true if the value is missing
+     */
+    public static boolean isMissing(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (value instanceof String) {
+            String s = (String) value;
+            for (int i = 0, ii = s.length(); i < ii; i++) {
+                if (s.charAt(i) > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Convert a row value (Number or String) to a double.
+     * @param value the value to convert
+     * @return the value as a double
+     * @throws java.lang.IllegalArgumentException If the value cannot be
+     * converted
+     */
+    public static double toDouble(Object value) throws IllegalArgumentException {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("No value to convert to double");
+        }
+        return Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Convert a row value (DateTime or String) to milliseconds since 1970-01-01 00:00.
+     * @param value the value to convert
+     * @return the value as milliseconds
+     * @throws java.lang.IllegalArgumentException If the value cannot be
+     * converted
+     * @see RowCursor#getEpochMillis(int)
+     */
+    public static long toEpochMillis(Object value) throws IllegalArgumentException {
+        if (value instanceof DateTime) {
+            return toEpochMillis((DateTime) value);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("No value to convert to date/time");
+        }
+        return Converter.STRING_TO_DATE_TIME.convertToEpochMillis(value);
+    }
+
+    /**
+     * Convert a DateTime to milliseconds since 1970-01-01 00:00, using the date/time
+     * parts as is (time zone is ignored).
+     * @param dt the DateTime to convert
+     * @return the date/time as milliseconds
+     */
+    public static long toEpochMillis(DateTime dt) {
+        long days = daysFromCivil(dt.getYear(), dt.getMonth(), dt.getDay());
+        return days * MILLIS_PER_DAY + dt.getHour() * 3600000L + dt.getMinute() * 60000L
+            + dt.getSecond() * 1000L + dt.getHSecond() * 10L;
+    }
+
+    /**
+     * Set the date/time parts of a DateTime from milliseconds since 1970-01-01 00:00,
+     * without creating any objects. The precision and time zone are not changed.
+     * @param dt the DateTime to set
+     * @param millis the date/time as milliseconds, from toEpochMillis()
+     */
+    public static void setEpochMillis(DateTime dt, long millis) {
+        long days = millis / MILLIS_PER_DAY;
+        long millisOfDay = millis - days * MILLIS_PER_DAY;
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+        // civil date from days, see daysFromCivil()
+        days += 719468;
+        long era = (days >= 0 ? days : days - 146096) / 146097;
+        long doe = days - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        int ms = (int) millisOfDay;
+        // set the day first so that intermediate dates are valid
+        dt.setDay(1);
+        dt.setYear(year);
+        dt.setMonth(month);
+        dt.setDay(day);
+        dt.setHour(ms / 3600000);
+        dt.setMinute((ms / 60000) % 60);
+        dt.setSecond((ms / 1000) % 60);
+        dt.setHSecond((ms % 1000) / 10);
+    }
+
+    /**
+     * Return the number of days since 1970-01-01 for a proleptic Gregorian date.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
     /**
      * Copy the data from a Row to a Row.Mutable.
      * @param from the source Row
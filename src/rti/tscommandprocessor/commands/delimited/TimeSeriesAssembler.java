@@ -31,6 +31,7 @@ package rti.tscommandprocessor.commands.delimited;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import RTi.TS.TS;
@@ -49,7 +50,11 @@ public class TimeSeriesAssembler {
 
     private final List/*<ColumnInfo>*/ columnInfos;
     
-    private Converter dateTimeConverter = Converter.STRING_TO_DATE_TIME;
+    private Converter dateTimeConverter = new Converter.StringToDateTime();
+
+    private DateTime start;
+
+    private DateTime end;
 
     /**
      * Create a TimeSeriesAssembler that uses the provided RowCursor to read
@@ -97,28 +102,41 @@ public class TimeSeriesAssembler {
         return info;
     }
 
+    /**
+     * Set the period for the time series. If set, rows are read once and values
+     * are set directly in the time series. Otherwise, the period is from the
+     * first and last rows and the dates and values are held in primitive arrays
+     * until the last row has been read.
+     * @param start The start of the period, or null to use the first row.
+     * @param end The end of the period, or null to use the last row.
+     * @return this TimeSeriesAssembler for use in method chaining
+     */
+    public TimeSeriesAssembler setPeriod(DateTime start, DateTime end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
     /**
      * Perform the read of the time series using the current configuration.
+     * Rows are read once, in order, using the primitive RowCursor accessors,
+     * so that a DateTime and Double are not created for each row.
+     * Missing values are not set, leaving the time series missing value.
      * @return An array of TS
      * @throws java.io.IOException If an error occurs during the read
      */
     public TS[] assemble() throws IOException {
         TS[] ts = new TS[columnInfos.size()];
 
-        ScrollableRowCursor rows = buildScrollableRowCursor();
-
-        // get start and end dates
-        rows.moveTo(0);
-        DateTime start = (DateTime) rows.getValue(dateColumn);
-        rows.moveTo(rows.getNumberOfRows() - 1);
-        DateTime end = (DateTime) rows.getValue(dateColumn);
-
-        // create the TS.
-        for (int i = 0; i < ts.length; i++) {
-            ColumnInfo info = (ColumnInfo) columnInfos.get(i);
-            ts[i] = info.buildTS(start, end);
+        RowCursor rows = buildRowCursor();
+        if (!rows.next()) {
+            throw new IOException("No data rows to read time series from.");
         }
 
+        // the first date is parsed as a DateTime to determine the precision,
+        // and is then reused for each row
+        DateTime date = new DateTime((DateTime) rows.getValue(dateColumn));
+
         // copy indexes to local array for optimization
         final int[] columnData = new int[columnInfos.size()];
         final int[] flagData = new int[columnInfos.size()];
@@ -128,20 +146,108 @@ public class TimeSeriesAssembler {
             flagData[i] = info.flagColumn;
         }
 
-        // read rows, getting date and values
-        for (int i = 0, ii = rows.getNumberOfRows(); i < ii; i++) {
-            rows.moveTo(i);
-            DateTime date = (DateTime) rows.getValue(dateColumn);
+        if ((start != null) && (end != null)) {
+            // period is known so stream the rows into the time series
+            for (int i = 0; i < ts.length; i++) {
+                ColumnInfo info = (ColumnInfo) columnInfos.get(i);
+                ts[i] = info.buildTS(start, end);
+            }
+            do {
+                RowTools.setEpochMillis(date, rows.getEpochMillis(dateColumn));
+                for (int j = 0; j < columnData.length; j++) {
+                    if (!rows.isMissing(columnData[j])) {
+                        setDataValue(ts[j], date, rows.getDouble(columnData[j]), getFlag(rows, flagData[j]));
+                    }
+                }
+            } while (rows.next());
+            return ts;
+        }
+
+        // hold the dates and values until the end date is known
+        int size = 0;
+        long[] dates = new long[1024];
+        double[][] values = new double[columnData.length][dates.length];
+        boolean[][] missing = new boolean[columnData.length][dates.length];
+        String[][] flags = new String[columnData.length][];
+        for (int j = 0; j < columnData.length; j++) {
+            if (flagData[j] >= 0) {
+                flags[j] = new String[dates.length];
+            }
+        }
+        do {
+            if (size == dates.length) {
+                int newLength = size * 2;
+                dates = Arrays.copyOf(dates, newLength);
+                for (int j = 0; j < columnData.length; j++) {
+                    values[j] = Arrays.copyOf(values[j], newLength);
+                    missing[j] = Arrays.copyOf(missing[j], newLength);
+                    if (flags[j] != null) {
+                        flags[j] = Arrays.copyOf(flags[j], newLength);
+                    }
+                }
+            }
+            dates[size] = rows.getEpochMillis(dateColumn);
             for (int j = 0; j < columnData.length; j++) {
-                double value = ((Double) rows.getValue(columnData[j])).doubleValue();
-                String flags = flagData[j] < 0 ? null : rows.getValue(flagData[j]).toString();
-                int SOME_UNKNOWN_VALUE = 1;
-                ts[j].setDataValue(date, value, flags, SOME_UNKNOWN_VALUE);
+                if (rows.isMissing(columnData[j])) {
+                    missing[j][size] = true;
+                } else {
+                    values[j][size] = rows.getDouble(columnData[j]);
+                    if (flags[j] != null) {
+                        flags[j][size] = getFlag(rows, flagData[j]);
+                    }
+                }
+            }
+            size++;
+        } while (rows.next());
+
+        // create the TS.
+        DateTime periodStart = start;
+        if (periodStart == null) {
+            periodStart = new DateTime(date);
+            RowTools.setEpochMillis(periodStart, dates[0]);
+        }
+        DateTime periodEnd = end;
+        if (periodEnd == null) {
+            periodEnd = new DateTime(date);
+            RowTools.setEpochMillis(periodEnd, dates[size - 1]);
+        }
+        for (int i = 0; i < ts.length; i++) {
+            ColumnInfo info = (ColumnInfo) columnInfos.get(i);
+            ts[i] = info.buildTS(periodStart, periodEnd);
+        }
+
+        for (int i = 0; i < size; i++) {
+            RowTools.setEpochMillis(date, dates[i]);
+            for (int j = 0; j < columnData.length; j++) {
+                if (!missing[j][i]) {
+                    setDataValue(ts[j], date, values[j][i], flags[j] == null ? null : flags[j][i]);
+                }
             }
         }
         return ts;
     }
 
+    /**
+     * Get the flag for a row, or null if there is no flag column or the flag is missing.
+     */
+    private String getFlag(RowCursor rows, int flagColumn) {
+        if ((flagColumn < 0) || rows.isMissing(flagColumn)) {
+            return null;
+        }
+        return rows.getValue(flagColumn).toString();
+    }
+
+    /**
+     * Set a value in a time series, with the flag if specified.
+     */
+    private void setDataValue(TS ts, DateTime date, double value, String flag) {
+        if (flag == null) {
+            ts.setDataValue(date, value);
+        } else {
+            ts.setDataValue(date, value, flag, 0);
+        }
+    }
+
     public static class ColumnInfo {
         private final int col;
 
@@ -185,7 +291,7 @@ public class TimeSeriesAssembler {
         
     }
 
-    private ScrollableRowCursor buildScrollableRowCursor() throws IOException {
+    private RowCursor buildRowCursor() {
         // build the converter we use to read datetime and values
         RowConverterBuilder converter = new RowConverterBuilder(cursor);
         converter.convert(dateColumn, dateTimeConverter);
@@ -193,7 +299,7 @@ public class TimeSeriesAssembler {
             int col = ((ColumnInfo) columnInfos.get(i)).col;
             converter.convert( col, Converter.STRING_TO_DOUBLE);
         }
-        return converter.createScrollableCursor();
+        return converter.createRowCursor();
     }
 
 }
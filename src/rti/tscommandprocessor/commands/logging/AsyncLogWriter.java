@@ -0,0 +1,604 @@
+// AsyncLogWriter - writer for the log file that writes on a background thread
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import RTi.Util.IO.CommandLogRecord;
+import RTi.Util.IO.CommandPhaseType;
+import RTi.Util.IO.CommandStatus;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.Message.Message;
+
+/**
+Writer for the log file that queues text in a bounded buffer and writes it to the file on a background thread
+using large buffered appends, so that commands that log many messages are not limited by file I/O.
+This is used by StartLog(Async=True).
+<p>
+Flushing the writer (as done by the Message class after each message) does not wait for the text to be written.
+Call drain() or drainAll() to wait until all queued text has been written to the file,
+which is done by the command processor at the end of a run (including when errors occur) and when the Java
+virtual machine exits.  Closing the writer (e.g., when the log file is closed or restarted) also drains the buffer.
+<p>
+If the buffer is full, the overflow policy determines whether the thread that is logging waits for space
+(Block, the default, no messages are lost) or the message is discarded (Discard), in which case the number of
+discarded messages is written to the log file.
+<p>
+Because the Message class no longer writes the file, the maximum log file size (StartLog(MaxSize)) is enforced
+by this writer, and restarting the log file (StartLog() without LogFile) is handled by restartAsyncLog().
+Errors writing the file cannot be logged by the writer thread, so they are saved and reported by drain(),
+using the Message class and the status of the command that started the log, if set.
+*/
+public class AsyncLogWriter extends Writer
+{
+
+/**
+Overflow policy values.
+*/
+public static final String OVERFLOW_BLOCK = "Block";
+public static final String OVERFLOW_DISCARD = "Discard";
+
+/**
+Default buffer size, number of messages.
+*/
+public static final int DEFAULT_BUFFER_SIZE = 10000;
+
+/**
+Size of the file output buffer, characters.
+*/
+private static final int FILE_BUFFER_SIZE = 256*1024;
+
+/**
+Maximum number of messages to write to the file output buffer at a time.
+*/
+private static final int MAX_BATCH_SIZE = 4096;
+
+/**
+Writers that are open, used by drainAll().
+*/
+private static final List<AsyncLogWriter> __openWriterList = new ArrayList<AsyncLogWriter>();
+
+/**
+Whether the shutdown hook has been added to drain the writers when the Java virtual machine exits.
+*/
+private static boolean __shutdownHookAdded = false;
+
+/**
+Writer that is used for the Message class log output, set by startAsyncLog(), used by restartAsyncLog().
+*/
+private static AsyncLogWriter __logWriter = null;
+
+/**
+Log file that is written.
+*/
+private File __file = null;
+
+/**
+Buffered writer for the file, only used on the writer thread other than when closing.
+*/
+private Writer __out = null;
+
+/**
+Bounded buffer of text to write.
+*/
+private ArrayBlockingQueue<String> __queue = null;
+
+/**
+Maximum number of messages to queue.
+*/
+private int __bufferSize = DEFAULT_BUFFER_SIZE;
+
+/**
+Overflow policy, OVERFLOW_BLOCK or OVERFLOW_DISCARD.
+*/
+private String __overflowPolicy = OVERFLOW_BLOCK;
+
+/**
+Whether to discard messages when the buffer is full (otherwise block).
+*/
+private boolean __discardOnOverflow = false;
+
+/**
+Maximum size of the file in characters (bytes for ASCII text), or -1 if no limit.
+*/
+private long __maxSize = -1;
+
+/**
+Size of the file in characters, only used on the writer thread.
+*/
+private long __size = 0;
+
+/**
+Whether the maximum size has been reached, after which text is not written.
+*/
+private boolean __maxSizeReached = false;
+
+/**
+The first error writing the file that has not been reported, or null.  Protected by __countLock.
+*/
+private IOException __writeError = null;
+
+/**
+Status of the command that started the log, used to report write errors, or null.
+*/
+private volatile CommandStatus __commandStatus = null;
+
+/**
+Number of messages added to the buffer or discarded, and number of messages written or discarded.
+drain() waits until the written count reaches the added count.
+Both are protected by __countLock.
+*/
+private long __addedCount = 0;
+private long __writtenCount = 0;
+private final Object __countLock = new Object();
+
+/**
+Number of messages discarded since last reported in the log file.
+*/
+private long __discardCount = 0;
+
+/**
+Text that has been written but not yet queued, used to queue complete lines so that a line is
+written or discarded as a whole.  Protected by the writer's lock.
+*/
+private StringBuilder __pending = new StringBuilder();
+
+/**
+Whether the writer has been closed.
+*/
+private volatile boolean __closed = false;
+
+/**
+Background thread that writes to the file.
+*/
+private Thread __writerThread = null;
+
+/**
+Create a writer that appends to a file.
+@param file the log file to write
+@param append if true, append to the file; if false, overwrite the file
+@param bufferSize the maximum number of messages to queue
+@param overflowPolicy the overflow policy, OVERFLOW_BLOCK or OVERFLOW_DISCARD
+@param maxSize the maximum size of the file in bytes, or -1 if no limit
+@exception IOException if the file cannot be opened
+*/
+public AsyncLogWriter ( File file, boolean append, int bufferSize, String overflowPolicy, long maxSize )
+throws IOException
+{
+	__file = file;
+	__size = (append && file.exists()) ? file.length() : 0;
+	__out = new BufferedWriter ( new OutputStreamWriter(new FileOutputStream(file, append)), FILE_BUFFER_SIZE );
+	__bufferSize = Math.max(1,bufferSize);
+	__queue = new ArrayBlockingQueue<String>( __bufferSize );
+	__overflowPolicy = overflowPolicy;
+	__discardOnOverflow = OVERFLOW_DISCARD.equalsIgnoreCase(overflowPolicy);
+	__maxSize = (maxSize > 0) ? maxSize : -1;
+	__writerThread = new Thread ( new Runnable() {
+		public void run () {
+			writeQueue();
+		}
+	}, "AsyncLogWriter" );
+	// Do not prevent the Java virtual machine from exiting - the shutdown hook drains the buffer
+	__writerThread.setDaemon ( true );
+	__writerThread.start();
+	synchronized ( __openWriterList ) {
+		__openWriterList.add ( this );
+		if ( !__shutdownHookAdded ) {
+			Runtime.getRuntime().addShutdownHook ( new Thread ( new Runnable() {
+				public void run () {
+					drainAll();
+				}
+			}, "AsyncLogWriterShutdown" ) );
+			__shutdownHookAdded = true;
+		}
+	}
+}
+
+/**
+Add text to the buffer, handling overflow.
+*/
+private void add ( String s )
+throws IOException
+{
+	if ( __closed ) {
+		throw new IOException ( "Log writer is closed." );
+	}
+	if ( __discardOnOverflow ) {
+		synchronized ( __countLock ) {
+			++__addedCount;
+			if ( !__queue.offer(s) ) {
+				// Count as written so that drain() does not wait for it
+				++__writtenCount;
+				++__discardCount;
+			}
+		}
+	}
+	else {
+		synchronized ( __countLock ) {
+			++__addedCount;
+		}
+		try {
+			__queue.put ( s );
+		}
+		catch ( InterruptedException e ) {
+			synchronized ( __countLock ) {
+				++__writtenCount;
+				__countLock.notifyAll();
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException ( "Interrupted waiting for log buffer space." );
+		}
+	}
+}
+
+/**
+Close the writer, waiting for queued text to be written.
+*/
+public void close ()
+throws IOException
+{
+	if ( __closed ) {
+		return;
+	}
+	// Don't report errors with the Message class because it may be closing this writer
+	drain ( false );
+	__closed = true;
+	try {
+		__writerThread.join ( 10000 );
+	}
+	catch ( InterruptedException e ) {
+		Thread.currentThread().interrupt();
+	}
+	synchronized ( __openWriterList ) {
+		__openWriterList.remove ( this );
+	}
+	synchronized ( __out ) {
+		__out.close();
+	}
+	reportWriteError ( false );
+}
+
+/**
+Wait until all text that has been queued is written to the file and flush the file.
+If messages were discarded, the number of discarded messages is written first.
+Errors writing the file are then reported.
+*/
+public void drain ()
+{
+	drain ( true );
+}
+
+/**
+Wait until all text that has been queued is written to the file and flush the file.
+@param reportErrors whether to report write errors
+*/
+private void drain ( boolean reportErrors )
+{
+	if ( __closed ) {
+		return;
+	}
+	synchronized ( lock ) {
+		queuePending();
+	}
+	long discardCount;
+	synchronized ( __countLock ) {
+		discardCount = __discardCount;
+		__discardCount = 0;
+	}
+	if ( discardCount > 0 ) {
+		try {
+			// Use a blocking add so that the notice is not itself discarded
+			synchronized ( __countLock ) {
+				++__addedCount;
+			}
+			__queue.put ( "Warning: " + discardCount + " log messages were discarded because the asynchronous log buffer was full." +
+				System.getProperty("line.separator") );
+		}
+		catch ( InterruptedException e ) {
+			synchronized ( __countLock ) {
+				++__writtenCount;
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+	synchronized ( __countLock ) {
+		long target = __addedCount;
+		while ( (__writtenCount < target) && __writerThread.isAlive() ) {
+			try {
+				__countLock.wait ( 100 );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+	}
+	try {
+		synchronized ( __out ) {
+			__out.flush();
+		}
+	}
+	catch ( IOException e ) {
+		setWriteError ( e );
+	}
+	if ( reportErrors ) {
+		reportWriteError ( true );
+	}
+}
+
+/**
+Wait until all open writers have written queued text to their files.
+This is called by the command processor at the end of a run and when the Java virtual machine exits.
+*/
+public static void drainAll ()
+{
+	List<AsyncLogWriter> writerList = null;
+	synchronized ( __openWriterList ) {
+		if ( __openWriterList.size() == 0 ) {
+			return;
+		}
+		writerList = new ArrayList<AsyncLogWriter>(__openWriterList);
+	}
+	for ( AsyncLogWriter writer : writerList ) {
+		writer.drain();
+	}
+}
+
+/**
+Flush the writer.  This does not wait for text to be written because the Message class flushes after each
+message - use drain() to wait for text to be written.
+*/
+public void flush ()
+{
+}
+
+/**
+Return the log file that is written.
+@return the log file that is written
+*/
+public File getFile ()
+{
+	return __file;
+}
+
+/**
+Report the saved write error, if any, using the command status and optionally the Message class.
+@param useMessage whether to print a warning with the Message class
+*/
+private void reportWriteError ( boolean useMessage )
+{	String routine = getClass().getSimpleName() + ".reportWriteError";
+	IOException e;
+	synchronized ( __countLock ) {
+		e = __writeError;
+		__writeError = null;
+	}
+	if ( e == null ) {
+		return;
+	}
+	String message = "Error writing log file \"" + __file + "\" (" + e + ") - log file may be incomplete.";
+	if ( useMessage ) {
+		Message.printWarning ( 2, routine, message );
+	}
+	CommandStatus status = __commandStatus;
+	if ( status != null ) {
+		status.addToLog ( CommandPhaseType.RUN, new CommandLogRecord(CommandStatusType.FAILURE,
+			message, "Check that the disk is not full and that the log file can be written." ) );
+	}
+}
+
+/**
+Restart the log file that is being written asynchronously (StartLog() without LogFile), if any.
+The current writer is drained and closed and a new writer overwrites the file, with the same settings.
+Messages logged by other threads while the log file is restarted are not written.
+@return true if the log file was restarted, false if the log file is not written asynchronously,
+in which case Message.restartLogFile() should be called
+@exception IOException if the log file cannot be opened
+*/
+public static boolean restartAsyncLog ()
+throws IOException
+{
+	AsyncLogWriter writer;
+	synchronized ( __openWriterList ) {
+		writer = __logWriter;
+	}
+	if ( (writer == null) || writer.__closed ) {
+		return false;
+	}
+	// Close the current writer first so that its queued text is written before the file is overwritten
+	writer.close();
+	AsyncLogWriter newWriter = new AsyncLogWriter ( writer.__file, false, writer.__bufferSize,
+		writer.__overflowPolicy, writer.__maxSize );
+	newWriter.setCommandStatus ( writer.__commandStatus );
+	synchronized ( __openWriterList ) {
+		__logWriter = newWriter;
+	}
+	Message.setOutputFile ( Message.LOG_OUTPUT, new PrintWriter(newWriter) );
+	return true;
+}
+
+/**
+Set the status of the command that started the log, used to report errors writing the log file.
+@param status the command status, or null to only report errors with the Message class
+*/
+public void setCommandStatus ( CommandStatus status )
+{
+	__commandStatus = status;
+}
+
+/**
+Save an error writing the file, to be reported by drain().
+Only the first error is saved until reported so that a failing disk does not generate many messages.
+*/
+private void setWriteError ( IOException e )
+{
+	synchronized ( __countLock ) {
+		if ( __writeError == null ) {
+			__writeError = e;
+		}
+	}
+}
+
+/**
+Start writing the current log file (as opened by Message.openNewLogFile()) asynchronously.
+The Message class log file output is closed and replaced with an AsyncLogWriter that appends to the same file.
+The Message class maximum log file size is not used and the maximum size is instead enforced by the writer.
+@param logFile the path to the current log file
+@param bufferSize the maximum number of messages to queue
+@param overflowPolicy the overflow policy, OVERFLOW_BLOCK or OVERFLOW_DISCARD
+@param maxSize the maximum size of the log file in bytes, or -1 if no limit
+@return the writer that was started
+@exception IOException if the log file cannot be opened
+*/
+public static AsyncLogWriter startAsyncLog ( String logFile, int bufferSize, String overflowPolicy, long maxSize )
+throws IOException
+{
+	// Close the output opened by the Message class so that the file is written only by the new writer
+	Message.closeLogFile();
+	AsyncLogWriter writer = new AsyncLogWriter ( new File(logFile), true, bufferSize, overflowPolicy, maxSize );
+	Message.setOutputFile ( Message.LOG_OUTPUT, new PrintWriter(writer) );
+	synchronized ( __openWriterList ) {
+		__logWriter = writer;
+	}
+	return writer;
+}
+
+/**
+Queue text that has not been queued, ignoring errors because the writer is being drained.
+Must be called while synchronized on the writer's lock.
+*/
+private void queuePending ()
+{
+	if ( __pending.length() > 0 ) {
+		try {
+			add ( __pending.toString() );
+		}
+		catch ( IOException e ) {
+			// Writer is closed or interrupted
+		}
+		__pending.setLength ( 0 );
+	}
+}
+
+/**
+Write characters.  Text is queued when a line is complete.
+*/
+public void write ( char [] cbuf, int off, int len )
+throws IOException
+{
+	if ( len > 0 ) {
+		synchronized ( lock ) {
+			__pending.append ( cbuf, off, len );
+			if ( cbuf[off + len - 1] == '\n' ) {
+				add ( __pending.toString() );
+				__pending.setLength ( 0 );
+			}
+		}
+	}
+}
+
+/**
+Write a string.  Text is queued when a line is complete.
+*/
+public void write ( String s )
+throws IOException
+{
+	if ( (s != null) && (s.length() > 0) ) {
+		synchronized ( lock ) {
+			__pending.append ( s );
+			if ( s.charAt(s.length() - 1) == '\n' ) {
+				add ( __pending.toString() );
+				__pending.setLength ( 0 );
+			}
+		}
+	}
+}
+
+/**
+Write queued text to the file, run on the background thread until the writer is closed.
+*/
+private void writeQueue ()
+{
+	List<String> batch = new ArrayList<String>(MAX_BATCH_SIZE);
+	while ( true ) {
+		String first = null;
+		try {
+			first = __queue.poll ( 100, TimeUnit.MILLISECONDS );
+		}
+		catch ( InterruptedException e ) {
+			// Continue until closed so that no text is lost
+		}
+		if ( first == null ) {
+			if ( __closed && __queue.isEmpty() ) {
+				break;
+			}
+			continue;
+		}
+		batch.clear();
+		batch.add ( first );
+		__queue.drainTo ( batch, MAX_BATCH_SIZE - 1 );
+		try {
+			synchronized ( __out ) {
+				for ( String s : batch ) {
+					if ( __maxSizeReached ) {
+						// Discard the text
+						continue;
+					}
+					if ( (__maxSize > 0) && ((__size + s.length()) > __maxSize) ) {
+						__maxSizeReached = true;
+						__out.write ( "Log file has reached the maximum size of " + __maxSize +
+							" bytes - no more messages will be written." + System.getProperty("line.separator") );
+						continue;
+					}
+					__out.write ( s );
+					__size += s.length();
+				}
+				if ( __queue.isEmpty() ) {
+					// Caught up so make the text visible in the file
+					__out.flush();
+				}
+			}
+		}
+		catch ( IOException e ) {
+			// Can't use Message on this thread because it would write to this writer - drain() reports the error
+			setWriteError ( e );
+		}
+		synchronized ( __countLock ) {
+			__writtenCount += batch.size();
+			__countLock.notifyAll();
+		}
+	}
+}
+
+}
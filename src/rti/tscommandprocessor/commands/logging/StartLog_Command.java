@@ -59,6 +59,8 @@ Strings used for parameter values, here and in the editor dialog.
 */
 protected final String _Date = "Date";
 protected final String _DateTime = "DateTime";
+protected final String _False = "False";
+protected final String _True = "True";
 
 /**
 Output (log) file that is created by this command.
@@ -86,6 +88,9 @@ throws InvalidCommandParameterException
 	String LogFile = parameters.getValue ( "LogFile" );
 	String MaxSize = parameters.getValue ( "MaxSize" );
 	String Suffix = parameters.getValue ( "Suffix" );
+	String Async = parameters.getValue ( "Async" );
+	String AsyncBufferSize = parameters.getValue ( "AsyncBufferSize" );
+	String AsyncOverflow = parameters.getValue ( "AsyncOverflow" );
 	String working_dir = null;
 	String warning = "";
 	String message;
@@ -156,12 +161,40 @@ throws InvalidCommandParameterException
 		status.addToLog ( CommandPhaseType.INITIALIZATION, new CommandLogRecord(CommandStatusType.FAILURE,
 			message, "Change the suffix to an allowable value." ) );
 	}
+
+	if ( (Async != null) && !Async.isEmpty() && !Async.equalsIgnoreCase(_False) && !Async.equalsIgnoreCase(_True) ) {
+		message = "The Async parameter \"" + Async + "\" is invalid.";
+		warning += "\n" + message;
+		status.addToLog ( CommandPhaseType.INITIALIZATION, new CommandLogRecord(CommandStatusType.FAILURE,
+			message, "Specify the parameter as " + _False + " (default) or " + _True + "." ) );
+	}
+
+	if ( (AsyncBufferSize != null) && !AsyncBufferSize.isEmpty() &&
+		(!StringUtil.isInteger(AsyncBufferSize) || (Integer.parseInt(AsyncBufferSize) <= 0)) ) {
+		message = "The asynchronous buffer size \"" + AsyncBufferSize + "\" is not a positive integer.";
+		warning += "\n" + message;
+		status.addToLog ( CommandPhaseType.INITIALIZATION, new CommandLogRecord(CommandStatusType.FAILURE,
+			message, "Change the asynchronous buffer size to a positive integer (number of messages)." ) );
+	}
+
+	if ( (AsyncOverflow != null) && !AsyncOverflow.isEmpty() &&
+		!AsyncOverflow.equalsIgnoreCase(AsyncLogWriter.OVERFLOW_BLOCK) &&
+		!AsyncOverflow.equalsIgnoreCase(AsyncLogWriter.OVERFLOW_DISCARD) ) {
+		message = "The AsyncOverflow parameter \"" + AsyncOverflow + "\" is invalid.";
+		warning += "\n" + message;
+		status.addToLog ( CommandPhaseType.INITIALIZATION, new CommandLogRecord(CommandStatusType.FAILURE,
+			message, "Specify the parameter as " + AsyncLogWriter.OVERFLOW_BLOCK + " (default) or " +
+			AsyncLogWriter.OVERFLOW_DISCARD + "." ) );
+	}
 	
 	// Check for invalid parameters...
-	List<String> validList = new ArrayList<>(3);
+	List<String> validList = new ArrayList<>(6);
 	validList.add ( "Logfile" );
 	validList.add ( "MaxSize" );
 	validList.add ( "Suffix" );
+	validList.add ( "Async" );
+	validList.add ( "AsyncBufferSize" );
+	validList.add ( "AsyncOverflow" );
 	warning = TSCommandProcessorUtil.validateParameterNames ( validList, this, warning );
 	
 	if ( warning.length() > 0 ) {
@@ -257,9 +290,25 @@ throws CommandWarningException, CommandException
 			maxSize = Integer.parseInt(MaxSize);
 		}
 		String Suffix = parameters.getValue ( "Suffix" );
+		String Async = parameters.getValue ( "Async" );
+		boolean async = false; // Default
+		if ( (Async != null) && Async.equalsIgnoreCase(_True) ) {
+			async = true;
+		}
+		String AsyncBufferSize = parameters.getValue ( "AsyncBufferSize" );
+		int asyncBufferSize = AsyncLogWriter.DEFAULT_BUFFER_SIZE;
+		if ( (AsyncBufferSize != null) && !AsyncBufferSize.isEmpty() ) {
+			asyncBufferSize = Integer.parseInt(AsyncBufferSize);
+		}
+		String AsyncOverflow = parameters.getValue ( "AsyncOverflow" );
+		if ( (AsyncOverflow == null) || AsyncOverflow.isEmpty() ) {
+			AsyncOverflow = AsyncLogWriter.OVERFLOW_BLOCK; // Default
+		}
 		if ( (LogFile == null) || (LogFile.length() == 0) ) {
-			// Restart the current log file...
-			Message.restartLogFile();
+			// Restart the current log file, which may be written asynchronously by a previous StartLog()...
+			if ( !AsyncLogWriter.restartAsyncLog() ) {
+				Message.restartLogFile();
+			}
 		}
 		else {
 			// Open a new log file.  Append the suffix if it has been specified.
@@ -310,6 +359,17 @@ throws CommandWarningException, CommandException
 			Message.setLogFileMaxSize ( maxSize );
 			Message.printStatus(2, routine, "Opened log file \"" + LogFile_full + "\"");
 			Message.printStatus(2, routine, "Previous log file was \"" + previousLogFile + "\"");
+			if ( async ) {
+				// Replace the log file output with a writer that writes on a background thread
+				// - the header written when the log file was opened is retained
+				// - the maximum size is enforced by the writer because the Message class no longer writes the file
+				// - errors writing the file are reported in the status for this command
+				AsyncLogWriter writer = AsyncLogWriter.startAsyncLog ( LogFile_full, asyncBufferSize, AsyncOverflow, maxSize );
+				Message.setLogFileMaxSize ( -1 );
+				writer.setCommandStatus ( status );
+				Message.printStatus(2, routine, "Writing log file asynchronously, buffer size=" + asyncBufferSize +
+					" messages, overflow=" + AsyncOverflow );
+			}
 			setOutputFile ( new File(LogFile_full));
 		}
 	}
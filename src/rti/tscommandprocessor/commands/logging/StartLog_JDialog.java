@@ -75,6 +75,9 @@ private SimpleJButton __path_JButton = null;
 private JTextField	__LogFile_JTextField = null;
 private JTextField __MaxSize_JTextField = null;
 private SimpleJComboBox	__Suffix_JComboBox = null;
+private SimpleJComboBox __Async_JComboBox = null;
+private JTextField __AsyncBufferSize_JTextField = null;
+private SimpleJComboBox __AsyncOverflow_JComboBox = null;
 private JTextArea __command_JTextArea = null;
 private boolean __error_wait = false;
 private boolean __first_time = true;
@@ -186,6 +189,9 @@ private void checkInput ()
 	String LogFile = __LogFile_JTextField.getText().trim();
     String MaxSize = __MaxSize_JTextField.getText().trim();
 	String Suffix = __Suffix_JComboBox.getSelected();
+	String Async = __Async_JComboBox.getSelected();
+	String AsyncBufferSize = __AsyncBufferSize_JTextField.getText().trim();
+	String AsyncOverflow = __AsyncOverflow_JComboBox.getSelected();
 	if ( LogFile.length() > 0 ) {
 		props.set ( "LogFile", LogFile );
 	}
@@ -195,6 +201,15 @@ private void checkInput ()
 	if ( Suffix.length() > 0 ) {
 		props.set ( "Suffix", Suffix );
 	}
+	if ( Async.length() > 0 ) {
+		props.set ( "Async", Async );
+	}
+	if ( AsyncBufferSize.length() > 0 ) {
+		props.set ( "AsyncBufferSize", AsyncBufferSize );
+	}
+	if ( AsyncOverflow.length() > 0 ) {
+		props.set ( "AsyncOverflow", AsyncOverflow );
+	}
 	try {
 	    // This will warn the user...
 		__command.checkCommandParameters ( props, null, 1 );
@@ -213,9 +228,15 @@ private void commitEdits ()
 {	String LogFile = __LogFile_JTextField.getText().trim();
     String MaxSize = __MaxSize_JTextField.getText().trim();
 	String Suffix = __Suffix_JComboBox.getSelected();
+	String Async = __Async_JComboBox.getSelected();
+	String AsyncBufferSize = __AsyncBufferSize_JTextField.getText().trim();
+	String AsyncOverflow = __AsyncOverflow_JComboBox.getSelected();
 	__command.setCommandParameter ( "LogFile", LogFile );
 	__command.setCommandParameter ( "MaxSize", MaxSize );
 	__command.setCommandParameter ( "Suffix", Suffix );
+	__command.setCommandParameter ( "Async", Async );
+	__command.setCommandParameter ( "AsyncBufferSize", AsyncBufferSize );
+	__command.setCommandParameter ( "AsyncOverflow", AsyncOverflow );
 }
 
 /**
@@ -339,6 +360,52 @@ private void initialize ( JFrame parent, StartLog_Command command )
     JGUIUtil.addComponent(main_JPanel, new JLabel("Optional - suffix for log file (blank=none)."), 
 		3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Asynchronous?:"),
+		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__Async_JComboBox = new SimpleJComboBox ( false );
+	__Async_JComboBox.setToolTipText("Write the log file on a background thread, useful when many messages are logged");
+	List<String> asyncChoices = new ArrayList<String>();
+	asyncChoices.add ( "" );	// Default
+	asyncChoices.add ( __command._False );
+	asyncChoices.add ( __command._True );
+	__Async_JComboBox.setData(asyncChoices);
+	__Async_JComboBox.select ( 0 );
+	__Async_JComboBox.addActionListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __Async_JComboBox,
+	    1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+		"Optional - write new log file on a background thread? (default=" + __command._False + ")."), 
+		3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Asynchronous buffer size:" ), 
+        0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __AsyncBufferSize_JTextField = new JTextField ( 20 );
+    __AsyncBufferSize_JTextField.setToolTipText("Maximum number of messages waiting to be written.");
+    __AsyncBufferSize_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __AsyncBufferSize_JTextField,
+        1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+        "Optional - number of messages to buffer (default=" + AsyncLogWriter.DEFAULT_BUFFER_SIZE + ")."), 
+        3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Asynchronous overflow:"),
+		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__AsyncOverflow_JComboBox = new SimpleJComboBox ( false );
+	__AsyncOverflow_JComboBox.setToolTipText("Whether to wait (" + AsyncLogWriter.OVERFLOW_BLOCK +
+		") or discard messages (" + AsyncLogWriter.OVERFLOW_DISCARD + ") when the buffer is full");
+	List<String> overflowChoices = new ArrayList<String>();
+	overflowChoices.add ( "" );	// Default
+	overflowChoices.add ( AsyncLogWriter.OVERFLOW_BLOCK );
+	overflowChoices.add ( AsyncLogWriter.OVERFLOW_DISCARD );
+	__AsyncOverflow_JComboBox.setData(overflowChoices);
+	__AsyncOverflow_JComboBox.select ( 0 );
+	__AsyncOverflow_JComboBox.addActionListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __AsyncOverflow_JComboBox,
+	    1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+		"Optional - action when the buffer is full (default=" + AsyncLogWriter.OVERFLOW_BLOCK + ")."), 
+		3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Command:" ), 
 		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
 	__command_JTextArea = new JTextArea ( 4, 60 );
@@ -409,6 +476,9 @@ private void refresh ()
 	String LogFile = "";
 	String MaxSize = "";
 	String Suffix = "";
+	String Async = "";
+	String AsyncBufferSize = "";
+	String AsyncOverflow = "";
 	PropList props = __command.getCommandParameters();
 	__error_wait = false;
 	if ( __first_time ) {
@@ -416,6 +486,9 @@ private void refresh ()
 		Suffix = props.getValue ( "Suffix" );
 		MaxSize = props.getValue ( "MaxSize" );
 		LogFile = props.getValue ( "LogFile" );
+		Async = props.getValue ( "Async" );
+		AsyncBufferSize = props.getValue ( "AsyncBufferSize" );
+		AsyncOverflow = props.getValue ( "AsyncOverflow" );
 		if ( LogFile != null ) {
 			__LogFile_JTextField.setText ( LogFile );
 		}
@@ -437,16 +510,53 @@ private void refresh ()
 				"\".  Select a\ndifferent value or Cancel." );
 			}
 		}
+		if ( JGUIUtil.isSimpleJComboBoxItem(__Async_JComboBox, Async, JGUIUtil.NONE, null, null) ) {
+			__Async_JComboBox.select ( Async );
+		}
+		else {
+			if ( (Async == null) || Async.equals("") ) {
+				// New command...select the default...
+				__Async_JComboBox.select ( 0 );
+			}
+			else {
+				// Bad user command...
+				Message.printWarning ( 1, routine, "Existing command references an invalid\nAsync value \"" + Async +
+				"\".  Select a different value or Cancel." );
+			}
+		}
+		if ( AsyncBufferSize != null ) {
+		    __AsyncBufferSize_JTextField.setText( AsyncBufferSize );
+		}
+		if ( JGUIUtil.isSimpleJComboBoxItem(__AsyncOverflow_JComboBox, AsyncOverflow, JGUIUtil.NONE, null, null) ) {
+			__AsyncOverflow_JComboBox.select ( AsyncOverflow );
+		}
+		else {
+			if ( (AsyncOverflow == null) || AsyncOverflow.equals("") ) {
+				// New command...select the default...
+				__AsyncOverflow_JComboBox.select ( 0 );
+			}
+			else {
+				// Bad user command...
+				Message.printWarning ( 1, routine, "Existing command references an invalid\nAsyncOverflow value \"" +
+				AsyncOverflow + "\".  Select a different value or Cancel." );
+			}
+		}
 	}
 	// Regardless, reset the command from the fields.  This is only visible
 	// information that has not been committed in the command.
 	LogFile = __LogFile_JTextField.getText().trim();
 	MaxSize = __MaxSize_JTextField.getText().trim();
 	Suffix = __Suffix_JComboBox.getSelected();
+	Async = __Async_JComboBox.getSelected();
+	AsyncBufferSize = __AsyncBufferSize_JTextField.getText().trim();
+	AsyncOverflow = __AsyncOverflow_JComboBox.getSelected();
 	props = new PropList ( __command.getCommandName() );
 	props.add ( "LogFile=" + LogFile );
 	props.add ( "MaxSize=" + MaxSize );
 	props.add ( "Suffix=" + Suffix );
+	props.add ( "Async=" + Async );
+	props.add ( "AsyncBufferSize=" + AsyncBufferSize );
+	props.add ( "AsyncOverflow=" + AsyncOverflow );
 	__command_JTextArea.setText( __command.toString(props) );
 	// Check the path and determine what the label on the path button should be...
 	if ( __path_JButton != null ) {
@@ -31,6 +31,7 @@ import cdss.domain.hydrology.network.HydrologyNodeNetwork;
 import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 import rti.tscommandprocessor.core.TSListType;
+import rti.tscommandprocessor.core.TimeSeriesToProcess;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -1342,39 +1343,26 @@ private List<TS> lookupAnalysisInputTimeSeries ( String nodeID, String [] tsData
     // If here need to try to locate the time series using the default
     String TSList = "" + TSListType.ALL_MATCHING_TSID;
     if ( (nodeInputTSIDs != null) && (nodeInputTSIDs.length > 0) ) {
-        PropList request_params = new PropList ( "" );
         String tsid = nodeInputTSIDs[nodeInputTSIDsPos];
         // Replace %I with the analysis interval (e.g., "Day").
         // Can't use processor or time series method because %I is not known for those so do a simple string replace
         tsid = tsid.replace("%I", "" + interval);
         Message.printStatus(2,routine,"Looking up input time series for node \"" + nodeID + "\" matching TSID \"" + tsid + "\"" );
         // Try to get the time series from the list in memory
-        request_params.set ( "TSList", TSList );
-        request_params.set ( "TSID", tsid );
-        request_params.set ( "EnsembleID", null );
-        CommandProcessorRequestResultsBean bean = null;
+        // - call the processor directly rather than using a request because this is called for each node and data type
+        TimeSeriesToProcess tsToProcess = null;
         try {
-            bean = processor.processRequest( "GetTimeSeriesToProcess", request_params);
+            tsToProcess = processor.getTimeSeriesToProcess ( TSList, tsid, null, null );
         }
         catch ( Exception e ) {
             problems.add ( "Error requesting GetTimeSeriesToProcess(TSList=\"" + TSList +
             "\", TSID=\"" + tsid + ") from processor for requested TSID." );
         }
-        if ( bean == null ) {
+        if ( tsToProcess == null ) {
             problems.add("Unable to find requested time series \"" + tsid + "\" for node \"" + nodeID + "\"");
         }
         else {
-            PropList bean_PropList = bean.getResultsPropList();
-            Object o_TSList = bean_PropList.getContents ( "TSToProcessList" );
-            if ( o_TSList == null ) {
-                problems.add("Null TSToProcessList returned from processor for GetTimeSeriesToProcess(TSList=\"" + TSList +
-                "\" TSID=\"" + tsid + "\") - did not find requested TSID.");
-            }
-            else {
-            	@SuppressWarnings("unchecked")
-				List<TS> tslist0 = (List<TS>)o_TSList;
-                tslist = tslist0;
-            }
+            tslist = tsToProcess.getTimeSeriesList();
         }
         if ( tslist.size() == 0 ) {
             problems.add("No time series are available from processor GetTimeSeriesToProcess (TSList=\"" + TSList +
@@ -1393,28 +1381,21 @@ private List<TS> lookupAnalysisInputTimeSeries ( String nodeID, String [] tsData
             // Don't specify data source here - should not be important if other parts were matched
             tsid = nodeID + ".*." + tsDataTypes[i] + "." + interval;
             // Get the time series to process.  Allow TSID to be a pattern or specific time series...
-            PropList request_params = new PropList ( "" );
-            request_params.set ( "TSList", TSList );
-            request_params.set ( "TSID", tsid );
-            request_params.set ( "EnsembleID", null );
-            CommandProcessorRequestResultsBean bean = null;
+            // - call the processor directly rather than using a request because this is called for each node and data type
+            TimeSeriesToProcess tsToProcess = null;
             try {
-                bean = processor.processRequest( "GetTimeSeriesToProcess", request_params);
+                tsToProcess = processor.getTimeSeriesToProcess ( TSList, tsid, null, null );
             }
             catch ( Exception e ) {
                 problems.add ( "Error requesting GetTimeSeriesToProcess(TSList=\"" + TSList +
                 "\", TSID=\"" + tsid + ") from processor." );
             }
-            PropList bean_PropList = bean.getResultsPropList();
-            Object o_TSList = bean_PropList.getContents ( "TSToProcessList" );
-            if ( o_TSList == null ) {
+            if ( tsToProcess == null ) {
                 problems.add("Null TSToProcessList returned from processor for GetTimeSeriesToProcess(TSList=\"" + TSList +
                 "\" TSID=\"" + tsid + "\").");
             }
             else {
-            	@SuppressWarnings("unchecked")
-				List<TS> tslist0 = (List<TS>)o_TSList;
-                tslist = tslist0;
+                tslist = tsToProcess.getTimeSeriesList();
                 if ( tslist.size() == 0 ) {
                     problems2.add("No time series are available from processor GetTimeSeriesToProcess (TSList=\"" + TSList +
                     "\" TSID=\"" + tsid + "\").");
@@ -26,6 +26,7 @@ package rti.tscommandprocessor.commands.table;
 import javax.swing.JFrame;
 
 import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.CommandDependencyProvider;
 import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 
@@ -68,7 +69,7 @@ import RTi.Util.Time.DateTime;
 /**
 This class initializes, checks, and runs the ReadTableFromDataStore() command.
 */
-public class ReadTableFromDataStore_Command extends AbstractCommand implements Command, CommandDiscoverable, ObjectListProvider
+public class ReadTableFromDataStore_Command extends AbstractCommand implements Command, CommandDependencyProvider, CommandDiscoverable, ObjectListProvider
 {
     
 /**
@@ -248,6 +249,90 @@ public boolean editCommand ( JFrame parent )
 	return (new ReadTableFromDataStore_JDialog ( parent, this )).ok();
 }
 
+/**
+Return the resources that are read by the command, used when running commands in parallel.
+The datastore is also an output so that only one command at a time uses the database connection.
+@return the list of resources, or null if they cannot be determined until the command is run
+*/
+public List<String> getCommandInputResources ()
+{
+    PropList parameters = getCommandParameters();
+    List<String> inputList = new ArrayList<String>();
+    inputList.add ( CommandDependencyProvider.RESOURCE_DATASTORE + parameters.getValue("DataStore") );
+    String [] parameterNames = { "DataStoreCatalog", "DataStoreSchema", "DataStoreTable", "DataStoreColumns", "OrderBy",
+        "Top", "Sql", "SqlFile", "DataStoreProcedure", "ProcedureParameters", "ProcedureReturnProperty",
+        "TableID", "RowCountProperty" };
+    for ( String parameterName : parameterNames ) {
+        TSCommandProcessorUtil.addPropertyResources ( inputList, parameters.getValue(parameterName) );
+    }
+    String SqlFile = parameters.getValue("SqlFile");
+    if ( (SqlFile != null) && !SqlFile.isEmpty() ) {
+        if ( SqlFile.indexOf("${") >= 0 ) {
+            return null;
+        }
+        try {
+            inputList.add ( CommandDependencyProvider.RESOURCE_FILE +
+                IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(getCommandProcessor()),SqlFile) );
+        }
+        catch ( Exception e ) {
+            return null;
+        }
+    }
+    return inputList;
+}
+
+/**
+Return the resources that are written by the command, used when running commands in parallel.
+Stored procedures and SQL that is not a single SELECT statement may modify the database, which cannot be declared,
+so null is returned and the command is always run sequentially and is not cached with IncrementalRun=True.
+@return the list of resources, or null if they cannot be determined until the command is run
+*/
+public List<String> getCommandOutputResources ()
+{
+    PropList parameters = getCommandParameters();
+    String DataStoreProcedure = parameters.getValue("DataStoreProcedure");
+    if ( (DataStoreProcedure != null) && !DataStoreProcedure.isEmpty() ) {
+        return null;
+    }
+    String Sql = parameters.getValue("Sql");
+    if ( (Sql != null) && !Sql.isEmpty() && !isSelectStatement(Sql) ) {
+        return null;
+    }
+    String SqlFile = parameters.getValue("SqlFile");
+    if ( (SqlFile != null) && !SqlFile.isEmpty() ) {
+        if ( SqlFile.indexOf("${") >= 0 ) {
+            return null;
+        }
+        try {
+            String SqlFile_full = IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(getCommandProcessor()),SqlFile);
+            if ( !isSelectStatement(StringUtil.toString(IOUtil.fileToStringList(SqlFile_full), " ")) ) {
+                return null;
+            }
+        }
+        catch ( Exception e ) {
+            return null;
+        }
+    }
+    List<String> outputList = new ArrayList<String>();
+    outputList.add ( CommandDependencyProvider.RESOURCE_DATASTORE + parameters.getValue("DataStore") );
+    String TableID = parameters.getValue("TableID");
+    String RowCountProperty = parameters.getValue("RowCountProperty");
+    String ProcedureReturnProperty = parameters.getValue("ProcedureReturnProperty");
+    if ( ((TableID != null) && (TableID.indexOf("${") >= 0)) ||
+        ((RowCountProperty != null) && (RowCountProperty.indexOf("${") >= 0)) ||
+        ((ProcedureReturnProperty != null) && (ProcedureReturnProperty.indexOf("${") >= 0)) ) {
+        return null;
+    }
+    outputList.add ( CommandDependencyProvider.RESOURCE_TABLE + TableID );
+    if ( (RowCountProperty != null) && !RowCountProperty.isEmpty() ) {
+        outputList.add ( CommandDependencyProvider.RESOURCE_PROPERTY + RowCountProperty );
+    }
+    if ( (ProcedureReturnProperty != null) && !ProcedureReturnProperty.isEmpty() ) {
+        outputList.add ( CommandDependencyProvider.RESOURCE_PROPERTY + ProcedureReturnProperty );
+    }
+    return outputList;
+}
+
 /**
 Return the table that is read by this class when run in discovery mode.
 */
@@ -256,6 +341,27 @@ private DataTable getDiscoveryTable()
     return __table;
 }
 
+/**
+Indicate whether SQL is a single SELECT statement, which does not modify the database.
+The check is conservative:  SELECT INTO and anything that looks like more than one statement are not a SELECT statement.
+@param sql the SQL, which may contain comments
+@return true if the SQL is a single SELECT statement
+*/
+private boolean isSelectStatement ( String sql )
+{
+    String sqlNoComments = DMIUtil.removeCommentsFromSql ( sql ).trim();
+    if ( !StringUtil.startsWithIgnoreCase(sqlNoComments, "select") ) {
+        return false;
+    }
+    if ( sqlNoComments.matches("(?is).*\\binto\\b.*") ) {
+        // SELECT INTO creates a table
+        return false;
+    }
+    // A semicolon other than at the end indicates more than one statement
+    int pos = sqlNoComments.indexOf(';');
+    return (pos < 0) || (pos == (sqlNoComments.length() - 1));
+}
+
 /**
 Return a list of objects of the requested type.  This class only keeps a list of DataTable objects.
 The following classes can be requested:  DataTable
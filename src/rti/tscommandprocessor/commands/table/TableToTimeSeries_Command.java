@@ -26,16 +26,22 @@ package rti.tscommandprocessor.commands.table;
 import javax.swing.JFrame;
 
 import rti.tscommandprocessor.core.TSCommandProcessor;
+import rti.tscommandprocessor.core.DateTimeColumnParser;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import RTi.TS.TS;
 import RTi.TS.TSIdent;
@@ -61,7 +67,6 @@ import RTi.Util.String.StringUtil;
 import RTi.Util.Table.DataTable;
 import RTi.Util.Table.TableRecord;
 import RTi.Util.Time.DateTime;
-import RTi.Util.Time.DateTimeParser;
 import RTi.Util.Time.TimeInterval;
 import RTi.Util.Time.YearType;
 
@@ -85,6 +90,12 @@ Values for BlockLayout parameter.
 protected final String _Period = "Period";
 protected final String _Year = "Year";
 
+/**
+Values for SinglePass parameter.
+*/
+protected final String _False = "False";
+protected final String _True = "True";
+
 /**
 String that indicates that column names should be taken from the table.
 For example TC[1:] indicates columns 1 through the total number of columns.
@@ -249,6 +260,8 @@ throws InvalidCommandParameterException
     String Units = parameters.getValue("Units" );
     String MissingValue = parameters.getValue("MissingValue" );
     String HandleDuplicatesHow = parameters.getValue("HandleDuplicatesHow" );
+    String SinglePass = parameters.getValue("SinglePass" );
+    String FillThreads = parameters.getValue("FillThreads" );
     String Alias = parameters.getValue("Alias" );
 	String BlockOutputYearType = parameters.getValue ( "BlockOutputYearType" );
 	String InputStart = parameters.getValue("InputStart");
@@ -899,6 +912,30 @@ throws InvalidCommandParameterException
                 message, "Specify HandleDuplicatesHow as " + _Add + ", " + _UseFirstNonmissing + ", " +
                 " or " + _UseLast + " (default), or " + _UseLastNonmissing + "." ) );
     }
+    if ( (SinglePass != null) && !SinglePass.equals("") &&
+        !SinglePass.equalsIgnoreCase(_False) && !SinglePass.equalsIgnoreCase(_True) ) {
+        message = "The SinglePass value \"" + SinglePass + "\" is not valid.";
+        warning += "\n" + message;
+        status.addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.FAILURE,
+                message, "Specify SinglePass as " + _False + " (default) or " + _True + "." ) );
+    }
+    if ( (FillThreads != null) && !FillThreads.equals("") ) {
+        if ( !StringUtil.isInteger(FillThreads) || (Integer.parseInt(FillThreads) <= 0) ) {
+            message = "The number of fill threads (" + FillThreads + ") is invalid.";
+            warning += "\n" + message;
+            status.addToLog ( CommandPhaseType.INITIALIZATION,
+                new CommandLogRecord(CommandStatusType.FAILURE,
+                    message, "Specify an integer > 0." ) );
+        }
+        if ( (SinglePass == null) || !SinglePass.equalsIgnoreCase(_True) ) {
+            message = "FillThreads is only used when SinglePass=" + _True + ".";
+            warning += "\n" + message;
+            status.addToLog ( CommandPhaseType.INITIALIZATION,
+                new CommandLogRecord(CommandStatusType.FAILURE,
+                    message, "Specify SinglePass=" + _True + " or do not specify FillThreads." ) );
+        }
+    }
     
 	YearType outputYearType = null;
 	if ( (BlockOutputYearType != null) && !BlockOutputYearType.isEmpty() ) {
@@ -978,7 +1015,7 @@ throws InvalidCommandParameterException
     }
     
 	// Check for invalid parameters...
-    List<String> validList = new ArrayList<String>(27);
+    List<String> validList = new ArrayList<String>(29);
     validList.add ( "TableID" );
     //valid_Vector.add ( "SkipRows" );
     validList.add ( "DateTimeColumn" );
@@ -1005,6 +1042,8 @@ throws InvalidCommandParameterException
     validList.add ( "Units" );
     validList.add ( "MissingValue" );
     validList.add ( "HandleDuplicatesHow" );
+    validList.add ( "SinglePass" );
+    validList.add ( "FillThreads" );
     validList.add ( "Alias" );
 	validList.add ( "BlockLayout" );
 	validList.add ( "BlockLayoutColumns" );
@@ -1295,11 +1334,11 @@ Return the date/time from the record given the date/time column numbers and form
 @param timePos the column number for the time, or -1 if not used
 @param dateTime if non-null, use the instance for results, rather than creating a new object - this can be
 more efficient when iterating through raw data
-@param dateTimeParser parser based on the specified format (if null use default parser)
+@param dateTimeParser parser based on the specified format (uses DateTime.parse() if no format was specified)
 @param errorMessages if not null, add parse messages to the list
 */
 private DateTime getDateTimeFromRecord ( TableRecord rec, int row, int dateTimePos, int datePos, int timePos,
-    DateTime dateTime, DateTimeParser dateTimeParser, List<String> errorMessages )
+    DateTime dateTime, DateTimeColumnParser dateTimeParser, List<String> errorMessages )
 {
     String dateTimeString = null, dateString, timeString;
     Object dateTimeObject, dateObject, timeObject;
@@ -1370,16 +1409,10 @@ private DateTime getDateTimeFromRecord ( TableRecord rec, int row, int dateTimeP
         }
     }
     try {
-        if ( dateTimeParser != null ) {
-            // Reuse the date/time for performance
-            // This is safe because for regular time series only the parts are used
-            // and for irregular a copy is made when setting the value
-            return dateTimeParser.parse(dateTime,dateTimeString);
-        }
-        else {
-            // Let the parse() method figure out the format
-            return DateTime.parse(dateTimeString);
-        }
+        // Reuse the date/time for performance
+        // This is safe because for regular time series only the parts are used
+        // and for irregular a copy is made when setting the value
+        return dateTimeParser.parse(dateTime,dateTimeString);
     }
     catch ( Exception dte ) {
         if ( errorMessages != null ) {
@@ -1512,6 +1545,82 @@ private List<String> getValueColumnsRuntime()
     return __valueColumnsRuntime;
 }
 
+/**
+Create a time series for a TSID from a single-column table, with the period from the table or requested period.
+@param table the table being processed
+@param tsidentstr the TSID for the time series
+@param units the data units for the time series
+@param dtMinFromTable the earliest date/time for the time series in the table
+@param dtMaxFromTable the latest date/time for the time series in the table
+@param inputStartReq requested start of data (null to use the table)
+@param inputEndReq requested end of data (null to use the table)
+@param irregularIntervalPrecision precision for irregular time series date/times, or null
+@param errorMessages list of error messages to add to
+@return the time series, or null if the time series could not be created
+*/
+private TS newTimeSeriesFromTSID ( DataTable table, String tsidentstr, String units,
+    DateTime dtMinFromTable, DateTime dtMaxFromTable, DateTime inputStartReq, DateTime inputEndReq,
+    TimeInterval irregularIntervalPrecision, List<String> errorMessages )
+{   String routine = getClass().getSimpleName() + ".newTimeSeriesFromTSID";
+    Message.printStatus(2, routine, "Creating time series for TSID=\"" + tsidentstr + "\", units=\"" + units + "\"" );
+    TSIdent tsident = null;
+    try {
+        tsident = new TSIdent( tsidentstr );
+    }
+    catch ( Exception e ) {
+        errorMessages.add ( "Error initializing time series \"" + tsidentstr + "\" (" + e + ") - will not read.");
+        Message.printWarning(3, routine, e);
+        return null;
+    }
+    TS ts = null;
+    try {
+        ts = TSUtil.newTimeSeries( tsident.toString(), true );
+        // Set all the information
+        ts.setIdentifier ( tsident );
+        ts.setDescription ( tsident.getLocation() + " " + tsident.getType() );
+        ts.setDataUnits ( units );
+        ts.setDataUnitsOriginal ( units );
+        ts.setMissing ( Double.NaN );
+        ts.setInputName ( table.getTableID() );
+        if ( inputStartReq != null ) {
+            ts.setDate1(inputStartReq);
+        }
+        else {
+            ts.setDate1(dtMinFromTable);
+        }
+        if ( inputEndReq != null ) {
+            ts.setDate2(inputEndReq);
+        }
+        else {
+            ts.setDate2(dtMaxFromTable);
+        }
+        ts.setDate1Original(dtMinFromTable);
+        ts.setDate2Original(dtMaxFromTable);
+        if ( (ts.getDataIntervalBase() == TimeInterval.IRREGULAR) && (irregularIntervalPrecision != null) ) {
+            ts.setDate1(ts.getDate1().setPrecision(irregularIntervalPrecision.getBase()));
+            ts.setDate2(ts.getDate2().setPrecision(irregularIntervalPrecision.getBase()));
+            ts.setDate1Original(ts.getDate1Original().setPrecision(irregularIntervalPrecision.getBase()));
+            ts.setDate2Original(ts.getDate2Original().setPrecision(irregularIntervalPrecision.getBase()));
+        }
+    }
+    catch ( Exception e ) {
+        errorMessages.add ( "Error initializing time series \"" + tsidentstr + "\" (" + e + ") - will not read.");
+        Message.printWarning(3,routine,e);
+        return null;
+    }
+    return ts;
+}
+
+/**
+Pack a date/time into a long, YYYYMMDDhhmmss, which sorts the same as the date/time.
+This is used to buffer date/times without keeping DateTime objects.
+*/
+private static long packDateTime ( DateTime dt )
+{
+    return ((((dt.getYear()*100L + dt.getMonth())*100L + dt.getDay())*100L + dt.getHour())*100L
+        + dt.getMinute())*100L + dt.getSecond();
+}
+
 /**
 Parse command from text.
 */
@@ -1937,11 +2046,8 @@ throws IOException
             }
         }
     }
-    DateTimeParser dateTimeParser = null;
-    if ( (dateTimeFormat != null) && !dateTimeFormat.trim().equals("") ) {
-        // Set to null to simplify logic below
-        dateTimeParser = new DateTimeParser ( dateTimeFormat );
-    }
+    // Parser handles the case of no format and remembers the previous date/time
+    DateTimeColumnParser dateTimeParser = new DateTimeColumnParser ( dateTimeFormat );
     int datePos = -1;
     if ( (dateColumn != null) && !dateColumn.equals("") ) {
         try {
@@ -2322,6 +2428,9 @@ Read a list of time series from a single column data table.
 @param handleDuplicatesHow indicate how to handle duplicate date/times
 @param inputStartReq requested start of data (null to return all).
 @param inputEndReq requested end of data (null to return all).
+@param singlePass if true, parse each record once into a buffer and fill the time series from the buffer,
+with the period for each time series from its own records
+@param fillThreads number of threads to fill time series from the buffer, if singlePass is true
 @param readData True to read data, false to only read the header information.
 @param errorMessages Error message strings to be propagated back to calling code.
 */
@@ -2332,7 +2441,7 @@ private List<TS> readTimeSeriesListSingle ( DataTable table,
     String dataTypeColumn, String scenarioColumn, String sequenceIDColumn, String unitsColumn, String locationType,
     String dataSource, String dataType, TimeInterval interval, TimeInterval irregularIntervalPrecision,
     String scenario, String sequenceID, String units, List<String> missing, HandleDuplicatesHowType handleDuplicatesHow,
-    DateTime inputStartReq, DateTime inputEndReq,
+    DateTime inputStartReq, DateTime inputEndReq, boolean singlePass, int fillThreads,
     boolean readData, CommandPhaseType commandPhase, List<String> errorMessages )
 throws IOException
 {   String routine = getClass().getSimpleName() + ".readTimeSeriesListSingle";
@@ -2354,11 +2463,8 @@ throws IOException
             }
         }
     }
-    DateTimeParser dateTimeParser = null;
-    if ( (dateTimeFormat != null) && !dateTimeFormat.trim().equals("") ) {
-        // Set to null to simplify logic below
-        dateTimeParser = new DateTimeParser ( dateTimeFormat );
-    }
+    // Parser handles the case of no format and remembers the previous date/time
+    DateTimeColumnParser dateTimeParser = new DateTimeColumnParser ( dateTimeFormat );
     int datePos = -1;
     if ( (dateColumn != null) && !dateColumn.equals("") ) {
         try {
@@ -2485,6 +2591,13 @@ throws IOException
         // Don't continue if there are errors
         return tslist;
     }
+    if ( singlePass && readData ) {
+        // Parse each record once rather than in two passes below
+        return readTimeSeriesListSingleOnePass ( table, dateTimePos, datePos, timePos, valuePos, flagPos,
+            locationTypePos, locationPos, dataSourcePos, dataTypePos, scenarioPos, sequenceIDPos, unitsPos,
+            dateTimeParser, locationType, dataSource, dataType, interval, irregularIntervalPrecision,
+            scenario, sequenceID, units, handleDuplicatesHow, inputStartReq, inputEndReq, fillThreads, errorMessages );
+    }
     // Loop through the data records and get the maximum and minimum date/times, as well as the unique
     // TSID combinations, needed to initialize the time series.
     int nRecords = 0;
@@ -2553,62 +2666,15 @@ throws IOException
     Message.printStatus(2, routine,
         "Number of time series identifiers from single-column data table = " + tsidsFromTable.size() );
     // Create the time series.
-    TSIdent tsident = null;
     TS ts = null;
     String tsidentstr = null;
     int its = -1; // Used to iterate through units, parallel to TSID hashmap
     for ( Map.Entry<String,String> tsid: tsidsFromTable.entrySet() ) {
         ++its;
         tsidentstr = tsid.getKey();
-        Message.printStatus(2, routine, "Creating time series for TSID=\"" + tsidentstr + "\", units=\"" +
-            unitsFromTableList.get(its) + "\"" );
-        try {
-            tsident = new TSIdent( tsidentstr );
-        }
-        catch ( Exception e ) {
-            tsident = null;
-            errorMessages.add ( "Error initializing time series \"" + tsidentstr + "\" (" + e + ") - will not read.");
-            Message.printWarning(3, routine, e);
-        }
-        if ( tsident != null ) {
-            try {
-                ts = TSUtil.newTimeSeries( tsident.toString(), true );
-                // Set all the information
-                ts.setIdentifier ( tsident );
-                ts.setDescription ( tsident.getLocation() + " " + tsident.getType() );
-                ts.setDataUnits ( unitsFromTableList.get(its) );
-                ts.setDataUnitsOriginal ( unitsFromTableList.get(its) );
-                ts.setMissing ( Double.NaN );
-                ts.setInputName ( table.getTableID() );
-                if ( inputStartReq != null ) {
-                    ts.setDate1(inputStartReq);
-                }
-                else {
-                    ts.setDate1(dtMinFromTable);
-                }
-                if ( inputEndReq != null ) {
-                    ts.setDate2(inputEndReq);
-                }
-                else {
-                    ts.setDate2(dtMaxFromTable);
-                }
-                ts.setDate1Original(dtMinFromTable);
-                ts.setDate2Original(dtMaxFromTable);
-                if ( (ts.getDataIntervalBase() == TimeInterval.IRREGULAR) && (irregularIntervalPrecision != null) ) {
-                	ts.setDate1(ts.getDate1().setPrecision(irregularIntervalPrecision.getBase()));
-                	ts.setDate2(ts.getDate2().setPrecision(irregularIntervalPrecision.getBase()));
-                	ts.setDate1Original(ts.getDate1Original().setPrecision(irregularIntervalPrecision.getBase()));
-                	ts.setDate2Original(ts.getDate2Original().setPrecision(irregularIntervalPrecision.getBase()));
-                }
-            }
-            catch ( Exception e ) {
-                // Set the TS to null to match the original list positions but won't be able to set data below
-                ts = null;
-                errorMessages.add ( "Error initializing time series \"" +
-                    tsidentstr + "\" (" + e + ") - will not read.");
-                Message.printWarning(3,routine,e);
-            }
-        }
+        // Null if the time series could not be created, to match the original list positions but won't be able to set data below
+        ts = newTimeSeriesFromTSID ( table, tsidentstr, unitsFromTableList.get(its), dtMinFromTable, dtMaxFromTable,
+            inputStartReq, inputEndReq, irregularIntervalPrecision, errorMessages );
         // Add even if null to keep the list size the same
         tslist.add ( ts );
     }
@@ -2721,77 +2787,289 @@ throws IOException
             if ( Message.isDebugOn ) {
             	Message.printDebug(1, routine, "Setting time series from table for date/time=" + dt + " val=" + value + " flag=\"" + flag + "\"");
             }
-            if ( (flag != null) && !flag.isEmpty() ) {
-                if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_LAST ) {
-                    // Set to the last value even if missing
-                    ts.setDataValue(dt, value, flag, -1);
-                }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_LAST_NONMISSING ) {
-                    // Set to the last value only if not missing
-                    if ( !ts.isDataMissing(value) ) {
-                        ts.setDataValue(dt, value, flag, -1);
-                    }
-                }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_FIRST_NONMISSING ) {
-                    // Only set if value in time series is missing (has not been set)
-                    if ( ts.isDataMissing(ts.getDataValue(dt)) && !ts.isDataMissing(value) ) {
-                        ts.setDataValue(dt, value, flag, -1);
+            setDataValue ( ts, dt, value, flag, handleDuplicatesHow );
+        }
+        catch ( Exception e ) {
+            // Skip the record
+        	if ( Message.isDebugOn ) {
+        		Message.printWarning(1,routine,e);
+        	}
+            continue;
+        }
+    }
+    return tslist;
+}
+
+/**
+Read a list of time series from a single-column data table, parsing each record once.
+Each record is parsed into a compact buffer of time series index, packed date/time, value, and flag.
+Records are assigned to time series using a hash of the location and other TSID column values,
+so that the TSID string is only formatted once for each unique combination of values.
+The period for each time series is from its own records (or the requested period) and the time series
+are filled from the buffer, in parallel if requested, with records for each time series processed in table order.
+@param fillThreads number of threads to fill time series
+@see #readTimeSeriesListSingle for other parameters
+*/
+private List<TS> readTimeSeriesListSingleOnePass ( DataTable table,
+    int dateTimePos, int datePos, int timePos, int valuePos, int flagPos,
+    int locationTypePos, int locationPos, int dataSourcePos, int dataTypePos, int scenarioPos, int sequenceIDPos, int unitsPos,
+    DateTimeColumnParser dateTimeParser, String locationType, String dataSource, String dataType,
+    TimeInterval interval, TimeInterval irregularIntervalPrecision, String scenario, String sequenceID, String units,
+    final HandleDuplicatesHowType handleDuplicatesHow, DateTime inputStartReq, DateTime inputEndReq,
+    int fillThreads, List<String> errorMessages )
+throws IOException
+{   String routine = getClass().getSimpleName() + ".readTimeSeriesListSingleOnePass";
+    int nRecords = table.getNumberOfRecords();
+    // Columns that determine the time series for a record (other TSID parts are from parameters)
+    List<Integer> keyPosList = new ArrayList<Integer>();
+    keyPosList.add ( locationPos );
+    for ( int pos : new int[] { locationTypePos, dataSourcePos, dataTypePos, scenarioPos, sequenceIDPos } ) {
+        if ( pos >= 0 ) {
+            keyPosList.add ( pos );
+        }
+    }
+    int [] keyPos = new int[keyPosList.size()];
+    for ( int i = 0; i < keyPos.length; i++ ) {
+        keyPos[i] = keyPosList.get(i);
+    }
+    // Buffer for parsed records
+    final int [] seriesBuffer = new int[nRecords];
+    final long [] dateTimeBuffer = new long[nRecords];
+    final double [] valueBuffer = new double[nRecords];
+    final String [] flagBuffer = (flagPos >= 0) ? new String[nRecords] : null;
+    int bufferCount = 0;
+    // Time series information, by time series index
+    HashMap<TSIDKey,Integer> keyMap = new HashMap<TSIDKey,Integer>();
+    LinkedHashMap<String,Integer> tsidMap = new LinkedHashMap<String,Integer>(); // Will retain insert order
+    List<String> unitsFromTableList = new ArrayList<String>();
+    int [] recordCount = new int[16];
+    long [] dtMinFromTable = new long[16];
+    long [] dtMaxFromTable = new long[16];
+    // Keys for the current and previous records, swapped for each record to avoid lookups for consecutive records
+    TSIDKey key = new TSIDKey ( keyPos.length );
+    TSIDKey keyPrev = new TSIDKey ( keyPos.length );
+    boolean keyPrevSet = false;
+    int its = -1;
+    DateTime dt = null, dtTemplate = null;
+    TableRecord rec;
+    Object o;
+    double value;
+    String sValue, tsidFromTable, unitsFromTable;
+    for ( int iRec = 0; iRec < nRecords; iRec++ ) {
+        try {
+            rec = table.getRecord(iRec);
+            // Pass the previous date/time to reuse because it is packed below and not otherwise used
+            dt = getDateTimeFromRecord(rec,(iRec + 1),dateTimePos,datePos,timePos,dt,dateTimeParser,null);
+            if ( dt == null ) {
+                continue;
+            }
+            if ( dtTemplate == null ) {
+                dtTemplate = new DateTime(dt);
+            }
+            // Determine the time series for the record
+            key.setFromRecord ( rec, keyPos );
+            if ( !keyPrevSet || !key.equals(keyPrev) ) {
+                Integer itsObject = keyMap.get(key);
+                if ( itsObject == null ) {
+                    // New combination of values so format the TSID
+                    tsidFromTable = formatTSIDFromTableRecord ( rec, locationTypePos, locationPos, dataSourcePos,
+                        dataTypePos, interval, scenarioPos, sequenceIDPos, locationType, dataSource, dataType, scenario, sequenceID );
+                    if ( tsidFromTable == null ) {
+                        // No location in record
+                        itsObject = -1;
                     }
-                }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.ADD ) {
-                    if ( !ts.isDataMissing(value) ) {
-                        // If the existing value is missing, just set
-                        double oldValue = ts.getDataValue(dt);
-                        if ( ts.isDataMissing(oldValue) ) {
-                            ts.setDataValue(dt, value, flag, -1);
-                        }
-                        else {
-                            // Add to the previous value
-                            ts.setDataValue(dt, (oldValue + value), flag, -1);
+                    else {
+                        itsObject = tsidMap.get(tsidFromTable);
+                        if ( itsObject == null ) {
+                            itsObject = tsidMap.size();
+                            tsidMap.put ( tsidFromTable, itsObject );
+                            // Also save the units in the same order
+                            if ( unitsPos >= 0 ) {
+                                unitsFromTable = rec.getFieldValueString(unitsPos);
+                                if ( unitsFromTable == null ) {
+                                    unitsFromTable = "";
+                                }
+                                unitsFromTableList.add(unitsFromTable);
+                            }
+                            else {
+                                unitsFromTableList.add(units);
+                            }
+                            if ( itsObject == recordCount.length ) {
+                                recordCount = Arrays.copyOf ( recordCount, itsObject*2 );
+                                dtMinFromTable = Arrays.copyOf ( dtMinFromTable, itsObject*2 );
+                                dtMaxFromTable = Arrays.copyOf ( dtMaxFromTable, itsObject*2 );
+                            }
+                            dtMinFromTable[itsObject] = Long.MAX_VALUE;
+                            dtMaxFromTable[itsObject] = Long.MIN_VALUE;
                         }
                     }
+                    keyMap.put ( key.copy(), itsObject );
                 }
+                its = itsObject;
+                TSIDKey temp = keyPrev;
+                keyPrev = key;
+                key = temp;
+                keyPrevSet = true;
             }
-            else {
-                if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_LAST ) {
-                    // Set to the last value even if missing
-                    ts.setDataValue(dt, value);
-                }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_LAST_NONMISSING ) {
-                    // Set to the last value only if not missing
-                    if ( !ts.isDataMissing(value) ) {
-                        ts.setDataValue(dt, value);
-                    }
+            if ( its < 0 ) {
+                continue;
+            }
+            // Period for the time series includes records that do not have valid values, the same as two passes
+            long packedDateTime = packDateTime(dt);
+            if ( packedDateTime < dtMinFromTable[its] ) {
+                dtMinFromTable[its] = packedDateTime;
+            }
+            if ( packedDateTime > dtMaxFromTable[its] ) {
+                dtMaxFromTable[its] = packedDateTime;
+            }
+            // Get the value...
+            o = rec.getFieldValue(valuePos);
+            if ( o == null ) {
+                // Do not continue here because HandleDuplicatesHow may actually set to missing value
+                value = Double.NaN;
+            }
+            else if ( o instanceof Double ) {
+                value = (Double)o;
+            }
+            else if ( o instanceof Float ) {
+                value = ((Float)o).doubleValue();
+            }
+            else if ( o instanceof Integer ) {
+                value = ((Integer)o).doubleValue();
+            }
+            else if ( o instanceof String ) {
+                // Try to convert to a number
+                sValue = ((String)o).trim();
+                try {
+                    value = Double.parseDouble(sValue);
                 }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_FIRST_NONMISSING ) {
-                    // Only set if value in time series is missing (has not been set)
-                    if ( ts.isDataMissing(ts.getDataValue(dt)) && !ts.isDataMissing(value) ) {
-                        ts.setDataValue(dt, value);
-                    }
+                catch ( NumberFormatException e ) {
+                    continue;
                 }
-                else if ( handleDuplicatesHow == HandleDuplicatesHowType.ADD ) {
-                    if ( !ts.isDataMissing(value) ) {
-                        // If the existing value is missing, just set
-                        double oldValue = ts.getDataValue(dt);
-                        if ( ts.isDataMissing(oldValue) ) {
-                            ts.setDataValue(dt, value);
+            }
+            else {
+                continue;
+            }
+            seriesBuffer[bufferCount] = its;
+            dateTimeBuffer[bufferCount] = packedDateTime;
+            valueBuffer[bufferCount] = value;
+            if ( flagBuffer != null ) {
+                o = rec.getFieldValue(flagPos);
+                flagBuffer[bufferCount] = (o == null) ? null : ("" + o);
+            }
+            ++recordCount[its];
+            ++bufferCount;
+        }
+        catch ( Exception e ) {
+            // Skip the record
+            if ( Message.isDebugOn ) {
+                Message.printWarning(3,routine,e);
+            }
+            continue;
+        }
+    }
+    int nts = tsidMap.size();
+    Message.printStatus(2, routine, "Parsed " + bufferCount + " records with values for " + nts +
+        " time series identifiers from single-column data table." );
+    // Create the time series, each with its own period
+    final List<TS> tslist = new ArrayList<TS>(nts);
+    its = -1;
+    for ( String tsidentstr : tsidMap.keySet() ) {
+        ++its;
+        DateTime dtMin = new DateTime(dtTemplate);
+        unpackDateTime ( dtMin, dtMinFromTable[its] );
+        DateTime dtMax = new DateTime(dtTemplate);
+        unpackDateTime ( dtMax, dtMaxFromTable[its] );
+        TS ts = newTimeSeriesFromTSID ( table, tsidentstr, unitsFromTableList.get(its), dtMin, dtMax,
+            inputStartReq, inputEndReq, irregularIntervalPrecision, errorMessages );
+        if ( ts != null ) {
+            ts.allocateDataSpace();
+        }
+        // Add even if null to keep the list positions the same as the time series index
+        tslist.add ( ts );
+    }
+    // Order the buffer positions by time series, retaining the table order for each time series
+    final int [] start = new int[nts + 1];
+    for ( int i = 0; i < nts; i++ ) {
+        start[i + 1] = start[i] + recordCount[i];
+    }
+    final int [] order = new int[bufferCount];
+    int [] next = Arrays.copyOf ( start, nts );
+    for ( int i = 0; i < bufferCount; i++ ) {
+        order[next[seriesBuffer[i]]++] = i;
+    }
+    // Fill the time series, in parallel if requested because each time series is independent
+    final boolean setPrecision = (interval.getBase() == TimeInterval.IRREGULAR) && (irregularIntervalPrecision != null);
+    final int precision = setPrecision ? irregularIntervalPrecision.getBase() : 0;
+    final DateTime dtTemplateFinal = dtTemplate;
+    final String routineFinal = routine;
+    ExecutorService executor = null;
+    if ( (fillThreads > 1) && (nts > 1) ) {
+        executor = Executors.newFixedThreadPool(Math.min(fillThreads, nts));
+    }
+    try {
+        List<Future<Object>> futureList = new ArrayList<Future<Object>>();
+        for ( int i = 0; i < nts; i++ ) {
+            final TS ts = tslist.get(i);
+            if ( ts == null ) {
+                continue;
+            }
+            final int startPos = start[i];
+            final int endPos = start[i + 1];
+            Callable<Object> fill = new Callable<Object>() {
+                public Object call () {
+                    // Reuse the date/time for performance
+                    // This is safe because for regular time series only the parts are used
+                    // and for irregular a copy is made when setting the value
+                    DateTime dt = new DateTime(dtTemplateFinal);
+                    for ( int pos = startPos; pos < endPos; pos++ ) {
+                        int iBuffer = order[pos];
+                        try {
+                            unpackDateTime ( dt, dateTimeBuffer[iBuffer] );
+                            if ( setPrecision ) {
+                                // Set the precision on the date/time
+                                dt.setPrecision(precision);
+                            }
+                            setDataValue ( ts, dt, valueBuffer[iBuffer],
+                                ((flagBuffer == null) ? null : flagBuffer[iBuffer]), handleDuplicatesHow );
                         }
-                        else {
-                            // Add to the previous value
-                            ts.setDataValue(dt, (oldValue + value));
+                        catch ( Exception e ) {
+                            // Skip the record
+                            if ( Message.isDebugOn ) {
+                                Message.printWarning(3,routineFinal,e);
+                            }
                         }
                     }
+                    return null;
                 }
+            };
+            if ( executor != null ) {
+                futureList.add ( executor.submit ( fill ) );
+            }
+            else {
+                fill.call();
             }
         }
-        catch ( Exception e ) {
-            // Skip the record
-        	if ( Message.isDebugOn ) {
-        		Message.printWarning(1,routine,e);
-        	}
-            continue;
+        for ( Future<Object> future : futureList ) {
+            future.get();
         }
     }
+    catch ( Exception e ) {
+        Message.printWarning(3,routine,e);
+        throw new IOException ( "Error filling time series from table (" + e + ")." );
+    }
+    finally {
+        if ( executor != null ) {
+            executor.shutdownNow();
+        }
+    }
+    // Now remove null time series since not needed
+    for ( int i = tslist.size() - 1; i >= 0; i-- ) {
+        if ( tslist.get(i) == null ) {
+            tslist.remove(i);
+        }
+    }
+    Message.printStatus(2, routine, "Number of time series excluding null =" + tslist.size());
     return tslist;
 }
 
@@ -2884,6 +3162,16 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 	String Alias = parameters.getValue("Alias"); // Expanded below
 	String HandleDuplicatesHow = parameters.getValue("HandleDuplicatesHow");
 	HandleDuplicatesHowType handleDuplicatesHow = HandleDuplicatesHowType.valueOfIgnoreCase(HandleDuplicatesHow);
+	String SinglePass = parameters.getValue("SinglePass");
+	boolean singlePass = false; // Default
+	if ( (SinglePass != null) && SinglePass.equalsIgnoreCase(_True) ) {
+		singlePass = true;
+	}
+	String FillThreads = parameters.getValue("FillThreads");
+	int fillThreads = 1; // Default
+	if ( (FillThreads != null) && !FillThreads.isEmpty() ) {
+		fillThreads = Integer.parseInt(FillThreads);
+	}
 	String BlockLayout = parameters.getValue("BlockLayout");
 	String BlockLayoutColumns = parameters.getValue("BlockLayoutColumns");
 	String BlockLayoutRows = parameters.getValue("BlockLayoutRows");
@@ -3067,7 +3355,7 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 	                (getScenario().size() == 1 ? getScenario().get(0) : null),
 	                (getSequenceID().size() == 1 ? getSequenceID().get(0) : null),
 	                (getUnits().size() == 1 ? getUnits().get(0) : null), getMissingValue(), handleDuplicatesHow,
-	                InputStart_DateTime, InputEnd_DateTime, readData, commandPhase, errorMessages );
+	                InputStart_DateTime, InputEnd_DateTime, singlePass, fillThreads, readData, commandPhase, errorMessages );
 	        }
 	        else {
 	        	List<String> dataType = getDataType();
@@ -3191,6 +3479,51 @@ private void setDataType ( List<String> dataType )
     __dataType = dataType;
 }
 
+/**
+Set a value in a time series, handling duplicate date/times in the table.
+@param ts time series to set
+@param dt date/time to set
+@param value value to set
+@param flag data flag to set, or null/empty for no flag
+@param handleDuplicatesHow indicate how to handle duplicate date/times
+*/
+private static void setDataValue ( TS ts, DateTime dt, double value, String flag, HandleDuplicatesHowType handleDuplicatesHow )
+{
+    boolean setFlag = (flag != null) && !flag.isEmpty();
+    if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_LAST_NONMISSING ) {
+        // Set to the last value only if not missing
+        if ( ts.isDataMissing(value) ) {
+            return;
+        }
+    }
+    else if ( handleDuplicatesHow == HandleDuplicatesHowType.USE_FIRST_NONMISSING ) {
+        // Only set if value in time series is missing (has not been set)
+        if ( !ts.isDataMissing(ts.getDataValue(dt)) || ts.isDataMissing(value) ) {
+            return;
+        }
+    }
+    else if ( handleDuplicatesHow == HandleDuplicatesHowType.ADD ) {
+        if ( ts.isDataMissing(value) ) {
+            return;
+        }
+        // If the existing value is missing, just set, otherwise add to the previous value
+        double oldValue = ts.getDataValue(dt);
+        if ( !ts.isDataMissing(oldValue) ) {
+            value = oldValue + value;
+        }
+    }
+    else if ( handleDuplicatesHow != HandleDuplicatesHowType.USE_LAST ) {
+        return;
+    }
+    // USE_LAST sets to the last value even if missing
+    if ( setFlag ) {
+        ts.setDataValue(dt, value, flag, -1);
+    }
+    else {
+        ts.setDataValue(dt, value);
+    }
+}
+
 /**
 Set date column expanded for runtime.
 */
@@ -3347,6 +3680,8 @@ public String toString ( PropList props )
     String Units = props.getValue("Units" );
     String MissingValue = props.getValue("MissingValue" );
     String HandleDuplicatesHow = props.getValue("HandleDuplicatesHow" );
+    String SinglePass = props.getValue("SinglePass" );
+    String FillThreads = props.getValue("FillThreads" );
     String Alias = props.getValue("Alias" );
 	String BlockLayout = props.getValue ( "BlockLayout" );
 	String BlockLayoutColumns = props.getValue ( "BlockLayoutColumns" );
@@ -3512,6 +3847,18 @@ public String toString ( PropList props )
         }
         b.append("HandleDuplicatesHow=" + HandleDuplicatesHow );
     }
+    if ((SinglePass != null) && (SinglePass.length() > 0)) {
+        if (b.length() > 0) {
+            b.append(",");
+        }
+        b.append("SinglePass=" + SinglePass );
+    }
+    if ((FillThreads != null) && (FillThreads.length() > 0)) {
+        if (b.length() > 0) {
+            b.append(",");
+        }
+        b.append("FillThreads=" + FillThreads );
+    }
     if ((Alias != null) && (Alias.length() > 0)) {
         if (b.length() > 0) {
             b.append(",");
@@ -3558,4 +3905,93 @@ public String toString ( PropList props )
 	return getCommandName() + "(" + b.toString() + ")";
 }
 
+
+/**
+Set the parts of a date/time from a value from packDateTime().
+The day is set last so that intermediate dates are valid.
+*/
+private static void unpackDateTime ( DateTime dt, long packed )
+{
+    dt.setDay ( 1 );
+    dt.setSecond ( (int)(packed%100) );
+    packed /= 100;
+    dt.setMinute ( (int)(packed%100) );
+    packed /= 100;
+    dt.setHour ( (int)(packed%100) );
+    packed /= 100;
+    int day = (int)(packed%100);
+    packed /= 100;
+    dt.setMonth ( 1 );
+    dt.setYear ( (int)(packed/100) );
+    dt.setMonth ( (int)(packed%100) );
+    dt.setDay ( day );
+}
+
+/**
+Key for the TSID column values of a table record, used to look up the time series for a record
+without formatting the TSID string.
+*/
+private static class TSIDKey
+{
+    /**
+    Column values for the key.
+    */
+    private String [] __values = null;
+
+    /**
+    Hash code computed from the values.
+    */
+    private int __hashCode = 0;
+
+    /**
+    Construct a key for the number of values.
+    */
+    public TSIDKey ( int size )
+    {
+        __values = new String[size];
+    }
+
+    /**
+    Create a copy of the key, to save in a map.
+    */
+    public TSIDKey copy ()
+    {
+        TSIDKey key = new TSIDKey ( __values.length );
+        System.arraycopy ( __values, 0, key.__values, 0, __values.length );
+        key.__hashCode = __hashCode;
+        return key;
+    }
+
+    public boolean equals ( Object o )
+    {
+        if ( !(o instanceof TSIDKey) ) {
+            return false;
+        }
+        TSIDKey key = (TSIDKey)o;
+        return (key.__hashCode == __hashCode) && Arrays.equals(key.__values, __values);
+    }
+
+    public int hashCode ()
+    {
+        return __hashCode;
+    }
+
+    /**
+    Set the key from the values in a table record.
+    @param rec table record
+    @param keyPos column positions for the key values
+    */
+    public void setFromRecord ( TableRecord rec, int [] keyPos )
+    throws Exception
+    {
+        int hashCode = 1;
+        for ( int i = 0; i < keyPos.length; i++ ) {
+            String value = rec.getFieldValueString(keyPos[i]);
+            __values[i] = value;
+            hashCode = 31*hashCode + ((value == null) ? 0 : value.hashCode());
+        }
+        __hashCode = hashCode;
+    }
+}
+
 }
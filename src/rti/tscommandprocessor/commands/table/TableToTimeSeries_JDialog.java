@@ -105,6 +105,8 @@ private JTextField __SequenceID_JTextField = null;
 private JTextField __Units_JTextField = null;
 private JTextField __MissingValue_JTextField = null;
 private SimpleJComboBox __HandleDuplicatesHow_JComboBox = null;
+private SimpleJComboBox __SinglePass_JComboBox = null;
+private JTextField __FillThreads_JTextField = null;
 private SimpleJComboBox __BlockLayout_JComboBox = null;
 private SimpleJComboBox __BlockLayoutRows_JComboBox = null;
 private SimpleJComboBox __BlockLayoutColumns_JComboBox = null;
@@ -226,6 +228,8 @@ private void checkInput () {
 	String Units = __Units_JTextField.getText().trim();
 	String MissingValue = __MissingValue_JTextField.getText().trim();
 	String HandleDuplicatesHow = __HandleDuplicatesHow_JComboBox.getSelected();
+	String SinglePass = __SinglePass_JComboBox.getSelected();
+	String FillThreads = __FillThreads_JTextField.getText().trim();
 	String Alias = __Alias_JTextField.getText().trim();
 	String BlockLayout = __BlockLayout_JComboBox.getSelected();
 	String BlockLayoutColumns = __BlockLayoutColumns_JComboBox.getSelected();
@@ -314,6 +318,12 @@ private void checkInput () {
     if (HandleDuplicatesHow.length() > 0) {
         props.set("HandleDuplicatesHow", HandleDuplicatesHow);
     }
+    if (SinglePass.length() > 0) {
+        props.set("SinglePass", SinglePass);
+    }
+    if (FillThreads.length() > 0) {
+        props.set("FillThreads", FillThreads);
+    }
     if (Alias.length() > 0) {
         props.set("Alias", Alias);
     }
@@ -377,6 +387,8 @@ private void commitEdits() {
     String Units = __Units_JTextField.getText().trim();
     String MissingValue = __MissingValue_JTextField.getText().trim();
     String HandleDuplicatesHow = __HandleDuplicatesHow_JComboBox.getSelected();
+    String SinglePass = __SinglePass_JComboBox.getSelected();
+    String FillThreads = __FillThreads_JTextField.getText().trim();
     String Alias = __Alias_JTextField.getText().trim();
 	String BlockLayout = __BlockLayout_JComboBox.getSelected();
 	String BlockLayoutColumns = __BlockLayoutColumns_JComboBox.getSelected();
@@ -411,6 +423,8 @@ private void commitEdits() {
 	__command.setCommandParameter("Units", Units);
 	__command.setCommandParameter("MissingValue", MissingValue);
 	__command.setCommandParameter("HandleDuplicatesHow", HandleDuplicatesHow);
+	__command.setCommandParameter("SinglePass", SinglePass);
+	__command.setCommandParameter("FillThreads", FillThreads);
 	__command.setCommandParameter("Alias", Alias);
 	__command.setCommandParameter("BlockLayout", BlockLayout);
 	__command.setCommandParameter("BlockLayoutColumns", BlockLayoutColumns);
@@ -845,6 +859,32 @@ private void initialize(JFrame parent, TableToTimeSeries_Command command, List<S
         __command._UseLast + ")."), 
         3, yData, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
     
+    JGUIUtil.addComponent(data_JPanel, new JLabel ( "Single pass?:" ), 
+        0, ++yData, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __SinglePass_JComboBox = new SimpleJComboBox ( false );
+    List<String> singlePassChoices = new ArrayList<String>(3);
+    singlePassChoices.add("");
+    singlePassChoices.add(__command._False);
+    singlePassChoices.add(__command._True);
+    __SinglePass_JComboBox.setData ( singlePassChoices );
+    __SinglePass_JComboBox.select ( 0 );
+    __SinglePass_JComboBox.addItemListener ( this );
+    JGUIUtil.addComponent(data_JPanel, __SinglePass_JComboBox,
+        1, yData, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(data_JPanel, new JLabel( "Optional - single column: read each record once, period from each time series' records (default=" +
+        __command._False + ")."), 
+        3, yData, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    
+    JGUIUtil.addComponent(data_JPanel, new JLabel ("Fill threads:"),
+        0, ++yData, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __FillThreads_JTextField = new JTextField (10);
+    __FillThreads_JTextField.addKeyListener (this);
+    JGUIUtil.addComponent(data_JPanel, __FillThreads_JTextField,
+        1, yData, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(data_JPanel, new JLabel (
+        "Optional - number of threads to fill time series if single pass (default=1)."),
+        3, yData, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST );
+    
     JPanel blockData_JPanel = new JPanel();
     blockData_JPanel.setLayout(new GridBagLayout());
     main_JTabbedPane.addTab ( "Block Data", blockData_JPanel );
@@ -1056,6 +1096,8 @@ private void refresh()
     String Units = "";
     String MissingValue = "";
     String HandleDuplicatesHow = "";
+    String SinglePass = "";
+    String FillThreads = "";
     String Alias = "";
 	String BlockLayout = "";
 	String BlockLayoutColumns = "";
@@ -1097,6 +1139,8 @@ private void refresh()
 	    Units = props.getValue("Units");
 	    MissingValue = props.getValue("MissingValue");
 	    HandleDuplicatesHow = props.getValue("HandleDuplicatesHow");
+	    SinglePass = props.getValue("SinglePass");
+	    FillThreads = props.getValue("FillThreads");
 	    Alias = props.getValue("Alias");
 		BlockLayout = props.getValue ( "BlockLayout" );
 		BlockLayoutColumns = props.getValue ( "BlockLayoutColumns" );
@@ -1255,6 +1299,24 @@ private void refresh()
                 __error_wait = true;
             }
         }
+        if ( SinglePass == null ) {
+            // Select default...
+            __SinglePass_JComboBox.select ( 0 );
+        }
+        else {
+            if ( JGUIUtil.isSimpleJComboBoxItem( __SinglePass_JComboBox,SinglePass, JGUIUtil.NONE, null, null ) ) {
+                __SinglePass_JComboBox.select ( SinglePass );
+            }
+            else {
+                Message.printWarning ( 1, routine,
+                "Existing command references an invalid\nSinglePass value \"" + SinglePass +
+                "\".  Select a different value or Cancel.");
+                __error_wait = true;
+            }
+        }
+        if (FillThreads != null) {
+            __FillThreads_JTextField.setText(FillThreads);
+        }
         if ( Alias != null ) {
             __Alias_JTextField.setText(Alias.trim());
         }
@@ -1354,6 +1416,8 @@ private void refresh()
     Units = __Units_JTextField.getText().trim();
     MissingValue = __MissingValue_JTextField.getText().trim();
     HandleDuplicatesHow = __HandleDuplicatesHow_JComboBox.getSelected();
+    SinglePass = __SinglePass_JComboBox.getSelected();
+    FillThreads = __FillThreads_JTextField.getText().trim();
     Alias = __Alias_JTextField.getText().trim();
 	BlockLayout = __BlockLayout_JComboBox.getSelected();
 	BlockLayoutColumns = __BlockLayoutColumns_JComboBox.getSelected();
@@ -1389,6 +1453,8 @@ private void refresh()
     props.add("Units=" + Units );
     props.add("MissingValue=" + MissingValue );
     props.add("HandleDuplicatesHow=" + HandleDuplicatesHow );
+    props.add("SinglePass=" + SinglePass );
+    props.add("FillThreads=" + FillThreads );
     props.add("Alias=" + Alias );
 	props.add("BlockLayout=" + BlockLayout );
 	props.add("BlockLayoutColumns=" + BlockLayoutColumns );
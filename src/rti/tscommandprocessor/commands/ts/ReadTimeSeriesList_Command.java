@@ -616,11 +616,21 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
             List<String> problems = new ArrayList<String>(); // Use for temporary list of problems - need because multiple data sources
             List<String> suggestions = new ArrayList<String>();
             boolean defaultTSRead = false; // If a default time series was read
+            // Allow more than one data source to be specified, which is useful when there is mixed ownership of stations
+            int nDataSource = 1;
+            if ( dataSourceList.length > 0 ) {
+                nDataSource = dataSourceList.length;
+            }
+            // Form the time series identifiers for each record and data source, used for the bulk read below
+            // and when reading one at a time - the identifiers are null for records with a blank location
+            String [][] tsids = new String[tsize][];
             for ( int i = 0; i < tsize; i++ ) {
-                problems.clear();
-                suggestions.clear();
-                defaultTSRead = false;
                 rec = table.getRecord ( i );
+                locationID = rec.getFieldValueString ( locationColumnNum );
+                // Skip blank location identifiers
+                if ( (locationID == null) || (locationID.trim().length() == 0) ) {
+                    continue;
+                }
                 // Location type
                 if ( locationTypeColumnNum >= 0 ) {
                     locationType = rec.getFieldValueString ( locationTypeColumnNum );
@@ -628,11 +638,6 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
                 else {
                     locationType = LocationType;
                 }
-                locationID = rec.getFieldValueString ( locationColumnNum );
-                // Skip blank location identifiers
-                if ( (locationID == null) || (locationID.trim().length() == 0) ) {
-                    continue;
-                }
                 // Data type
                 if ( dataTypeColumnNum >= 0 ) {
                     dataType = rec.getFieldValueString ( dataTypeColumnNum );
@@ -647,12 +652,7 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
                 else {
                     dataStore = DataStore;
                 }
-                // Allow more than one data source to be specified, which is useful when there is mixed ownership of stations
-                int nDataSource = 1;
-                if ( dataSourceList.length > 0 ) {
-                    nDataSource = dataSourceList.length;
-                }
-                boolean notFoundLogged = false; // Used to handle read exceptions vs. no time series found
+                tsids[i] = new String[nDataSource];
                 for ( int iDataSource = 0; iDataSource < nDataSource; iDataSource++ ) {
                     tsidentString.setLength(0);
                     if ( dataSourceList.length == 0 ) {
@@ -674,11 +674,70 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
                     if ( InputName.length() > 0 ) {
                         tsidentString.append ( "~" + InputName );
                     }
-                    String tsid = tsidentString.toString();;
+                    tsids[i][iDataSource] = tsidentString.toString();
+                }
+            }
+            // If only one data source is used, read all the time series with one request so that the processor
+            // can read the time series for each datastore in bulk, rather than one request per time series
+            TS [] bulkTS = null;
+            if ( nDataSource == 1 ) {
+                List<String> bulkTSIDList = new ArrayList<String>(tsize);
+                for ( int i = 0; i < tsize; i++ ) {
+                    bulkTSIDList.add ( (tsids[i] == null) ? null : tsids[i][0] );
+                }
+                notifyCommandProgressListeners ( 0, tsize, (float)-1.0, "Reading " + tsize + " time series");
+                PropList request_params = new PropList ( "" );
+                request_params.setUsingObject ( "TSIDList", bulkTSIDList );
+                request_params.setUsingObject ( "WarningLevel", new Integer(warning_level) );
+                request_params.set ( "CommandTag", command_tag );
+                request_params.set ( "IfNotFound", IfNotFound );
+                if ( DefaultOutputStart_DateTime != null ) {
+                	request_params.setUsingObject( "DefaultOutputStart", DefaultOutputStart_DateTime );
+                }
+                if ( DefaultOutputEnd_DateTime != null ) {
+                	request_params.setUsingObject( "DefaultOutputEnd", DefaultOutputEnd_DateTime );
+                }
+                request_params.setUsingObject ( "ReadData", new Boolean(readData) );
+                try {
+                    CommandProcessorRequestResultsBean bean = processor.processRequest( "ReadTimeSeriesList", request_params);
+                    @SuppressWarnings("unchecked")
+                    List<TS> bulkTSList = (List<TS>)bean.getResultsPropList().getContents ( "TSList" );
+                    if ( (bulkTSList != null) && (bulkTSList.size() == tsize) ) {
+                        bulkTS = bulkTSList.toArray(new TS[tsize]);
+                    }
+                }
+                catch ( Exception e ) {
+                    // Read the time series one at a time below
+                    Message.printWarning(3,routine,"Error reading time series list - will read one at a time (" + e + ").");
+                    Message.printWarning(3,routine,e);
+                }
+            }
+            for ( int i = 0; i < tsize; i++ ) {
+                problems.clear();
+                suggestions.clear();
+                defaultTSRead = false;
+                rec = table.getRecord ( i );
+                // Skip blank location identifiers
+                if ( tsids[i] == null ) {
+                    continue;
+                }
+                boolean notFoundLogged = false; // Used to handle read exceptions vs. no time series found
+                for ( int iDataSource = 0; iDataSource < nDataSource; iDataSource++ ) {
+                    String tsid = tsids[i][iDataSource];
+                    if ( bulkTS != null ) {
+                        // Time series was read above
+                        ts = bulkTS[i];
+                        if ( ts == null ) {
+                            problems.add("Time series could not be found using identifier \"" + tsid + "\".");
+                            suggestions.add("Verify that the identifier information is correct.");
+                            notFoundLogged = true;
+                        }
+                        break;
+                    }
                     // Make a request to the processor to read a time series...
                     notifyCommandProgressListeners ( i, tsize, (float)-1.0, "Reading time series " + tsid);
                     PropList request_params = new PropList ( "" );
-                    request_params.set ( "TSID", tsidentString.toString() );
+                    request_params.set ( "TSID", tsid );
                     request_params.setUsingObject ( "WarningLevel", new Integer(warning_level) );
                     request_params.set ( "CommandTag", command_tag );
                     if ( iDataSource == (nDataSource - 1) ) {
@@ -767,7 +826,7 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
                             status.addToLog(commandPhase,
                                 new CommandLogRecord( CommandStatusType.FAILURE, problems.get(ip),suggestions.get(ip)));
                         }
-                        message = "Attempt to use default time series failed for \"" + tsidentString + "\"";
+                        message = "Attempt to use default time series failed for \"" + tsids[i][nDataSource - 1] + "\"";
                         Message.printWarning ( warning_level,
                             MessageUtil.formatMessageTag( command_tag, ++warning_count ),
                             routine, message );
@@ -30,6 +30,7 @@ import java.util.List;
 import javax.swing.JFrame;
 
 import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.CommandDependencyProvider;
 import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 import RTi.TS.TS;
@@ -56,7 +57,7 @@ import RTi.Util.Time.DateTime;
 This class initializes, checks, and runs the ReadUsgsNwisDaily() command.
 */
 public class ReadUsgsNwisDaily_Command extends AbstractCommand
-implements Command, CommandDiscoverable, ObjectListProvider, FileGenerator
+implements Command, CommandDependencyProvider, CommandDiscoverable, ObjectListProvider, FileGenerator
 {
 
 /**
@@ -295,6 +296,66 @@ public boolean editCommand ( JFrame parent )
     return (new ReadUsgsNwisDaily_JDialog ( parent, this )).ok();
 }
 
+/**
+Return the resources that are read by the command, used when running commands in parallel.
+The web service datastore can be used by more than one command at the same time so is only an input.
+*/
+public List<String> getCommandInputResources ()
+{
+    PropList parameters = getCommandParameters();
+    List<String> inputList = new ArrayList<String>();
+    inputList.add ( CommandDependencyProvider.RESOURCE_DATASTORE + parameters.getValue("DataStore") );
+    String [] parameterNames = { "Sites", "States", "HUCs", "BoundingBox", "Counties", "Parameters", "Statistics",
+        "SiteStatus", "SiteTypes", "Agency", "Alias", "InputStart", "InputEnd", "OutputFile" };
+    for ( String parameterName : parameterNames ) {
+        TSCommandProcessorUtil.addPropertyResources ( inputList, parameters.getValue(parameterName) );
+    }
+    // The input period defaults to the global input period
+    String InputStart = parameters.getValue("InputStart");
+    if ( (InputStart == null) || InputStart.isEmpty() ) {
+        inputList.add ( CommandDependencyProvider.RESOURCE_PROPERTY + "InputStart" );
+    }
+    String InputEnd = parameters.getValue("InputEnd");
+    if ( (InputEnd == null) || InputEnd.isEmpty() ) {
+        inputList.add ( CommandDependencyProvider.RESOURCE_PROPERTY + "InputEnd" );
+    }
+    return inputList;
+}
+
+/**
+Return the resources that are written by the command, used when running commands in parallel.
+@return the list of resources, or null if they cannot be determined until the command is run
+*/
+public List<String> getCommandOutputResources ()
+{
+    PropList parameters = getCommandParameters();
+    List<String> outputList = new ArrayList<String>();
+    String Alias = parameters.getValue("Alias");
+    if ( (Alias != null) && !Alias.isEmpty() ) {
+        if ( Alias.indexOf("${") >= 0 ) {
+            return null;
+        }
+        if ( Alias.indexOf("%") < 0 ) {
+            // Alias that uses format specifiers is only known after reading
+            outputList.add ( CommandDependencyProvider.RESOURCE_TIME_SERIES + Alias );
+        }
+    }
+    String OutputFile = parameters.getValue("OutputFile");
+    if ( (OutputFile != null) && !OutputFile.isEmpty() ) {
+        if ( OutputFile.indexOf("${") >= 0 ) {
+            return null;
+        }
+        try {
+            outputList.add ( CommandDependencyProvider.RESOURCE_FILE +
+                IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(getCommandProcessor()),OutputFile) );
+        }
+        catch ( Exception e ) {
+            return null;
+        }
+    }
+    return outputList;
+}
+
 /**
 Return the list of time series read in discovery phase.
 */
@@ -30,7 +30,11 @@ import java.net.CookiePolicy;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import riverside.datastore.AbstractWebServiceDataStore;
@@ -38,6 +42,7 @@ import rti.tscommandprocessor.commands.usgs.nwis.daily.UsgsNwisParameterType;
 import rti.tscommandprocessor.commands.usgs.nwis.daily.UsgsNwisSiteTimeSeriesMetadata;
 import rti.tscommandprocessor.commands.usgs.nwis.daily.UsgsNwisStatisticType;
 import rti.tscommandprocessor.commands.wateroneflow.waterml.WaterMLReader;
+import rti.tscommandprocessor.core.TimeSeriesBatchReader;
 
 import RTi.TS.TS;
 import RTi.TS.TSIdent;
@@ -56,8 +61,14 @@ http://waterservices.usgs.gov/rest/Site-Service.html
 </pre>
 @author sam
 */
-public class UsgsNwisDailyDataStore extends AbstractWebServiceDataStore
+public class UsgsNwisDailyDataStore extends AbstractWebServiceDataStore implements TimeSeriesBatchReader
 {
+
+/**
+Maximum number of sites to request in one web service call when reading a list of time series identifiers,
+to limit the URL length.
+*/
+private final int __maxSitesPerRequest = 100;
     
 /**
 The records of valid parameters, listed here:  http://help.waterdata.usgs.gov/codes-and-parameters/parameters
@@ -336,6 +347,73 @@ throws MalformedURLException, IOException, Exception
     }
 }
 
+/**
+Read a list of time series given time series identifiers, for TimeSeriesBatchReader.
+The identifiers are grouped by parameter and statistic and each group is read with one web service request
+for all of its sites (up to __maxSitesPerRequest sites per request), rather than one request per time series.
+@param tsidentStrings time series identifiers of form SiteID..ParameterCode-StatisticCode.Day~DataStoreID
+@param readStart the starting date/time to read, or null to read all data.
+@param readEnd the ending date/time to read, or null to read all data.
+@param readData if true, read the data; if false, construct the time series and populate properties but do
+not read the data
+@return the time series in the same order as the identifiers, with null for time series that were not returned
+(e.g., duplicate sites, which are read one at a time by the caller)
+*/
+public List<TS> readTimeSeriesList ( List<String> tsidentStrings, DateTime readStart, DateTime readEnd, boolean readData )
+throws MalformedURLException, IOException, Exception
+{
+    List<TS> tsList = new ArrayList<TS>(tsidentStrings.size());
+    // Group the identifiers by data type (parameter and statistic), in the original order
+    Map<String,List<Integer>> groupMap = new LinkedHashMap<String,List<Integer>>();
+    List<TSIdent> tsidentList = new ArrayList<TSIdent>(tsidentStrings.size());
+    for ( int i = 0; i < tsidentStrings.size(); i++ ) {
+        tsList.add ( null );
+        TSIdent tsident = TSIdent.parseIdentifier(tsidentStrings.get(i));
+        tsidentList.add ( tsident );
+        String key = tsident.getMainType() + "-" + tsident.getSubType();
+        List<Integer> positions = groupMap.get(key);
+        if ( positions == null ) {
+            positions = new ArrayList<Integer>();
+            groupMap.put ( key, positions );
+        }
+        positions.add ( i );
+    }
+    for ( List<Integer> positions : groupMap.values() ) {
+        TSIdent tsident0 = tsidentList.get(positions.get(0));
+        for ( int start = 0; start < positions.size(); start += __maxSitesPerRequest ) {
+            List<Integer> requestPositions = positions.subList(start, Math.min(positions.size(), start + __maxSitesPerRequest));
+            // Request each site once - positions with duplicate sites are left null
+            Map<String,Integer> sitePositionMap = new HashMap<String,Integer>();
+            List<String> siteList = new Vector<String>();
+            for ( Integer position : requestPositions ) {
+                String site = tsidentList.get(position).getLocation();
+                if ( !sitePositionMap.containsKey(site.toUpperCase()) ) {
+                    sitePositionMap.put ( site.toUpperCase(), position );
+                    siteList.add ( site );
+                }
+            }
+            List<UsgsNwisParameterType> parameterList = new Vector<UsgsNwisParameterType>();
+            parameterList.add ( new UsgsNwisParameterType(tsident0.getMainType(), "", "", "", "", "") );
+            List<UsgsNwisStatisticType> statisticTypeList = new Vector<UsgsNwisStatisticType>();
+            statisticTypeList.add ( new UsgsNwisStatisticType(tsident0.getSubType(), "", "") );
+            List<TS> requestTSList = readTimeSeriesList ( siteList, new Vector<String>(), new Vector<String>(), null,
+                new Vector<String>(), parameterList, statisticTypeList, UsgsNwisSiteStatusType.ALL,
+                new Vector<UsgsNwisSiteType>(), null, UsgsNwisFormatType.WATERML, null, readStart, readEnd, readData );
+            // Match the time series to the sites, using the first time series for each site as readTimeSeries() does
+            for ( TS ts : requestTSList ) {
+                if ( ts == null ) {
+                    continue;
+                }
+                Integer position = sitePositionMap.remove ( ts.getLocation().toUpperCase() );
+                if ( position != null ) {
+                    tsList.set ( position, ts );
+                }
+            }
+        }
+    }
+    return tsList;
+}
+
 /**
 Read a time series list given the query parameters for the REST interface.  The parameters are used to
 form the URL for the query.  The payload that is received is optionally saved as the output file.  The payload
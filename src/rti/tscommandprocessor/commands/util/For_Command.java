@@ -57,6 +57,12 @@ See also Break(), which will be handled in the processor to interrupt a loop.
 public class For_Command extends AbstractCommand implements Command
 {
 
+/**
+Values for Parallel parameter.
+*/
+protected final String _False = "False";
+protected final String _True = "True";
+
 /**
 Indicate whether breakFor() has been called, indicating that the iteration is complete.
 */
@@ -165,6 +171,8 @@ throws InvalidCommandParameterException
 	String SequenceIncrement = parameters.getValue ( "SequenceIncrement" );
 	String TableID = parameters.getValue ( "TableID" );
 	String TableColumn = parameters.getValue ( "TableColumn" );
+	String Parallel = parameters.getValue ( "Parallel" );
+	String MaxThreads = parameters.getValue ( "MaxThreads" );
 	String warning = "";
 	String message;
 	
@@ -251,8 +259,24 @@ throws InvalidCommandParameterException
             new CommandLogRecord(CommandStatusType.FAILURE, message, "Specify the list OR sequence OR table ID/column." ) );
     }
 
+    if ( (Parallel != null) && !Parallel.isEmpty() && !Parallel.equalsIgnoreCase(_False) && !Parallel.equalsIgnoreCase(_True) ) {
+        message = "The Parallel parameter \"" + Parallel + "\" is invalid.";
+        warning += "\n" + message;
+        status.addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.FAILURE, message,
+                "Specify the parameter as " + _False + " (default) or " + _True + "." ) );
+    }
+    if ( (MaxThreads != null) && !MaxThreads.isEmpty() &&
+        (!StringUtil.isInteger(MaxThreads) || (Integer.parseInt(MaxThreads) < 1)) ) {
+        message = "The MaxThreads parameter \"" + MaxThreads + "\" is invalid.";
+        warning += "\n" + message;
+        status.addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.FAILURE, message,
+                "Specify the maximum number of threads as an integer 1 or larger." ) );
+    }
+
 	// Check for invalid parameters...
-    List<String> validList = new ArrayList<String>(9);
+    List<String> validList = new ArrayList<String>(11);
 	validList.add ( "Name" );
 	validList.add ( "IteratorProperty" );
 	validList.add ( "List" );
@@ -262,6 +286,8 @@ throws InvalidCommandParameterException
 	validList.add ( "TableID" );
 	validList.add ( "TableColumn" );
 	validList.add ( "TablePropertyMap" );
+	validList.add ( "Parallel" );
+	validList.add ( "MaxThreads" );
 	warning = TSCommandProcessorUtil.validateParameterNames ( validList, this, warning );
 	
 	if ( warning.length() > 0 ) {
@@ -304,6 +330,19 @@ public Object getIteratorPropertyValue ()
     return this.iteratorObject;
 }
 
+/**
+Return the maximum number of threads to use when iterations are run in parallel.
+@return the maximum number of threads, by default the number of available processors.
+*/
+public int getMaxThreads ()
+{
+	String MaxThreads = getCommandParameters().getValue("MaxThreads");
+	if ( (MaxThreads != null) && StringUtil.isInteger(MaxThreads) && (Integer.parseInt(MaxThreads) > 0) ) {
+		return Integer.parseInt(MaxThreads);
+	}
+	return Runtime.getRuntime().availableProcessors();
+}
+
 /**
 Return the name of the for command.
 @return the name of the for command, should not be null.
@@ -732,6 +771,18 @@ private void parseTablePropertyMap ( String TablePropertyMap ) {
     }
 }
 
+/**
+Indicate whether iterations should be run in parallel (Parallel=True).
+The processor runs each iteration with its own processor properties, as if the iterations were
+run sequentially, and merges the results in iteration order.
+@return true if iterations should be run in parallel.
+*/
+public boolean isParallel ()
+{
+	String Parallel = getCommandParameters().getValue("Parallel");
+	return (Parallel != null) && Parallel.equalsIgnoreCase(_True);
+}
+
 /**
 Reset the command to an uninitialized state.  This is needed to ensure that re-executing commands will
 restart the loop on the first call to next().
@@ -1001,6 +1052,8 @@ public String toString ( PropList props )
     String TableID = props.getValue( "TableID" );
     String TableColumn = props.getValue( "TableColumn" );
     String TablePropertyMap = props.getValue( "TablePropertyMap" );
+    String Parallel = props.getValue( "Parallel" );
+    String MaxThreads = props.getValue( "MaxThreads" );
     StringBuffer b = new StringBuffer ();
     if ( (Name != null) && (Name.length() > 0) ) {
         b.append ( "Name=\"" + Name + "\"" );
@@ -1053,6 +1106,18 @@ public String toString ( PropList props )
         }
         b.append ( "TablePropertyMap=\"" + TablePropertyMap + "\"" );
     }
+    if ( (Parallel != null) && (Parallel.length() > 0) ) {
+        if ( b.length() > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( "Parallel=" + Parallel );
+    }
+    if ( (MaxThreads != null) && (MaxThreads.length() > 0) ) {
+        if ( b.length() > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( "MaxThreads=" + MaxThreads );
+    }
     return getCommandName() + "(" + b.toString() + ")";
 }
 
@@ -35,6 +35,7 @@ import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JDialog;
@@ -69,6 +70,8 @@ private SimpleJButton __help_JButton = null;
 private For_Command __command = null;
 private JTextField __Name_JTextField = null;
 private JTextField __IteratorProperty_JTextField = null;
+private SimpleJComboBox __Parallel_JComboBox = null;
+private JTextField __MaxThreads_JTextField = null;
 private JTabbedPane __main_JTabbedPane = null;
 private JTextArea __List_JTextArea = null;
 private JTextField __SequenceStart_JTextField = null;
@@ -145,6 +148,8 @@ private void checkInput ()
     String TableID = __TableID_JComboBox.getSelected();
     String TableColumn = __TableColumn_JTextField.getText().trim();
 	String TablePropertyMap = __TablePropertyMap_JTextArea.getText().trim().replace("\n"," ");
+	String Parallel = __Parallel_JComboBox.getSelected();
+	String MaxThreads = __MaxThreads_JTextField.getText().trim();
     if ( Name.length() > 0 ) {
         props.set ( "Name", Name );
     }
@@ -172,6 +177,12 @@ private void checkInput ()
     if ( TablePropertyMap.length() > 0 ) {
         props.set ( "TablePropertyMap", TablePropertyMap );
     }
+    if ( Parallel.length() > 0 ) {
+        props.set ( "Parallel", Parallel );
+    }
+    if ( MaxThreads.length() > 0 ) {
+        props.set ( "MaxThreads", MaxThreads );
+    }
     try {
         // This will warn the user...
         __command.checkCommandParameters ( props, null, 1 );
@@ -195,6 +206,8 @@ private void commitEdits ()
     String TableID = __TableID_JComboBox.getSelected();
     String TableColumn = __TableColumn_JTextField.getText().trim();
     String TablePropertyMap = __TablePropertyMap_JTextArea.getText().trim().replace("\n"," ");
+    String Parallel = __Parallel_JComboBox.getSelected();
+    String MaxThreads = __MaxThreads_JTextField.getText().trim();
     __command.setCommandParameter ( "Name", Name );
     __command.setCommandParameter ( "IteratorProperty", IteratorProperty );
     __command.setCommandParameter ( "List", List );
@@ -204,6 +217,8 @@ private void commitEdits ()
     __command.setCommandParameter ( "TableID", TableID );
     __command.setCommandParameter ( "TableColumn", TableColumn );
     __command.setCommandParameter ( "TablePropertyMap", TablePropertyMap );
+    __command.setCommandParameter ( "Parallel", Parallel );
+    __command.setCommandParameter ( "MaxThreads", MaxThreads );
 }
 
 /**
@@ -259,6 +274,31 @@ private void initialize ( JFrame parent, For_Command command, List<String> table
         1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
     JGUIUtil.addComponent(main_JPanel, new JLabel("Optional - name of iterator property for iteration (default=for loop name)."), 
         3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Run iterations in parallel?:"),
+        0, ++y, 1, 1, 0, 0, insetsNONE, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __Parallel_JComboBox = new SimpleJComboBox ( false );
+    List<String> parallelChoices = new ArrayList<String>();
+    parallelChoices.add ( "" );	// Default
+    parallelChoices.add ( __command._False );
+    parallelChoices.add ( __command._True );
+    __Parallel_JComboBox.setData(parallelChoices);
+    __Parallel_JComboBox.select ( 0 );
+    __Parallel_JComboBox.addItemListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __Parallel_JComboBox,
+        1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+        "Optional - run iterations in parallel, each with its own properties (default=" + __command._False + ")."),
+        3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Maximum threads:" ),
+        0, ++y, 1, 1, 0, 0, insetsNONE, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __MaxThreads_JTextField = new JTextField (10);
+    __MaxThreads_JTextField.addKeyListener(this);
+    JGUIUtil.addComponent(main_JPanel, __MaxThreads_JTextField,
+        1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel("Optional - maximum threads if parallel (default=number of processors)."),
+        3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
     
     __main_JTabbedPane = new JTabbedPane ();
     JGUIUtil.addComponent(main_JPanel, __main_JTabbedPane,
@@ -469,6 +509,8 @@ private void refresh ()
 	String TableID = "";
 	String TableColumn = "";
 	String TablePropertyMap = "";
+	String Parallel = "";
+	String MaxThreads = "";
 	__error_wait = false;
 	PropList props = __command.getCommandParameters();
 	if ( __first_time ) {
@@ -482,12 +524,32 @@ private void refresh ()
 		TableID = props.getValue( "TableID" );
 		TableColumn = props.getValue( "TableColumn" );
 		TablePropertyMap = props.getValue ( "TablePropertyMap" );
+		Parallel = props.getValue ( "Parallel" );
+		MaxThreads = props.getValue ( "MaxThreads" );
 		if ( Name != null ) {
 		    __Name_JTextField.setText( Name );
 		}
         if ( IteratorProperty != null ) {
             __IteratorProperty_JTextField.setText( IteratorProperty );
         }
+        if ( JGUIUtil.isSimpleJComboBoxItem(__Parallel_JComboBox, Parallel, JGUIUtil.NONE, null, null ) ) {
+            __Parallel_JComboBox.select ( Parallel );
+        }
+        else {
+            if ( (Parallel == null) || Parallel.equals("") ) {
+                // New command...select the default...
+                __Parallel_JComboBox.select ( 0 );
+            }
+            else {
+                // Bad user command...
+                Message.printWarning ( 1, routine, "Existing command references an invalid\n"+
+                "Parallel parameter \"" + Parallel + "\".  Select a\ndifferent value or Cancel." );
+                __error_wait = true;
+            }
+        }
+        if ( MaxThreads != null ) {
+            __MaxThreads_JTextField.setText( MaxThreads );
+        }
         if ( List != null ) {
             __List_JTextArea.setText( List );
             __main_JTabbedPane.setSelectedIndex(0);
@@ -535,6 +597,8 @@ private void refresh ()
     TableID = __TableID_JComboBox.getSelected();
     TableColumn = __TableColumn_JTextField.getText().trim();
 	TablePropertyMap = __TablePropertyMap_JTextArea.getText().trim().replace("\n"," ");
+	Parallel = __Parallel_JComboBox.getSelected();
+	MaxThreads = __MaxThreads_JTextField.getText().trim();
     props = new PropList ( __command.getCommandName() );
     props.add ( "Name=" + Name );
     props.add ( "IteratorProperty=" + IteratorProperty );
@@ -545,6 +609,8 @@ private void refresh ()
     props.set ( "TableID", TableID ); // May contain = so handle differently
     props.add ( "TableColumn=" + TableColumn );
     props.add ( "TablePropertyMap=" + TablePropertyMap );
+    props.add ( "Parallel=" + Parallel );
+    props.add ( "MaxThreads=" + MaxThreads );
     __command_JTextArea.setText( __command.toString(props) );
 }
 
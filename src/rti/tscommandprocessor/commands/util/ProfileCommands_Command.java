@@ -25,11 +25,20 @@ package rti.tscommandprocessor.commands.util;
 
 import javax.swing.JFrame;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import rti.tscommandprocessor.core.CommandResourceUsage;
+import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 
+import java.io.File;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import RTi.Util.Message.Message;
 import RTi.Util.Message.MessageUtil;
@@ -45,6 +54,8 @@ import RTi.Util.IO.CommandStatus;
 import RTi.Util.IO.CommandStatusProvider;
 import RTi.Util.IO.CommandStatusType;
 import RTi.Util.IO.CommandWarningException;
+import RTi.Util.IO.FileGenerator;
+import RTi.Util.IO.IOUtil;
 import RTi.Util.IO.InvalidCommandParameterException;
 import RTi.Util.IO.ObjectListProvider;
 import RTi.Util.IO.PropList;
@@ -55,9 +66,14 @@ import RTi.Util.Time.DateTime;
 /**
 This class initializes, checks, and runs the ProfileCommands() command.
 */
-public class ProfileCommands_Command extends AbstractCommand implements Command, CommandDiscoverable, ObjectListProvider
+public class ProfileCommands_Command extends AbstractCommand implements Command, CommandDiscoverable, FileGenerator, ObjectListProvider
 {
 
+/**
+Output file that is created by this command.
+*/
+private File __OutputFile_File = null;
+
 /**
 The detail table that is created.
 */
@@ -86,15 +102,59 @@ cross-reference to the original commands.
 */
 public void checkCommandParameters ( PropList parameters, String command_tag, int warning_level )
 throws InvalidCommandParameterException
-{	String warning = "";
+{	String OutputFile = parameters.getValue ( "OutputFile" );
+	String warning = "";
+	String message;
     
+	CommandProcessor processor = getCommandProcessor();
     CommandStatus status = getCommandStatus();
     status.clearLog(CommandPhaseType.INITIALIZATION);
 
+	if ( (OutputFile != null) && !OutputFile.isEmpty() && (OutputFile.indexOf("${") < 0) ) {
+		// Can't check if output file is specified with ${Property}
+		String working_dir = null;
+		try {
+			Object o = processor.getPropContents ( "WorkingDir" );
+			if ( o != null ) {
+				working_dir = (String)o;
+			}
+		}
+		catch ( Exception e ) {
+			message = "Error requesting WorkingDir from processor.";
+			warning += "\n" + message;
+			status.addToLog ( CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Software error - report problem to support." ) );
+		}
+		try {
+			String adjusted_path = IOUtil.verifyPathForOS(IOUtil.adjustPath (working_dir, OutputFile));
+			File f = new File ( adjusted_path );
+			File f2 = new File ( f.getParent() );
+			if ( !f2.exists() ) {
+				message = "The output file parent directory does not exist: \"" + adjusted_path + "\".";
+				warning += "\n" + message;
+				status.addToLog ( CommandPhaseType.INITIALIZATION,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						message, "Create the output directory." ) );
+			}
+		}
+		catch ( Exception e ) {
+			message = "The output file:\n" +
+			"    \"" + OutputFile +
+			"\"\ncannot be adjusted using the working directory:\n" +
+			"    \"" + working_dir + "\".";
+			warning += "\n" + message;
+			status.addToLog ( CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Verify that output file and working directory paths are compatible." ) );
+		}
+	}
+
 	// Check for invalid parameters...
 	List<String> validParameterNames = new ArrayList<String>();
     validParameterNames.add ( "SummaryTableID" );
     validParameterNames.add ( "DetailTableID" );
+    validParameterNames.add ( "OutputFile" );
     warning = TSCommandProcessorUtil.validateParameterNames ( validParameterNames, this, warning );    
 
 	if ( warning.length() > 0 ) {
@@ -133,6 +193,18 @@ private DataTable getDiscoverySummaryTable()
     return __summaryTable;
 }
 
+/**
+Return the list of files that were created by this command.
+*/
+public List<File> getGeneratedFileList ()
+{
+	List<File> list = new ArrayList<File>();
+	if ( getOutputFile() != null ) {
+		list.add ( getOutputFile() );
+	}
+	return list;
+}
+
 /**
 Return a list of objects of the requested type.  This class only keeps a list of DataTable objects.
 The following classes can be requested: DataTable
@@ -151,6 +223,25 @@ public <T> List<T> getObjectList ( Class<T> c )
     return v;
 }
 
+/**
+Return the output file generated by this file.  This method is used internally.
+*/
+private File getOutputFile ()
+{
+	return __OutputFile_File;
+}
+
+/**
+Return the resource usage for a command, or null if not available.
+*/
+private CommandResourceUsage getResourceUsage ( CommandProcessor processor, Command c )
+{
+	if ( processor instanceof TSCommandProcessor ) {
+		return ((TSCommandProcessor)processor).getCommandResourceUsage ( c );
+	}
+	return null;
+}
+
 // Use base class parseCommand()
 
 /**
@@ -175,8 +266,15 @@ throws Exception
     columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "DeltaHeap (bytes)", -1, -1) );
     columnList.add ( new TableField(TableField.DATA_TYPE_DOUBLE, "DeltaHeap (%)", -1, 3) );
     columnList.add ( new TableField(TableField.DATA_TYPE_INT, "NumLogRecords", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_DOUBLE, "CpuTime (ms)", -1, 3) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "Allocated (bytes)", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "GcCount", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "GcTime (ms)", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_INT, "NumTimeSeries", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "NumDataPoints", -1, -1) );
     DataTable table = new DataTable( columnList );
     table.setTableID ( detailTableID );
+    CommandProcessor processor = getCommandProcessor();
     // Loop through the commands once to get the run times so that a total can be computed and
     // used for percent for each output record
     String commandName;
@@ -244,6 +342,21 @@ throws Exception
             table.setFieldValue(row,col++, new Long(deltaHeap),true);
             table.setFieldValue(row,col++, new Double(100.0*(double)deltaHeap/(double)endHeap),true);
             table.setFieldValue(row,col++, new Integer((int)(logRecordCount)),true);
+            CommandResourceUsage usage = getResourceUsage ( processor, c );
+            if ( (usage != null) && usage.isMeasured() ) {
+                // Values that are not available from the Java virtual machine are set to null
+                table.setFieldValue(row,col++, (usage.getCpuTime() < 0.0 ? null : new Double(usage.getCpuTime())),true);
+                table.setFieldValue(row,col++, (usage.getAllocatedBytes() < 0 ? null : new Long(usage.getAllocatedBytes())),true);
+                table.setFieldValue(row,col++, new Long(usage.getGcCount()),true);
+                table.setFieldValue(row,col++, new Long(usage.getGcTime()),true);
+                table.setFieldValue(row,col++, new Integer(usage.getTimeSeriesCount()),true);
+                table.setFieldValue(row,col++, new Long(usage.getDataPointCount()),true);
+            }
+            else {
+                for ( int i = 0; i < 6; i++ ) {
+                    table.setFieldValue(row,col++, null,true);
+                }
+            }
         }
         else {
             table.setFieldValue(row,col++, null,true); // startTime...
@@ -257,6 +370,12 @@ throws Exception
             table.setFieldValue(row,col++, null,true);
             table.setFieldValue(row,col++, null,true);
             table.setFieldValue(row,col++, null,true); // ... through logRecordCount
+            table.setFieldValue(row,col++, null,true); // CPU time...
+            table.setFieldValue(row,col++, null,true);
+            table.setFieldValue(row,col++, null,true);
+            table.setFieldValue(row,col++, null,true);
+            table.setFieldValue(row,col++, null,true);
+            table.setFieldValue(row,col++, null,true); // ... through number of data points
         }
     }
     return table;
@@ -278,8 +397,11 @@ throws Exception
     columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "AverageTime (ms)", -1, -1) );
     columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "MaximumTime (ms)", -1, -1) );
     columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "MinimumTime (ms)", -1, -1) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_DOUBLE, "TotalCpuTime (ms)", -1, 3) );
+    columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "TotalAllocated (bytes)", -1, -1) );
     DataTable table = new DataTable( columnList );
     table.setTableID ( summaryTableID );
+    CommandProcessor processor = getCommandProcessor();
     // Loop through the commands once to get a unique list of commands that are used
     List<String> commandNameList = new ArrayList<String>();
     String commandName;
@@ -302,6 +424,8 @@ throws Exception
     int [] runTimeMax = new int[commandNameList.size()];
     int [] runTimeMin = new int[commandNameList.size()];
     int [] count = new int[commandNameList.size()];
+    double [] cpuTimeTotal = new double[commandNameList.size()];
+    long [] allocatedTotal = new long[commandNameList.size()];
     // Loop through the commands again to determine the profile statistics
     int pos;
     String cname;
@@ -328,6 +452,15 @@ throws Exception
         runTimeMin[pos] = (runTimeMin[pos] == 0 ? (int)runTime : Math.min(runTimeMin[pos], (int)runTime) );
         runTimeMax[pos] = Math.max(runTimeMax[pos], (int)runTime);
         ++count[pos];
+        CommandResourceUsage usage = getResourceUsage ( processor, c );
+        if ( (usage != null) && usage.isMeasured() ) {
+            if ( usage.getCpuTime() > 0.0 ) {
+                cpuTimeTotal[pos] += usage.getCpuTime();
+            }
+            if ( usage.getAllocatedBytes() > 0 ) {
+                allocatedTotal[pos] += usage.getAllocatedBytes();
+            }
+        }
     }
     // Compute the means
     for ( pos = 0; pos < runTimeTotal.length; pos++ ) {
@@ -342,6 +475,8 @@ throws Exception
     // Average Time (ms)
     // Maximum Time (ms)
     // Minimum Time (ms)
+    // Total CPU Time (ms)
+    // Total Allocated (bytes)
     for ( pos = 0; pos < runTimeTotal.length; ++pos ) {
         int col = 0;
         table.setFieldValue(pos,col++, commandNameList.get(pos),true);
@@ -356,6 +491,8 @@ throws Exception
         table.setFieldValue(pos,col++, new Long(runTimeMean[pos]),true);
         table.setFieldValue(pos,col++, new Long(runTimeMax[pos]),true);
         table.setFieldValue(pos,col++, new Long(runTimeMin[pos]),true);
+        table.setFieldValue(pos,col++, new Double(cpuTimeTotal[pos]),true);
+        table.setFieldValue(pos,col++, new Long(allocatedTotal[pos]),true);
     }
     return table;
 }
@@ -418,6 +555,9 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
         setDiscoverySummaryTable ( null );
         setDiscoveryDetailTable ( null );
     }
+    else {
+        setOutputFile ( null );
+    }
 
 	// Make sure there are time series available to operate on...
 	
@@ -431,6 +571,7 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 	if ( (commandPhase == CommandPhaseType.RUN) && (DetailTableID != null) && (DetailTableID.indexOf("${") >= 0) ) {
 		DetailTableID = TSCommandProcessorUtil.expandParameterValue(processor, this, DetailTableID);
 	}
+    String OutputFile = parameters.getValue ( "OutputFile" );
 
 	if ( warning_count > 0 ) {
 		message = "There were " + warning_count + " warnings for command parameters.";
@@ -497,6 +638,14 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
                 setDiscoveryDetailTable ( table );
             }
         }
+        if ( (commandPhase == CommandPhaseType.RUN) && (OutputFile != null) && !OutputFile.isEmpty() ) {
+            String OutputFile_full = IOUtil.verifyPathForOS(
+                IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(processor),
+                    TSCommandProcessorUtil.expandParameterValue(processor, this, OutputFile)) );
+            Message.printStatus ( 2, routine, "Writing command profile to file \"" + OutputFile_full + "\"" );
+            writeProfileJSON ( OutputFile_full, processor.getCommands() );
+            setOutputFile ( new File(OutputFile_full) );
+        }
 	}
 	catch ( Exception e ) {
 		Message.printWarning ( 3, routine, e );
@@ -517,6 +666,14 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
     status.refreshPhaseSeverity(commandPhase,CommandStatusType.SUCCESS);
 }
 
+/**
+Set the output file that is created by this command.  This is only used internally.
+*/
+private void setOutputFile ( File file )
+{
+	__OutputFile_File = file;
+}
+
 /**
 Set the detail table that is read by this class in discovery mode.
 */
@@ -542,6 +699,7 @@ public String toString ( PropList props )
 	}
     String DetailTableID = props.getValue( "DetailTableID" );
     String SummaryTableID = props.getValue( "SummaryTableID" );
+    String OutputFile = props.getValue( "OutputFile" );
 	StringBuffer b = new StringBuffer ();
     if ( (SummaryTableID != null) && (SummaryTableID.length() > 0) ) {
         if ( b.length() > 0 ) {
@@ -554,8 +712,80 @@ public String toString ( PropList props )
             b.append ( "," );
         }
         b.append ( "DetailTableID=\"" + DetailTableID + "\"" );
+    }
+    if ( (OutputFile != null) && (OutputFile.length() > 0) ) {
+        if ( b.length() > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( "OutputFile=\"" + OutputFile + "\"" );
     }
 	return getCommandName() + "(" + b.toString() + ")";
 }
 
+/**
+Write the command profile to a JSON file, which can be compared between software versions.
+Each command that has been run is written as an object with the run time, heap, and resource usage.
+@param outputFile the full path to the output file
+@param commandList list of commands to process
+*/
+private void writeProfileJSON ( String outputFile, List<Command> commandList )
+throws Exception
+{
+    CommandProcessor processor = getCommandProcessor();
+    Map<String,Object> profileMap = new LinkedHashMap<String,Object>();
+    profileMap.put ( "createdTime", new DateTime(DateTime.DATE_CURRENT).toString(DateTime.FORMAT_YYYY_MM_DD_HH_mm_SS) );
+    if ( processor instanceof TSCommandProcessor ) {
+        profileMap.put ( "commandFile", ((TSCommandProcessor)processor).getCommandFileName() );
+    }
+    profileMap.put ( "javaVersion", System.getProperty("java.version") );
+    List<Map<String,Object>> commandMapList = new ArrayList<Map<String,Object>>();
+    int commandNum = 0;
+    for ( Command c : commandList ) {
+        ++commandNum;
+        if ( c == this ) {
+            // Following commands have not been run
+            break;
+        }
+        CommandProfile profile = c.getCommandProfile(CommandPhaseType.RUN);
+        if ( profile.getEndTime() == 0 ) {
+            // Command has not been run (e.g., comment)
+            continue;
+        }
+        Map<String,Object> commandMap = new LinkedHashMap<String,Object>();
+        commandMap.put ( "commandNum", new Integer(commandNum) );
+        commandMap.put ( "commandName", c.getCommandName() );
+        commandMap.put ( "command", c.toString() );
+        commandMap.put ( "runTimeMs", new Long(profile.getRunTime()) );
+        commandMap.put ( "startHeapBytes", new Long(profile.getStartHeap()) );
+        commandMap.put ( "endHeapBytes", new Long(profile.getEndHeap()) );
+        CommandResourceUsage usage = getResourceUsage ( processor, c );
+        if ( (usage != null) && usage.isMeasured() ) {
+            commandMap.put ( "cpuTimeMs", new Double(usage.getCpuTime()) );
+            commandMap.put ( "allocatedBytes", new Long(usage.getAllocatedBytes()) );
+            commandMap.put ( "gcCount", new Long(usage.getGcCount()) );
+            commandMap.put ( "gcTimeMs", new Long(usage.getGcTime()) );
+            commandMap.put ( "numTimeSeries", new Integer(usage.getTimeSeriesCount()) );
+            commandMap.put ( "numDataPoints", new Long(usage.getDataPointCount()) );
+        }
+        if ( c instanceof CommandStatusProvider ) {
+            commandMap.put ( "numLogRecords",
+                new Integer(((CommandStatusProvider)c).getCommandStatus().getCommandLog(CommandPhaseType.RUN).size()) );
+        }
+        commandMapList.add ( commandMap );
+    }
+    profileMap.put ( "commands", commandMapList );
+    GsonBuilder builder = new GsonBuilder();
+    builder.setPrettyPrinting();
+    builder.serializeNulls();
+    Gson gson = builder.create();
+    PrintWriter fout = new PrintWriter ( outputFile );
+    try {
+        fout.print ( gson.toJson(profileMap) );
+        fout.println ();
+    }
+    finally {
+        fout.close();
+    }
+}
+
 }
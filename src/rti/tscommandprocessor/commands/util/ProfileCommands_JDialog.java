@@ -62,6 +62,7 @@ private boolean __first_time = true; // Indicate first time display
 private JTextArea __command_JTextArea = null;
 private JTextField __SummaryTableID_JTextField = null;
 private JTextField __DetailTableID_JTextField = null;
+private JTextField __OutputFile_JTextField = null;
 private SimpleJButton __cancel_JButton = null;
 private SimpleJButton __ok_JButton = null;
 private SimpleJButton __help_JButton = null;
@@ -110,6 +111,7 @@ private void checkInput ()
 	PropList props = new PropList ( "" );
     String SummaryTableID = __SummaryTableID_JTextField.getText().trim();
     String DetailTableID = __DetailTableID_JTextField.getText().trim();
+    String OutputFile = __OutputFile_JTextField.getText().trim();
 	__error_wait = false;
 
     if ( SummaryTableID.length() > 0 ) {
@@ -117,6 +119,9 @@ private void checkInput ()
     }
     if ( DetailTableID.length() > 0 ) {
         props.set ( "DetailTableID", DetailTableID );
+    }
+    if ( OutputFile.length() > 0 ) {
+        props.set ( "OutputFile", OutputFile );
     }
 	try {
 	    // This will warn the user...
@@ -136,8 +141,10 @@ already been checked and no errors were detected.
 private void commitEdits ()
 {	String SummaryTableID = __SummaryTableID_JTextField.getText().trim();
     String DetailTableID = __DetailTableID_JTextField.getText().trim();
+    String OutputFile = __OutputFile_JTextField.getText().trim();
     __command.setCommandParameter ( "SummaryTableID", SummaryTableID );
     __command.setCommandParameter ( "DetailTableID", DetailTableID );
+    __command.setCommandParameter ( "OutputFile", OutputFile );
 }
 
 /**
@@ -188,6 +195,10 @@ private void initialize ( JFrame parent, ProfileCommands_Command command )
     JGUIUtil.addComponent(paragraph, new JLabel (
         "Commands within a For() loop are currently only profiled for the last executed iteration."),
         0, ++yy, 7, 1, 0, 0, insetsTLBR, GridBagConstraints.BOTH, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(paragraph, new JLabel (
+        "CPU time and allocated memory are for the thread running each command, if supported by Java.  " +
+        "The output file is JSON, which can be compared between software versions."),
+        0, ++yy, 7, 1, 0, 0, insetsTLBR, GridBagConstraints.BOTH, GridBagConstraints.WEST);
 
 	JGUIUtil.addComponent(main_JPanel, paragraph,
 		0, ++y, 7, 1, 0, 0, 5, 0, 10, 0, GridBagConstraints.NONE, GridBagConstraints.WEST);
@@ -213,6 +224,16 @@ private void initialize ( JFrame parent, ProfileCommands_Command command )
         1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
     JGUIUtil.addComponent(main_JPanel, new JLabel ("Optional - unique identifier for the detail table."),
         3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST );
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ("Output file:"),
+        0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __OutputFile_JTextField = new JTextField (30);
+    __OutputFile_JTextField.setToolTipText("Specify the JSON output file, can contain ${Property}");
+    __OutputFile_JTextField.addKeyListener (this);
+    JGUIUtil.addComponent(main_JPanel, __OutputFile_JTextField,
+        1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel ("Optional - JSON file for profile (default=no file)."),
+        3, y, 4, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST );
     
     JGUIUtil.addComponent(main_JPanel, new JLabel ("Command:"), 
 		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
@@ -292,6 +313,7 @@ Refresh the command from the other text field contents.
 private void refresh ()
 {	String SummaryTableID = "";
     String DetailTableID = "";
+    String OutputFile = "";
 	PropList props = __command.getCommandParameters();
 	if (__first_time) {
 		__first_time = false;
@@ -303,13 +325,19 @@ private void refresh ()
         if ( DetailTableID != null ) {
             __DetailTableID_JTextField.setText ( DetailTableID );
         }
+        OutputFile = props.getValue ( "OutputFile" );
+        if ( OutputFile != null ) {
+            __OutputFile_JTextField.setText ( OutputFile );
+        }
 	}
 	// Regardless, reset the command from the fields...
     SummaryTableID = __SummaryTableID_JTextField.getText().trim();
     DetailTableID = __DetailTableID_JTextField.getText().trim();
+    OutputFile = __OutputFile_JTextField.getText().trim();
 	props = new PropList ( __command.getCommandName() );
     props.add ( "SummaryTableID=" + SummaryTableID );
     props.add ( "DetailTableID=" + DetailTableID );
+    props.add ( "OutputFile=" + OutputFile );
 	__command_JTextArea.setText( __command.toString ( props ) );
 }
 
@@ -25,7 +25,18 @@ package rti.tscommandprocessor.commands.util;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 import javax.swing.JFrame;
 
@@ -45,7 +56,10 @@ import RTi.Util.IO.InvalidCommandParameterException;
 import RTi.Util.IO.Prop;
 import RTi.Util.IO.IOUtil;
 import RTi.Util.IO.PropList;
+import RTi.Util.String.StringUtil;
 import RTi.TS.TS;
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.LazyDataStore;
 import rti.tscommandprocessor.core.TSCommandFileRunner;
 import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
@@ -54,10 +68,68 @@ import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 
 /**
 This class initializes, checks, and runs the RunCommands() command.
+The InputFile parameter can specify a list of command files and wildcards, in which case the command files
+can be run in parallel (MaxThreads parameter), each with its own processor.
+Because datastore connections are not thread-safe, by default command files that are run in parallel each open
+their own instance of the datastores that were configured with TSCommandProcessor.setLazyDataStore()
+(ShareDataStores=Copy), which is closed when the command file is done.
+Because the log file is global, StartLog() commands in command files that are run in parallel are not run,
+and all messages are written to the current log file.
+The results of each command file (status, regression test report, appended results) are processed
+in the order of the command files so that output is the same as for sequential processing.
 */
 public class RunCommands_Command extends AbstractCommand implements Command
 {
 
+/**
+Data for a command file that is run.
+*/
+private static class CommandFileRun
+{
+	/**
+	Full path to the command file.
+	*/
+	String inputFileFull;
+
+	/**
+	Runner used to run the command file, set before the command file is read so that the run can be cancelled.
+	*/
+	volatile TSCommandFileRunner runner = null;
+
+	/**
+	Whether running the command file has been cancelled.
+	*/
+	volatile boolean cancelled = false;
+
+	/**
+	Whether the command file is enabled.
+	*/
+	boolean isEnabled = false;
+
+	/**
+	Total run time for the commands, milliseconds.
+	*/
+	long runTimeTotal = 0;
+
+	/**
+	Most severe status of the commands that were run.
+	*/
+	CommandStatusType maxSeverity = CommandStatusType.UNKNOWN;
+
+	/**
+	Exception from reading or running the command file.
+	*/
+	Exception exception = null;
+
+	/**
+	Construct the data for a command file.
+	*/
+	CommandFileRun ( String inputFileFull )
+	{
+		this.inputFileFull = inputFileFull;
+	}
+}
+
 /**
 ExpectedStatus parameter values.
 */
@@ -112,6 +184,7 @@ throws InvalidCommandParameterException
     String ExpectedStatus = parameters.getValue ( "ExpectedStatus" );
     //String ShareProperties = parameters.getValue ( "ShareProperties" );
     String ShareDataStores = parameters.getValue ( "ShareDataStores" );
+    String MaxThreads = parameters.getValue ( "MaxThreads" );
 	String warning = "";
     String message;
 	
@@ -144,26 +217,32 @@ throws InvalidCommandParameterException
                             message, "Software error - report problem to support." ) );
 		}
 	
-		try {
-            String adjusted_path = IOUtil.verifyPathForOS(IOUtil.adjustPath ( working_dir, InputFile));
-			File f = new File ( adjusted_path );
-			if ( !f.exists() ) {
-                message = "The input file does not exist: \"" + adjusted_path + "\".";
+		// Can be a comma-separated list of files - check files that do not use wildcards
+		for ( String part : splitInputFile(working_dir, InputFile) ) {
+			if ( (part.indexOf('*') >= 0) || (part.indexOf('?') >= 0) ) {
+				continue;
+			}
+			try {
+	            String adjusted_path = IOUtil.verifyPathForOS(IOUtil.adjustPath ( working_dir, part));
+				File f = new File ( adjusted_path );
+				if ( !f.exists() ) {
+	                message = "The input file does not exist: \"" + adjusted_path + "\".";
+					warning += "\n" + message;
+	                status.addToLog ( CommandPhaseType.INITIALIZATION,
+	                        new CommandLogRecord(CommandStatusType.FAILURE,
+	                                message, "Verify that the command file to run exists." ) );
+	            }
+				f = null;
+			}
+			catch ( Exception e ) {
+	            message = "The input file \"" + part +
+	            "\" cannot be adjusted to an absolute path using the working directory \"" +
+	            working_dir + "\".";
 				warning += "\n" + message;
-                status.addToLog ( CommandPhaseType.INITIALIZATION,
-                        new CommandLogRecord(CommandStatusType.FAILURE,
-                                message, "Verify that the command file to run exists." ) );
-            }
-			f = null;
-		}
-		catch ( Exception e ) {
-            message = "The input file \"" + InputFile +
-            "\" cannot be adjusted to an absolute path using the working directory \"" +
-            working_dir + "\".";
-			warning += "\n" + message;
-            status.addToLog ( CommandPhaseType.INITIALIZATION,
-                    new CommandLogRecord(CommandStatusType.FAILURE,
-                            message, "Verify that command file to run and working directory paths are compatible." ) );
+	            status.addToLog ( CommandPhaseType.INITIALIZATION,
+	                    new CommandLogRecord(CommandStatusType.FAILURE,
+	                            message, "Verify that command file to run and working directory paths are compatible." ) );
+			}
 		}
 	}
     
@@ -201,16 +280,35 @@ throws InvalidCommandParameterException
         warning += "\n" + message;
         status.addToLog ( CommandPhaseType.INITIALIZATION,
             new CommandLogRecord(CommandStatusType.FAILURE,
-                message, "Specify ShareDataStores as " + _Copy + ", " + _DoNotShare +
-                " (default if blank), " + ", or " + _Share) );
+                message, "Specify ShareDataStores as " + _Copy + ", " + _DoNotShare + ", or " + _Share +
+                " (default if blank is " + _Share + ", or " + _Copy + " if MaxThreads > 1).") );
+    }
+    if ( (ShareDataStores != null) && ShareDataStores.equalsIgnoreCase(_Share) &&
+        (MaxThreads != null) && StringUtil.isInteger(MaxThreads) && (Integer.parseInt(MaxThreads) > 1) ) {
+        // Allowed, for example if the command files do not use the same datastores, but connections are not thread-safe
+        message = "ShareDataStores=" + _Share + " with MaxThreads > 1 uses the same datastore connections " +
+            "from command files that run at the same time, and datastore connections are not thread-safe.";
+        status.addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.WARNING,
+                message, "Specify ShareDataStores as " + _Copy + " unless the command files use different datastores." ) );
+    }
+
+    if ( (MaxThreads != null) && !MaxThreads.isEmpty() &&
+        (!StringUtil.isInteger(MaxThreads) || (Integer.parseInt(MaxThreads) < 1)) ) {
+        message = "The MaxThreads parameter \"" + MaxThreads + "\" is invalid.";
+        warning += "\n" + message;
+        status.addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.FAILURE,
+                message, "Specify the maximum number of command files to run at the same time as an integer 1 or larger." ) );
     }
 
 	// Check for invalid parameters...
-    List<String> validList = new ArrayList<String>(4);
+    List<String> validList = new ArrayList<String>(5);
 	validList.add ( "InputFile" );
     validList.add ( "ExpectedStatus" );
     validList.add ( "ShareProperties" );
     validList.add ( "ShareDataStores" );
+    validList.add ( "MaxThreads" );
     warning = TSCommandProcessorUtil.validateParameterNames ( validList, this, warning );
 
 	if ( warning.length() > 0 ) {
@@ -276,7 +374,13 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
     }
     String ShareDataStores = parameters.getValue ( "ShareDataStores" );
     if ( (ShareDataStores == null) || ShareDataStores.equals("") ) {
-        ShareDataStores = _Share;
+        if ( getMaxThreads() > 1 ) {
+            // Datastore connections cannot be shared by command files that are run at the same time
+            ShareDataStores = _Copy;
+        }
+        else {
+            ShareDataStores = _Share;
+        }
     }
 	String AppendResults = parameters.getValue ( "AppendResults" );
 	
@@ -290,142 +394,146 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 	// Get the working directory from the processor that is running the commands.
 
 	String InputFile_full = null;
+	ExecutorService executor = null;
+	List<CommandFileRun> runList = null;
+	boolean runsProcessed = false;
 	try {
-		InputFile_full = IOUtil.verifyPathForOS(
-	        IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(processor),
-	        	TSCommandProcessorUtil.expandParameterValue(processor, this,InputFile) ) );
-		Message.printStatus ( 2, routine,
-		"Processing commands from file \"" + InputFile_full + "\" using command file runner.");
-		
-		TSCommandFileRunner runner = new TSCommandFileRunner ();
-        // This will set the initial working directory of the runner to that of the command file...
-		runner.readCommandFile(InputFile_full, runDiscovery );
-		// If the command file is not enabled, don't need to initialize or process
-		// TODO SAM 2013-04-20 Even if disabled, will still run discovery above - need to disable discovery in this case
-		boolean isEnabled = runner.isCommandFileEnabled();
+		List<String> inputFileList = getInputFileList ( TSCommandProcessorUtil.getWorkingDir(processor),
+	        TSCommandProcessorUtil.expandParameterValue(processor, this,InputFile) );
+		if ( inputFileList.size() == 0 ) {
+			message = "No command files match \"" + InputFile + "\".";
+			Message.printWarning ( warning_level, 
+			MessageUtil.formatMessageTag(command_tag, ++warning_count), routine, message );
+			status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(CommandStatusType.FAILURE,
+				message, "Verify that the command file(s) to run exist."));
+			throw new CommandException ( message );
+		}
         String expectedStatus = CommandStatusType.SUCCESS.toString(); // Expected status of running command file
         if ( ExpectedStatus != null ) {
             expectedStatus = ExpectedStatus;
         }
-		if ( isEnabled ) {
-            // Set the database connection information...
-            // FIXME SAM 2007-11-25 HydroBase needs to be converted to generic DataStore objects.
-            TSCommandProcessor runner_processor = runner.getProcessor();
-            if ( ShareDataStores.equalsIgnoreCase(_Share) ) {
-                // All data stores are transferred
-                runner_processor.setPropContents("HydroBaseDMIList", processor.getPropContents("HydroBaseDMIList"));
-                runner_processor.setDataStores(((TSCommandProcessor)processor).getDataStores(), false);
-            }
-            /*
-             * TODO SAM 2010-09-30 Need to evaluate how to share properties - issue is that built-in properties are
-             * handled explicitly whereas user-defined properties are in a list that can be easily shared.
-             * Also, some properties like the working directory receive special treatment.
-             * For now don't bite off the property issue
-            if ( ShareProperties.equalsIgnoreCase(_Copy) ) {
-                setProcessorProperties(processor,runner_processor,true);
-            }
-            else if ( ShareProperties.equalsIgnoreCase(_Share) ) {
-                // All data stores are transferred
-                setProcessorProperties(processor,runner_processor,false);
-            }
-            */
-            // Actually, need to share the StartLogEnabled property because it is used in troubleshooting
-            // to ensure all logging goes to the main log file.
-            Prop prop = processor.getProp("StartLogEnabled");
-            if ( prop != null ) {
-            	// Will be a Boolean
-            	runner.getProcessor().setPropContents("StartLogEnabled", prop.getContents());
-            }
-    		runner.runCommands();
-    	    // Total runtime for the commands
-            long runTimeTotal = TSCommandProcessorUtil.getRunTimeTotal(runner.getProcessor().getCommands());
-    		
-    		// Set the CommandStatus for this command to the most severe status of the
-    		// commands file that was just run.
-    		CommandStatusType maxSeverity = TSCommandProcessorUtil.getCommandStatusMaxSeverity((TSCommandProcessor)runner.getProcessor());
-    		String testPassFail = "????"; // Status for the test, which is not always the same as maxSeverity
-    		if ( ExpectedStatus != null ) {
-    		    if ( maxSeverity.toString().equalsIgnoreCase(ExpectedStatus) ) {
-                    // User has indicated an expected status and it matches the actual so consider this a success.
-                    // This should generally be used only when running a test that we expect to fail (e.g., run
-                    // obsolete command or testing handling of errors).
-                    status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(CommandStatusType.SUCCESS,
-                    	"Severity for RunCommands (" + maxSeverity +
-                    	") is max of commands in command file that was run - matches expected (" +
-                    	ExpectedStatus + ") so RunCommands status=Success.",
-                        "Additional status messages are omitted to allow test to be success - " +
-                        "refer to log file if warning/failure."));
-                    // TODO SAM 2008-07-09 Need to evaluate how to append all the log messages but still
-                    // have a successful status that shows in the displays.
-                    // DO NOT append the messages from the command because their status will cause the
-                    // error displays to show problem indicators.
-                    testPassFail = __PASS;
-    		    }
-    		    else {
-    		        // User has specified an expected status and it does NOT match the actual status so this is a failure.
-                    status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(CommandStatusType.SUCCESS,
-                        "Severity for RunCommands (" + maxSeverity +
-                        ") is max of commands in command file that was run - does not match expected (" +
-                        ExpectedStatus + ") so RunCommands status=Failure.",
-                        "Check the command to confirm the expected status."));
-                    // TODO SAM 2008-07-09 Need to evaluate how to append all the log messages but still
-                    // have a successful status that shows in the displays.
-                    // DO NOT append the messages from the command because their status will cause the
-                    // error displays to show problem indicators.
-                    testPassFail = __FAIL;
-    		    }
+        // Get the data to pass to the processors for the command files here so that the main processor is only
+        // used on this thread if the command files are run in parallel.
+        // FIXME SAM 2007-11-25 HydroBase needs to be converted to generic DataStore objects.
+        List<DataStore> dataStoreList = null;
+        List<LazyDataStore> dataStoreConfigList = null;
+        Object hydroBaseDMIList = null;
+        if ( ShareDataStores.equalsIgnoreCase(_Share) ) {
+            // All data stores are transferred
+            hydroBaseDMIList = processor.getPropContents("HydroBaseDMIList");
+            dataStoreList = ((TSCommandProcessor)processor).getDataStores();
+        }
+        else if ( ShareDataStores.equalsIgnoreCase(_Copy) ) {
+            // Datastores that were configured are opened separately for each command file.
+            // Other datastores and HydroBase connections can't be opened again so are shared.
+            hydroBaseDMIList = processor.getPropContents("HydroBaseDMIList");
+            dataStoreConfigList = ((TSCommandProcessor)processor).getDataStoreConfigs();
+            Set<String> configuredNameSet = new HashSet<String>();
+            for ( LazyDataStore dataStoreConfig : dataStoreConfigList ) {
+                configuredNameSet.add ( dataStoreConfig.getName().toUpperCase() );
             }
-            else {
-                status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(maxSeverity,
-    				"Severity for RunCommands (" + maxSeverity + ") is max of commands in command file that was run.",
-    				"Status messages from commands that were run are appended to RunCommand status messages."));
-                // Append the log records from the command file that was run.
-                // The status contains lists of CommandLogRecord for each run mode.
-                // For RunCommands() the log messages should be associated with the originating command, not this RunCommand command
-                CommandStatusUtil.appendLogRecords ( status, (List)runner.getProcessor().getCommands() );
-                if ( maxSeverity.greaterThanOrEqualTo(CommandStatusType.WARNING)) {
-                    testPassFail = __FAIL;
-                }
-                else {
-                    testPassFail = __PASS;
+            dataStoreList = new ArrayList<DataStore>();
+            StringBuilder sharedNames = new StringBuilder();
+            for ( DataStore dataStore : ((TSCommandProcessor)processor).getOpenedDataStores() ) {
+                if ( !configuredNameSet.contains(dataStore.getName().toUpperCase()) ) {
+                    dataStoreList.add ( dataStore );
+                    if ( sharedNames.length() > 0 ) {
+                        sharedNames.append ( ", " );
+                    }
+                    sharedNames.append ( dataStore.getName() );
                 }
             }
-
-            // Add a record to the regression report...
-
-            TSCommandProcessorUtil.appendToRegressionTestReport(processor,isEnabled,runTimeTotal,
-                 testPassFail,expectedStatus,maxSeverity,InputFile_full);
-    
-    		// If it was requested to append the results to the calling processor, get
-    		// the results from the runner and do so...
-    		
-    		if ( (AppendResults != null) && AppendResults.equalsIgnoreCase("true")) {
-    			TSCommandProcessor processor2 = runner.getProcessor();
-    			Object o_tslist = processor2.getPropContents("TSResultsList");
-    			PropList request_params = new PropList ( "" );
-    			if ( o_tslist != null ) {
-    				@SuppressWarnings("unchecked")
-					List<TS> tslist = (List<TS>)o_tslist;
-    				int size = tslist.size();
-    				TS ts;
-    				for ( int i = 0; i < size; i++ ) {
-    					ts = tslist.get(i);
-    					request_params.setUsingObject( "TS", ts );
-    					processor.processRequest( "AppendTimeSeries", request_params );
-    				}
-    			}
-    		}
-    		
-    		Message.printStatus ( 2, routine,"...done processing commands from file." );
-	    }
+            if ( (sharedNames.length() > 0) && (getMaxThreads() > 1) ) {
+                Message.printWarning ( 3, routine, "Datastores that were not configured to be opened on first use " +
+                    "cannot be copied and are shared by command files that run at the same time: " + sharedNames );
+            }
+        }
+        /*
+         * TODO SAM 2010-09-30 Need to evaluate how to share properties - issue is that built-in properties are
+         * handled explicitly whereas user-defined properties are in a list that can be easily shared.
+         * Also, some properties like the working directory receive special treatment.
+         * For now don't bite off the property issue
+        if ( ShareProperties.equalsIgnoreCase(_Copy) ) {
+            setProcessorProperties(processor,runner_processor,true);
+        }
+        else if ( ShareProperties.equalsIgnoreCase(_Share) ) {
+            // All data stores are transferred
+            setProcessorProperties(processor,runner_processor,false);
+        }
+        */
+        // Actually, need to share the StartLogEnabled property because it is used in troubleshooting
+        // to ensure all logging goes to the main log file.
+        Object startLogEnabled = null;
+        Prop prop = processor.getProp("StartLogEnabled");
+        if ( prop != null ) {
+        	// Will be a Boolean
+        	startLogEnabled = prop.getContents();
+        }
+        int nThreads = Math.min(getMaxThreads(), inputFileList.size());
+        if ( nThreads <= 1 ) {
+        	// Run the command files sequentially
+        	for ( String inputFileFull : inputFileList ) {
+        		InputFile_full = inputFileFull;
+        		CommandFileRun run = new CommandFileRun ( inputFileFull );
+        		runCommandFile ( run, runDiscovery, dataStoreList, dataStoreConfigList, hydroBaseDMIList, startLogEnabled );
+        		processCommandFileRun ( run, processor, status, ExpectedStatus, expectedStatus, AppendResults );
+        	}
+        }
         else {
-            // Add a record to the regression report (the isEnabled value is what is important for the report
-            // because the test is not actually run)...
-            TSCommandProcessorUtil.appendToRegressionTestReport(processor,isEnabled,0L,
-                 "",expectedStatus,CommandStatusType.UNKNOWN,InputFile_full);
+        	// Run the command files on a pool of threads and process the results in order,
+        	// limiting how far ahead of the processed results command files are run to limit memory use
+        	Message.printStatus ( 2, routine, "Running " + inputFileList.size() + " command files using up to " +
+        		nThreads + " threads.  StartLog() commands in the command files are not run." );
+        	// StartLog() closes and reopens the global log file, which would affect command files on other threads
+        	startLogEnabled = Boolean.FALSE;
+        	executor = Executors.newFixedThreadPool ( nThreads );
+        	List<Future<CommandFileRun>> futureList = new ArrayList<Future<CommandFileRun>>(inputFileList.size());
+        	final boolean runDiscovery2 = runDiscovery;
+        	final List<DataStore> dataStoreList2 = dataStoreList;
+        	final List<LazyDataStore> dataStoreConfigList2 = dataStoreConfigList;
+        	final Object hydroBaseDMIList2 = hydroBaseDMIList;
+        	final Object startLogEnabled2 = startLogEnabled;
+        	runList = new ArrayList<CommandFileRun>(inputFileList.size());
+        	for ( int i = 0; i < inputFileList.size(); i++ ) {
+        		while ( (futureList.size() < inputFileList.size()) && (futureList.size() < (i + 2*nThreads)) ) {
+        			final CommandFileRun run = new CommandFileRun ( inputFileList.get(futureList.size()) );
+        			runList.add ( run );
+        			futureList.add ( executor.submit ( new Callable<CommandFileRun>() {
+        				public CommandFileRun call () {
+        					runCommandFile ( run, runDiscovery2, dataStoreList2, dataStoreConfigList2, hydroBaseDMIList2,
+        						startLogEnabled2 );
+        					return run;
+        				}
+        			}));
+        		}
+        		InputFile_full = inputFileList.get(i);
+        		// Wait for the next command file, checking periodically for a cancel
+        		CommandFileRun run = null;
+        		while ( run == null ) {
+        			if ( ((TSCommandProcessor)processor).getCancelProcessingRequested() ) {
+        				// Stop running command files (done below) - TSEngine handles the cancel
+        				return;
+        			}
+        			try {
+        				run = futureList.get(i).get ( 500, TimeUnit.MILLISECONDS );
+        			}
+        			catch ( TimeoutException e ) {
+        				// Check for cancel and wait again
+        			}
+        		}
+        		processCommandFileRun ( run, processor, status, ExpectedStatus, expectedStatus, AppendResults );
+        	}
         }
+        runsProcessed = true;
+	}
+	catch ( CommandException e ) {
+		throw e;
 	}
 	catch ( Exception e ) {
+		if ( e instanceof ExecutionException ) {
+			// Should not happen because runCommandFile() handles all exceptions
+			e = new RuntimeException ( e.getCause() );
+		}
 		Message.printWarning ( 3, routine, e );
 		message = "Unexpected error processing command file \"" + InputFile + "\", full path=\"" +
 		    InputFile_full + "\" (" + e + ").";
@@ -434,9 +542,317 @@ throws InvalidCommandParameterException, CommandWarningException, CommandExcepti
 		routine, message );
 		throw new CommandException ( message );
 	}
+	finally {
+		if ( executor != null ) {
+			if ( !runsProcessed ) {
+				// Stop running command files if processing did not complete - the processors must be
+				// cancelled because interrupting the threads does not stop commands that are running
+				cancelCommandFileRuns ( runList );
+			}
+			executor.shutdownNow();
+		}
+	}
     status.refreshPhaseSeverity(CommandPhaseType.RUN,CommandStatusType.SUCCESS);
 }
 
+/**
+Cancel running command files, including those that have not started, by requesting that their processors cancel.
+@param runList list of command files that have been submitted to run
+*/
+private void cancelCommandFileRuns ( List<CommandFileRun> runList )
+{
+	if ( runList == null ) {
+		return;
+	}
+	for ( CommandFileRun run : runList ) {
+		run.cancelled = true;
+		TSCommandFileRunner runner = run.runner;
+		if ( runner != null ) {
+			runner.getProcessor().setCancelProcessingRequested ( true );
+		}
+	}
+}
+
+/**
+Determine the list of command files to run from the InputFile parameter.
+The parameter can be a comma-separated list of files and the file name part of each can contain * and ? wildcards,
+in which case the matching files are added in order of file name.
+@param workingDir the working directory, used to convert relative paths to absolute
+@param InputFile the InputFile parameter value, with properties expanded
+@return the list of full paths to command files
+*/
+private List<String> getInputFileList ( String workingDir, String InputFile )
+{
+	List<String> inputFileList = new ArrayList<String>();
+	for ( String part : splitInputFile(workingDir, InputFile) ) {
+		String path = IOUtil.verifyPathForOS(IOUtil.toAbsolutePath(workingDir,part));
+		File f = new File ( path );
+		String name = f.getName();
+		if ( (name.indexOf('*') < 0) && (name.indexOf('?') < 0) ) {
+			inputFileList.add ( path );
+			continue;
+		}
+		File folder = f.getParentFile();
+		String [] names = null;
+		if ( folder != null ) {
+			names = folder.list();
+		}
+		if ( names == null ) {
+			continue;
+		}
+		Arrays.sort ( names );
+		int flags = 0;
+		if ( !IOUtil.isUNIXMachine() ) {
+			flags = Pattern.CASE_INSENSITIVE;
+		}
+		Pattern pattern = Pattern.compile ( "\\Q" + name.replace("*","\\E.*\\Q").replace("?","\\E.\\Q") + "\\E", flags );
+		for ( String name2 : names ) {
+			File f2 = new File ( folder, name2 );
+			if ( pattern.matcher(name2).matches() && f2.isFile() ) {
+				inputFileList.add ( f2.getPath() );
+			}
+		}
+	}
+	return inputFileList;
+}
+
+/**
+Return the maximum number of command files to run at the same time.
+@return the maximum number of threads, 1 by default.
+*/
+private int getMaxThreads ()
+{
+	String MaxThreads = getCommandParameters().getValue("MaxThreads");
+	if ( (MaxThreads != null) && StringUtil.isInteger(MaxThreads) && (Integer.parseInt(MaxThreads) > 0) ) {
+		return Integer.parseInt(MaxThreads);
+	}
+	return 1;
+}
+
+/**
+Process the results of running a command file, on the thread that is running this command and in the
+order of the command files, so that the command status and regression test report are deterministic.
+@param run the results of running the command file
+@param processor the processor that is running this command
+@param status the status for this command
+@param ExpectedStatus the ExpectedStatus parameter value
+@param expectedStatus the expected status, for the regression test report
+@param AppendResults the AppendResults parameter value
+@exception Exception if the command file could not be run
+*/
+private void processCommandFileRun ( CommandFileRun run, CommandProcessor processor, CommandStatus status,
+	String ExpectedStatus, String expectedStatus, String AppendResults )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".processCommandFileRun";
+	if ( run.exception != null ) {
+		throw run.exception;
+	}
+	TSCommandFileRunner runner = run.runner;
+	String InputFile_full = run.inputFileFull;
+	if ( run.isEnabled ) {
+		// Set the CommandStatus for this command to the most severe status of the
+		// commands file that was just run.
+		CommandStatusType maxSeverity = run.maxSeverity;
+		String testPassFail = "????"; // Status for the test, which is not always the same as maxSeverity
+		if ( ExpectedStatus != null ) {
+		    if ( maxSeverity.toString().equalsIgnoreCase(ExpectedStatus) ) {
+                // User has indicated an expected status and it matches the actual so consider this a success.
+                // This should generally be used only when running a test that we expect to fail (e.g., run
+                // obsolete command or testing handling of errors).
+                status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(CommandStatusType.SUCCESS,
+                	"Severity for RunCommands (" + maxSeverity +
+                	") is max of commands in command file that was run - matches expected (" +
+                	ExpectedStatus + ") so RunCommands status=Success.",
+                    "Additional status messages are omitted to allow test to be success - " +
+                    "refer to log file if warning/failure."));
+                // TODO SAM 2008-07-09 Need to evaluate how to append all the log messages but still
+                // have a successful status that shows in the displays.
+                // DO NOT append the messages from the command because their status will cause the
+                // error displays to show problem indicators.
+                testPassFail = __PASS;
+		    }
+		    else {
+		        // User has specified an expected status and it does NOT match the actual status so this is a failure.
+                status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(CommandStatusType.SUCCESS,
+                    "Severity for RunCommands (" + maxSeverity +
+                    ") is max of commands in command file that was run - does not match expected (" +
+                    ExpectedStatus + ") so RunCommands status=Failure.",
+                    "Check the command to confirm the expected status."));
+                // TODO SAM 2008-07-09 Need to evaluate how to append all the log messages but still
+                // have a successful status that shows in the displays.
+                // DO NOT append the messages from the command because their status will cause the
+                // error displays to show problem indicators.
+                testPassFail = __FAIL;
+		    }
+        }
+        else {
+            status.addToLog(CommandPhaseType.RUN,new CommandLogRecord(maxSeverity,
+				"Severity for RunCommands (" + maxSeverity + ") is max of commands in command file that was run.",
+				"Status messages from commands that were run are appended to RunCommand status messages."));
+            // Append the log records from the command file that was run.
+            // The status contains lists of CommandLogRecord for each run mode.
+            // For RunCommands() the log messages should be associated with the originating command, not this RunCommand command
+            CommandStatusUtil.appendLogRecords ( status, (List)runner.getProcessor().getCommands() );
+            if ( maxSeverity.greaterThanOrEqualTo(CommandStatusType.WARNING)) {
+                testPassFail = __FAIL;
+            }
+            else {
+                testPassFail = __PASS;
+            }
+        }
+
+        // Add a record to the regression report...
+
+        TSCommandProcessorUtil.appendToRegressionTestReport(processor,run.isEnabled,run.runTimeTotal,
+             testPassFail,expectedStatus,maxSeverity,InputFile_full);
+
+		// If it was requested to append the results to the calling processor, get
+		// the results from the runner and do so...
+		
+		if ( (AppendResults != null) && AppendResults.equalsIgnoreCase("true")) {
+			TSCommandProcessor processor2 = runner.getProcessor();
+			Object o_tslist = processor2.getPropContents("TSResultsList");
+			PropList request_params = new PropList ( "" );
+			if ( o_tslist != null ) {
+				@SuppressWarnings("unchecked")
+				List<TS> tslist = (List<TS>)o_tslist;
+				int size = tslist.size();
+				TS ts;
+				for ( int i = 0; i < size; i++ ) {
+					ts = tslist.get(i);
+					request_params.setUsingObject( "TS", ts );
+					processor.processRequest( "AppendTimeSeries", request_params );
+				}
+			}
+		}
+		
+		Message.printStatus ( 2, routine,"...done processing commands from file \"" + InputFile_full + "\"." );
+    }
+    else {
+        // Add a record to the regression report (the isEnabled value is what is important for the report
+        // because the test is not actually run)...
+        TSCommandProcessorUtil.appendToRegressionTestReport(processor,run.isEnabled,0L,
+             "",expectedStatus,CommandStatusType.UNKNOWN,InputFile_full);
+    }
+	// Release the processor for the command file
+	run.runner = null;
+}
+
+/**
+Read and run a command file, saving the results for processCommandFileRun().
+This may be called on a thread in a pool and therefore must not use the processor that is running this command.
+@param run the command file to run, which is updated with the results
+@param runDiscovery whether to run discovery when reading the command file
+@param dataStoreList the datastores to share with the command file processor, or null if not shared
+@param dataStoreConfigList the configuration of datastores to open separately for the command file processor,
+which are closed when the command file is done, or null if none
+@param hydroBaseDMIList the HydroBaseDMI list to share with the command file processor (ignored if dataStoreList is null)
+@param startLogEnabled the StartLogEnabled property to set in the command file processor, or null if not set
+*/
+private void runCommandFile ( CommandFileRun run, boolean runDiscovery, List<DataStore> dataStoreList,
+	List<LazyDataStore> dataStoreConfigList, Object hydroBaseDMIList, Object startLogEnabled )
+{	String routine = getClass().getSimpleName() + ".runCommandFile";
+	List<LazyDataStore> dataStoreCopyList = new ArrayList<LazyDataStore>();
+	try {
+		Message.printStatus ( 2, routine,
+		"Processing commands from file \"" + run.inputFileFull + "\" using command file runner.");
+		
+		TSCommandFileRunner runner = new TSCommandFileRunner ();
+		run.runner = runner;
+		if ( run.cancelled ) {
+			return;
+		}
+        // This will set the initial working directory of the runner to that of the command file...
+		runner.readCommandFile(run.inputFileFull, runDiscovery );
+		// If the command file is not enabled, don't need to initialize or process
+		// TODO SAM 2013-04-20 Even if disabled, will still run discovery above - need to disable discovery in this case
+		run.isEnabled = runner.isCommandFileEnabled();
+		if ( run.isEnabled ) {
+            // Set the database connection information...
+            TSCommandProcessor runner_processor = runner.getProcessor();
+            if ( dataStoreList != null ) {
+                runner_processor.setPropContents("HydroBaseDMIList", hydroBaseDMIList);
+                runner_processor.setDataStores(dataStoreList, false);
+            }
+            if ( dataStoreConfigList != null ) {
+                // Datastores are opened on first use by the command file
+                for ( LazyDataStore dataStoreConfig : dataStoreConfigList ) {
+                    LazyDataStore dataStoreCopy = dataStoreConfig.copyConfig();
+                    dataStoreCopyList.add ( dataStoreCopy );
+                    runner_processor.setLazyDataStore ( dataStoreCopy );
+                }
+            }
+            if ( startLogEnabled != null ) {
+            	runner_processor.setPropContents("StartLogEnabled", startLogEnabled);
+            }
+            if ( run.cancelled ) {
+            	return;
+            }
+    		runner.runCommands();
+    	    // Total runtime for the commands
+            run.runTimeTotal = TSCommandProcessorUtil.getRunTimeTotal(runner_processor.getCommands());
+            run.maxSeverity = TSCommandProcessorUtil.getCommandStatusMaxSeverity(runner_processor);
+		}
+	}
+	catch ( Exception e ) {
+		run.exception = e;
+	}
+	finally {
+		for ( LazyDataStore dataStoreCopy : dataStoreCopyList ) {
+			dataStoreCopy.close();
+		}
+	}
+}
+
+/**
+Split the InputFile parameter into the command files and file patterns that it lists, separated by commas.
+Because a file name can contain a comma, a part that does not name an existing file is joined with the
+following parts if that names an existing file.
+@param workingDir the working directory, used to convert relative paths to absolute, can be null
+@param InputFile the InputFile parameter value, with properties expanded
+@return the list of command files and file patterns, trimmed and not empty
+*/
+private List<String> splitInputFile ( String workingDir, String InputFile )
+{
+	List<String> partList = new ArrayList<String>();
+	String [] parts = InputFile.split(",");
+	for ( int i = 0; i < parts.length; i++ ) {
+		String part = parts[i].trim();
+		if ( part.isEmpty() ) {
+			continue;
+		}
+		if ( (part.indexOf('*') < 0) && (part.indexOf('?') < 0) && !isFile(workingDir, part) ) {
+			String joined = parts[i];
+			for ( int j = i + 1; j < parts.length; j++ ) {
+				joined = joined + "," + parts[j];
+				if ( isFile(workingDir, joined.trim()) ) {
+					part = joined.trim();
+					i = j;
+					break;
+				}
+			}
+		}
+		partList.add ( part );
+	}
+	return partList;
+}
+
+/**
+Indicate whether a path, relative to the working directory, is an existing file.
+*/
+private boolean isFile ( String workingDir, String path )
+{
+	try {
+		if ( workingDir != null ) {
+			path = IOUtil.toAbsolutePath(workingDir,path);
+		}
+		return new File(IOUtil.verifyPathForOS(path)).isFile();
+	}
+	catch ( Exception e ) {
+		return false;
+	}
+}
+
 /**
 Return the string representation of the command.
 */
@@ -448,6 +864,7 @@ public String toString ( PropList props )
     String ExpectedStatus = props.getValue("ExpectedStatus");
     //String ShareProperties = props.getValue("ShareProperties");
     String ShareDataStores = props.getValue("ShareDataStores");
+    String MaxThreads = props.getValue("MaxThreads");
 	StringBuffer b = new StringBuffer ();
 	if ( (InputFile != null) && (InputFile.length() > 0) ) {
 		if ( b.length() > 0 ) {
@@ -474,6 +891,12 @@ public String toString ( PropList props )
             b.append ( "," );
         }
         b.append ( "ShareDataStores=" + ShareDataStores );
+    }
+    if ( (MaxThreads != null) && (MaxThreads.length() > 0) ) {
+        if ( b.length() > 0 ) {
+            b.append ( "," );
+        }
+        b.append ( "MaxThreads=" + MaxThreads );
     }
 	return getCommandName() + "(" + b.toString() + ")";
 }
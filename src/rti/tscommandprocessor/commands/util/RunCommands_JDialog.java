@@ -83,6 +83,7 @@ private JTextField __InputFile_JTextField = null;
 private SimpleJComboBox __ExpectedStatus_JComboBox = null;
 //private SimpleJComboBox __ShareProperties_JComboBox = null;
 private SimpleJComboBox __ShareDataStores_JComboBox = null;
+private JTextField __MaxThreads_JTextField = null;
 private boolean __error_wait = false; // Is there an error waiting to be cleared up
 private boolean __first_time = true;
 private boolean __ok = false; // Indicates whether OK was pressed when closing the dialog.
@@ -183,6 +184,7 @@ private void checkInput ()
     String ExpectedStatus = __ExpectedStatus_JComboBox.getSelected();
     //String ShareProperties = __ShareProperties_JComboBox.getSelected();
     String ShareDataStores = __ShareDataStores_JComboBox.getSelected();
+    String MaxThreads = __MaxThreads_JTextField.getText().trim();
 	__error_wait = false;
 	if ( InputFile.length() > 0 ) {
 		props.set ( "InputFile", InputFile );
@@ -195,6 +197,9 @@ private void checkInput ()
     //}
     if ( ShareDataStores.length() > 0 ) {
         props.set ( "ShareDataStores", ShareDataStores );
+    }
+    if ( MaxThreads.length() > 0 ) {
+        props.set ( "MaxThreads", MaxThreads );
     }
 	try {	// This will warn the user...
 		__command.checkCommandParameters ( props, null, 1 );
@@ -214,10 +219,12 @@ private void commitEdits ()
     String ExpectedStatus = __ExpectedStatus_JComboBox.getSelected();
     //String ShareProperties = __ShareProperties_JComboBox.getSelected();
     String ShareDataStores = __ShareDataStores_JComboBox.getSelected();
+    String MaxThreads = __MaxThreads_JTextField.getText().trim();
 	__command.setCommandParameter ( "InputFile", InputFile );
     __command.setCommandParameter ( "ExpectedStatus", ExpectedStatus );
     //__command.setCommandParameter ( "ShareProperties", ShareProperties );
     __command.setCommandParameter ( "ShareDataStores", ShareDataStores );
+    __command.setCommandParameter ( "MaxThreads", MaxThreads );
 }
 
 /**
@@ -257,6 +264,10 @@ private void initialize ( JFrame parent, RunCommands_Command command )
     JGUIUtil.addComponent(main_JPanel, new JLabel (
 		"Specify a full or relative path (relative to working directory)." ), 
 		0, ++y, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel (
+		"Multiple command files can be specified separated by commas, and file names can use * and ? wildcards, " +
+		"in which case the command files can be run in parallel." ), 
+		0, ++y, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 	if ( __working_dir != null ) {
         JGUIUtil.addComponent(main_JPanel, new JLabel ( "The working directory is: " + __working_dir ), 
 		0, ++y, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
@@ -327,7 +338,7 @@ private void initialize ( JFrame parent, RunCommands_Command command )
     __ShareDataStores_JComboBox = new SimpleJComboBox ( false );
     List<String> shareChoices = new ArrayList<String>();
     shareChoices.add ( "" );   // Default
-    //shareChoices.add ( __command._Copy ); // Too difficult?
+    shareChoices.add ( __command._Copy );
     shareChoices.add ( __command._DoNotShare );
     shareChoices.add ( __command._Share );
     __ShareDataStores_JComboBox.setData(shareChoices);
@@ -336,7 +347,18 @@ private void initialize ( JFrame parent, RunCommands_Command command )
     JGUIUtil.addComponent(main_JPanel, __ShareDataStores_JComboBox,
         1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
     JGUIUtil.addComponent(main_JPanel, new JLabel(
-        "Optional - share data stores (default=" + __command._Share + ")."), 
+        "Optional - share data stores (default=" + __command._Share + ", " + __command._Copy +
+        " if maximum threads > 1)."), 
+        3, y, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Maximum threads:"),
+            0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __MaxThreads_JTextField = new JTextField ( 10 );
+    __MaxThreads_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __MaxThreads_JTextField,
+        1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+        "Optional - number of command files to run at the same time, StartLog() is not run if > 1 (default=1)."), 
         3, y, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
     JGUIUtil.addComponent(main_JPanel, new JLabel ( "Command:"),
@@ -410,6 +432,7 @@ private void refresh ()
     String ExpectedStatus = "";
     //String ShareProperties = "";
     String ShareDataStores = "";
+    String MaxThreads = "";
 	PropList props = null;
 	if ( __first_time ) {
 		__first_time = false;
@@ -419,9 +442,13 @@ private void refresh ()
         ExpectedStatus = props.getValue ( "ExpectedStatus" );
         //ShareProperties = props.getValue ( "ShareProperties" );
         ShareDataStores = props.getValue ( "ShareDataStores" );
+        MaxThreads = props.getValue ( "MaxThreads" );
 		if ( InputFile != null ) {
 			__InputFile_JTextField.setText ( InputFile );
 		}
+		if ( MaxThreads != null ) {
+			__MaxThreads_JTextField.setText ( MaxThreads );
+		}
         if ( JGUIUtil.isSimpleJComboBoxItem(__ExpectedStatus_JComboBox, ExpectedStatus,JGUIUtil.NONE, null, null ) ) {
             __ExpectedStatus_JComboBox.select ( ExpectedStatus );
         }
@@ -474,11 +501,13 @@ private void refresh ()
     ExpectedStatus = __ExpectedStatus_JComboBox.getSelected();
     //ShareProperties = __ShareProperties_JComboBox.getSelected();
     ShareDataStores = __ShareDataStores_JComboBox.getSelected();
+    MaxThreads = __MaxThreads_JTextField.getText().trim();
 	props = new PropList ( __command.getCommandName() );
 	props.add ( "InputFile=" + InputFile );
     props.add ( "ExpectedStatus=" + ExpectedStatus );
     //props.add ( "ShareProperties=" + ShareProperties );
     props.add ( "ShareDataStores=" + ShareDataStores );
+    props.add ( "MaxThreads=" + MaxThreads );
 	__command_JTextArea.setText( __command.toString ( props ) );
 	// Check the path and determine what the label on the path button should be...
 	if ( __path_JButton != null ) {
@@ -0,0 +1,87 @@
+// CommandDependencyProvider - interface for commands that declare the processor resources that they read and write
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.List;
+
+/**
+Interface for commands that declare the processor resources that they read and write,
+which allows TSEngine.processCommands() to run independent commands concurrently
+when the MaxParallelCommands property is greater than 1.
+Commands that do not implement this interface, or that return null for their resources,
+are run sequentially and act as barriers for parallel processing.
+<p>
+A command that implements this interface must only modify processor data using processRequest()
+(AppendTimeSeries, AppendEnsemble, SetTable, SetProperty, RemoveProperty), so that the requests can be
+deferred and then applied in command order, and must only read processor data that is declared as input.
+Resources are strings formed from a prefix (e.g., RESOURCE_TABLE) and an identifier and are compared ignoring case.
+Two commands are dependent if an output of one is an input of the other.
+To use a resource exclusively (e.g., a database connection), declare it as both input and output.
+*/
+public interface CommandDependencyProvider
+{
+
+/**
+Prefix for datastore resources, followed by the datastore name.
+*/
+public static final String RESOURCE_DATASTORE = "DataStore:";
+
+/**
+Prefix for ensemble resources, followed by the ensemble identifier.
+*/
+public static final String RESOURCE_ENSEMBLE = "Ensemble:";
+
+/**
+Prefix for file resources, followed by the absolute file path.
+*/
+public static final String RESOURCE_FILE = "File:";
+
+/**
+Prefix for processor property resources, followed by the property name.
+*/
+public static final String RESOURCE_PROPERTY = "Property:";
+
+/**
+Prefix for table resources, followed by the table identifier.
+*/
+public static final String RESOURCE_TABLE = "Table:";
+
+/**
+Prefix for time series resources, followed by the alias or time series identifier.
+*/
+public static final String RESOURCE_TIME_SERIES = "TS:";
+
+/**
+Return the resources that the command reads, based on the current command parameters.
+@return the list of input resources, or null if the inputs cannot be determined before running the command
+*/
+public List<String> getCommandInputResources ();
+
+/**
+Return the resources that the command writes, based on the current command parameters.
+@return the list of output resources, or null if the outputs cannot be determined before running the command
+*/
+public List<String> getCommandOutputResources ();
+
+}
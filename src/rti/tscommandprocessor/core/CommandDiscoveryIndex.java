@@ -0,0 +1,366 @@
+// CommandDiscoveryIndex - incremental index of discovery results for commands, used by command editors
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.TS.TS;
+import RTi.TS.TSEnsemble;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandListListener;
+import RTi.Util.IO.ObjectListProvider;
+import RTi.Util.IO.PropList;
+import RTi.Util.Table.DataTable;
+
+/**
+Incremental index of discovery results (time series, ensembles, table identifiers) for the commands in a
+TSCommandProcessor, used by TSCommandProcessorUtil.get*FromCommandsBeforeCommand() methods so that command editors
+do not need to scan all previous commands each time an editor is opened.
+<p>
+The accumulated results are saved as checkpoints every CHECKPOINT_INTERVAL commands.
+A request for the results before a command starts from the nearest checkpoint and scans the remaining commands,
+saving new checkpoints along the way.  The index is registered as a CommandListListener and checkpoints after the
+first added, removed, or changed command are discarded.  Because commands can also be replaced or edited in place
+without notification, the command references and command strings are compared with the indexed values before
+each request.
+The results are the same as the original TSCommandProcessorUtil methods that scan the commands.
+*/
+class CommandDiscoveryIndex implements CommandListListener
+{
+
+/**
+Number of commands between checkpoints.
+*/
+private static final int CHECKPOINT_INTERVAL = 50;
+
+/**
+Accumulated discovery results after processing commands.
+*/
+private static class State
+{
+	/**
+	Time series, including handling Free() commands, as per TSCommandProcessorUtil.getDiscoveryTSFromCommands().
+	*/
+	List<TS> tsList = new ArrayList<TS>();
+
+	/**
+	Ensembles, as per TSCommandProcessorUtil.getDiscoveryEnsembleFromCommands().
+	*/
+	List<TSEnsemble> ensembleList = new ArrayList<TSEnsemble>();
+
+	/**
+	Ensemble identifiers, skipping commented blocks, as per TSCommandProcessorUtil.getEnsembleIdentifiersFromCommands().
+	*/
+	List<String> ensembleIDList = new ArrayList<String>();
+
+	/**
+	Table identifiers, skipping commented blocks and handling FreeTable() commands,
+	as per TSCommandProcessorUtil.getTableIdentifiersFromCommands().
+	*/
+	List<String> tableIDList = new ArrayList<String>();
+
+	/**
+	Whether in a comment block, between comment block start and end commands.
+	*/
+	boolean inComment = false;
+
+	/**
+	Return a copy of the state.  The lists are copied but not the objects in the lists.
+	*/
+	State copy ()
+	{
+		State state = new State();
+		state.tsList.addAll ( tsList );
+		state.ensembleList.addAll ( ensembleList );
+		state.ensembleIDList.addAll ( ensembleIDList );
+		state.tableIDList.addAll ( tableIDList );
+		state.inComment = inComment;
+		return state;
+	}
+}
+
+/**
+Processor that manages the commands.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Commands that have been indexed, used to detect commands that were replaced without notification.
+*/
+private List<Command> __indexedCommandList = new ArrayList<Command>();
+
+/**
+Command strings for the commands that have been indexed, used to detect commands that were edited in place
+without notification.
+*/
+private List<String> __indexedCommandStringList = new ArrayList<String>();
+
+/**
+Checkpoints, where checkpoint k is the state before command k*CHECKPOINT_INTERVAL.
+Checkpoint 0 is the initial (empty) state and is always present.
+*/
+private List<State> __checkpointList = new ArrayList<State>();
+
+/**
+Construct the index for a processor.
+@param processor processor that manages the commands
+*/
+CommandDiscoveryIndex ( TSCommandProcessor processor )
+{
+	__processor = processor;
+	__checkpointList.add ( new State() );
+}
+
+/**
+Process a command, updating the state.
+*/
+private void addCommand ( State state, Command command )
+{
+	if ( command == null ) {
+		return;
+	}
+	// Time series and ensembles are not checked for comment blocks
+	if ( command instanceof ObjectListProvider ) {
+		ObjectListProvider objectListProvider = (ObjectListProvider)command;
+		Object o = objectListProvider.getObjectList ( TS.class );
+		if ( o != null ) {
+			@SuppressWarnings("unchecked")
+			List<TS> list = (List<TS>)o;
+			for ( TS ts : list ) {
+				if ( ts != null ) {
+					state.tsList.add ( ts );
+				}
+			}
+		}
+		o = objectListProvider.getObjectList ( TSEnsemble.class );
+		if ( o != null ) {
+			@SuppressWarnings("unchecked")
+			List<TSEnsemble> list = (List<TSEnsemble>)o;
+			for ( TSEnsemble tsEnsemble : list ) {
+				if ( tsEnsemble != null ) {
+					state.ensembleList.add ( tsEnsemble );
+				}
+			}
+		}
+	}
+	else if ( command.getCommandName().equalsIgnoreCase("Free") ) {
+		// Remove the time series that match the Free() parameters
+		PropList parameters = command.getCommandParameters();
+		TimeSeriesToProcess tsToProcess = TSCommandProcessorUtil.getTSMatchingTSListParameters(state.tsList,
+			new ArrayList<TSEnsemble>(), parameters.getValue("TSList"), parameters.getValue("TSID"),
+			parameters.getValue("TSPosition"), parameters.getValue("EnsembleID") );
+		int [] pos = tsToProcess.getTimeSeriesPositions();
+		for ( int ipos = pos.length - 1; ipos >= 0; ipos-- ) {
+			state.tsList.remove(pos[ipos]);
+		}
+	}
+	// Ensemble and table identifiers skip commented blocks
+	String commandString = command.toString();
+	if ( commandString.startsWith("/*") ) {
+		state.inComment = true;
+		return;
+	}
+	else if ( commandString.startsWith("*/") ) {
+		state.inComment = false;
+		return;
+	}
+	if ( state.inComment ) {
+		return;
+	}
+	if ( command instanceof ObjectListProvider ) {
+		ObjectListProvider objectListProvider = (ObjectListProvider)command;
+		Object o = objectListProvider.getObjectList ( TSEnsemble.class );
+		if ( o != null ) {
+			@SuppressWarnings("unchecked")
+			List<TSEnsemble> list = (List<TSEnsemble>)o;
+			for ( TSEnsemble tsEnsemble : list ) {
+				String id = tsEnsemble.getEnsembleID();
+				if ( (id != null) && !id.equals("") ) {
+					state.ensembleIDList.add ( id );
+				}
+			}
+		}
+		o = objectListProvider.getObjectList ( DataTable.class );
+		if ( o != null ) {
+			@SuppressWarnings("unchecked")
+			List<DataTable> list = (List<DataTable>)o;
+			for ( DataTable table : list ) {
+				String id = table.getTableID();
+				if ( (id != null) && !id.isEmpty() ) {
+					// Don't add if already in the list
+					boolean found = false;
+					for ( String tableID : state.tableIDList ) {
+						if ( id.equalsIgnoreCase(tableID) ) {
+							found = true;
+							break;
+						}
+					}
+					if ( !found ) {
+						state.tableIDList.add ( id );
+					}
+				}
+			}
+		}
+	}
+	else if ( command.getCommandName().equalsIgnoreCase("FreeTable") ) {
+		String TableID = command.getCommandParameters().getValue("TableID");
+		for ( int iTable = 0; iTable < state.tableIDList.size(); iTable++ ) {
+			if ( state.tableIDList.get(iTable).equalsIgnoreCase(TableID) ) {
+				state.tableIDList.remove(iTable--);
+			}
+		}
+	}
+}
+
+/**
+Handle the notification that commands were added, discarding results after the first added command.
+@param index0 index of the first command that was added
+@param index1 index of the last command that was added
+*/
+public void commandAdded ( int index0, int index1 )
+{
+	invalidate ( index0 );
+}
+
+/**
+Handle the notification that commands were changed, discarding results after the first changed command.
+@param index0 index of the first command that was changed
+@param index1 index of the last command that was changed
+*/
+public void commandChanged ( int index0, int index1 )
+{
+	invalidate ( index0 );
+}
+
+/**
+Handle the notification that commands were removed, discarding results after the first removed command.
+@param index0 index of the first command that was removed
+@param index1 index of the last command that was removed
+*/
+public void commandRemoved ( int index0, int index1 )
+{
+	invalidate ( index0 );
+}
+
+/**
+Return the ensembles from the commands before a position.
+@param pos position (0+) of the command, which is not included
+@return a new list of ensembles
+*/
+public List<TSEnsemble> getEnsembleListBefore ( int pos )
+{
+	return new ArrayList<TSEnsemble>(getStateBefore(pos).ensembleList);
+}
+
+/**
+Return the ensemble identifiers from the commands before a position.
+@param pos position (0+) of the command, which is not included
+@return a new list of ensemble identifiers
+*/
+public List<String> getEnsembleIDListBefore ( int pos )
+{
+	return new ArrayList<String>(getStateBefore(pos).ensembleIDList);
+}
+
+/**
+Return the accumulated state for the commands before a position, updating the index as needed.
+The returned state must not be modified.
+*/
+private synchronized State getStateBefore ( int pos )
+{
+	List<Command> commandList = __processor.getCommands();
+	pos = Math.min ( pos, commandList.size() );
+	// Check for commands that were replaced or edited without notification
+	int nCheck = Math.min ( pos, __indexedCommandList.size() );
+	for ( int i = 0; i < nCheck; i++ ) {
+		Command command = commandList.get(i);
+		if ( (command != __indexedCommandList.get(i)) || !command.toString().equals(__indexedCommandStringList.get(i)) ) {
+			invalidate ( i );
+			break;
+		}
+	}
+	// Start from the nearest checkpoint and process the remaining commands, saving checkpoints
+	int iCheckpoint = Math.min ( pos/CHECKPOINT_INTERVAL, __checkpointList.size() - 1 );
+	State state = __checkpointList.get(iCheckpoint);
+	int iStart = iCheckpoint*CHECKPOINT_INTERVAL;
+	if ( iStart == pos ) {
+		return state;
+	}
+	state = state.copy();
+	for ( int i = iStart; i < pos; i++ ) {
+		Command command = commandList.get(i);
+		if ( i == __indexedCommandList.size() ) {
+			__indexedCommandList.add ( command );
+			__indexedCommandStringList.add ( command.toString() );
+		}
+		addCommand ( state, command );
+		if ( ((i + 1) % CHECKPOINT_INTERVAL) == 0 ) {
+			if ( ((i + 1)/CHECKPOINT_INTERVAL) == __checkpointList.size() ) {
+				__checkpointList.add ( state.copy() );
+			}
+		}
+	}
+	return state;
+}
+
+/**
+Return the table identifiers from the commands before a position.
+@param pos position (0+) of the command, which is not included
+@return a new list of table identifiers
+*/
+public List<String> getTableIDListBefore ( int pos )
+{
+	return new ArrayList<String>(getStateBefore(pos).tableIDList);
+}
+
+/**
+Return the time series from the commands before a position.
+@param pos position (0+) of the command, which is not included
+@return a new list of time series
+*/
+public List<TS> getTSListBefore ( int pos )
+{
+	return new ArrayList<TS>(getStateBefore(pos).tsList);
+}
+
+/**
+Discard results for commands at and after an index.
+@param index index (0+) of the first command that has changed
+*/
+public synchronized void invalidate ( int index )
+{
+	if ( index < 0 ) {
+		index = 0;
+	}
+	if ( index < __indexedCommandList.size() ) {
+		__indexedCommandList.subList(index, __indexedCommandList.size()).clear();
+		__indexedCommandStringList.subList(index, __indexedCommandStringList.size()).clear();
+	}
+	int nKeep = index/CHECKPOINT_INTERVAL + 1;
+	if ( nKeep < __checkpointList.size() ) {
+		__checkpointList.subList(nKeep, __checkpointList.size()).clear();
+	}
+}
+
+}
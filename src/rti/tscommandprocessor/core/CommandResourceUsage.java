@@ -0,0 +1,313 @@
+// CommandResourceUsage - CPU, memory allocation, garbage collection, and data counts for a command run
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import RTi.TS.TS;
+
+/**
+Resource usage for the last run of a command, used to supplement the CommandProfile (which only tracks
+wall clock time and total heap) so that ProfileCommands() can identify commands that use a lot of CPU or allocate
+a lot of memory.  CPU time and allocated bytes are for the thread that runs the command and are only available if
+supported by the Java virtual machine (otherwise -1 is returned).  Garbage collection counts and times are for the
+whole virtual machine and therefore include other threads when commands are run in parallel.
+The start() and end() methods must be called on the thread that runs the command.
+*/
+public class CommandResourceUsage
+{
+
+/**
+Thread management bean, used for CPU time.
+*/
+private static final ThreadMXBean __threadMXBean = ManagementFactory.getThreadMXBean();
+
+/**
+Whether thread CPU time is available.
+*/
+private static final boolean __cpuTimeSupported = isCpuTimeSupported();
+
+/**
+Whether thread allocated bytes are available.
+*/
+private static final boolean __allocatedBytesSupported = isAllocatedBytesSupported();
+
+/**
+Whether the resource usage was measured for the last run (end() was called after start()).
+*/
+private volatile boolean __measured = false;
+
+/**
+Thread CPU time at start and end of the run, nanoseconds.
+*/
+private long __startCpuTime = -1;
+private long __endCpuTime = -1;
+
+/**
+Thread allocated bytes at start and end of the run.
+*/
+private long __startAllocatedBytes = -1;
+private long __endAllocatedBytes = -1;
+
+/**
+Garbage collection count at start and end of the run.
+*/
+private long __startGcCount = 0;
+private long __endGcCount = 0;
+
+/**
+Garbage collection time at start and end of the run, milliseconds.
+*/
+private long __startGcTime = 0;
+private long __endGcTime = 0;
+
+/**
+Number of time series added by the command.
+*/
+private int __timeSeriesCount = 0;
+
+/**
+Number of data points in the time series added by the command.
+*/
+private long __dataPointCount = 0;
+
+/**
+Construct an empty instance.
+*/
+public CommandResourceUsage ()
+{
+}
+
+/**
+Indicate the end of the command run.
+*/
+public void end ()
+{
+	__endCpuTime = getThreadCpuTime();
+	__endAllocatedBytes = getThreadAllocatedBytes();
+	long [] gc = getGcCountAndTime();
+	__endGcCount = gc[0];
+	__endGcTime = gc[1];
+	__measured = true;
+}
+
+/**
+Return the number of bytes allocated by the thread running the command.
+@return the number of bytes allocated, or -1 if not available
+*/
+public long getAllocatedBytes ()
+{
+	if ( !__measured || (__startAllocatedBytes < 0) || (__endAllocatedBytes < 0) ) {
+		return -1;
+	}
+	return __endAllocatedBytes - __startAllocatedBytes;
+}
+
+/**
+Return the CPU time used by the thread running the command, milliseconds.
+@return the CPU time used, or -1 if not available
+*/
+public double getCpuTime ()
+{
+	if ( !__measured || (__startCpuTime < 0) || (__endCpuTime < 0) ) {
+		return -1.0;
+	}
+	return (__endCpuTime - __startCpuTime)/1000000.0;
+}
+
+/**
+Return the number of data points in the time series added by the command.
+@return the number of data points in the time series added by the command
+*/
+public long getDataPointCount ()
+{
+	return __dataPointCount;
+}
+
+/**
+Return the number of garbage collections that occurred while the command ran.
+@return the number of garbage collections, or -1 if not available
+*/
+public long getGcCount ()
+{
+	if ( !__measured ) {
+		return -1;
+	}
+	return __endGcCount - __startGcCount;
+}
+
+/**
+Return the total garbage collection count and time for all collectors.
+*/
+private static long [] getGcCountAndTime ()
+{
+	long count = 0;
+	long time = 0;
+	for ( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+		long c = bean.getCollectionCount();
+		if ( c > 0 ) {
+			count += c;
+		}
+		long t = bean.getCollectionTime();
+		if ( t > 0 ) {
+			time += t;
+		}
+	}
+	return new long[] { count, time };
+}
+
+/**
+Return the time spent in garbage collection while the command ran, milliseconds.
+@return the time spent in garbage collection, or -1 if not available
+*/
+public long getGcTime ()
+{
+	if ( !__measured ) {
+		return -1;
+	}
+	return __endGcTime - __startGcTime;
+}
+
+/**
+Return the bytes allocated by the current thread, or -1 if not available.
+*/
+private static long getThreadAllocatedBytes ()
+{
+	if ( !__allocatedBytesSupported ) {
+		return -1;
+	}
+	return ((com.sun.management.ThreadMXBean)__threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+}
+
+/**
+Return the CPU time for the current thread, nanoseconds, or -1 if not available.
+*/
+private static long getThreadCpuTime ()
+{
+	if ( !__cpuTimeSupported ) {
+		return -1;
+	}
+	return __threadMXBean.getCurrentThreadCpuTime();
+}
+
+/**
+Return the number of time series added by the command.
+@return the number of time series added by the command
+*/
+public int getTimeSeriesCount ()
+{
+	return __timeSeriesCount;
+}
+
+/**
+Determine whether thread allocated bytes are available, enabling if necessary.
+*/
+private static boolean isAllocatedBytesSupported ()
+{
+	try {
+		if ( !(__threadMXBean instanceof com.sun.management.ThreadMXBean) ) {
+			return false;
+		}
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)__threadMXBean;
+		if ( !bean.isThreadAllocatedMemorySupported() ) {
+			return false;
+		}
+		if ( !bean.isThreadAllocatedMemoryEnabled() ) {
+			bean.setThreadAllocatedMemoryEnabled(true);
+		}
+		return true;
+	}
+	catch ( Throwable e ) {
+		// Virtual machine does not provide the extended bean
+		return false;
+	}
+}
+
+/**
+Determine whether thread CPU time is available, enabling if necessary.
+*/
+private static boolean isCpuTimeSupported ()
+{
+	try {
+		if ( !__threadMXBean.isCurrentThreadCpuTimeSupported() ) {
+			return false;
+		}
+		if ( !__threadMXBean.isThreadCpuTimeEnabled() ) {
+			__threadMXBean.setThreadCpuTimeEnabled(true);
+		}
+		return true;
+	}
+	catch ( Exception e ) {
+		return false;
+	}
+}
+
+/**
+Indicate whether the resource usage was measured for the last run of the command.
+@return true if the resource usage was measured
+*/
+public boolean isMeasured ()
+{
+	return __measured;
+}
+
+/**
+Set the time series added by the command, by counting the time series in a list of results.
+@param tslist time series results list
+@param startPos position in the list of the first time series added by the command
+*/
+public void setTimeSeries ( List<TS> tslist, int startPos )
+{
+	int count = 0;
+	long dataPointCount = 0;
+	int size = tslist.size();
+	for ( int i = startPos; i < size; i++ ) {
+		TS ts = tslist.get(i);
+		if ( ts != null ) {
+			++count;
+			dataPointCount += ts.getDataSize();
+		}
+	}
+	__timeSeriesCount = count;
+	__dataPointCount = dataPointCount;
+}
+
+/**
+Indicate the start of the command run.
+*/
+public void start ()
+{
+	__measured = false;
+	__startCpuTime = getThreadCpuTime();
+	__startAllocatedBytes = getThreadAllocatedBytes();
+	long [] gc = getGcCountAndTime();
+	__startGcCount = gc[0];
+	__startGcTime = gc[1];
+	__timeSeriesCount = 0;
+	__dataPointCount = 0;
+}
+
+}
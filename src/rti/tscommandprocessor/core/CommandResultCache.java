@@ -0,0 +1,411 @@
+// CommandResultCache - cache of command results used to skip unchanged commands when commands are run again
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import RTi.TS.TS;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandLogRecord;
+import RTi.Util.IO.CommandPhaseType;
+import RTi.Util.IO.CommandStatus;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.FileGenerator;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Message.MessageUtil;
+import RTi.Util.String.StringDictionary;
+import RTi.Util.Table.DataTable;
+import RTi.Util.Time.DateTime;
+
+/**
+Cache of command results, used when commands are run with IncrementalRun=True so that commands that have not
+changed since the previous run are not run again (e.g., when editing the end of a command file that reads
+many time series from web services).
+Results are cached only for commands that implement CommandDependencyProvider and that declare resources
+indicating that the results depend only on the command parameters, processor properties, datastores, and input files,
+and that no output files are created.
+Currently only ReadTableFromDataStore (for SELECT queries, not stored procedures or other SQL, which may modify
+the database) and ReadUsgsNwisDaily implement CommandDependencyProvider, so only their results are cached.
+The cache key (fingerprint) is formed from the command string, the values of the properties used by the command,
+and the modification time and size of input files, so that a command is run again if any of these change.
+Datastore contents are assumed not to change between runs.
+<p>
+The requests that the command makes to add results to the processor are saved with copies of the results,
+and are replayed with new copies of the results so that commands that later modify the results do not modify the cache.
+The cache is owned by the TSCommandProcessor so that it persists between runs, and entries that were not used
+in a run are removed at the end of the run.
+*/
+class CommandResultCache
+{
+
+/**
+Processor properties that are used by commands as defaults without being declared as resources.
+*/
+private static final String [] __implicitPropertyNames = { "InputStart", "InputEnd", "IncludeMissingTS", "WorkingDir" };
+
+/**
+Results for a command that can be replayed.
+*/
+private static class CachedResult
+{
+	/**
+	Requests made by the command, with copies of the results.
+	*/
+	List<ParallelCommandRunner.DeferredRequest> requestList = new ArrayList<ParallelCommandRunner.DeferredRequest>();
+
+	/**
+	Run log records generated by the command.
+	*/
+	List<CommandLogRecord> logRecordList = new ArrayList<CommandLogRecord>();
+
+	/**
+	The run in which the result was last used, to remove unused results.
+	*/
+	int runCount = 0;
+}
+
+/**
+The processor that commands are run with.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Cached results, by command fingerprint.
+*/
+private Map<String,CachedResult> __cache = new HashMap<String,CachedResult>();
+
+/**
+Count of runs, incremented by startRun().
+*/
+private int __runCount = 0;
+
+/**
+Number of commands replayed from the cache in the current run.
+*/
+private int __replayCount = 0;
+
+/**
+Construct the cache for a processor.
+@param processor the processor that commands are run with
+*/
+CommandResultCache ( TSCommandProcessor processor )
+{
+	__processor = processor;
+}
+
+/**
+Clear all cached results.
+*/
+void clear ()
+{
+	__cache.clear();
+}
+
+/**
+Copy a request so that the result in the request can be replayed later.
+@param request the request as processed by the processor
+@return a copy of the request with a copy of the result, or null if the request cannot be copied
+*/
+private ParallelCommandRunner.DeferredRequest copyRequest ( ParallelCommandRunner.DeferredRequest request )
+{
+	PropList requestParams = new PropList ( "" );
+	if ( request.request.equalsIgnoreCase("AppendTimeSeries") ) {
+		Object o = request.requestParams.getContents ( "TS" );
+		if ( !(o instanceof TS) ) {
+			return null;
+		}
+		requestParams.setUsingObject ( "TS", ((TS)o).clone() );
+	}
+	else if ( request.request.equalsIgnoreCase("SetTable") ) {
+		Object o = request.requestParams.getContents ( "Table" );
+		if ( !(o instanceof DataTable) ) {
+			return null;
+		}
+		requestParams.setUsingObject ( "Table", copyTable((DataTable)o) );
+	}
+	else if ( request.request.equalsIgnoreCase("SetProperty") ) {
+		Object name = request.requestParams.getContents ( "PropertyName" );
+		Object value = request.requestParams.getContents ( "PropertyValue" );
+		if ( value instanceof DateTime ) {
+			value = new DateTime ( (DateTime)value );
+		}
+		else if ( (value != null) && !(value instanceof String) && !(value instanceof Number) && !(value instanceof Boolean) ) {
+			// Other objects may be modified after the command runs
+			return null;
+		}
+		requestParams.setUsingObject ( "PropertyName", name );
+		if ( value != null ) {
+			requestParams.setUsingObject ( "PropertyValue", value );
+		}
+		String SetNull = request.requestParams.getValue ( "SetNull" );
+		if ( SetNull != null ) {
+			requestParams.set ( "SetNull", SetNull );
+		}
+	}
+	else if ( request.request.equalsIgnoreCase("RemoveProperty") ) {
+		requestParams.setUsingObject ( "PropertyName", request.requestParams.getContents("PropertyName") );
+	}
+	else {
+		// Other requests (e.g., AppendEnsemble) share objects that cannot be copied independently
+		return null;
+	}
+	return new ParallelCommandRunner.DeferredRequest ( request.request, requestParams );
+}
+
+/**
+Copy a table, including all columns and rows.
+*/
+private DataTable copyTable ( DataTable table )
+{
+	String [] includeColumns = null;
+	String [] distinctColumns = null;
+	return table.createCopy ( table, table.getTableID(), includeColumns, distinctColumns,
+		new Hashtable<String,String>(), new Hashtable<String,String>(), new StringDictionary("",":",",") );
+}
+
+/**
+Indicate the end of a run, removing results that were not used in the run.
+*/
+void endRun ()
+{
+	String routine = getClass().getSimpleName() + ".endRun";
+	Iterator<CachedResult> it = __cache.values().iterator();
+	while ( it.hasNext() ) {
+		if ( it.next().runCount != __runCount ) {
+			it.remove();
+		}
+	}
+	Message.printStatus ( 2, routine, "Replayed " + __replayCount + " commands from cache, " +
+		__cache.size() + " command results are cached for the next run." );
+}
+
+/**
+Return the fingerprint for a command, used as the cache key.
+@param command the command to run
+@return the fingerprint, or null if the command results cannot be cached
+*/
+private String getFingerprint ( Command command )
+{
+	if ( !(command instanceof CommandDependencyProvider) || !(command instanceof CommandStatusProvider) ) {
+		return null;
+	}
+	CommandDependencyProvider provider = (CommandDependencyProvider)command;
+	List<String> inputList = provider.getCommandInputResources();
+	List<String> outputList = provider.getCommandOutputResources();
+	if ( (inputList == null) || (outputList == null) ) {
+		return null;
+	}
+	String filePrefix = CommandDependencyProvider.RESOURCE_FILE.toUpperCase();
+	for ( String resource : outputList ) {
+		if ( (resource != null) && resource.toUpperCase().startsWith(filePrefix) ) {
+			// Output files would not be created if the command was skipped
+			return null;
+		}
+	}
+	StringBuilder b = new StringBuilder ( command.toString() );
+	List<String> sortedInputList = new ArrayList<String>();
+	for ( String resource : inputList ) {
+		if ( resource != null ) {
+			sortedInputList.add ( resource );
+		}
+	}
+	Collections.sort ( sortedInputList, String.CASE_INSENSITIVE_ORDER );
+	String datastorePrefix = CommandDependencyProvider.RESOURCE_DATASTORE.toUpperCase();
+	String propertyPrefix = CommandDependencyProvider.RESOURCE_PROPERTY.toUpperCase();
+	for ( String resource : sortedInputList ) {
+		String resourceUpper = resource.toUpperCase();
+		b.append ( "\n" );
+		b.append ( resource );
+		if ( resourceUpper.startsWith(datastorePrefix) ) {
+			continue;
+		}
+		else if ( resourceUpper.startsWith(propertyPrefix) ) {
+			b.append ( "=" );
+			b.append ( getPropertyString(resource.substring(propertyPrefix.length())) );
+		}
+		else if ( resourceUpper.startsWith(filePrefix) ) {
+			File file = new File ( resource.substring(filePrefix.length()) );
+			b.append ( "=" );
+			b.append ( file.lastModified() );
+			b.append ( "," );
+			b.append ( file.length() );
+		}
+		else {
+			// Time series, tables, and ensembles may be modified by other commands
+			return null;
+		}
+	}
+	for ( String propertyName : __implicitPropertyNames ) {
+		b.append ( "\n" );
+		b.append ( propertyName );
+		b.append ( "=" );
+		b.append ( getPropertyString(propertyName) );
+	}
+	return b.toString();
+}
+
+/**
+Return a processor property value as a string, for the fingerprint.
+*/
+private String getPropertyString ( String propertyName )
+{
+	Object o = null;
+	try {
+		o = __processor.getPropContents ( propertyName );
+	}
+	catch ( Exception e ) {
+		o = null;
+	}
+	if ( o == null ) {
+		return "";
+	}
+	return o.toString();
+}
+
+/**
+Return the number of commands that were replayed from the cache in the current run.
+@return the number of commands that were replayed from the cache in the current run
+*/
+int getReplayCount ()
+{
+	return __replayCount;
+}
+
+/**
+Process requests made by a command, in order.
+@return true if all requests were processed without error
+*/
+private boolean processRequests ( List<ParallelCommandRunner.DeferredRequest> requestList, CommandStatus status,
+	int commandNumber )
+{	String routine = getClass().getSimpleName() + ".processRequests";
+	boolean ok = true;
+	for ( ParallelCommandRunner.DeferredRequest request : requestList ) {
+		try {
+			__processor.processRequest ( request.request, request.requestParams );
+		}
+		catch ( Exception e ) {
+			ok = false;
+			String message = "Error processing " + request.request + " request for command (" + e + ").";
+			Message.printWarning ( 2, MessageUtil.formatMessageTag("" + commandNumber, 1), routine, message );
+			status.addToLog(CommandPhaseType.RUN,
+				new CommandLogRecord(CommandStatusType.FAILURE, message, "See log file for details.") );
+		}
+	}
+	return ok;
+}
+
+/**
+Run a command, replaying the results from the cache if the command has not changed since it was last run.
+If the results are not cached, the command is run and the results are cached if the command is successful.
+@param command the command to run
+@param commandNumber the command number (1+) for messages
+@exception Exception if the command throws an exception
+*/
+void runCommand ( Command command, int commandNumber )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".runCommand";
+	String fingerprint = getFingerprint ( command );
+	if ( fingerprint == null ) {
+		command.runCommand ( commandNumber );
+		return;
+	}
+	CommandStatus status = ((CommandStatusProvider)command).getCommandStatus();
+	CachedResult cachedResult = __cache.get ( fingerprint );
+	if ( cachedResult != null ) {
+		// Replay copies of the results so that the cached results are not modified by later commands
+		List<ParallelCommandRunner.DeferredRequest> requestList = new ArrayList<ParallelCommandRunner.DeferredRequest>();
+		for ( ParallelCommandRunner.DeferredRequest request : cachedResult.requestList ) {
+			requestList.add ( copyRequest(request) );
+		}
+		for ( CommandLogRecord logRecord : cachedResult.logRecordList ) {
+			status.addToLog ( CommandPhaseType.RUN, logRecord );
+		}
+		processRequests ( requestList, status, commandNumber );
+		status.refreshPhaseSeverity(CommandPhaseType.RUN,CommandStatusType.SUCCESS);
+		cachedResult.runCount = __runCount;
+		++__replayCount;
+		Message.printStatus ( 2, routine, "Command has not changed since the previous run - replayed " +
+			requestList.size() + " results from cache for command " + commandNumber + "." );
+		return;
+	}
+	// Run the command, recording the requests as they are processed so that they can be copied after the command runs.
+	// The requests are processed when made, as for any sequential run, so that the command sees its own results.
+	int logSizeBefore = status.getCommandLog(CommandPhaseType.RUN).size();
+	List<ParallelCommandRunner.DeferredRequest> requestList = new ArrayList<ParallelCommandRunner.DeferredRequest>();
+	__processor.setRecordedRequestList ( requestList );
+	try {
+		command.runCommand ( commandNumber );
+	}
+	finally {
+		__processor.setRecordedRequestList ( null );
+	}
+	if ( command instanceof FileGenerator ) {
+		List<File> list = ((FileGenerator)command).getGeneratedFileList();
+		if ( (list != null) && (list.size() > 0) ) {
+			return;
+		}
+	}
+	// Only cache results if the command was successful, so that problems are reported on the next run
+	List<CommandLogRecord> logList = status.getCommandLog(CommandPhaseType.RUN);
+	if ( logList.size() < logSizeBefore ) {
+		// Command cleared the log
+		logSizeBefore = 0;
+	}
+	cachedResult = new CachedResult();
+	for ( int i = logSizeBefore; i < logList.size(); i++ ) {
+		CommandLogRecord logRecord = logList.get(i);
+		if ( logRecord.getSeverity().greaterThanOrEqualTo(CommandStatusType.WARNING) ) {
+			return;
+		}
+		cachedResult.logRecordList.add ( logRecord );
+	}
+	for ( ParallelCommandRunner.DeferredRequest request : requestList ) {
+		ParallelCommandRunner.DeferredRequest requestCopy = copyRequest ( request );
+		if ( requestCopy == null ) {
+			return;
+		}
+		cachedResult.requestList.add ( requestCopy );
+	}
+	cachedResult.runCount = __runCount;
+	__cache.put ( fingerprint, cachedResult );
+}
+
+/**
+Indicate the start of a run.
+*/
+void startRun ()
+{
+	++__runCount;
+	__replayCount = 0;
+}
+
+}
@@ -0,0 +1,397 @@
+// DateTimeColumnParser - date/time parser for a column of strings that share one format
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.Arrays;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeParser;
+
+/**
+Date/time parser for a column of date/time strings that share one format, as read row by row
+by ReadDelimitedFile() and TableToTimeSeries().
+The format is compiled once into fixed positions for year, month, day, hour, minute, and second,
+either from a C-style DateTimeFormat (e.g., "C:%Y-%m-%d %H:%M") containing only those specifiers and literal characters,
+or, if no format is specified, from the first string if it has the form YYYY-MM, YYYY-MM-DD,
+YYYY-MM-DD hh, YYYY-MM-DD hh:mm, or YYYY-MM-DD hh:mm:ss.
+Strings that match the compiled format are parsed directly from the characters into a copy of the first parsed DateTime,
+which provides the precision and other settings, and parts in the leading characters that are the same as the
+previous string (typically the day or hour) are not parsed again.
+A string that is the same as the previous string is not parsed.
+<p>
+The first string that matches the compiled format is parsed with DateTimeParser or DateTime.parse()
+and the compiled format is only used if the results agree.
+Strings that do not match the compiled format are also parsed with DateTimeParser or DateTime.parse(),
+so that results and errors are always the same as without this class.
+A parser is not thread-safe.
+*/
+public class DateTimeColumnParser
+{
+
+/**
+Compiled part types.
+*/
+private static final int YEAR = 0;
+private static final int MONTH = 1;
+private static final int DAY = 2;
+private static final int HOUR = 3;
+private static final int MINUTE = 4;
+private static final int SECOND = 5;
+
+/**
+Format for strings without a DateTimeFormat, truncated to the length of the string.
+*/
+private static final String ISO_FORMAT = "%Y-%m-%d %H:%M:%S";
+
+/**
+Parser for the DateTimeFormat, or null if DateTime.parse() is used.
+*/
+private DateTimeParser __dateTimeParser = null;
+
+/**
+Indicate whether the compiled format has been determined.
+*/
+private boolean __compiled = false;
+
+/**
+Length of strings that match the compiled format, or -1 if strings are always parsed with the general parser.
+*/
+private int __length = -1;
+
+/**
+Compiled part types, start positions, and widths, in order of position.
+*/
+private int [] __partType = null;
+private int [] __partStart = null;
+private int [] __partWidth = null;
+
+/**
+Literal characters and their positions in the compiled format.
+*/
+private char [] __literal = null;
+private int [] __literalPos = null;
+
+/**
+DateTime that provides the precision and other settings for compiled results, or null if not yet available.
+*/
+private DateTime __template = null;
+
+/**
+The previous string that was parsed.
+*/
+private String __lastString = null;
+
+/**
+The result for the previous string.
+*/
+private DateTime __lastResult = null;
+
+/**
+Indicate whether the previous result was set from the compiled format, in which case __lastParts are the parts
+and __lastResult can be reset from the compiled format.
+*/
+private boolean __lastCompiled = false;
+
+/**
+Parts for the previous string, in compiled order.
+*/
+private int [] __lastParts = null;
+
+/**
+Parts for the current string, in compiled order.
+*/
+private int [] __parts = null;
+
+/**
+Construct a parser.
+@param dateTimeFormat the date/time format for DateTimeParser (e.g., "C:%Y-%m-%d"),
+or null or blank to use DateTime.parse()
+*/
+public DateTimeColumnParser ( String dateTimeFormat )
+{
+	if ( (dateTimeFormat != null) && !dateTimeFormat.trim().equals("") ) {
+		__dateTimeParser = new DateTimeParser ( dateTimeFormat );
+		if ( dateTimeFormat.regionMatches(true, 0, "C:", 0, 2) ) {
+			compile ( dateTimeFormat.substring(2) );
+		}
+		__compiled = true;
+	}
+}
+
+/**
+Compile a C-style format containing only %Y, %m, %d, %H, %M, %S and literal characters.
+If the format contains other specifiers, strings are always parsed with the general parser.
+*/
+private void compile ( String format )
+{
+	int len = format.length();
+	int partCount = 0;
+	int literalCount = 0;
+	int [] partType = new int[len];
+	int [] partStart = new int[len];
+	int [] partWidth = new int[len];
+	char [] literal = new char[len];
+	int [] literalPos = new int[len];
+	int pos = 0;
+	for ( int i = 0; i < len; i++ ) {
+		char c = format.charAt(i);
+		if ( c != '%' ) {
+			literal[literalCount] = c;
+			literalPos[literalCount++] = pos++;
+			continue;
+		}
+		if ( ++i == len ) {
+			return;
+		}
+		int type;
+		int width = 2;
+		switch ( format.charAt(i) ) {
+			case 'Y': type = YEAR; width = 4; break;
+			case 'm': type = MONTH; break;
+			case 'd': type = DAY; break;
+			case 'H': type = HOUR; break;
+			case 'M': type = MINUTE; break;
+			case 'S': type = SECOND; break;
+			default: return; // Other specifiers are not compiled
+		}
+		for ( int j = 0; j < partCount; j++ ) {
+			if ( partType[j] == type ) {
+				return;
+			}
+		}
+		partType[partCount] = type;
+		partStart[partCount] = pos;
+		partWidth[partCount++] = width;
+		pos += width;
+	}
+	if ( partCount == 0 ) {
+		return;
+	}
+	__length = pos;
+	__partType = Arrays.copyOf ( partType, partCount );
+	__partStart = Arrays.copyOf ( partStart, partCount );
+	__partWidth = Arrays.copyOf ( partWidth, partCount );
+	__literal = Arrays.copyOf ( literal, literalCount );
+	__literalPos = Arrays.copyOf ( literalPos, literalCount );
+	__parts = new int[partCount];
+	__lastParts = new int[partCount];
+}
+
+/**
+Return the number of days in a month.
+*/
+private static int getDaysInMonth ( int year, int month )
+{
+	if ( month == 2 ) {
+		return ((year%4 == 0) && ((year%100 != 0) || (year%400 == 0))) ? 29 : 28;
+	}
+	return ((month == 4) || (month == 6) || (month == 9) || (month == 11)) ? 30 : 31;
+}
+
+/**
+Parse a date/time string.
+@param dateTime if non-null and the result of the previous call, the instance is reused for the result,
+which is more efficient when iterating through raw data and the result is used before the next call;
+otherwise a new DateTime is returned
+@param s the string to parse
+@return the parsed DateTime
+@exception Exception if the string cannot be parsed, the same as DateTimeParser.parse() or DateTime.parse()
+*/
+public DateTime parse ( DateTime dateTime, String s )
+throws Exception
+{
+	boolean reuse = (dateTime != null) && (dateTime == __lastResult);
+	if ( (__lastResult != null) && (s != null) && s.equals(__lastString) ) {
+		// Same as the previous string
+		return reuse ? dateTime : new DateTime(__lastResult);
+	}
+	if ( !__compiled && (s != null) ) {
+		// No format so compile from the first string if it is a simple ISO date/time
+		__compiled = true;
+		int len = s.length();
+		if ( (len == 7) || (len == 10) || (len == 13) || (len == 16) || (len == 19) ) {
+			compile ( ISO_FORMAT.substring(0, isoFormatLength(len)) );
+		}
+	}
+	if ( (__template != null) && parseParts(s) ) {
+		DateTime result = (reuse && __lastCompiled) ? dateTime : new DateTime(__template);
+		setParts ( result );
+		remember ( s, result, true );
+		return result;
+	}
+	DateTime result = null;
+	if ( __dateTimeParser != null ) {
+		result = __dateTimeParser.parse((reuse ? dateTime : null), s);
+	}
+	else {
+		result = DateTime.parse(s);
+	}
+	boolean compiled = false;
+	if ( (__template == null) && (__length > 0) && parseParts(s) ) {
+		if ( partsMatch(result) ) {
+			// Compiled format agrees with the general parser
+			__template = new DateTime(result);
+			compiled = true;
+		}
+		else {
+			// Always use the general parser
+			__length = -1;
+		}
+	}
+	remember ( s, result, compiled );
+	return result;
+}
+
+/**
+Return the length of the ISO format for a string length.
+*/
+private int isoFormatLength ( int len )
+{
+	switch ( len ) {
+		case 7: return 5; // %Y-%m
+		case 10: return 8; // %Y-%m-%d
+		case 13: return 11; // %Y-%m-%d %H
+		case 16: return 14; // %Y-%m-%d %H:%M
+		default: return 17; // %Y-%m-%d %H:%M:%S
+	}
+}
+
+/**
+Parse the parts of a string using the compiled format, reusing parts that are in the same leading characters
+as the previous string.
+@return true if the string matches the compiled format and the parts are valid
+*/
+private boolean parseParts ( String s )
+{
+	if ( (s == null) || (__length < 0) || (s.length() != __length) ) {
+		return false;
+	}
+	// Determine how many leading characters are the same as the previous compiled string
+	int same = 0;
+	if ( __lastCompiled ) {
+		String last = __lastString;
+		while ( (same < __length) && (s.charAt(same) == last.charAt(same)) ) {
+			++same;
+		}
+	}
+	for ( int i = 0; i < __literal.length; i++ ) {
+		if ( (__literalPos[i] >= same) && (s.charAt(__literalPos[i]) != __literal[i]) ) {
+			return false;
+		}
+	}
+	int year = 0, month = 1, day = 1;
+	for ( int i = 0; i < __partType.length; i++ ) {
+		int start = __partStart[i];
+		int end = start + __partWidth[i];
+		int value = 0;
+		if ( end <= same ) {
+			value = __lastParts[i];
+		}
+		else {
+			for ( int pos = start; pos < end; pos++ ) {
+				char c = s.charAt(pos);
+				if ( (c < '0') || (c > '9') ) {
+					return false;
+				}
+				value = value*10 + (c - '0');
+			}
+			switch ( __partType[i] ) {
+				case MONTH: if ( (value < 1) || (value > 12) ) { return false; } break;
+				case DAY: if ( value < 1 ) { return false; } break;
+				case HOUR: if ( value > 23 ) { return false; } break;
+				case MINUTE: case SECOND: if ( value > 59 ) { return false; } break;
+			}
+		}
+		switch ( __partType[i] ) {
+			case YEAR: year = value; break;
+			case MONTH: month = value; break;
+			case DAY: day = value; break;
+		}
+		__parts[i] = value;
+	}
+	if ( day > getDaysInMonth(year, month) ) {
+		return false;
+	}
+	return true;
+}
+
+/**
+Check whether the parsed parts are the same as a DateTime from the general parser.
+*/
+private boolean partsMatch ( DateTime dt )
+{
+	for ( int i = 0; i < __partType.length; i++ ) {
+		int value;
+		switch ( __partType[i] ) {
+			case YEAR: value = dt.getYear(); break;
+			case MONTH: value = dt.getMonth(); break;
+			case DAY: value = dt.getDay(); break;
+			case HOUR: value = dt.getHour(); break;
+			case MINUTE: value = dt.getMinute(); break;
+			default: value = dt.getSecond(); break;
+		}
+		if ( value != __parts[i] ) {
+			return false;
+		}
+	}
+	return true;
+}
+
+/**
+Remember the string and result for the next call.
+*/
+private void remember ( String s, DateTime result, boolean compiled )
+{
+	__lastString = s;
+	__lastResult = result;
+	__lastCompiled = compiled;
+	if ( compiled ) {
+		int [] temp = __lastParts;
+		__lastParts = __parts;
+		__parts = temp;
+	}
+}
+
+/**
+Set the parsed parts in a DateTime that was copied from the template.
+*/
+private void setParts ( DateTime dt )
+{
+	// Set the day last so that intermediate dates are valid
+	int day = dt.getDay();
+	dt.setDay ( 1 );
+	for ( int i = 0; i < __partType.length; i++ ) {
+		switch ( __partType[i] ) {
+			case YEAR: dt.setYear ( __parts[i] ); break;
+			case MONTH: dt.setMonth ( __parts[i] ); break;
+			case DAY: day = __parts[i]; break;
+			case HOUR: dt.setHour ( __parts[i] ); break;
+			case MINUTE: dt.setMinute ( __parts[i] ); break;
+			case SECOND: dt.setSecond ( __parts[i] ); break;
+		}
+	}
+	dt.setDay ( day );
+}
+
+}
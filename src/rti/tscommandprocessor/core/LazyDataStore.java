@@ -0,0 +1,226 @@
+// LazyDataStore - datastore that is configured at startup but is not opened until first used
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import RTi.DMI.DMI;
+import RTi.DMI.DatabaseDataStore;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import riverside.datastore.DataStore;
+import riverside.datastore.DataStoreFactory;
+
+/**
+Datastore that has been configured but is not opened (e.g., database connection, web service metadata read)
+until it is first used, registered with TSCommandProcessor.setLazyDataStore().
+This allows an application to configure many datastores at startup without waiting for
+slow or unreachable datastores that are not used by the commands being run.
+The datastore is opened using its DataStoreFactory, either when requested by name
+(TSCommandProcessor.getDataStoreForName()) or in the background before commands are run,
+for datastores that are referenced by the commands.
+The datastore is only opened once, even if requested by multiple threads.
+If the datastore cannot be opened, opening is tried again when requested,
+but not until RETRY_INTERVAL_MS after the failure so that requests for an unreachable datastore do not each wait.
+*/
+public class LazyDataStore
+{
+
+/**
+Time after a failed open before opening is tried again, milliseconds.
+*/
+public static final long RETRY_INTERVAL_MS = 60000;
+
+/**
+Datastore name.
+*/
+private String __name = null;
+
+/**
+Factory used to open the datastore.
+*/
+private DataStoreFactory __factory = null;
+
+/**
+Datastore configuration properties, passed to the factory.
+*/
+private PropList __props = null;
+
+/**
+The opened datastore, or null if not opened.
+*/
+private DataStore __dataStore = null;
+
+/**
+Indicates whether the datastore has been opened.
+*/
+private boolean __opened = false;
+
+/**
+Time of the last failed open (System.currentTimeMillis()), or 0 if opening has not failed.
+*/
+private long __openFailedTime = 0;
+
+/**
+Time to open the datastore, milliseconds.
+*/
+private long __openTimeMs = 0;
+
+/**
+Construct a lazy datastore.
+@param name datastore name, as used in commands
+@param factory factory used to open the datastore
+@param props datastore configuration properties, passed to the factory (typically from the datastore configuration file)
+*/
+public LazyDataStore ( String name, DataStoreFactory factory, PropList props )
+{
+	__name = name;
+	__factory = factory;
+	__props = props;
+}
+
+/**
+Close the datastore if it has been opened, for a datastore that is only used by one processor
+(e.g., a copy of a datastore configuration for a processor that runs at the same time as other processors).
+Database connections are closed.  The datastore will be opened again if requested.
+*/
+public synchronized void close ()
+{	String routine = getClass().getSimpleName() + ".close";
+	if ( !__opened ) {
+		return;
+	}
+	if ( __dataStore instanceof DatabaseDataStore ) {
+		try {
+			DMI dmi = ((DatabaseDataStore)__dataStore).getDMI();
+			if ( dmi != null ) {
+				dmi.close();
+			}
+		}
+		catch ( Exception e ) {
+			Message.printWarning ( 3, routine, "Error closing datastore \"" + __name + "\" (" + e + ")." );
+		}
+	}
+	__dataStore = null;
+	__opened = false;
+}
+
+/**
+Return a new instance with the same configuration, which has not been opened,
+used to open a separate datastore instance for a processor that runs at the same time as other processors.
+@return a new instance with the same name, factory, and properties
+*/
+public LazyDataStore copyConfig ()
+{
+	return new LazyDataStore ( __name, __factory, __props );
+}
+
+/**
+Return the factory used to open the datastore.
+@return the factory used to open the datastore
+*/
+public DataStoreFactory getFactory ()
+{
+	return __factory;
+}
+
+/**
+Return the datastore name.
+@return the datastore name
+*/
+public String getName ()
+{
+	return __name;
+}
+
+/**
+Return the datastore configuration properties.
+@return the datastore configuration properties
+*/
+public PropList getProps ()
+{
+	return __props;
+}
+
+/**
+Return the time to open the datastore, milliseconds.
+@return the time to open the datastore, milliseconds, or 0 if not opened
+*/
+public long getOpenTimeMs ()
+{
+	return __openTimeMs;
+}
+
+/**
+Indicate whether the datastore has been opened.
+@return true if the datastore has been opened, false if not opened or opening failed
+*/
+public synchronized boolean isOpened ()
+{
+	return __opened;
+}
+
+/**
+Open the datastore if not already opened, waiting if another thread is opening the datastore.
+After opening, the datastore status is checked to validate the connection.
+@return the datastore, or null if the datastore could not be created
+(including if opening failed less than RETRY_INTERVAL_MS ago)
+*/
+public synchronized DataStore open ()
+{	String routine = getClass().getSimpleName() + ".open";
+	if ( __opened ) {
+		return __dataStore;
+	}
+	long startTime = System.currentTimeMillis();
+	if ( (__openFailedTime > 0) && ((startTime - __openFailedTime) < RETRY_INTERVAL_MS) ) {
+		// Failed recently so don't try again yet
+		return null;
+	}
+	try {
+		Message.printStatus ( 2, routine, "Opening datastore \"" + __name + "\" on first use." );
+		__dataStore = __factory.create ( __props );
+	}
+	catch ( Exception e ) {
+		Message.printWarning ( 3, routine, "Error opening datastore \"" + __name + "\" (" + e + ")." );
+		Message.printWarning ( 3, routine, e );
+		__dataStore = null;
+	}
+	__openTimeMs = System.currentTimeMillis() - startTime;
+	if ( __dataStore == null ) {
+		// Allow opening to be tried again
+		__openFailedTime = System.currentTimeMillis();
+	}
+	else {
+		__opened = true;
+		__openFailedTime = 0;
+		if ( __dataStore.getStatus() != 0 ) {
+			// The datastore is still returned so that commands can provide specific messages
+			Message.printWarning ( 3, routine, "Datastore \"" + __name + "\" was opened but has status " +
+				__dataStore.getStatus() + " - connection may not be valid." );
+		}
+		else {
+			Message.printStatus ( 2, routine, "Opened datastore \"" + __name + "\" in " + __openTimeMs + " ms." );
+		}
+	}
+	return __dataStore;
+}
+
+}
@@ -0,0 +1,66 @@
+// LazyTimeSeriesRead - information needed to read time series data that was deferred when the header was read
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import RTi.Util.Time.DateTime;
+
+/**
+Information needed to read time series data that was deferred when only the time series header was read,
+used by TSEngine when LazyTimeSeriesRead=True.  The same identifier and read period are used to read the data
+so that the result is the same as if the data had been read with the header.
+*/
+class LazyTimeSeriesRead
+{
+
+/**
+Time series identifier, including input type and name, as passed to readTimeSeries0().
+*/
+String tsidentString;
+
+/**
+Read start, or null to read all data.
+*/
+DateTime readStart;
+
+/**
+Read end, or null to read all data.
+*/
+DateTime readEnd;
+
+/**
+Full period flag as passed to readTimeSeries().
+*/
+boolean fullPeriod;
+
+/**
+Construct an instance, copying the dates because the processor input period may change before the data are read.
+*/
+LazyTimeSeriesRead ( String tsidentString, DateTime readStart, DateTime readEnd, boolean fullPeriod )
+{
+	this.tsidentString = tsidentString;
+	this.readStart = (readStart == null) ? null : new DateTime(readStart);
+	this.readEnd = (readEnd == null) ? null : new DateTime(readEnd);
+	this.fullPeriod = fullPeriod;
+}
+
+}
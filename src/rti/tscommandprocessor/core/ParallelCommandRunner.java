@@ -0,0 +1,685 @@
+// ParallelCommandRunner - run segments of independent commands concurrently
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import rti.tscommandprocessor.commands.util.Comment_Command;
+
+import RTi.TS.TS;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandException;
+import RTi.Util.IO.CommandLogRecord;
+import RTi.Util.IO.CommandPhaseType;
+import RTi.Util.IO.CommandProfile;
+import RTi.Util.IO.CommandStatus;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.FileGenerator;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Message.MessageUtil;
+import RTi.Util.String.StringUtil;
+
+/**
+Run segments of consecutive commands concurrently, used by TSEngine.processCommands() when the
+MaxParallelCommands property is greater than 1.
+A segment contains commands that implement CommandDependencyProvider, and comments.
+A dependency graph is built from the declared inputs and outputs of the commands and each command is run on
+a bounded thread pool as soon as the commands that it depends on have been committed.
+Requests that modify processor results are deferred while a command is running and are applied (committed)
+in command order, so that the results are the same as if the commands had been run sequentially.
+Initialization, listener notification, and error handling are done on the calling thread, in command order.
+A command that declares a datastore as an output uses the datastore exclusively (e.g., a database connection
+that is not thread-safe) and is not run at the same time as other commands that use the datastore.
+Datastores that are only declared as inputs (e.g., stateless web services) can be used by commands at the same time.
+*/
+class ParallelCommandRunner
+{
+
+/**
+Request that has been deferred while a command is run in parallel.
+*/
+static class DeferredRequest
+{
+	/**
+	Request name, as passed to processRequest().
+	*/
+	String request;
+
+	/**
+	Request parameters, as passed to processRequest().
+	*/
+	PropList requestParams;
+
+	/**
+	Construct a deferred request.
+	*/
+	DeferredRequest ( String request, PropList requestParams )
+	{
+		this.request = request;
+		this.requestParams = requestParams;
+	}
+}
+
+/**
+Data for a command in the segment being run.
+*/
+private static class SegmentCommand
+{
+	/**
+	The command.
+	*/
+	Command command;
+
+	/**
+	Index of the command in the full command list.
+	*/
+	int index;
+
+	/**
+	Input resources (upper case), or null if not known, in which case the command depends on all earlier commands.
+	*/
+	Set<String> inputs = null;
+
+	/**
+	Output resources (upper case), or null if not known, in which case all later commands depend on the command.
+	*/
+	Set<String> outputs = null;
+
+	/**
+	Datastore resources (upper case) from the inputs and outputs.
+	*/
+	Set<String> dataStores = new HashSet<String>();
+
+	/**
+	Datastore resources (upper case) from the outputs, which are used exclusively.
+	*/
+	Set<String> exclusiveDataStores = new HashSet<String>();
+
+	/**
+	Earlier commands in the segment that must be committed before the command can be run.
+	*/
+	List<SegmentCommand> dependencies = new ArrayList<SegmentCommand>();
+
+	/**
+	Requests that were deferred while the command was running.
+	*/
+	List<DeferredRequest> deferredRequestList = new ArrayList<DeferredRequest>();
+
+	/**
+	Whether the command needs to be run (false for comments and commands that failed initialization).
+	*/
+	boolean run = true;
+
+	/**
+	Whether the command has been submitted to the thread pool.
+	*/
+	boolean submitted = false;
+
+	/**
+	Whether the command is done running (or did not need to run).
+	*/
+	boolean done = false;
+
+	/**
+	Whether the command has been committed.
+	*/
+	boolean committed = false;
+
+	/**
+	Exception from initializing or running the command.
+	*/
+	Exception exception = null;
+
+	/**
+	Error from running the command (e.g., out of memory).
+	*/
+	Error error = null;
+
+	/**
+	Construct the data for a command.
+	*/
+	SegmentCommand ( Command command, int index )
+	{
+		this.command = command;
+		this.index = index;
+	}
+}
+
+/**
+The processor that is running the commands.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Maximum number of commands to run at the same time.
+*/
+private int __maxThreads = 1;
+
+/**
+Lock used to serialize processor requests while a segment is being run.
+*/
+private Object __lock = new Object();
+
+/**
+Count of errors for commands run by this runner.
+*/
+private int __errorCount = 0;
+
+/**
+Total run time for commands run by this runner, milliseconds.
+*/
+private long __runtimeTotal = 0;
+
+/**
+Construct a runner.
+@param processor the processor that is running the commands
+@param maxThreads the maximum number of commands to run at the same time
+*/
+ParallelCommandRunner ( TSCommandProcessor processor, int maxThreads )
+{
+	__processor = processor;
+	__maxThreads = maxThreads;
+}
+
+/**
+Add the datastore resources from a set of resources to the datastore set.
+*/
+private void addDataStores ( Set<String> resources, Set<String> dataStores )
+{
+	if ( resources == null ) {
+		return;
+	}
+	String prefix = CommandDependencyProvider.RESOURCE_DATASTORE.toUpperCase();
+	for ( String resource : resources ) {
+		if ( resource.startsWith(prefix) ) {
+			dataStores.add ( resource );
+		}
+	}
+}
+
+/**
+Apply the deferred requests for a command and complete the processing of the command, in command order.
+*/
+private void commit ( SegmentCommand sc, int size, List<File> outputFileList )
+{	String routine = getClass().getSimpleName() + ".commit";
+	Command command = sc.command;
+	CommandStatus commandStatus = null;
+	if ( command instanceof CommandStatusProvider ) {
+		commandStatus = ((CommandStatusProvider)command).getCommandStatus();
+	}
+	String commandTag = "" + (sc.index + 1);
+	if ( sc.run ) {
+		synchronized ( __lock ) {
+			for ( DeferredRequest request : sc.deferredRequestList ) {
+				try {
+					__processor.processRequest ( request.request, request.requestParams );
+				}
+				catch ( Exception e ) {
+					String message = "Error processing " + request.request + " request for command (" + e + ").";
+					Message.printWarning ( 2, MessageUtil.formatMessageTag(commandTag,++__errorCount), routine, message );
+					if ( commandStatus != null ) {
+						commandStatus.addToLog(CommandPhaseType.RUN,
+							new CommandLogRecord(CommandStatusType.FAILURE, message, "See log file for details.") );
+					}
+				}
+			}
+		}
+		if ( (sc.exception == null) && (sc.error == null) && (command instanceof FileGenerator) ) {
+			List<File> list = ((FileGenerator)command).getGeneratedFileList();
+			if ( list != null ) {
+				outputFileList.addAll(list);
+			}
+		}
+	}
+	if ( sc.exception != null ) {
+		String message;
+		if ( sc.exception instanceof CommandException ) {
+			// Includes warnings - the command will have set its status
+			message = "Error processing command - unable to complete command (" + sc.exception + ").";
+		}
+		else {
+			message = "Unexpected error processing command - unable to complete command (" + sc.exception + ").";
+			if ( commandStatus != null ) {
+				commandStatus.addToLog(CommandPhaseType.RUN,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						"Unexpected exception \"" + sc.exception.getMessage() + "\"", "See log file for details.") );
+			}
+			Message.printWarning ( 3, routine, sc.exception );
+		}
+		Message.printWarning ( 2, MessageUtil.formatMessageTag(commandTag,++__errorCount), routine, message );
+	}
+	else if ( sc.error != null ) {
+		String message;
+		String recommendation;
+		if ( sc.error instanceof OutOfMemoryError ) {
+			message = "The command processor ran out of memory. (" + sc.error + ").";
+			recommendation = "Try increasing JRE memory with -Xmx or reducing MaxParallelCommands.";
+		}
+		else {
+			message = "Unexpected error processing command - unable to complete command (" + sc.error + ").";
+			recommendation = "See log file for details.";
+		}
+		Message.printWarning ( 2, MessageUtil.formatMessageTag(commandTag,++__errorCount), routine, message );
+		if ( commandStatus != null ) {
+			commandStatus.addToLog(CommandPhaseType.RUN,
+				new CommandLogRecord(CommandStatusType.FAILURE, message, recommendation) );
+		}
+	}
+	sc.committed = true;
+	__processor.notifyCommandProcessorListenersOfCommandCompleted ( sc.index, size, command );
+	CommandProfile commandProfile = command.getCommandProfile(CommandPhaseType.RUN);
+	Message.printStatus ( 2, "",
+		"<- Done processing command \"" + command.toString().trim() + "\" (" +  (sc.index + 1) + " of " + size + " commands, " +
+		StringUtil.formatString(commandProfile.getRunTime(),"%d") + " ms runtime)" );
+	__runtimeTotal += commandProfile.getRunTime();
+}
+
+/**
+Indicate whether all the commands that a command depends on have been committed.
+*/
+private boolean dependenciesCommitted ( SegmentCommand sc )
+{
+	for ( SegmentCommand dependency : sc.dependencies ) {
+		if ( !dependency.committed ) {
+			return false;
+		}
+	}
+	return true;
+}
+
+/**
+Return the end of the segment of commands, starting at a position, that can be run in parallel.
+@param commandList the full list of commands being processed
+@param start the index of the first command in the segment
+@return the index after the last command in the segment, or start if there are not at least
+two commands starting at the position that can be run in parallel
+*/
+int findSegmentEnd ( List<Command> commandList, int start )
+{
+	int size = commandList.size();
+	int end = start;
+	int count = 0;
+	for ( int i = start; i < size; i++ ) {
+		Command command = commandList.get(i);
+		if ( command instanceof Comment_Command ) {
+			end = i + 1;
+			continue;
+		}
+		if ( !(command instanceof CommandDependencyProvider) ) {
+			break;
+		}
+		CommandDependencyProvider provider = (CommandDependencyProvider)command;
+		if ( (provider.getCommandInputResources() == null) || (provider.getCommandOutputResources() == null) ) {
+			break;
+		}
+		++count;
+		end = i + 1;
+	}
+	if ( count < 2 ) {
+		return start;
+	}
+	return end;
+}
+
+/**
+Return the count of errors for commands run by this runner.
+@return the count of errors for commands run by this runner
+*/
+int getErrorCount ()
+{
+	return __errorCount;
+}
+
+/**
+Return the total run time for commands run by this runner.
+@return the total run time for commands run by this runner, milliseconds
+*/
+long getRuntimeTotal ()
+{
+	return __runtimeTotal;
+}
+
+/**
+Initialize a command in the segment, in command order, similar to sequential processing.
+*/
+private void initialize ( SegmentCommand sc, int size, boolean commandsShouldClearRunStatus )
+{
+	Command command = sc.command;
+	String commandString = command.toString().trim();
+	CommandStatus commandStatus = null;
+	if ( command instanceof CommandStatusProvider ) {
+		commandStatus = ((CommandStatusProvider)command).getCommandStatus();
+	}
+	if ( (commandStatus != null) && commandsShouldClearRunStatus ) {
+		commandStatus.clearLog(CommandPhaseType.RUN);
+	}
+	CommandProfile commandProfile = command.getCommandProfile(CommandPhaseType.RUN);
+	Message.printStatus ( 2, "", "-> Start processing command " + (sc.index + 1) + " of " + size + ": \"" + commandString + "\"" );
+	__processor.notifyCommandProcessorListenersOfCommandStarted ( sc.index, size, command );
+	if ( command instanceof Comment_Command ) {
+		// Comment.  Mark as processing successful.
+		if ( commandStatus != null ) {
+			commandStatus.refreshPhaseSeverity(CommandPhaseType.INITIALIZATION,CommandStatusType.SUCCESS);
+			commandStatus.refreshPhaseSeverity(CommandPhaseType.DISCOVERY,CommandStatusType.SUCCESS);
+			commandStatus.refreshPhaseSeverity(CommandPhaseType.RUN,CommandStatusType.SUCCESS);
+		}
+		commandProfile.setStartTime(System.currentTimeMillis());
+		commandProfile.setStartHeap(Runtime.getRuntime().totalMemory());
+		commandProfile.setEndTime(System.currentTimeMillis());
+		commandProfile.setEndHeap(Runtime.getRuntime().totalMemory());
+		sc.run = false;
+		sc.done = true;
+		return;
+	}
+	try {
+		if ( commandStatus != null ) {
+			commandStatus.clearLog(CommandPhaseType.INITIALIZATION);
+			commandStatus.clearLog(CommandPhaseType.DISCOVERY);
+		}
+		command.initializeCommand ( commandString, __processor, true );
+		command.checkCommandParameters ( command.getCommandParameters(), "" + (sc.index + 1), 2 );
+		if ( (commandStatus != null) && commandsShouldClearRunStatus ) {
+			commandStatus.clearLog(CommandPhaseType.RUN);
+		}
+		CommandDependencyProvider provider = (CommandDependencyProvider)command;
+		sc.inputs = toResourceSet ( provider.getCommandInputResources() );
+		sc.outputs = toResourceSet ( provider.getCommandOutputResources() );
+		addDataStores ( sc.inputs, sc.dataStores );
+		addDataStores ( sc.outputs, sc.dataStores );
+		addDataStores ( sc.outputs, sc.exclusiveDataStores );
+	}
+	catch ( Exception e ) {
+		// Same as sequential processing - the command is not run
+		sc.exception = e;
+		sc.run = false;
+		sc.done = true;
+	}
+}
+
+/**
+Indicate whether two resource sets have a common resource.
+*/
+private boolean intersects ( Set<String> set1, Set<String> set2 )
+{
+	for ( String resource : set1 ) {
+		if ( set2.contains(resource) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+/**
+Indicate whether a datastore resource set contains a datastore name that uses a ${Property},
+which could be any datastore.
+*/
+private boolean hasPropertyDataStore ( Set<String> dataStores )
+{
+	for ( String dataStore : dataStores ) {
+		if ( dataStore.indexOf("${") >= 0 ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+/**
+Indicate whether one command uses a datastore exclusively that another command also uses,
+in which case the commands must not be run at the same time.
+The same datastore name is handled by comparing outputs and inputs, so this checks the datastore names
+that use a ${Property}, which could be any datastore.
+*/
+private boolean sharesExclusiveDataStore ( SegmentCommand sc1, SegmentCommand sc2 )
+{
+	if ( !sc1.exclusiveDataStores.isEmpty() && !sc2.dataStores.isEmpty() &&
+		(hasPropertyDataStore(sc1.exclusiveDataStores) || hasPropertyDataStore(sc2.dataStores)) ) {
+		return true;
+	}
+	if ( !sc2.exclusiveDataStores.isEmpty() && !sc1.dataStores.isEmpty() &&
+		(hasPropertyDataStore(sc2.exclusiveDataStores) || hasPropertyDataStore(sc1.dataStores)) ) {
+		return true;
+	}
+	return false;
+}
+
+/**
+Indicate whether a processor request is deferred when a command is run in parallel.
+These are the requests that modify processor results and that can be applied after the command runs.
+@param requestType the request type
+@return true if the request is deferred, false if processed immediately
+*/
+static boolean isDeferredRequest ( TSCommandProcessorRequestType requestType )
+{
+	if ( requestType == null ) {
+		return false;
+	}
+	switch ( requestType ) {
+		case APPEND_ENSEMBLE:
+		case APPEND_TIME_SERIES:
+		case REMOVE_PROPERTY:
+		case SET_PROPERTY:
+		case SET_TABLE:
+			return true;
+		default:
+			return false;
+	}
+}
+
+/**
+Run a segment of commands, as determined by findSegmentEnd().
+Commands are committed in order and processing stops early if cancel is requested or the thread is interrupted,
+in which case commands after the last committed command are not committed.
+@param commandList the full list of commands being processed
+@param start the index of the first command in the segment
+@param end the index after the last command in the segment
+@param commandsShouldClearRunStatus whether commands should clear their run status
+@param outputFileList list of output files, to which files generated by commands are added
+@return the index after the last command that was committed (end if all commands were committed)
+*/
+int runSegment ( List<Command> commandList, int start, int end, boolean commandsShouldClearRunStatus,
+	List<File> outputFileList )
+{	String routine = getClass().getSimpleName() + ".runSegment";
+	int size = commandList.size();
+	int n = end - start;
+	List<SegmentCommand> segment = new ArrayList<SegmentCommand>(n);
+	for ( int i = start; i < end; i++ ) {
+		SegmentCommand sc = new SegmentCommand ( commandList.get(i), i );
+		segment.add ( sc );
+		initialize ( sc, size, commandsShouldClearRunStatus );
+	}
+	// Determine the dependencies on earlier commands in the segment
+	for ( int j = 0; j < n; j++ ) {
+		SegmentCommand scj = segment.get(j);
+		if ( !scj.run ) {
+			continue;
+		}
+		for ( int k = 0; k < j; k++ ) {
+			SegmentCommand sck = segment.get(k);
+			if ( !sck.run ) {
+				continue;
+			}
+			if ( (scj.inputs == null) || (scj.outputs == null) || (sck.inputs == null) || (sck.outputs == null) ||
+				intersects(sck.outputs, scj.inputs) || intersects(sck.inputs, scj.outputs) || sharesExclusiveDataStore(sck, scj) ) {
+				scj.dependencies.add ( sck );
+			}
+		}
+	}
+	Message.printStatus ( 2, routine, "Running commands " + (start + 1) + " to " + end + " using up to " +
+		__maxThreads + " threads." );
+	ExecutorService executor = Executors.newFixedThreadPool ( Math.min(__maxThreads, n) );
+	CompletionService<SegmentCommand> completionService = new ExecutorCompletionService<SegmentCommand>(executor);
+	List<Future<SegmentCommand>> futureList = new ArrayList<Future<SegmentCommand>>(n);
+	__processor.setParallelRunLock ( __lock );
+	int commitPos = 0;
+	int running = 0;
+	try {
+		while ( true ) {
+			// Commit commands that are done, in order
+			while ( (commitPos < n) && segment.get(commitPos).done ) {
+				commit ( segment.get(commitPos), size, outputFileList );
+				++commitPos;
+			}
+			if ( commitPos == n ) {
+				break;
+			}
+			if ( !__processor.getCancelProcessingRequested() ) {
+				// Submit commands that are ready to run
+				for ( final SegmentCommand sc : segment ) {
+					if ( !sc.submitted && !sc.done && dependenciesCommitted(sc) ) {
+						sc.submitted = true;
+						++running;
+						futureList.add ( completionService.submit ( new Callable<SegmentCommand>() {
+							public SegmentCommand call () {
+								runCommand ( sc );
+								return sc;
+							}
+						}));
+					}
+				}
+			}
+			if ( running == 0 ) {
+				// Cancel was requested
+				break;
+			}
+			SegmentCommand sc = completionService.take().get();
+			--running;
+			sc.done = true;
+		}
+	}
+	catch ( InterruptedException e ) {
+		// Processing was stopped by killing the thread - stop the commands that are running before returning
+		// so that they do not write messages or status after processing has stopped, then let TSEngine handle
+		stopCommands ( executor, futureList );
+		Thread.currentThread().interrupt();
+	}
+	catch ( ExecutionException e ) {
+		// Should not happen because runCommand() handles all exceptions
+		Message.printWarning ( 3, routine, e );
+	}
+	finally {
+		executor.shutdown();
+		__processor.setParallelRunLock ( null );
+	}
+	return start + commitPos;
+}
+
+/**
+Run a command on a thread in the pool, deferring requests that modify processor results.
+*/
+private void runCommand ( SegmentCommand sc )
+{
+	Command command = sc.command;
+	CommandProfile commandProfile = command.getCommandProfile(CommandPhaseType.RUN);
+	CommandResourceUsage commandResourceUsage = __processor.getCommandResourceUsage ( command );
+	TSCommandProcessorMetrics metrics = __processor.getMetrics();
+	__processor.setDeferredRequestList ( sc.deferredRequestList );
+	metrics.commandStarted ( sc.index, __processor.size(), command );
+	long metricsStartTime = System.nanoTime();
+	commandProfile.setStartTime(System.currentTimeMillis());
+	commandProfile.setStartHeap(Runtime.getRuntime().totalMemory());
+	commandResourceUsage.start();
+	try {
+		command.runCommand ( sc.index + 1 );
+	}
+	catch ( Exception e ) {
+		sc.exception = e;
+	}
+	catch ( Error e ) {
+		sc.error = e;
+	}
+	finally {
+		__processor.setDeferredRequestList ( null );
+		commandProfile.setEndTime(System.currentTimeMillis());
+		commandProfile.setEndHeap(Runtime.getRuntime().totalMemory());
+		commandResourceUsage.end();
+		metrics.commandCompleted ( command, System.nanoTime() - metricsStartTime );
+		// Time series added by the command are in the deferred requests
+		List<TS> tslist = new ArrayList<TS>();
+		for ( DeferredRequest request : sc.deferredRequestList ) {
+			if ( request.request.equalsIgnoreCase("AppendTimeSeries") ) {
+				Object o = request.requestParams.getContents ( "TS" );
+				if ( o instanceof TS ) {
+					tslist.add ( (TS)o );
+				}
+			}
+		}
+		commandResourceUsage.setTimeSeries ( tslist, 0 );
+	}
+}
+
+/**
+Stop the commands that are running, after processing was interrupted.
+Commands that have not started are cancelled and commands that are running are interrupted.
+The commands are not committed, the same as sequential processing when the thread is interrupted.
+This waits for the running commands to finish, unless interrupted again.
+*/
+private void stopCommands ( ExecutorService executor, List<Future<SegmentCommand>> futureList )
+{	String routine = getClass().getSimpleName() + ".stopCommands";
+	for ( Future<SegmentCommand> future : futureList ) {
+		future.cancel ( true );
+	}
+	executor.shutdownNow();
+	try {
+		while ( !executor.awaitTermination(10, TimeUnit.SECONDS) ) {
+			Message.printStatus ( 2, routine, "Waiting for running commands to stop..." );
+		}
+	}
+	catch ( InterruptedException e ) {
+		Message.printWarning ( 3, routine, "Interrupted again - not waiting for running commands to stop." );
+	}
+}
+
+/**
+Convert a list of resources to a set of upper case resources, for case-independent comparison.
+@return the set of resources, or null if the list is null
+*/
+private Set<String> toResourceSet ( List<String> resourceList )
+{
+	if ( resourceList == null ) {
+		return null;
+	}
+	Set<String> resourceSet = new HashSet<String>();
+	for ( String resource : resourceList ) {
+		if ( resource != null ) {
+			resourceSet.add ( resource.toUpperCase() );
+		}
+	}
+	return resourceSet;
+}
+
+}
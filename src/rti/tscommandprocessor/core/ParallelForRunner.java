@@ -0,0 +1,816 @@
+// ParallelForRunner - run the iterations of a For() loop concurrently, each with its own processor
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import riverside.datastore.DataStore;
+
+import rti.tscommandprocessor.commands.logging.SetDebugLevel_Command;
+import rti.tscommandprocessor.commands.logging.SetWarningLevel_Command;
+import rti.tscommandprocessor.commands.logging.StartLog_Command;
+import rti.tscommandprocessor.commands.util.Break_Command;
+import rti.tscommandprocessor.commands.util.Continue_Command;
+import rti.tscommandprocessor.commands.util.Exit_Command;
+import rti.tscommandprocessor.commands.util.For_Command;
+import rti.tscommandprocessor.commands.util.SetWorkingDir_Command;
+
+import RTi.TS.TS;
+import RTi.TS.TSData;
+import RTi.TS.TSEnsemble;
+import RTi.TS.TSIterator;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandLogRecord;
+import RTi.Util.IO.CommandPhaseType;
+import RTi.Util.IO.CommandStatus;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Table.DataTable;
+
+/**
+Run the iterations of a For() loop concurrently, used by TSEngine.processCommands() when the For() command
+has Parallel=True.
+The iterator values are determined on the calling thread by calling For_Command.next() and runCommand(),
+and the user-defined properties after each call are saved as the property scope for the iteration.
+Each iteration then runs a copy of the commands in the loop with its own TSCommandProcessor,
+which is initialized with the iteration properties, the built-in properties (periods, working directory, etc.),
+and the time series and ensembles of the main processor.  The time series of the main processor are shared
+and a time series is only copied when a command in the iteration first accesses it, so that iterations cannot change
+the time series that are used by other iterations, without copying time series that the loop does not use.
+Tables of the main processor are shared as read-only inputs.
+Datastores that are configured with TSCommandProcessor.setLazyDataStore() are opened separately for each thread
+that runs iterations, because datastore connections are not thread-safe, and are closed when the loop is done.
+Results that are created by each iteration (time series, ensembles, tables, output files,
+and user-defined properties that were changed) and the command log messages are merged into the
+main processor in iteration order, so that the results are the same as if the iterations had been run sequentially.
+<p>
+Because the iterations are isolated, a property or result that is created by one iteration is not visible to
+later iterations, and changes to tables of the main processor must not be made in the loop.
+Changes to time series of the main processor are not kept, and a warning is added to the For() command
+for each iteration that changes or removes such time series.
+Loops that contain Break(), Continue(), or Exit(), commands that change global state
+(StartLog(), SetWorkingDir(), SetDebugLevel(), SetWarningLevel()), or commands that use a datastore that can only be
+shared (a datastore that was opened without a configuration that can be opened again, or HydroBase connections
+from the HydroBaseDMIList property) are run sequentially.
+*/
+class ParallelForRunner
+{
+
+/**
+Data for an iteration of the loop.
+*/
+private static class Iteration
+{
+	/**
+	Iteration number (0+).
+	*/
+	int iteration;
+
+	/**
+	User-defined properties for the iteration, as set by the For() command.
+	*/
+	Hashtable<String,Object> propertyHashtable;
+
+	/**
+	Processor used to run the iteration.
+	*/
+	volatile TSCommandProcessor processor = null;
+
+	/**
+	Time series, ensembles, and tables from the main processor that were provided to the iteration,
+	compared by reference when merging results.
+	*/
+	Set<Object> sharedSet = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+
+	/**
+	Copies of time series of the main processor that were made when first accessed by the iteration,
+	by original time series.
+	*/
+	Map<TS,TS> copyMap = new IdentityHashMap<TS,TS>();
+
+	/**
+	Exception from running the iteration.
+	*/
+	Exception exception = null;
+
+	/**
+	Construct the data for an iteration.
+	*/
+	Iteration ( int iteration, Hashtable<String,Object> propertyHashtable )
+	{
+		this.iteration = iteration;
+		this.propertyHashtable = propertyHashtable;
+	}
+}
+
+/**
+Built-in processor properties that are copied to the processor for each iteration.
+*/
+private static final String [] __builtInPropertyNames = {
+	"AutoExtendPeriod",
+	"AverageEnd",
+	"AverageStart",
+	"HydroBaseDMIList",
+	"IgnoreLEZero",
+	"IncludeMissingTS",
+	"InputEnd",
+	"InputStart",
+	"OutputEnd",
+	"OutputStart",
+	"OutputYearType",
+	"StartLogEnabled"
+};
+
+/**
+The engine of the processor that is running the For() command.
+*/
+private TSEngine __engine = null;
+
+/**
+The processor that is running the For() command.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Configuration of the datastores of the main processor that are opened separately for each thread.
+*/
+private List<LazyDataStore> __dataStoreConfigList = null;
+
+/**
+Names of datastores of the main processor that are shared by all threads because they cannot be opened separately,
+upper case, including "HYDROBASE" if HydroBase connections are set with the HydroBaseDMIList property.
+*/
+private Set<String> __sharedDataStoreNameSet = new HashSet<String>();
+
+/**
+Datastores that have been opened for the thread that is running iterations, one instance per configured datastore.
+*/
+private ThreadLocal<List<LazyDataStore>> __threadDataStoreList = new ThreadLocal<List<LazyDataStore>>();
+
+/**
+The For() command for the loop.
+*/
+private For_Command __forCommand = null;
+
+/**
+Maximum number of iterations to run at the same time.
+*/
+private int __maxThreads = 1;
+
+/**
+Construct a runner.
+@param engine the engine of the processor that is running the For() command
+@param processor the processor that is running the For() command
+@param forCommand the For() command for the loop
+*/
+ParallelForRunner ( TSEngine engine, TSCommandProcessor processor, For_Command forCommand )
+throws Exception
+{
+	__engine = engine;
+	__processor = processor;
+	__forCommand = forCommand;
+	__maxThreads = forCommand.getMaxThreads();
+	// Datastores that were configured can be opened for each thread, others can only be shared
+	__dataStoreConfigList = processor.getDataStoreConfigs();
+	Set<String> configuredNameSet = new HashSet<String>();
+	for ( LazyDataStore dataStoreConfig : __dataStoreConfigList ) {
+		configuredNameSet.add ( dataStoreConfig.getName().toUpperCase() );
+	}
+	for ( DataStore dataStore : processor.getOpenedDataStores() ) {
+		if ( !configuredNameSet.contains(dataStore.getName().toUpperCase()) ) {
+			__sharedDataStoreNameSet.add ( dataStore.getName().toUpperCase() );
+		}
+	}
+	Object o = processor.getPropContents ( "HydroBaseDMIList" );
+	if ( (o instanceof List) && !((List<?>)o).isEmpty() ) {
+		__sharedDataStoreNameSet.add ( "HYDROBASE" );
+	}
+}
+
+/**
+Indicate whether the commands in a loop can be run in parallel.
+Commands that change the flow of the loop (Break, Continue, Exit) require that iterations are run sequentially.
+Commands that change global state (the log file, working directory, message levels) would affect all iterations,
+and commands that use a datastore that can only be shared would use the same connection from multiple threads,
+so these also require that iterations are run sequentially.
+@param commandList list of commands being processed
+@param forIndex index of the For() command
+@param endForIndex index of the matching EndFor() command
+@return true if the iterations of the loop can be run in parallel
+*/
+boolean canRunInParallel ( List<Command> commandList, int forIndex, int endForIndex )
+{
+	for ( int i = forIndex + 1; i < endForIndex; i++ ) {
+		Command command = commandList.get(i);
+		if ( (command instanceof Break_Command) || (command instanceof Continue_Command) ||
+			(command instanceof Exit_Command) ) {
+			return false;
+		}
+		if ( (command instanceof StartLog_Command) || (command instanceof SetWorkingDir_Command) ||
+			(command instanceof SetDebugLevel_Command) || (command instanceof SetWarningLevel_Command) ) {
+			return false;
+		}
+		if ( usesSharedDataStore(command) ) {
+			return false;
+		}
+	}
+	return true;
+}
+
+/**
+Check whether an iteration changed or removed time series of the main processor, which are not kept when merging,
+and add warnings to the For() command.
+@param it the iteration
+@param tslist the time series list of the iteration processor
+@param sharedTSList the time series of the main processor that were provided to the iteration
+*/
+private void checkSharedTimeSeries ( Iteration it, List<TS> tslist, List<TS> sharedTSList )
+throws Exception
+{
+	int changedCount = 0;
+	TS changedTS = null;
+	for ( Map.Entry<TS,TS> entry : it.copyMap.entrySet() ) {
+		if ( isTimeSeriesChanged(entry.getKey(), entry.getValue()) ) {
+			if ( changedTS == null ) {
+				changedTS = entry.getKey();
+			}
+			++changedCount;
+		}
+	}
+	if ( changedCount > 0 ) {
+		__forCommand.getCommandStatus().addToLog ( CommandPhaseType.RUN,
+			new CommandLogRecord(CommandStatusType.WARNING,
+				"Iteration " + (it.iteration + 1) + " changed " + changedCount + " time series that existed before the loop (e.g., \"" +
+				getTimeSeriesName(changedTS) + "\") - the changes are not kept when iterations are run in parallel.",
+				"Use Parallel=False or change copies of the time series that are created in the loop." ) );
+	}
+	Set<TS> tsSet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+	if ( tslist != null ) {
+		tsSet.addAll ( tslist );
+	}
+	int removedCount = 0;
+	TS removedTS = null;
+	for ( TS ts : sharedTSList ) {
+		TS copy = it.copyMap.get(ts);
+		if ( !tsSet.contains(ts) && ((copy == null) || !tsSet.contains(copy)) ) {
+			if ( removedTS == null ) {
+				removedTS = ts;
+			}
+			++removedCount;
+		}
+	}
+	if ( removedCount > 0 ) {
+		__forCommand.getCommandStatus().addToLog ( CommandPhaseType.RUN,
+			new CommandLogRecord(CommandStatusType.WARNING,
+				"Iteration " + (it.iteration + 1) + " removed " + removedCount + " time series that existed before the loop (e.g., \"" +
+				getTimeSeriesName(removedTS) + "\") - the time series are not removed when iterations are run in parallel.",
+				"Use Parallel=False or remove the time series after the loop." ) );
+	}
+}
+
+/**
+Close the datastores that were opened for the current thread.
+*/
+private void closeThreadDataStores ()
+{
+	List<LazyDataStore> dataStoreList = __threadDataStoreList.get();
+	if ( dataStoreList != null ) {
+		for ( LazyDataStore dataStore : dataStoreList ) {
+			dataStore.close();
+		}
+		__threadDataStoreList.remove();
+	}
+}
+
+/**
+Return the datastores for the current thread, created from the datastore configurations of the main processor
+if not already created for the thread.  The datastores are opened when first used.
+*/
+private List<LazyDataStore> getThreadDataStores ()
+{
+	List<LazyDataStore> dataStoreList = __threadDataStoreList.get();
+	if ( dataStoreList == null ) {
+		dataStoreList = new ArrayList<LazyDataStore>(__dataStoreConfigList.size());
+		for ( LazyDataStore dataStoreConfig : __dataStoreConfigList ) {
+			dataStoreList.add ( dataStoreConfig.copyConfig() );
+		}
+		__threadDataStoreList.set ( dataStoreList );
+	}
+	return dataStoreList;
+}
+
+/**
+Return the name of a time series for messages, the alias if set or otherwise the identifier.
+*/
+private String getTimeSeriesName ( TS ts )
+{
+	String alias = ts.getAlias();
+	if ( (alias != null) && !alias.isEmpty() ) {
+		return alias;
+	}
+	return ts.getIdentifierString();
+}
+
+/**
+Return the user-defined properties for a processor.
+*/
+@SuppressWarnings("unchecked")
+private Hashtable<String,Object> getUserProperties ( TSCommandProcessor processor )
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.set ( "GetUserProperties", "True" );
+	Object o = processor.processRequest( "GetPropertyHashtable", requestParams ).getResultsPropList().getContents("PropertyHashtable");
+	if ( o == null ) {
+		return new Hashtable<String,Object>();
+	}
+	return (Hashtable<String,Object>)o;
+}
+
+/**
+Indicate whether a time series was changed compared to the original time series.
+The original data are read if deferred or spilled by the memory manager of the main processor.
+*/
+private boolean isTimeSeriesChanged ( TS original, TS ts )
+throws Exception
+{
+	if ( !isEqual(original.getIdentifierString(), ts.getIdentifierString()) || !isEqual(original.getAlias(), ts.getAlias()) ||
+		!isEqual(original.getDescription(), ts.getDescription()) || !isEqual(original.getDataUnits(), ts.getDataUnits()) ||
+		!isEqual(original.getDate1(), ts.getDate1()) || !isEqual(original.getDate2(), ts.getDate2()) ) {
+		return true;
+	}
+	// Other iterations may be copying time series from the main processor
+	synchronized ( __engine.getCopyOnAccessLock() ) {
+		__engine.readLazyTimeSeriesData ( original );
+		TSIterator tsi = original.iterator();
+		TSIterator tsi2 = ts.iterator();
+		TSData tsdata, tsdata2;
+		while ( true ) {
+			tsdata = tsi.next();
+			tsdata2 = tsi2.next();
+			if ( (tsdata == null) || (tsdata2 == null) ) {
+				return tsdata != tsdata2;
+			}
+			if ( (Double.compare(tsdata.getDataValue(), tsdata2.getDataValue()) != 0) ||
+				!isEqual(tsdata.getDataFlag(), tsdata2.getDataFlag()) ) {
+				return true;
+			}
+		}
+	}
+}
+
+/**
+Indicate whether two objects are equal, either of which may be null.
+*/
+private boolean isEqual ( Object o1, Object o2 )
+{
+	if ( o1 == null ) {
+		return o2 == null;
+	}
+	return o1.equals(o2);
+}
+
+/**
+Merge the results of an iteration into the main processor.
+*/
+@SuppressWarnings("unchecked")
+private void merge ( Iteration it, List<Command> commandList, int forIndex, int endForIndex,
+	List<TS> sharedTSList, List<File> outputFileList )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".merge";
+	TSCommandProcessor processor = it.processor;
+	if ( processor == null ) {
+		// Iteration was not run
+		if ( it.exception != null ) {
+			__forCommand.getCommandStatus().addToLog ( CommandPhaseType.RUN,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					"Error running iteration " + (it.iteration + 1) + " (" + it.exception + ").",
+					"See the log file for details." ) );
+		}
+		return;
+	}
+	// Append the command log messages to the commands in the loop
+	List<Command> iterationCommands = processor.getCommands();
+	for ( int i = forIndex + 1, j = 0; (i < endForIndex) && (j < iterationCommands.size()); i++, j++ ) {
+		Command command = commandList.get(i);
+		Command iterationCommand = iterationCommands.get(j);
+		if ( (command instanceof CommandStatusProvider) && (iterationCommand instanceof CommandStatusProvider) ) {
+			CommandStatus status = ((CommandStatusProvider)command).getCommandStatus();
+			for ( CommandLogRecord logRecord : ((CommandStatusProvider)iterationCommand).getCommandStatus().getCommandLog(CommandPhaseType.RUN) ) {
+				status.addToLog ( CommandPhaseType.RUN, logRecord );
+			}
+		}
+	}
+	if ( (it.exception != null) &&
+		!TSCommandProcessorUtil.getCommandStatusMaxSeverity(processor).greaterThanOrEqualTo(CommandStatusType.WARNING) ) {
+		// Commands do not indicate a problem so add to the For() command
+		__forCommand.getCommandStatus().addToLog ( CommandPhaseType.RUN,
+			new CommandLogRecord(CommandStatusType.FAILURE,
+				"Error running iteration " + (it.iteration + 1) + " (" + it.exception + ").",
+				"See the log file for details." ) );
+	}
+	// Time series that were added by the iteration, which are not time series of the main processor or their copies
+	PropList requestParams = new PropList ( "" );
+	List<TS> tslist = (List<TS>)processor.getPropContents("TSResultsList");
+	checkSharedTimeSeries ( it, tslist, sharedTSList );
+	Set<TS> copySet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+	copySet.addAll ( it.copyMap.values() );
+	if ( tslist != null ) {
+		for ( TS ts : tslist ) {
+			if ( (ts != null) && !it.sharedSet.contains(ts) && !copySet.contains(ts) ) {
+				requestParams.setUsingObject ( "TS", ts );
+				__processor.processRequest ( "AppendTimeSeries", requestParams );
+			}
+		}
+	}
+	// Ensembles that were added by the iteration
+	List<TSEnsemble> ensembleList = (List<TSEnsemble>)processor.getPropContents("EnsembleResultsList");
+	if ( ensembleList != null ) {
+		requestParams = new PropList ( "" );
+		for ( TSEnsemble ensemble : ensembleList ) {
+			if ( (ensemble != null) && !it.sharedSet.contains(ensemble) ) {
+				requestParams.setUsingObject ( "TSEnsemble", ensemble );
+				__processor.processRequest ( "AppendEnsemble", requestParams );
+			}
+		}
+	}
+	// Tables that were added by the iteration, replacing tables with the same identifier, as for SetTable
+	List<DataTable> tableList = (List<DataTable>)processor.getPropContents("TableResultsList");
+	if ( tableList != null ) {
+		for ( DataTable table : tableList ) {
+			if ( (table != null) && !it.sharedSet.contains(table) ) {
+				__processor.setTable ( table );
+			}
+		}
+	}
+	// Output files
+	List<File> iterationOutputFileList = (List<File>)processor.getPropContents("OutputFileList");
+	if ( iterationOutputFileList != null ) {
+		outputFileList.addAll ( iterationOutputFileList );
+	}
+	// User-defined properties that were changed by the iteration
+	Hashtable<String,Object> propertyHashtable = getUserProperties ( processor );
+	for ( String propertyName : propertyHashtable.keySet() ) {
+		Object value = propertyHashtable.get(propertyName);
+		Object value0 = it.propertyHashtable.get(propertyName);
+		if ( (value != value0) && ((value0 == null) || !value0.equals(value)) ) {
+			requestParams = new PropList ( "" );
+			requestParams.setUsingObject ( "PropertyName", propertyName );
+			requestParams.setUsingObject ( "PropertyValue", value );
+			__processor.processRequest ( "SetProperty", requestParams );
+		}
+	}
+	if ( Message.isDebugOn ) {
+		Message.printDebug ( 1, routine, "Merged results for iteration " + (it.iteration + 1) + "." );
+	}
+}
+
+/**
+Run all iterations of the loop.
+The For() command is left in the reset state so that the loop will be restarted if it is encountered again.
+@param commandList list of commands being processed
+@param forIndex index of the For() command
+@param endForIndex index of the matching EndFor() command
+@param commandNumber the command number (1+) for the For() command, for messages
+@param outputFileList list of output files, to which files generated by the iterations are added
+*/
+@SuppressWarnings("unchecked")
+void run ( List<Command> commandList, int forIndex, int endForIndex, int commandNumber, List<File> outputFileList )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".run";
+	// Determine the property scope for each iteration, using the For() command as if run sequentially
+	List<Iteration> iterationList = new ArrayList<Iteration>();
+	__forCommand.resetCommand();
+	try {
+		while ( __forCommand.next() ) {
+			__forCommand.runCommand ( commandNumber );
+			iterationList.add ( new Iteration(iterationList.size(), getUserProperties(__processor)) );
+		}
+	}
+	finally {
+		__forCommand.resetCommand();
+	}
+	int n = iterationList.size();
+	if ( n == 0 ) {
+		return;
+	}
+	// Commands in the loop, as strings, used to create the commands for each iteration
+	final List<String> commandStrings = new ArrayList<String>(endForIndex - forIndex - 1);
+	for ( int i = forIndex + 1; i < endForIndex; i++ ) {
+		commandStrings.add ( commandList.get(i).toString() );
+	}
+	// Data shared with each iteration, determined on this thread
+	// Configured datastores are opened for each thread so only share the datastores that cannot be opened again,
+	// which are not used by the loop (see canRunInParallel())
+	final List<DataStore> dataStoreList = new ArrayList<DataStore>();
+	for ( DataStore dataStore : __processor.getOpenedDataStores() ) {
+		if ( __sharedDataStoreNameSet.contains(dataStore.getName().toUpperCase()) ) {
+			dataStoreList.add ( dataStore );
+		}
+	}
+	final Map<String,Object> builtInProperties = new LinkedHashMap<String,Object>();
+	for ( String propertyName : __builtInPropertyNames ) {
+		Object value = __processor.getPropContents ( propertyName );
+		if ( value != null ) {
+			builtInProperties.put ( propertyName, value );
+		}
+	}
+	final String workingDir = (String)__processor.getPropContents ( "WorkingDir" );
+	final String commandFileName = __processor.getCommandFileName();
+	final List<TS> sharedTSList = new ArrayList<TS>();
+	final List<TSEnsemble> sharedEnsembleList = new ArrayList<TSEnsemble>();
+	final List<DataTable> sharedTableList = new ArrayList<DataTable>();
+	Object o = __processor.getPropContents("TSResultsList");
+	if ( o != null ) {
+		sharedTSList.addAll ( (List<TS>)o );
+	}
+	o = __processor.getPropContents("EnsembleResultsList");
+	if ( o != null ) {
+		sharedEnsembleList.addAll ( (List<TSEnsemble>)o );
+	}
+	o = __processor.getPropContents("TableResultsList");
+	if ( o != null ) {
+		sharedTableList.addAll ( (List<DataTable>)o );
+	}
+	// Time series that are copied when first accessed, including ensemble time series that are not in the list
+	final List<TS> copyOnAccessList = new ArrayList<TS>(sharedTSList);
+	Set<TS> copyOnAccessSet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+	copyOnAccessSet.addAll ( sharedTSList );
+	for ( TSEnsemble ensemble : sharedEnsembleList ) {
+		for ( TS ts : ensemble.getTimeSeriesList(false) ) {
+			if ( (ts != null) && copyOnAccessSet.add(ts) ) {
+				copyOnAccessList.add ( ts );
+			}
+		}
+	}
+
+	int nThreads = Math.min(__maxThreads, n);
+	Message.printStatus ( 2, routine, "Running " + n + " iterations of For(Name=\"" + __forCommand.getName() +
+		"\") using up to " + nThreads + " threads." );
+	// Each thread closes the datastores that were opened for the thread when the thread ends
+	final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+	ExecutorService executor = Executors.newFixedThreadPool ( nThreads, new ThreadFactory() {
+		public Thread newThread ( final Runnable r ) {
+			return threadFactory.newThread ( new Runnable() {
+				public void run () {
+					try {
+						r.run();
+					}
+					finally {
+						closeThreadDataStores();
+					}
+				}
+			});
+		}
+	});
+	List<Future<Iteration>> futureList = new ArrayList<Future<Iteration>>(n);
+	int mergePos = 0;
+	try {
+		while ( mergePos < n ) {
+			// Submit iterations, limiting how far ahead of the merge position iterations are run
+			// so that the results of iterations that are waiting to be merged do not use too much memory
+			while ( (futureList.size() < n) && (futureList.size() < (mergePos + 2*nThreads)) ) {
+				final Iteration it = iterationList.get(futureList.size());
+				futureList.add ( executor.submit ( new Callable<Iteration>() {
+					public Iteration call () {
+						runIteration ( it, commandStrings, dataStoreList, builtInProperties, workingDir, commandFileName,
+							sharedTSList, sharedEnsembleList, sharedTableList, copyOnAccessList );
+						return it;
+					}
+				}));
+			}
+			// Wait for the next iteration to merge, checking periodically for a cancel
+			Iteration it = null;
+			while ( it == null ) {
+				if ( __processor.getCancelProcessingRequested() ) {
+					// Stop running iterations - TSEngine handles the cancel
+					cancel ( executor, iterationList );
+					return;
+				}
+				try {
+					it = futureList.get(mergePos).get ( 500, TimeUnit.MILLISECONDS );
+				}
+				catch ( TimeoutException e ) {
+					// Check for cancel and wait again
+				}
+			}
+			merge ( it, commandList, forIndex, endForIndex, sharedTSList, outputFileList );
+			// Release the iteration processor and results
+			it.processor = null;
+			iterationList.set ( mergePos, null );
+			++mergePos;
+		}
+	}
+	catch ( InterruptedException e ) {
+		// Processing was stopped by killing the thread - let TSEngine handle
+		cancel ( executor, iterationList );
+		Thread.currentThread().interrupt();
+	}
+	catch ( ExecutionException e ) {
+		// Should not happen because runIteration() handles all exceptions
+		Message.printWarning ( 3, routine, e );
+	}
+	finally {
+		executor.shutdown();
+		// Refresh the status of the For() command and commands in the loop, which now contain the messages from all iterations
+		for ( int i = forIndex; i < endForIndex; i++ ) {
+			Command command = commandList.get(i);
+			if ( command instanceof CommandStatusProvider ) {
+				((CommandStatusProvider)command).getCommandStatus().refreshPhaseSeverity(
+					CommandPhaseType.RUN, CommandStatusType.SUCCESS);
+			}
+		}
+	}
+	Message.printStatus ( 2, routine, "Completed " + mergePos + " iterations of For(Name=\"" +
+		__forCommand.getName() + "\")." );
+}
+
+/**
+Cancel iterations that are running or waiting to run.
+*/
+private void cancel ( ExecutorService executor, List<Iteration> iterationList )
+{
+	for ( Iteration it : iterationList ) {
+		if ( (it != null) && (it.processor != null) ) {
+			it.processor.setCancelProcessingRequested ( true );
+		}
+	}
+	executor.shutdownNow();
+}
+
+/**
+Run an iteration on a thread in the pool.
+*/
+private void runIteration ( Iteration it, List<String> commandStrings, List<DataStore> dataStoreList,
+	Map<String,Object> builtInProperties, String workingDir, String commandFileName,
+	List<TS> sharedTSList, List<TSEnsemble> sharedEnsembleList, List<DataTable> sharedTableList, List<TS> copyOnAccessList )
+{	String routine = getClass().getSimpleName() + ".runIteration";
+	TSCommandProcessor processor = null;
+	try {
+		processor = new TSCommandProcessor();
+		processor.setDataStores ( dataStoreList, false );
+		for ( LazyDataStore dataStore : getThreadDataStores() ) {
+			processor.setLazyDataStore ( dataStore );
+		}
+		for ( Map.Entry<String,Object> entry : builtInProperties.entrySet() ) {
+			processor.setPropContents ( entry.getKey(), entry.getValue() );
+		}
+		processor.setCommandFileName ( commandFileName );
+		// Iteration properties
+		PropList requestParams = null;
+		for ( String propertyName : it.propertyHashtable.keySet() ) {
+			requestParams = new PropList ( "" );
+			requestParams.setUsingObject ( "PropertyName", propertyName );
+			requestParams.setUsingObject ( "PropertyValue", it.propertyHashtable.get(propertyName) );
+			processor.processRequest ( "SetProperty", requestParams );
+		}
+		// Shared inputs - time series are copied when first accessed by a command so that the iteration can modify them
+		// without affecting other iterations, which are reading the same time series on other threads.
+		// Ensembles are copied so that copied time series can be replaced in the ensembles.
+		it.sharedSet.addAll ( sharedTSList );
+		processor.setPropContents ( "TSResultsList", new ArrayList<TS>(sharedTSList) );
+		requestParams = new PropList ( "" );
+		for ( TSEnsemble ensemble : sharedEnsembleList ) {
+			TSEnsemble copy = new TSEnsemble ( ensemble.getEnsembleID(), ensemble.getEnsembleName(),
+				new ArrayList<TS>(ensemble.getTimeSeriesList(false)) );
+			it.sharedSet.add ( copy );
+			requestParams.setUsingObject ( "TSEnsemble", copy );
+			processor.processRequest ( "AppendEnsemble", requestParams );
+		}
+		processor.setCopyOnAccessTimeSeries ( copyOnAccessList, __processor );
+		for ( DataTable table : sharedTableList ) {
+			it.sharedSet.add ( table );
+			processor.setTable ( table );
+		}
+		// Create the commands, which sets the initial working directory to the current working directory
+		processor.addCommandsFromStringList ( commandStrings, true, false, false,
+			((workingDir == null) ? null : new File(workingDir)) );
+		it.processor = processor;
+		// Run without resetting the properties and results that were set above
+		PropList runProps = new PropList ( "" );
+		runProps.set ( "ResetWorkflowProperties", "False" );
+		runProps.set ( "ResetRunData", "False" );
+		runProps.set ( "AppendResults", "True" );
+		processor.runCommands ( null, runProps );
+	}
+	catch ( Exception e ) {
+		// In batch mode, warnings result in an exception, in which case the command status has the details
+		Message.printWarning ( 3, routine, "Error running iteration " + (it.iteration + 1) + " of For(Name=\"" +
+			__forCommand.getName() + "\") (" + e + ")." );
+		Message.printWarning ( 3, routine, e );
+		it.exception = e;
+	}
+	finally {
+		if ( processor != null ) {
+			// Don't copy more time series when results are merged
+			it.copyMap = processor.endCopyOnAccess();
+		}
+	}
+}
+
+/**
+Add the datastore names from a list of command resources to a list.
+*/
+private void addDataStoreResources ( List<String> resources, List<String> dataStoreNames )
+{
+	if ( resources == null ) {
+		return;
+	}
+	String prefix = CommandDependencyProvider.RESOURCE_DATASTORE.toUpperCase();
+	for ( String resource : resources ) {
+		if ( (resource != null) && resource.toUpperCase().startsWith(prefix) ) {
+			dataStoreNames.add ( resource.substring(prefix.length()) );
+		}
+	}
+}
+
+/**
+Indicate whether a command uses a datastore that can only be shared by iterations,
+as a DataStore parameter, a datastore resource, or an input type or name in a TSID parameter
+(e.g., "...~DataStoreName"), which may be a datastore.
+A name that uses a ${Property} could be any datastore.
+*/
+private boolean usesSharedDataStore ( Command command )
+{
+	if ( __sharedDataStoreNameSet.isEmpty() ) {
+		return false;
+	}
+	List<String> dataStoreNames = new ArrayList<String>();
+	PropList parameters = command.getCommandParameters();
+	if ( parameters != null ) {
+		String dataStore = parameters.getValue ( "DataStore" );
+		if ( (dataStore != null) && !dataStore.isEmpty() ) {
+			dataStoreNames.add ( dataStore );
+		}
+		String tsid = parameters.getValue ( "TSID" );
+		if ( tsid != null ) {
+			int pos = tsid.indexOf("~");
+			if ( pos >= 0 ) {
+				for ( String part : tsid.substring(pos + 1).split("~") ) {
+					dataStoreNames.add ( part );
+				}
+			}
+			else if ( tsid.indexOf("${") >= 0 ) {
+				dataStoreNames.add ( tsid );
+			}
+		}
+	}
+	if ( command instanceof CommandDependencyProvider ) {
+		CommandDependencyProvider provider = (CommandDependencyProvider)command;
+		try {
+			addDataStoreResources ( provider.getCommandInputResources(), dataStoreNames );
+			addDataStoreResources ( provider.getCommandOutputResources(), dataStoreNames );
+		}
+		catch ( Exception e ) {
+			// Can't determine the resources so run sequentially
+			return true;
+		}
+	}
+	for ( String dataStoreName : dataStoreNames ) {
+		if ( (dataStoreName.indexOf("${") >= 0) || __sharedDataStoreNameSet.contains(dataStoreName.trim().toUpperCase()) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+}
@@ -0,0 +1,194 @@
+// ParameterValueTemplate - command parameter value parsed into literal and ${property} segments
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import RTi.Util.IO.CommandProcessor;
+
+/**
+Command parameter value that has been parsed into literal and ${property} segments,
+used by TSCommandProcessorUtil.expandParameterValue() so that a parameter value is only scanned once,
+even when the command is run many times (e.g., in a For() loop).
+Parsed templates are cached by the original parameter value.
+<p>
+Only parameter values where each "}" closes a "${" are parsed.  Other values (e.g., "}" without "${")
+are handled by the original expansion code, which treats such values in a special way.
+*/
+class ParameterValueTemplate
+{
+
+/**
+Maximum number of templates to cache.
+*/
+private static final int CACHE_SIZE = 5000;
+
+/**
+Cache of templates, by original parameter value (before escaped quotes are replaced).
+A concurrent map is used so that commands that are run in parallel (e.g., parallel For() iterations)
+do not wait on a lock to expand parameters.  The cache is cleared when full, which is rare because
+the number of distinct parameter values is limited by the commands.
+*/
+private static final ConcurrentHashMap<String,ParameterValueTemplate> __templateCache =
+	new ConcurrentHashMap<String,ParameterValueTemplate>(256);
+
+/**
+Template that indicates that a parameter value cannot be parsed and the original expansion code must be used.
+*/
+private static final ParameterValueTemplate NOT_PARSED = new ParameterValueTemplate ( null, null, null, 0 );
+
+/**
+The parameter value after replacing escaped quotes.
+*/
+private String __value = null;
+
+/**
+Literal text before each property, with one more element than __propertyNames for the trailing text.
+*/
+private String [] __literals = null;
+
+/**
+Property names, without ${}.
+*/
+private String [] __propertyNames = null;
+
+/**
+Length of literal text, used to size the output buffer.
+*/
+private int __literalLength = 0;
+
+/**
+Construct a template.
+*/
+private ParameterValueTemplate ( String value, String [] literals, String [] propertyNames, int literalLength )
+{
+	__value = value;
+	__literals = literals;
+	__propertyNames = propertyNames;
+	__literalLength = literalLength;
+}
+
+/**
+Expand the template by replacing ${property} with values from the processor.
+Properties that cannot be found are left as the literal ${property}, to alert users.
+@param processor processor that supplies property values
+@return the expanded string
+*/
+public String expand ( CommandProcessor processor )
+{
+	if ( __propertyNames.length == 0 ) {
+		return __value;
+	}
+	StringBuilder b = new StringBuilder(__literalLength + 16*__propertyNames.length);
+	for ( int i = 0; i < __propertyNames.length; i++ ) {
+		b.append ( __literals[i] );
+		Object propval = null;
+		try {
+			propval = processor.getPropContents ( __propertyNames[i] );
+		}
+		catch ( Exception e ) {
+			propval = null;
+		}
+		if ( propval == null ) {
+			// Keep the original literal value to alert user that property could not be expanded
+			b.append ( "${" );
+			b.append ( __propertyNames[i] );
+			b.append ( "}" );
+		}
+		else {
+			b.append ( propval );
+		}
+	}
+	b.append ( __literals[__propertyNames.length] );
+	return b.toString();
+}
+
+/**
+Return the template for a parameter value, parsing the value if not already cached.
+@param parameterValue the original parameter value, non-null
+@return the template, or null if the parameter value cannot be parsed and the original expansion code should be used
+*/
+public static ParameterValueTemplate getTemplate ( String parameterValue )
+{
+	ParameterValueTemplate template = __templateCache.get ( parameterValue );
+	if ( template == null ) {
+		template = parse ( parameterValue );
+		if ( __templateCache.size() >= CACHE_SIZE ) {
+			__templateCache.clear();
+		}
+		__templateCache.put ( parameterValue, template );
+	}
+	if ( template == NOT_PARSED ) {
+		return null;
+	}
+	return template;
+}
+
+/**
+Parse a parameter value into a template.
+@param parameterValue the original parameter value, non-null
+@return the template, or NOT_PARSED if the value cannot be parsed
+*/
+private static ParameterValueTemplate parse ( String parameterValue )
+{
+	// Replace escaped quotes, same as the original expansion code
+	String value = parameterValue.replace("\\\"", "\"" );
+	value = value.replace("\\'", "'" );
+	List<String> literals = new ArrayList<String>();
+	List<String> propertyNames = new ArrayList<String>();
+	int literalLength = 0;
+	int searchPos = 0;
+	int len = value.length();
+	while ( searchPos < len ) {
+		int foundPos = value.indexOf("${", searchPos);
+		int endLiteral = (foundPos < 0) ? len : foundPos;
+		int closePos = value.indexOf('}', searchPos);
+		if ( (closePos >= 0) && (closePos < endLiteral) ) {
+			// "}" without matching "${"
+			return NOT_PARSED;
+		}
+		if ( foundPos < 0 ) {
+			break;
+		}
+		int foundPosEnd = value.indexOf('}', foundPos + 2);
+		if ( foundPosEnd < 0 ) {
+			// "${" without matching "}"
+			return NOT_PARSED;
+		}
+		String literal = value.substring(searchPos, foundPos);
+		literals.add ( literal );
+		literalLength += literal.length();
+		propertyNames.add ( value.substring(foundPos + 2, foundPosEnd) );
+		searchPos = foundPosEnd + 1;
+	}
+	String literal = (searchPos < len) ? value.substring(searchPos) : "";
+	literals.add ( literal );
+	literalLength += literal.length();
+	return new ParameterValueTemplate ( value, literals.toArray(new String[literals.size()]),
+		propertyNames.toArray(new String[propertyNames.size()]), literalLength );
+}
+
+}
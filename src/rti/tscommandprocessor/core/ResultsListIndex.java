@@ -0,0 +1,401 @@
+// ResultsListIndex - case-insensitive identifier index for a processor results list
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+Case-insensitive identifier index for a results list maintained by TSCommandProcessor (tables, ensembles).
+The list remains the ordered storage that is returned to callers, and the index maps the upper-case
+identifier to the ascending positions of matching objects, so that lookups do not need to search the list.
+<p>
+The owner of the list must call added(), set(), or changed() when it modifies the list.
+Because an object's identifier can be changed after the object is in the list,
+the owner also calls accessed() for objects that are provided to callers, and accessedAll() when the list itself
+is provided.  checkAccessed() is called after each command and only compares the identifiers of accessed objects
+with the indexed identifiers, so the work is proportional to the number of objects that the command used.
+@param <T> the type of object in the list
+*/
+abstract class ResultsListIndex<T>
+{
+
+/**
+The list being indexed.
+*/
+private List<T> __list = null;
+
+/**
+The identifier of each object in the list when it was indexed, used to detect changes.
+*/
+private List<String> __indexedIDList = new ArrayList<String>();
+
+/**
+The object at each position in the list when it was indexed, used to detect changes.
+*/
+private List<T> __indexedObjectList = new ArrayList<T>();
+
+/**
+Map of upper-case identifier to positions in the list, ascending.
+*/
+private Map<String,List<Integer>> __idMap = new HashMap<String,List<Integer>>();
+
+/**
+Indicates that the index must be rebuilt before the next lookup.
+*/
+private boolean __rebuildNeeded = true;
+
+/**
+Map of object to position in the list, used to update the index for accessed objects.
+*/
+private Map<T,Integer> __positionMap = new IdentityHashMap<T,Integer>();
+
+/**
+Indicates that the same object is in the list more than once, in which case accessed objects
+are checked by comparing the full list.
+*/
+private boolean __hasDuplicates = false;
+
+/**
+Objects that have been provided to callers since the last check, and which may have been modified.
+*/
+private Set<T> __accessedSet = Collections.newSetFromMap(new IdentityHashMap<T,Boolean>());
+
+/**
+Indicates that the list was provided to callers since the last check, and may have been modified directly.
+*/
+private boolean __accessedAll = false;
+
+/**
+Construct the index for a list.
+@param list the list to index
+*/
+public ResultsListIndex ( List<T> list )
+{
+	__list = list;
+}
+
+/**
+Indicate that an object was provided to a caller, which may change its identifier.
+@param o the object that was provided
+*/
+public void accessed ( T o )
+{
+	if ( (o != null) && !__accessedAll ) {
+		__accessedSet.add ( o );
+	}
+}
+
+/**
+Indicate that the list was provided to a caller, which may modify the list or any object in the list.
+*/
+public void accessedAll ()
+{
+	__accessedAll = true;
+	__accessedSet.clear();
+}
+
+/**
+Indicate that an object was appended to the end of the list.
+@param o the object that was appended
+*/
+public void added ( T o )
+{
+	if ( __rebuildNeeded ) {
+		return;
+	}
+	int position = __indexedIDList.size();
+	if ( position != (__list.size() - 1) ) {
+		__rebuildNeeded = true;
+		return;
+	}
+	addToIndex ( o, position );
+}
+
+/**
+Add an object to the index at a position (must be the end of the indexed list).
+*/
+private void addToIndex ( T o, int position )
+{
+	String id = null;
+	if ( o != null ) {
+		id = getIdentifier ( o );
+	}
+	__indexedIDList.add ( id );
+	__indexedObjectList.add ( o );
+	addToPositionMap ( o, position );
+	addPosition ( id, position );
+}
+
+/**
+Add a position to an identifier's position list, keeping the list sorted.
+*/
+private void addPosition ( String id, int position )
+{
+	if ( id == null ) {
+		return;
+	}
+	String key = id.toUpperCase();
+	List<Integer> positions = __idMap.get(key);
+	if ( positions == null ) {
+		positions = new ArrayList<Integer>(1);
+		__idMap.put ( key, positions );
+	}
+	int size = positions.size();
+	if ( (size == 0) || (positions.get(size - 1) < position) ) {
+		positions.add ( position );
+	}
+	else {
+		int pos = Collections.binarySearch ( positions, position );
+		if ( pos < 0 ) {
+			positions.add ( (-pos - 1), position );
+		}
+	}
+}
+
+/**
+Add an object to the position map.
+*/
+private void addToPositionMap ( T o, int position )
+{
+	if ( o == null ) {
+		return;
+	}
+	Integer previous = __positionMap.put ( o, position );
+	if ( (previous != null) && (previous.intValue() != position) ) {
+		__hasDuplicates = true;
+	}
+}
+
+/**
+Indicate that the list was modified other than by appending (e.g., set, remove, clear).
+The index will be rebuilt before the next lookup.
+*/
+public void changed ()
+{
+	__rebuildNeeded = true;
+}
+
+/**
+Check the objects that were provided to callers since the last check, and update the index
+for objects that have a different identifier than when indexed.  This is called after each command.
+If the list itself was provided to a caller, the full list is compared with the index.
+*/
+public void checkAccessed ()
+{
+	// If a rebuild is needed, the rebuild will index the current state
+	if ( !__rebuildNeeded ) {
+		boolean checkAll = __accessedAll || (__indexedIDList.size() != __list.size()) ||
+			(__hasDuplicates && !__accessedSet.isEmpty());
+		if ( !checkAll ) {
+			for ( T o : __accessedSet ) {
+				Integer position = __positionMap.get ( o );
+				if ( position == null ) {
+					// Not in the list
+					continue;
+				}
+				int pos = position.intValue();
+				if ( __list.get(pos) != o ) {
+					// List was modified without notification
+					checkAll = true;
+					break;
+				}
+				if ( !stringsEqual(getIdentifier(o), __indexedIDList.get(pos)) ) {
+					reindex ( o, pos );
+				}
+			}
+		}
+		if ( checkAll && hasChanged() ) {
+			__rebuildNeeded = true;
+		}
+	}
+	__accessedSet.clear();
+	__accessedAll = false;
+}
+
+/**
+Return the identifier for an object, used as the case-insensitive key.
+@param o object in the list (will not be null)
+@return the identifier for the object
+*/
+protected abstract String getIdentifier ( T o );
+
+/**
+Determine whether the list has changed since it was indexed.
+@return true if the list has changed since it was indexed
+*/
+private boolean hasChanged ()
+{
+	int size = __list.size();
+	if ( size != __indexedIDList.size() ) {
+		return true;
+	}
+	for ( int i = 0; i < size; i++ ) {
+		T o = __list.get(i);
+		if ( o != __indexedObjectList.get(i) ) {
+			return true;
+		}
+		String id = null;
+		if ( o != null ) {
+			id = getIdentifier ( o );
+		}
+		if ( !stringsEqual(id, __indexedIDList.get(i)) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+/**
+Return the position of the first object in the list with the identifier (case-insensitive).
+@param id identifier to match
+@return the position in the list (0 index) or -1 if not found
+*/
+public int indexOf ( String id )
+{
+	List<Integer> positions = indexesOf ( id );
+	if ( positions.size() == 0 ) {
+		return -1;
+	}
+	return positions.get(0);
+}
+
+/**
+Return the positions of all objects in the list with the identifier (case-insensitive).
+@param id identifier to match
+@return the positions in the list (0 index) in ascending order, guaranteed to be non-null.
+The returned list must not be modified.
+*/
+public List<Integer> indexesOf ( String id )
+{
+	if ( id == null ) {
+		return Collections.emptyList();
+	}
+	updateIfNeeded();
+	List<Integer> positions = __idMap.get(id.toUpperCase());
+	if ( positions == null ) {
+		return Collections.emptyList();
+	}
+	return positions;
+}
+
+/**
+Rebuild the index from the list.
+*/
+private void rebuild ()
+{
+	__indexedIDList.clear();
+	__indexedObjectList.clear();
+	__idMap.clear();
+	__positionMap.clear();
+	__hasDuplicates = false;
+	int size = __list.size();
+	for ( int i = 0; i < size; i++ ) {
+		addToIndex ( __list.get(i), i );
+	}
+	__rebuildNeeded = false;
+}
+
+/**
+Update the index for an object at a position, for example because its identifier changed.
+*/
+private void reindex ( T o, int position )
+{
+	String indexedID = __indexedIDList.get(position);
+	if ( indexedID != null ) {
+		String key = indexedID.toUpperCase();
+		List<Integer> positions = __idMap.get(key);
+		if ( positions != null ) {
+			int pos = Collections.binarySearch ( positions, position );
+			if ( pos >= 0 ) {
+				positions.remove ( pos );
+			}
+			if ( positions.size() == 0 ) {
+				__idMap.remove ( key );
+			}
+		}
+	}
+	String id = null;
+	if ( o != null ) {
+		id = getIdentifier ( o );
+	}
+	__indexedIDList.set ( position, id );
+	T previous = __indexedObjectList.set ( position, o );
+	if ( (previous != null) && (previous != o) ) {
+		Integer previousPosition = __positionMap.get ( previous );
+		if ( (previousPosition != null) && (previousPosition.intValue() == position) ) {
+			__positionMap.remove ( previous );
+		}
+	}
+	addToPositionMap ( o, position );
+	addPosition ( id, position );
+}
+
+/**
+Indicate that an object was set at an existing position in the list.
+@param o the object that was set
+@param position position in the list (0 index)
+*/
+public void set ( T o, int position )
+{
+	if ( __rebuildNeeded ) {
+		return;
+	}
+	if ( (position >= __indexedIDList.size()) || (__indexedIDList.size() != __list.size()) ) {
+		__rebuildNeeded = true;
+		return;
+	}
+	reindex ( o, position );
+}
+
+/**
+Compare two strings, handling nulls.
+*/
+private boolean stringsEqual ( String s1, String s2 )
+{
+	if ( s1 == s2 ) {
+		return true;
+	}
+	if ( (s1 == null) || (s2 == null) ) {
+		return false;
+	}
+	return s1.equals(s2);
+}
+
+/**
+Rebuild the index, if needed.
+*/
+private void updateIfNeeded ()
+{
+	if ( __rebuildNeeded ) {
+		rebuild();
+	}
+}
+
+}
@@ -30,7 +30,9 @@ package rti.tscommandprocessor.core;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import RTi.Util.IO.Command;
 import RTi.Util.IO.CommandFactory;
@@ -367,6 +369,347 @@ public class TSCommandFactory implements CommandFactory
  */
 @SuppressWarnings("rawtypes")
 List<Class> pluginCommandClassList = new ArrayList<>();
+
+/**
+Map of plugin command classes, by upper-case command name (class name without "_Command").
+If more than one plugin class has the same command name, the first class in the list is used.
+*/
+@SuppressWarnings("rawtypes")
+private Map<String,Class> __pluginCommandClassMap = new HashMap<String,Class>();
+
+/**
+Map of built-in command classes, by upper-case command name, so that the command name can be
+looked up directly rather than comparing with each command name in turn.
+Legacy command names are included and map to the current command class.
+*/
+private static final Map<String,Class<? extends Command>> __commandClassMap = new HashMap<String,Class<? extends Command>>();
+
+static {
+	// "A" commands...
+
+	registerCommand ( "AddConstant", AddConstant_Command.class );
+	registerCommand ( "Add", Add_Command.class );
+	registerCommand ( "AdjustExtremes", AdjustExtremes_Command.class );
+	registerCommand ( "AnalyzeNetworkPointFlow", AnalyzeNetworkPointFlow_Command.class );
+	registerCommand ( "AnalyzePattern", AnalyzePattern_Command.class );
+	registerCommand ( "AppendFile", AppendFile_Command.class );
+	registerCommand ( "AppendTable", AppendTable_Command.class );
+	registerCommand ( "ARMA", ARMA_Command.class );
+
+	// "B" commands...
+
+	registerCommand ( "Blend", Blend_Command.class );
+	registerCommand ( "Break", Break_Command.class );
+
+	// "C" commands...
+
+	registerCommand ( "CalculateTimeSeriesStatistic", CalculateTimeSeriesStatistic_Command.class );
+	registerCommand ( "ChangeInterval", ChangeInterval_Command.class );
+	registerCommand ( "ChangeIntervalIrregularToRegular", ChangeIntervalIrregularToRegular_Command.class );
+	registerCommand ( "ChangeIntervalRegularToIrregular", ChangeIntervalRegularToIrregular_Command.class );
+	registerCommand ( "ChangeIntervalToLarger", ChangeIntervalToLarger_Command.class );
+	registerCommand ( "ChangeIntervalToSmaller", ChangeIntervalToSmaller_Command.class );
+	registerCommand ( "ChangePeriod", ChangePeriod_Command.class );
+	registerCommand ( "ChangeTimeZone", ChangeTimeZone_Command.class );
+	registerCommand ( "CheckTimeSeries", CheckTimeSeries_Command.class );
+	registerCommand ( "CheckTimeSeriesStatistic", CheckTimeSeriesStatistic_Command.class );
+	registerCommand ( "CloseDataStore", CloseDataStore_Command.class );
+	registerCommand ( "CloseExcelWorkbook", CloseExcelWorkbook_Command.class );
+	registerCommand ( "CompareFiles", CompareFiles_Command.class );
+	registerCommand ( "CompareTables", CompareTables_Command.class );
+	registerCommand ( "CompareTimeSeries", CompareTimeSeries_Command.class );
+	registerCommand ( "ComputeErrorTimeSeries", ComputeErrorTimeSeries_Command.class );
+	registerCommand ( "ConfigureLogging", ConfigureLogging_Command.class );
+	registerCommand ( "Continue", Continue_Command.class );
+	registerCommand ( "ConvertDataUnits", ConvertDataUnits_Command.class );
+	registerCommand ( "Copy", Copy_Command.class );
+	registerCommand ( "CopyEnsemble", CopyEnsemble_Command.class );
+	registerCommand ( "CopyFile", CopyFile_Command.class );
+	registerCommand ( "CopyPropertiesToTable", CopyPropertiesToTable_Command.class );
+	registerCommand ( "CopyTable", CopyTable_Command.class );
+	registerCommand ( "CopyTimeSeriesPropertiesToTable", CopyTimeSeriesPropertiesToTable_Command.class );
+	registerCommand ( "CreateDataStoreDataDictionary", CreateDataStoreDataDictionary_Command.class );
+	// The command name changed...
+	registerCommand ( "CreateEnsembleFromOneTimeSeries", CreateEnsembleFromOneTimeSeries_Command.class );
+	registerCommand ( "CreateEnsemble", CreateEnsembleFromOneTimeSeries_Command.class );
+	registerCommand ( "CreateFolder", CreateFolder_Command.class );
+	registerCommand ( "CreateFromList", CreateFromList_Command.class );
+	registerCommand ( "CreateNetworkFromTable", CreateNetworkFromTable_Command.class );
+	registerCommand ( "CreateTimeSeriesEventTable", CreateTimeSeriesEventTable_Command.class );
+	registerCommand ( "CreateRegressionTestCommandFile", CreateRegressionTestCommandFile_Command.class );
+	registerCommand ( "Cumulate", Cumulate_Command.class );
+
+	// "D" commands...
+
+	registerCommand ( "DeleteDataStoreTableRows", DeleteDataStoreTableRows_Command.class );
+	registerCommand ( "DeleteTableColumns", DeleteTableColumns_Command.class );
+	registerCommand ( "DeleteTableRows", DeleteTableRows_Command.class );
+	registerCommand ( "Delta", Delta_Command.class );
+	registerCommand ( "DeselectTimeSeries", DeselectTimeSeries_Command.class );
+	registerCommand ( "Disaggregate", Disaggregate_Command.class );
+	registerCommand ( "Divide", Divide_Command.class );
+
+	// "E" commands...
+
+	registerCommand ( "EndFor", EndFor_Command.class );
+	registerCommand ( "EndIf", EndIf_Command.class );
+	registerCommand ( "Exit", Exit_Command.class );
+	registerCommand ( "ExpandTemplateFile", ExpandTemplateFile_Command.class );
+
+	// "F" commands...
+
+	registerCommand ( "FillConstant", FillConstant_Command.class );
+	registerCommand ( "FillDayTSFrom2MonthTSAnd1DayTS", FillDayTSFrom2MonthTSAnd1DayTS_Command.class );
+	registerCommand ( "FillFromTS", FillFromTS_Command.class );
+	registerCommand ( "FillHistMonthAverage", FillHistMonthAverage_Command.class );
+	registerCommand ( "FillHistYearAverage", FillHistYearAverage_Command.class );
+	registerCommand ( "FillInterpolate", FillInterpolate_Command.class );
+	registerCommand ( "FillMixedStation", FillMixedStation_Command.class );
+	registerCommand ( "FillMOVE2", FillMOVE2_Command.class );
+	registerCommand ( "FillPattern", FillPattern_Command.class );
+	registerCommand ( "FillPrincipalComponentAnalysis", FillPrincipalComponentAnalysis_Command.class );
+	registerCommand ( "FillProrate", FillProrate_Command.class );
+	registerCommand ( "FillRegression", FillRegression_Command.class );
+	registerCommand ( "FillRepeat", FillRepeat_Command.class );
+	registerCommand ( "FillUsingDiversionComments", FillUsingDiversionComments_Command.class );
+	registerCommand ( "For", For_Command.class );
+	registerCommand ( "FormatDateTimeProperty", FormatDateTimeProperty_Command.class );
+	registerCommand ( "FormatFile", FormatFile_Command.class );
+	registerCommand ( "FormatStringProperty", FormatStringProperty_Command.class );
+	registerCommand ( "FormatTableDateTime", FormatTableDateTime_Command.class );
+	registerCommand ( "FormatTableString", FormatTableString_Command.class );
+	registerCommand ( "Free", Free_Command.class );
+	registerCommand ( "FreeTable", FreeTable_Command.class );
+	registerCommand ( "FTPGet", FTPGet_Command.class );
+	//registerCommand ( "FreeEnsemble", FreeEnsemble_Command.class );
+
+	// "I" commands...
+
+	registerCommand ( "If", If_Command.class );
+	registerCommand ( "InsertTableColumn", InsertTableColumn_Command.class );
+	registerCommand ( "InsertTableRow", InsertTableRow_Command.class );
+	registerCommand ( "InsertTimeSeriesIntoEnsemble", InsertTimeSeriesIntoEnsemble_Command.class );
+
+	// "J" commands...
+
+	registerCommand ( "JoinTables", JoinTables_Command.class );
+
+	// "L" commands...
+
+	registerCommand ( "LagK", LagK_Command.class );
+	registerCommand ( "ListFiles", ListFiles_Command.class );
+	registerCommand ( "LookupTimeSeriesFromTable", LookupTimeSeriesFromTable_Command.class );
+
+	// "M" commands...
+
+	registerCommand ( "ManipulateTableString", ManipulateTableString_Command.class );
+	registerCommand ( "MergeListFileColumns", MergeListFileColumns_Command.class );
+	registerCommand ( "Message", Message_Command.class );
+	registerCommand ( "Multiply", Multiply_Command.class );
+
+	// "N" commands...
+
+	registerCommand ( "NewDayTSFromMonthAndDayTS", NewDayTSFromMonthAndDayTS_Command.class );
+	registerCommand ( "NewDerbyDatabase", NewDerbyDatabase_Command.class );
+	registerCommand ( "NewEndOfMonthTSFromDayTS", NewEndOfMonthTSFromDayTS_Command.class );
+	registerCommand ( "NewEnsemble", NewEnsemble_Command.class );
+	registerCommand ( "NewExcelWorkbook", NewExcelWorkbook_Command.class );
+	registerCommand ( "NewPatternTimeSeries", NewPatternTimeSeries_Command.class );
+	registerCommand ( "NewSQLiteDatabase", NewSQLiteDatabase_Command.class );
+	registerCommand ( "NewStatisticEnsemble", NewStatisticEnsemble_Command.class );
+	registerCommand ( "NewStatisticMonthTimeSeries", NewStatisticMonthTimeSeries_Command.class );
+	registerCommand ( "NewStatisticTimeSeriesFromEnsemble", NewStatisticTimeSeriesFromEnsemble_Command.class );
+	registerCommand ( "NewStatisticTimeSeries", NewStatisticTimeSeries_Command.class );
+	registerCommand ( "NewStatisticYearTS", NewStatisticYearTS_Command.class );
+	registerCommand ( "NewTable", NewTable_Command.class );
+	registerCommand ( "NewTimeSeries", NewTimeSeries_Command.class );
+	registerCommand ( "NewTreeView", NewTreeView_Command.class );
+	registerCommand ( "Normalize", Normalize_Command.class );
+
+	// "O" commands...
+
+	registerCommand ( "OpenDataStore", OpenDataStore_Command.class );
+	registerCommand ( "OpenHydroBase", OpenHydroBase_Command.class );
+
+	// "P" commands...
+
+	registerCommand ( "PrintTextFile", PrintTextFile_Command.class );
+	registerCommand ( "ProcessRasterGraph", ProcessRasterGraph_Command.class );
+	registerCommand ( "ProcessTSProduct", ProcessTSProduct_Command.class );
+	registerCommand ( "ProfileCommands", ProfileCommands_Command.class );
+
+	// "R" commands...
+
+	registerCommand ( "ReadColoradoHydroBaseRest", ReadColoradoHydroBaseRest_Command.class );
+	registerCommand ( "ReadDateValue", ReadDateValue_Command.class );
+	registerCommand ( "ReadDelftFewsPiXml", ReadDelftFewsPiXml_Command.class );
+	registerCommand ( "ReadDelimitedFile", ReadDelimitedFile_Command.class );
+	registerCommand ( "ReadExcelWorkbook", ReadExcelWorkbook_Command.class );
+	registerCommand ( "ReadHecDss", ReadHecDss_Command.class );
+	registerCommand ( "ReadHydroBase", ReadHydroBase_Command.class );
+	registerCommand ( "ReadMODSIM", ReadMODSIM_Command.class );
+	//registerCommand ( "ReadNDFD", readNDFD_Command.class );
+	registerCommand ( "ReadNrcsAwdb", ReadNrcsAwdb_Command.class );
+	registerCommand ( "ReadNwsCard", ReadNwsCard_Command.class );
+	registerCommand ( "ReadNwsrfsFS5Files", ReadNwsrfsFS5Files_Command.class );
+	registerCommand ( "ReadNwsrfsEspTraceEnsemble", ReadNwsrfsEspTraceEnsemble_Command.class );
+	registerCommand ( "ReadPatternFile", ReadPatternFile_Command.class );
+	registerCommand ( "ReadPropertiesFromExcel", ReadPropertiesFromExcel_Command.class );
+	registerCommand ( "ReadPropertiesFromFile", ReadPropertiesFromFile_Command.class );
+	registerCommand ( "ReadRccAcis", ReadRccAcis_Command.class );
+	registerCommand ( "ReadReclamationHDB", ReadReclamationHDB_Command.class );
+	registerCommand ( "ReadReclamationPisces", ReadReclamationPisces_Command.class );
+	registerCommand ( "ReadRiverWare", ReadRiverWare_Command.class );
+	//registerCommand ( "ReadSocrata", ReadSocrata_Command.class );
+	registerCommand ( "ReadStateCUB", ReadStateCUB_Command.class );
+	registerCommand ( "ReadStateCU", ReadStateCU_Command.class );
+	registerCommand ( "ReadStateModB", ReadStateModB_Command.class );
+	registerCommand ( "ReadStateMod", ReadStateMod_Command.class );
+	registerCommand ( "ReadTableCellsFromExcel", ReadTableCellsFromExcel_Command.class );
+	registerCommand ( "ReadTableFromDataStore", ReadTableFromDataStore_Command.class );
+	registerCommand ( "ReadTableFromDBF", ReadTableFromDBF_Command.class );
+	registerCommand ( "ReadTableFromDelimitedFile", ReadTableFromDelimitedFile_Command.class );
+	registerCommand ( "ReadTableFromExcel", ReadTableFromExcel_Command.class );
+	registerCommand ( "ReadTableFromFixedFormatFile", ReadTableFromFixedFormatFile_Command.class );
+	registerCommand ( "ReadTableFromJSON", ReadTableFromJSON_Command.class );
+	registerCommand ( "ReadTableFromXML", ReadTableFromXML_Command.class );
+	registerCommand ( "ReadTimeSeries", ReadTimeSeries_Command.class );
+	registerCommand ( "ReadTimeSeriesFromDataStore", ReadTimeSeriesFromDataStore_Command.class );
+	registerCommand ( "ReadTimeSeriesList", ReadTimeSeriesList_Command.class );
+	// Automatically convert legacy command to new name
+	registerCommand ( "ReadUsgsNwis", ReadUsgsNwisRdb_Command.class );
+	registerCommand ( "ReadUsgsNwisRdb", ReadUsgsNwisRdb_Command.class );
+	registerCommand ( "ReadUsgsNwisDaily", ReadUsgsNwisDaily_Command.class );
+	registerCommand ( "ReadUsgsNwisGroundwater", ReadUsgsNwisGroundwater_Command.class );
+	registerCommand ( "ReadUsgsNwisInstantaneous", ReadUsgsNwisInstantaneous_Command.class );
+	registerCommand ( "ReadWaterML", ReadWaterML_Command.class );
+	registerCommand ( "ReadWaterML2", ReadWaterML2_Command.class );
+	registerCommand ( "ReadWaterOneFlow", ReadWaterOneFlow_Command.class );
+	registerCommand ( "RelativeDiff", RelativeDiff_Command.class );
+	registerCommand ( "RemoveFile", RemoveFile_Command.class );
+	// Automatically change the name
+	registerCommand ( "RemoveDataStoreTableRows", DeleteDataStoreTableRows_Command.class );
+	registerCommand ( "RemoveTableRowsFromDataStore", DeleteDataStoreTableRows_Command.class );
+	registerCommand ( "RenameTableColumns", RenameTableColumns_Command.class );
+	registerCommand ( "ReplaceValue", ReplaceValue_Command.class );
+	registerCommand ( "ResequenceTimeSeriesData", ResequenceTimeSeriesData_Command.class );
+	registerCommand ( "RunCommands", RunCommands_Command.class );
+	registerCommand ( "RunDSSUTL", RunDSSUTL_Command.class );
+	registerCommand ( "RunningAverage", RunningAverage_Command.class );
+	registerCommand ( "RunningStatisticTimeSeries", RunningStatisticTimeSeries_Command.class );
+	registerCommand ( "RunProgram", RunProgram_Command.class );
+	registerCommand ( "RunPython", RunPython_Command.class );
+	registerCommand ( "RunR", RunR_Command.class );
+	registerCommand ( "RunSql", RunSql_Command.class );
+
+	// "S" commands...
+
+	registerCommand ( "Scale", Scale_Command.class );
+	registerCommand ( "SelectTimeSeries", SelectTimeSeries_Command.class );
+	registerCommand ( "SendEmailMessage", SendEmailMessage_Command.class );
+	registerCommand ( "SetAutoExtendPeriod", SetAutoExtendPeriod_Command.class );
+	registerCommand ( "SetAveragePeriod", SetAveragePeriod_Command.class );
+	// Obsolete SetConst() and SetConstantBefore() will be handled as an unknown command.
+	registerCommand ( "SetConstant", SetConstant_Command.class );
+	registerCommand ( "SetDataValue", SetDataValue_Command.class );
+	registerCommand ( "SetDebugLevel", SetDebugLevel_Command.class );
+	registerCommand ( "SetEnsembleProperty", SetEnsembleProperty_Command.class );
+	registerCommand ( "SetExcelCell", SetExcelCell_Command.class );
+	registerCommand ( "SetExcelWorksheetViewProperties", SetExcelWorksheetViewProperties_Command.class );
+	registerCommand ( "SetFromTS", SetFromTS_Command.class );
+	registerCommand ( "SetIgnoreLEZero", SetIgnoreLEZero_Command.class );
+	registerCommand ( "SetIncludeMissingTS", SetIncludeMissingTS_Command.class );
+	registerCommand ( "SetInputPeriod", SetInputPeriod_Command.class );
+	registerCommand ( "SetOutputPeriod", SetOutputPeriod_Command.class );
+	registerCommand ( "SetOutputYearType", SetOutputYearType_Command.class );
+	// Automatically convert to ReadPatternFile
+	registerCommand ( "SetPatternFile", ReadPatternFile_Command.class );
+	registerCommand ( "SetPropertyFromEnsemble", SetPropertyFromEnsemble_Command.class );
+	registerCommand ( "SetPropertyFromNwsrfsAppDefault", SetPropertyFromNwsrfsAppDefault_Command.class );
+	registerCommand ( "SetPropertyFromTable", SetPropertyFromTable_Command.class );
+	registerCommand ( "SetPropertyFromTimeSeries", SetPropertyFromTimeSeries_Command.class );
+	registerCommand ( "SetProperty", SetProperty_Command.class );
+	// Phasing into new syntax...
+	registerCommand ( "SetQueryPeriod", SetInputPeriod_Command.class );
+	registerCommand ( "SetTableValues", SetTableValues_Command.class );
+	registerCommand ( "SetTimeSeriesPropertiesFromTable", SetTimeSeriesPropertiesFromTable_Command.class );
+	registerCommand ( "SetTimeSeriesProperty", SetTimeSeriesProperty_Command.class );
+	registerCommand ( "SetTimeSeriesValuesFromLookupTable", SetTimeSeriesValuesFromLookupTable_Command.class );
+	registerCommand ( "SetTimeSeriesValuesFromTable", SetTimeSeriesValuesFromTable_Command.class );
+	// Legacy is "SetMax" so translate on the fly.
+	registerCommand ( "SetMax", SetToMax_Command.class );
+	registerCommand ( "SetToMax", SetToMax_Command.class );
+	registerCommand ( "SetToMin", SetToMin_Command.class );
+	registerCommand ( "SetWarningLevel", SetWarningLevel_Command.class );
+	registerCommand ( "SetWorkingDir", SetWorkingDir_Command.class );
+	registerCommand ( "ShiftTimeByInterval", ShiftTimeByInterval_Command.class );
+	registerCommand ( "SortTable", SortTable_Command.class );
+	registerCommand ( "SortTimeSeries", SortTimeSeries_Command.class );
+	registerCommand ( "SplitTableColumn", SplitTableColumn_Command.class );
+	registerCommand ( "SplitTableRow", SplitTableRow_Command.class );
+	registerCommand ( "StartLog", StartLog_Command.class );
+	registerCommand ( "StartRegressionTestResultsReport", StartRegressionTestResultsReport_Command.class );
+	registerCommand ( "StateModMax", StateModMax_Command.class );
+	registerCommand ( "Subtract", Subtract_Command.class );
+
+	// "T" commands...
+
+	registerCommand ( "TableMath", TableMath_Command.class );
+	registerCommand ( "TableTimeSeriesMath", TableTimeSeriesMath_Command.class );
+	registerCommand ( "TableToTimeSeries", TableToTimeSeries_Command.class );
+	registerCommand ( "TestCommand", TestCommand_Command.class );
+	registerCommand ( "TextEdit", TextEdit_Command.class );
+	registerCommand ( "TimeSeriesToTable", TimeSeriesToTable_Command.class );
+
+	// "U" commands...
+
+	registerCommand ( "UnzipFile", UnzipFile_Command.class );
+
+	// "V" commands...
+
+	registerCommand ( "VariableLagK", VariableLagK_Command.class );
+
+	// "W" commands...
+
+	registerCommand ( "Wait", Wait_Command.class );
+	registerCommand ( "WebGet", WebGet_Command.class );
+	registerCommand ( "WeightTraces", WeightTraces_Command.class );
+	registerCommand ( "WriteCheckFile", WriteCheckFile_Command.class );
+	registerCommand ( "WriteDateValue", WriteDateValue_Command.class );
+	registerCommand ( "WriteDelftFewsPiXml", WriteDelftFewsPiXml_Command.class );
+	registerCommand ( "WriteDelimitedFile", WriteDelimitedFile_Command.class );
+	registerCommand ( "WriteHecDss", WriteHecDss_Command.class );
+	registerCommand ( "WriteNwsCard", WriteNwsCard_Command.class );
+	registerCommand ( "WriteNWSRFSESPTraceEnsemble", WriteNWSRFSESPTraceEnsemble_Command.class );
+	registerCommand ( "WritePropertiesToFile", WritePropertiesToFile_Command.class );
+	registerCommand ( "WriteProperty", WriteProperty_Command.class );
+	registerCommand ( "WriteReclamationHDB", WriteReclamationHDB_Command.class );
+	registerCommand ( "WriteRiverWare", WriteRiverWare_Command.class );
+	registerCommand ( "WriteSHEF", WriteSHEF_Command.class );
+	registerCommand ( "WriteStateCU", WriteStateCU_Command.class );
+	registerCommand ( "WriteStateMod", WriteStateMod_Command.class );
+	registerCommand ( "WriteSummary", WriteSummary_Command.class );
+	registerCommand ( "WriteTableToDataStore", WriteTableToDataStore_Command.class );
+	registerCommand ( "WriteTableToDelimitedFile", WriteTableToDelimitedFile_Command.class );
+	registerCommand ( "WriteTableToExcel", WriteTableToExcel_Command.class );
+	registerCommand ( "WriteTableCellsToExcel", WriteTableCellsToExcel_Command.class );
+	registerCommand ( "WriteTableToGeoJSON", WriteTableToGeoJSON_Command.class );
+	registerCommand ( "WriteTableToHTML", WriteTableToHTML_Command.class );
+	registerCommand ( "WriteTableToKml", WriteTableToKml_Command.class );
+	registerCommand ( "WriteTableToShapefile", WriteTableToShapefile_Command.class );
+	registerCommand ( "WriteTimeSeriesPropertiesToFile", WriteTimeSeriesPropertiesToFile_Command.class );
+	registerCommand ( "WriteTimeSeriesProperty", WriteTimeSeriesProperty_Command.class );
+	registerCommand ( "WriteTimeSeriesToDataStore", WriteTimeSeriesToDataStore_Command.class );
+	registerCommand ( "WriteTimeSeriesToDataStream", WriteTimeSeriesToDataStream_Command.class );
+	registerCommand ( "WriteTimeSeriesToExcel", WriteTimeSeriesToExcel_Command.class );
+	registerCommand ( "WriteTimeSeriesToExcelBlock", WriteTimeSeriesToExcelBlock_Command.class );
+	registerCommand ( "WriteTimeSeriesToHydroJSON", WriteTimeSeriesToHydroJSON_Command.class );
+	registerCommand ( "WriteTimeSeriesToJson", WriteTimeSeriesToJson_Command.class );
+	registerCommand ( "WriteTimeSeriesToGeoJSON", WriteTimeSeriesToGeoJSON_Command.class );
+	registerCommand ( "WriteTimeSeriesToKml", WriteTimeSeriesToKml_Command.class );
+	registerCommand ( "WriteWaterML", WriteWaterML_Command.class );
+	registerCommand ( "WriteWaterML2", WriteWaterML2_Command.class );
+}
  
 /**
 Constructor.
@@ -384,6 +727,16 @@ public TSCommandFactory ( List<Class> pluginCommandClassList )
 {
     super();
     this.pluginCommandClassList = pluginCommandClassList;
+    for ( Class c : pluginCommandClassList ) {
+    	String nameFromClass = c.getSimpleName(); // Should be like CommandName_Command
+    	int pos = nameFromClass.indexOf("_Command");
+    	if ( pos > 0 ) {
+    		String key = nameFromClass.substring(0,pos).toUpperCase();
+    		if ( !__pluginCommandClassMap.containsKey(key) ) {
+    			__pluginCommandClassMap.put ( key, c );
+    		}
+    	}
+    }
 }
 	
 /**
@@ -465,890 +818,39 @@ throws UnknownCommandException
         return new CommentBlockEnd_Command ();
     }
 
-	// "A" commands...
-
-    // Put the following before "Add"
-    else if ( commandName.equalsIgnoreCase("AddConstant") ) {
-        return new AddConstant_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Add") ) {
-        return new Add_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("AdjustExtremes") ) {
-        return new AdjustExtremes_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("AnalyzeNetworkPointFlow") ) {
-        return new AnalyzeNetworkPointFlow_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("AnalyzePattern") ) {
-		return new AnalyzePattern_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("AppendFile") ) {
-        return new AppendFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("AppendTable") ) {
-        return new AppendTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ARMA") ) {
-        return new ARMA_Command ();
-    }
-    
-    // "B" commands...
-    
-    else if ( commandName.equalsIgnoreCase("Blend") ) {
-        return new Blend_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Break") ) {
-        return new Break_Command ();
-    }
-
-	// "C" commands...
-
-    else if ( commandName.equalsIgnoreCase("CalculateTimeSeriesStatistic") ) {
-        return new CalculateTimeSeriesStatistic_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ChangeInterval") ) {
-		return new ChangeInterval_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("ChangeIntervalIrregularToRegular") ) {
-		return new ChangeIntervalIrregularToRegular_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("ChangeIntervalRegularToIrregular") ) {
-		return new ChangeIntervalRegularToIrregular_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("ChangeIntervalToLarger") ) {
-		return new ChangeIntervalToLarger_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("ChangeIntervalToSmaller") ) {
-		return new ChangeIntervalToSmaller_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ChangePeriod") ) {
-        return new ChangePeriod_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ChangeTimeZone") ) {
-        return new ChangeTimeZone_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CheckTimeSeries") ) {
-        return new CheckTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CheckTimeSeriesStatistic") ) {
-        return new CheckTimeSeriesStatistic_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("CloseDataStore") ) {
-		return new CloseDataStore_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("CloseExcelWorkbook") ) {
-		return new CloseExcelWorkbook_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("CompareFiles") ) {
-		return new CompareFiles_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("CompareTables") ) {
-        return new CompareTables_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("CompareTimeSeries") ) {
-		return new CompareTimeSeries_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ComputeErrorTimeSeries") ) {
-        return new ComputeErrorTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ConfigureLogging") ) {
-        return new ConfigureLogging_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Continue") ) {
-        return new Continue_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ConvertDataUnits") ) {
-        return new ConvertDataUnits_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("Copy") ) {
-		return new Copy_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("CopyEnsemble") ) {
-        return new CopyEnsemble_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CopyFile") ) {
-        return new CopyFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CopyPropertiesToTable") ) {
-        return new CopyPropertiesToTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CopyTable") ) {
-        return new CopyTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CopyTimeSeriesPropertiesToTable") ) {
-        return new CopyTimeSeriesPropertiesToTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateDataStoreDataDictionary") ) {
-        return new CreateDataStoreDataDictionary_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateEnsembleFromOneTimeSeries") ||
-        commandName.equalsIgnoreCase("CreateEnsemble")) {
-        // The command name changed...
-        return new CreateEnsembleFromOneTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateFolder") ) {
-        return new CreateFolder_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateFromList") ) {
-        return new CreateFromList_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateNetworkFromTable") ) {
-        return new CreateNetworkFromTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("CreateTimeSeriesEventTable") ) {
-        return new CreateTimeSeriesEventTable_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("CreateRegressionTestCommandFile") ) {
-		return new CreateRegressionTestCommandFile_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("Cumulate") ) {
-		return new Cumulate_Command ();
-	}
-    
-    // "D" commands...
-
-    else if ( commandName.equalsIgnoreCase("DeleteDataStoreTableRows") ) {
-        return new DeleteDataStoreTableRows_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("DeleteTableColumns") ) {
-        return new DeleteTableColumns_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("DeleteTableRows") ) {
-        return new DeleteTableRows_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Delta") ) {
-        return new Delta_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("DeselectTimeSeries") ) {
-        return new DeselectTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Disaggregate") ) {
-        return new Disaggregate_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Divide") ) {
-        return new Divide_Command ();
-    }
-	
-	// "E" commands...
-
-    else if ( commandName.equalsIgnoreCase("EndFor") ) {
-        return new EndFor_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("EndIf") ) {
-        return new EndIf_Command ();
-    }
-	else if ( StringUtil.startsWithIgnoreCase(commandString,"Exit") ||
-	    StringUtil.startsWithIgnoreCase(commandString,"Exit")) {
-		return new Exit_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ExpandTemplateFile") ) {
-        return new ExpandTemplateFile_Command ();
-    }
-
-	// "F" commands...
+	// Built-in commands, using the command name (legacy command names are also recognized)
 
-	else if ( commandName.equalsIgnoreCase("FillConstant") ) {
-		return new FillConstant_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("FillDayTSFrom2MonthTSAnd1DayTS") ) {
-        return new FillDayTSFrom2MonthTSAnd1DayTS_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FillFromTS") ) {
-        return new FillFromTS_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("FillHistMonthAverage") ) {
-		return new FillHistMonthAverage_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("FillHistYearAverage") ) {
-		return new FillHistYearAverage_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("FillInterpolate") ) {
-        return new FillInterpolate_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("FillMixedStation") ) {
-		return new FillMixedStation_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("FillMOVE2") ) {
-		return new FillMOVE2_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("FillPattern") ) {
-        return new FillPattern_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("FillPrincipalComponentAnalysis") ) {
-		return new FillPrincipalComponentAnalysis_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("FillProrate") ) {
-        return new FillProrate_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("FillRegression") ) {
-		return new FillRegression_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("FillRepeat") ) {
-        return new FillRepeat_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("FillUsingDiversionComments") ) {
-		return new FillUsingDiversionComments_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("For") ) {
-        return new For_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FormatDateTimeProperty") ) {
-        return new FormatDateTimeProperty_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FormatFile") ) {
-        return new FormatFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FormatStringProperty") ) {
-        return new FormatStringProperty_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FormatTableDateTime") ) {
-        return new FormatTableDateTime_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FormatTableString") ) {
-        return new FormatTableString_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Free") ) {
-        return new Free_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FreeTable") ) {
-        return new FreeTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("FTPGet") ) {
-        return new FTPGet_Command ();
-    }
-    /*
-    else if ( commandName.equalsIgnoreCase("FreeEnsemble") ) {
-        return new FreeEnsemble_Command ();
-    }
-    */
-    
-    // "I" commands...
-
-    else if ( commandName.equalsIgnoreCase("If") ) {
-        return new If_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("InsertTableColumn") ) {
-        return new InsertTableColumn_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("InsertTableRow") ) {
-        return new InsertTableRow_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("InsertTimeSeriesIntoEnsemble") ) {
-        return new InsertTimeSeriesIntoEnsemble_Command ();
-    }
-    
-    // "J" commands...
-
-    else if ( commandName.equalsIgnoreCase("JoinTables") ) {
-        return new JoinTables_Command ();
-    }
-	
-	// "L" commands...
-
-	else if ( commandName.equalsIgnoreCase("LagK") ) {
-		return new LagK_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ListFiles") ) {
-        return new ListFiles_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("LookupTimeSeriesFromTable") ) {
-        return new LookupTimeSeriesFromTable_Command ();
-    }
-	
-	// "M" commands...
-	
-    else if ( commandName.equalsIgnoreCase("ManipulateTableString") ) {
-        return new ManipulateTableString_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("MergeListFileColumns") ) {
-		return new MergeListFileColumns_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("Message") ) {
-        return new Message_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Multiply") ) {
-        return new Multiply_Command ();
-    }
-
-	// "N" commands...
-
-    else if ( commandName.equalsIgnoreCase("NewDayTSFromMonthAndDayTS") ) {
-        return new NewDayTSFromMonthAndDayTS_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewDerbyDatabase") ) {
-        return new NewDerbyDatabase_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewEndOfMonthTSFromDayTS") ) {
-        return new NewEndOfMonthTSFromDayTS_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewEnsemble") ) {
-        return new NewEnsemble_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewExcelWorkbook") ) {
-        return new NewExcelWorkbook_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewPatternTimeSeries") ) {
-        return new NewPatternTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewSQLiteDatabase") ) {
-        return new NewSQLiteDatabase_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewStatisticEnsemble") ) {
-        return new NewStatisticEnsemble_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewStatisticMonthTimeSeries") ) {
-        return new NewStatisticMonthTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("NewStatisticTimeSeriesFromEnsemble") ) {
-        return new NewStatisticTimeSeriesFromEnsemble_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("NewStatisticTimeSeries") ) {
-		return new NewStatisticTimeSeries_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("NewStatisticYearTS") ) {
-		return new NewStatisticYearTS_Command ();
-	}
-    else if ( StringUtil.startsWithIgnoreCase(commandString,"NewTable") ) {
-        return new NewTable_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("NewTimeSeries") ) {
-		return new NewTimeSeries_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("NewTreeView") ) {
-        return new NewTreeView_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Normalize") ) {
-        return new Normalize_Command ();
-    }
-
-	// "O" commands...
-
-	else if ( commandName.equalsIgnoreCase("OpenDataStore") ) {
-		return new OpenDataStore_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("OpenHydroBase") ) {
-		return new OpenHydroBase_Command ();
-	}
-
-	// "P" commands...
-
-    else if ( commandName.equalsIgnoreCase("PrintTextFile") ) {
-        return new PrintTextFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ProcessRasterGraph") ) {
-        return new ProcessRasterGraph_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ProcessTSProduct") ) {
-		return new ProcessTSProduct_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ProfileCommands") ) {
-        return new ProfileCommands_Command ();
-    }
-
-	// "R" commands...
-
-	else if ( commandName.equalsIgnoreCase("ReadColoradoHydroBaseRest") ) {
-		return new ReadColoradoHydroBaseRest_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ReadDateValue") ) {
-        return new ReadDateValue_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadDelftFewsPiXml") ) {
-        return new ReadDelftFewsPiXml_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadDelimitedFile") ) {
-        return new ReadDelimitedFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadExcelWorkbook") ) {
-        return new ReadExcelWorkbook_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadHecDss") ) {
-        return new ReadHecDss_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ReadHydroBase") ) {
-		return new ReadHydroBase_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ReadMODSIM") ) {
-        return new ReadMODSIM_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ReadNDFD") ) {
-		//return new readNDFD_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("ReadNrcsAwdb") ) {
-		return new ReadNrcsAwdb_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ReadNwsCard") ) {
-        return new ReadNwsCard_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadNwsrfsFS5Files") ) {
-        return new ReadNwsrfsFS5Files_Command();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadNwsrfsEspTraceEnsemble") ) {
-        return new ReadNwsrfsEspTraceEnsemble_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadPatternFile") ) {
-        return new ReadPatternFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadPropertiesFromExcel") ) {
-        return new ReadPropertiesFromExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadPropertiesFromFile") ) {
-        return new ReadPropertiesFromFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadRccAcis") ) {
-        return new ReadRccAcis_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadReclamationHDB") ) {
-        return new ReadReclamationHDB_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadReclamationPisces") ) {
-        return new ReadReclamationPisces_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadRiverWare") ) {
-        return new ReadRiverWare_Command ();
-    }
-    //else if ( commandName.equalsIgnoreCase("ReadSocrata") ) {
-    //    return new ReadSocrata_Command ();
-    //}
-    // Put before shorter command name...
-    else if ( commandName.equalsIgnoreCase("ReadStateCUB") ) {
-        return new ReadStateCUB_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ReadStateCU") ) {
-		return new ReadStateCU_Command ();
-	}
-    // Put before shorter command name...
-    else if ( commandName.equalsIgnoreCase("ReadStateModB") ) {
-        return new ReadStateModB_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("ReadStateMod") ) {
-		return new ReadStateMod_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("ReadTableCellsFromExcel") ) {
-        return new ReadTableCellsFromExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromDataStore") ) {
-        return new ReadTableFromDataStore_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromDBF") ) {
-        return new ReadTableFromDBF_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromDelimitedFile") ) {
-        return new ReadTableFromDelimitedFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromExcel") ) {
-        return new ReadTableFromExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromFixedFormatFile") ) {
-        return new ReadTableFromFixedFormatFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromJSON") ) {
-        return new ReadTableFromJSON_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTableFromXML") ) {
-        return new ReadTableFromXML_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTimeSeries") ) {
-        return new ReadTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTimeSeriesFromDataStore") ) {
-        return new ReadTimeSeriesFromDataStore_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadTimeSeriesList") ) {
-        return new ReadTimeSeriesList_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadUsgsNwis") || commandName.equalsIgnoreCase("ReadUsgsNwisRdb")) {
-        // Automatically convert legacy command to new name
-        return new ReadUsgsNwisRdb_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadUsgsNwisDaily") ) {
-        return new ReadUsgsNwisDaily_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadUsgsNwisGroundwater") ) {
-        return new ReadUsgsNwisGroundwater_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadUsgsNwisInstantaneous") ) {
-        return new ReadUsgsNwisInstantaneous_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadWaterML") ) {
-        return new ReadWaterML_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadWaterML2") ) {
-        return new ReadWaterML2_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReadWaterOneFlow") ) {
-        return new ReadWaterOneFlow_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RelativeDiff") ) {
-        return new RelativeDiff_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RemoveFile") ) {
-        return new RemoveFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RemoveDataStoreTableRows") ) {
-        // Automatically change the name
-        return new DeleteDataStoreTableRows_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RemoveTableRowsFromDataStore") ) {
-        // Automatically change the name
-        return new DeleteDataStoreTableRows_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RenameTableColumns") ) {
-        return new RenameTableColumns_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ReplaceValue") ) {
-        return new ReplaceValue_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ResequenceTimeSeriesData") ) {
-        return new ResequenceTimeSeriesData_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("RunCommands") ) {
-		return new RunCommands_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("RunDSSUTL") ) {
-        return new RunDSSUTL_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunningAverage") ) {
-        return new RunningAverage_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunningStatisticTimeSeries") ) {
-        return new RunningStatisticTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunProgram") ) {
-        return new RunProgram_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunPython") ) {
-        return new RunPython_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunR") ) {
-        return new RunR_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("RunSql") ) {
-        return new RunSql_Command ();
-    }
-
-	// "S" commands...
-
-	else if ( commandName.equalsIgnoreCase("Scale") ) {
-		return new Scale_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("SelectTimeSeries") ) {
-        return new SelectTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SendEmailMessage") ) {
-        return new SendEmailMessage_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetAutoExtendPeriod") ) {
-        return new SetAutoExtendPeriod_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetAveragePeriod") ) {
-        return new SetAveragePeriod_Command ();
-    }
-    // Obsolete SetConst() and SetConstantBefore() will be handled as an unknown command.
-    else if ( commandName.equalsIgnoreCase("SetConstant") ) {
-        return new SetConstant_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetDataValue") ) {
-        return new SetDataValue_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetDebugLevel") ) {
-        return new SetDebugLevel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetEnsembleProperty") ) {
-        return new SetEnsembleProperty_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetExcelCell") ) {
-        return new SetExcelCell_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetExcelWorksheetViewProperties") ) {
-        return new SetExcelWorksheetViewProperties_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetFromTS") ) {
-        return new SetFromTS_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetIgnoreLEZero") ) {
-        return new SetIgnoreLEZero_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetIncludeMissingTS") ) {
-        return new SetIncludeMissingTS_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("SetInputPeriod") ) {
-		return new SetInputPeriod_Command ();
-	}
-	else if ( commandName.equalsIgnoreCase("SetOutputPeriod") ) {
-		return new SetOutputPeriod_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("SetOutputYearType") ) {
-        return new SetOutputYearType_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetPatternFile") ) {
-        // Automatically convert to ReadPatternFile
-        return new ReadPatternFile_Command ();
-    }
-    // Put this before the shorter SetProperty() to avoid ambiguity.
-    else if ( commandName.equalsIgnoreCase("SetPropertyFromEnsemble") ) {
-        return new SetPropertyFromEnsemble_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetPropertyFromNwsrfsAppDefault") ) {
-        return new SetPropertyFromNwsrfsAppDefault_Command ();
-    }
-    // Put this before the shorter SetProperty() to avoid ambiguity.
-    else if ( commandName.equalsIgnoreCase("SetPropertyFromTable") ) {
-        return new SetPropertyFromTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetPropertyFromTimeSeries") ) {
-        return new SetPropertyFromTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetProperty") ) {
-        return new SetProperty_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("SetQueryPeriod") ) {
-		// Phasing into new syntax...
-		return new SetInputPeriod_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("SetTableValues") ) {
-        return new SetTableValues_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetTimeSeriesPropertiesFromTable") ) {
-        return new SetTimeSeriesPropertiesFromTable_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("SetTimeSeriesProperty") ) {
-		return new SetTimeSeriesProperty_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("SetTimeSeriesValuesFromLookupTable") ) {
-        return new SetTimeSeriesValuesFromLookupTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetTimeSeriesValuesFromTable") ) {
-        return new SetTimeSeriesValuesFromTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetMax") || commandName.equalsIgnoreCase("SetToMax") ) {
-        // Legacy is "SetMax" so translate on the fly.
-        return new SetToMax_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetToMin") ) {
-        return new SetToMin_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetWarningLevel") ) {
-        return new SetWarningLevel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SetWorkingDir") ) {
-        return new SetWorkingDir_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("ShiftTimeByInterval") ) {
-        return new ShiftTimeByInterval_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SortTable") ) {
-        return new SortTable_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SortTimeSeries") ) {
-        return new SortTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SplitTableColumn") ) {
-        return new SplitTableColumn_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("SplitTableRow") ) {
-        return new SplitTableRow_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("StartLog") ){
-		return new StartLog_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("StartRegressionTestResultsReport") ){
-        return new StartRegressionTestResultsReport_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("StateModMax") ){
-        return new StateModMax_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("Subtract") ) {
-        return new Subtract_Command ();
-    }
-	
-	// "T" commands...
-
-    else if ( commandName.equalsIgnoreCase("TableMath") ) {
-        return new TableMath_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("TableTimeSeriesMath") ) {
-        return new TableTimeSeriesMath_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("TableToTimeSeries") ) {
-        return new TableToTimeSeries_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("TestCommand") ) {
-		return new TestCommand_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("TextEdit") ) {
-		return new TextEdit_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("TimeSeriesToTable") ) {
-        return new TimeSeriesToTable_Command ();
-    }
-    
-    // "U" commands...
-    
-    else if ( commandName.equalsIgnoreCase("UnzipFile") ) {
-        return new UnzipFile_Command ();
-    }
-    
-    // "V" commands...
-
-    else if ( commandName.equalsIgnoreCase("VariableLagK") ) {
-        return new VariableLagK_Command ();
-    }
-
-	// "W" commands...
-
-    else if ( commandName.equalsIgnoreCase("Wait") ) {
-        return new Wait_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WebGet") ) {
-        return new WebGet_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WeightTraces") ) {
-        return new WeightTraces_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteCheckFile") ) {
-        return new WriteCheckFile_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("WriteDateValue") ) {
-		return new WriteDateValue_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("WriteDelftFewsPiXml") ) {
-        return new WriteDelftFewsPiXml_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteDelimitedFile") ) {
-        return new WriteDelimitedFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteHecDss") ) {
-        return new WriteHecDss_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteNwsCard")) {
-        return new WriteNwsCard_Command();
-    }
-	else if ( commandName.equalsIgnoreCase("WriteNWSRFSESPTraceEnsemble")) {
-		return new WriteNWSRFSESPTraceEnsemble_Command();
-	}
-    else if ( commandName.equalsIgnoreCase("WritePropertiesToFile") ) {
-        return new WritePropertiesToFile_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("WriteProperty") ) {
-		return new WriteProperty_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("WriteReclamationHDB") ) {
-        return new WriteReclamationHDB_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("WriteRiverWare") ) {
-		return new WriteRiverWare_Command ();
-	}
-    else if ( commandName.equalsIgnoreCase("WriteSHEF") ) {
-        return new WriteSHEF_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteStateCU") ) {
-        return new WriteStateCU_Command ();
-    }
-	else if ( commandName.equalsIgnoreCase("WriteStateMod") ) {
-		return new WriteStateMod_Command ();
+	Class<? extends Command> commandClass = __commandClassMap.get(commandName.toUpperCase());
+	if ( commandClass == null ) {
+		// The following commands are also recognized by the start of the command string
+		if ( StringUtil.startsWithIgnoreCase(commandString,"Exit") ) {
+			commandClass = Exit_Command.class;
+		}
+		else if ( StringUtil.startsWithIgnoreCase(commandString,"NewTable") ) {
+			commandClass = NewTable_Command.class;
+		}
 	}
-	else if ( commandName.equalsIgnoreCase("WriteSummary") ) {
-		return new WriteSummary_Command ();
+	if ( commandClass != null ) {
+		Command command = newCommandInstance ( commandClass, routine );
+		if ( command != null ) {
+			return command;
+		}
 	}
-    else if ( commandName.equalsIgnoreCase("WriteTableToDataStore") ) {
-        return new WriteTableToDataStore_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToDelimitedFile") ) {
-        return new WriteTableToDelimitedFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToExcel") ) {
-        return new WriteTableToExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableCellsToExcel") ) {
-        return new WriteTableCellsToExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToGeoJSON") ) {
-        return new WriteTableToGeoJSON_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToHTML") ) {
-        return new WriteTableToHTML_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToKml") ) {
-        return new WriteTableToKml_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTableToShapefile") ) {
-        return new WriteTableToShapefile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesPropertiesToFile") ) {
-        return new WriteTimeSeriesPropertiesToFile_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesProperty") ) {
-        return new WriteTimeSeriesProperty_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToDataStore") ) {
-        return new WriteTimeSeriesToDataStore_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToDataStream") ) {
-        return new WriteTimeSeriesToDataStream_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToExcel") ) {
-        return new WriteTimeSeriesToExcel_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToExcelBlock") ) {
-        return new WriteTimeSeriesToExcelBlock_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToHydroJSON") ) {
-        return new WriteTimeSeriesToHydroJSON_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToJson") ) {
-        return new WriteTimeSeriesToJson_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToGeoJSON") ) {
-        return new WriteTimeSeriesToGeoJSON_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteTimeSeriesToKml") ) {
-        return new WriteTimeSeriesToKml_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteWaterML") ) {
-        return new WriteWaterML_Command ();
-    }
-    else if ( commandName.equalsIgnoreCase("WriteWaterML2") ) {
-        return new WriteWaterML2_Command ();
-    }
     
-    // TODO SAM 2016-04-02 Figure out more elegant approach for getting command name
-    // Check for plugin commands - for now brute force based on naming convention
+    // Check for plugin commands, using the command name determined from the class name
     
    	Message.printStatus(2,routine,"Did not match built-in command, checking plugin command classes.");
     if ( this.pluginCommandClassList.size() > 0 ) {
     	Message.printStatus(2,routine,"Checking " + this.pluginCommandClassList.size() + " plugin classes for matching command.");
-    	for ( @SuppressWarnings("rawtypes") Class c : this.pluginCommandClassList ) {
-	    	String nameFromClass = c.getSimpleName(); // Should be like CommandName_Command
-	    	int pos = nameFromClass.indexOf("_Command");
-	    	if ( pos > 0 ) {
-	    		nameFromClass = nameFromClass.substring(0,pos);
-	    		Message.printStatus(2,routine,"Checking plugin command \"" + nameFromClass + "\" against command name \"" + commandName + "\"");
-	    		if ( nameFromClass.equalsIgnoreCase(commandName) ) {
-	    	    	// Construct the command instance
-	    	    	try {
-	    	    		Constructor<?> constructor = c.getConstructor();
-	    	    		Object command = constructor.newInstance();
-	    	    		// The object must be a Command if it follows implementation requirements
-	    	    		return (Command)command;
-	    	    	}
-	    	    	catch ( NoSuchMethodException e ) {
-	    	    		Message.printWarning(2,routine,"Error getting constructor for plugin command class \"" + nameFromClass + "\"");
-	    	    	}
-	    	    	catch ( IllegalAccessException e ) {
-	    	    		Message.printWarning(2,routine,"Error creating instance of command for plugin command class \"" + nameFromClass + "\"");
-	    	    	}
-	    	    	catch ( InstantiationException e ) {
-	    	    		Message.printWarning(2,routine,"Error creating instance of command for plugin command class \"" + nameFromClass + "\"");
-	    	    	}
-	    	    	catch ( InvocationTargetException e ) {
-	    	    		Message.printWarning(2,routine,"Error creating instance of command for plugin command class \"" + nameFromClass + "\"");
-	    	    	}
-	    		}
-    	    	// No need to keep searching
-    	    	break;
-	    	}
+    	@SuppressWarnings("rawtypes")
+    	Class c = __pluginCommandClassMap.get(commandName.toUpperCase());
+    	if ( c != null ) {
+    		Message.printStatus(2,routine,"Matched plugin command class \"" + c.getSimpleName() + "\" for command name \"" + commandName + "\"");
+    		// The object must be a Command if it follows implementation requirements
+    		Command command = newCommandInstance ( c, routine );
+    		if ( command != null ) {
+    			return command;
+    		}
     	}
     }
     else {
@@ -1383,4 +885,45 @@ throws UnknownCommandException
 	}
 }
 
+/**
+Create a new command instance using the command class's constructor with no arguments.
+@param c command class
+@param routine routine name for messages
+@return the new command, or null if the command could not be created (a warning will have been printed)
+*/
+@SuppressWarnings("rawtypes")
+private Command newCommandInstance ( Class c, String routine )
+{
+	try {
+		Constructor<?> constructor = c.getConstructor();
+		return (Command)constructor.newInstance();
+	}
+	catch ( NoSuchMethodException e ) {
+		Message.printWarning(2,routine,"Error getting constructor for command class \"" + c.getSimpleName() + "\"");
+	}
+	catch ( IllegalAccessException e ) {
+		Message.printWarning(2,routine,"Error creating instance of command for command class \"" + c.getSimpleName() + "\"");
+	}
+	catch ( InstantiationException e ) {
+		Message.printWarning(2,routine,"Error creating instance of command for command class \"" + c.getSimpleName() + "\"");
+	}
+	catch ( InvocationTargetException e ) {
+		Message.printWarning(2,routine,"Error creating instance of command for command class \"" + c.getSimpleName() + "\"");
+	}
+	catch ( ClassCastException e ) {
+		Message.printWarning(2,routine,"Command class \"" + c.getSimpleName() + "\" does not implement Command.");
+	}
+	return null;
+}
+
+/**
+Register a built-in command class for a command name.
+@param commandName command name, matched case-insensitively
+@param c command class, which must have a public constructor with no arguments
+*/
+private static void registerCommand ( String commandName, Class<? extends Command> c )
+{
+	__commandClassMap.put ( commandName.toUpperCase(), c );
+}
+
 }
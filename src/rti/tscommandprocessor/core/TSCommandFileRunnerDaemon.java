@@ -0,0 +1,572 @@
+// TSCommandFileRunnerDaemon - headless service that runs command files using a pool of warm command processors
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+
+/**
+Headless service that runs command files using a pool of command processors that are kept "warm" between runs,
+so that batch jobs do not pay the cost of starting the JVM, creating the processor, and opening datastores
+(e.g., reading global data for a database datastore) for each command file.
+Each processor has its own datastores, which are configured with the same factories and properties and are
+opened on first use (see LazyDataStore), so that processors running at the same time do not share connections.
+The datastores remain open between runs.
+<p>
+Requests are accepted on a socket that is bound to the local loopback address, one request per connection.
+Because other users on the computer can connect to the loopback address, start() writes a random token to
+a token file that only the owner can read, and the first line of each request must be the token.
+The second line is the request, as a single line of text.
+The response is a single line of text.  The following requests are recognized:
+<ul>
+<li>	<code>Run CommandFile</code> - read and run a command file (absolute path)
+	and respond with the run status and timings, for example:
+	<code>Status=Success CommandFile="..." Enabled=True ReadTimeMs=15 RunTimeMs=2034 TotalTimeMs=2051</code>.
+	If the run fails, the response will be <code>Status=Failure ... Message="..."</code>.</li>
+<li>	<code>Status</code> - respond with daemon statistics (number of runs, number of failed runs, idle processors).</li>
+<li>	<code>Shutdown</code> - stop accepting requests and respond when the daemon has stopped.</li>
+</ul>
+Each processor runs one command file at a time.  Before each run the results (time series, tables, ensembles)
+are cleared and the commands are replaced with those from the command file.
+Workflow properties are reset when the commands are run.
+*/
+public class TSCommandFileRunnerDaemon
+{
+
+/**
+Port that the daemon listens on.  If 0 a free port is used, which can be determined with getPort().
+*/
+private int __port = 0;
+
+/**
+Number of processors in the pool, which is the number of command files that can be run at the same time.
+*/
+private int __poolSize = 1;
+
+/**
+Datastore configurations, used to configure separate datastores for each processor, or null if none.
+*/
+private List<LazyDataStore> __dataStoreConfigList = null;
+
+/**
+File that the request token is written to.
+*/
+private File __tokenFile = null;
+
+/**
+Token that must be provided with each request, set when the daemon is started.
+*/
+private volatile byte [] __token = null;
+
+/**
+Whether to run discovery when reading command files.
+*/
+private boolean __runDiscoveryOnLoad = false;
+
+/**
+Pool of idle command file runners.
+*/
+private BlockingQueue<TSCommandFileRunner> __runnerPool = null;
+
+/**
+Socket that accepts requests, non-null when the daemon is running.
+*/
+private ServerSocket __serverSocket = null;
+
+/**
+Executor that handles requests.
+*/
+private ExecutorService __requestExecutor = null;
+
+/**
+Number of command files that have been run.
+*/
+private long __runCount = 0;
+
+/**
+Number of command file runs that failed or had failure status.
+*/
+private long __failureCount = 0;
+
+/**
+Construct the daemon.  The daemon does not accept requests until start() is called.
+@param port port on the loopback address to listen on, or 0 to use a free port
+@param poolSize number of processors to keep in the pool (number of concurrent command file runs)
+@param dataStoreConfigList datastore configurations (name, factory, and properties), or null if none.
+Each processor is given its own datastore for each configuration, which is opened when first used by the processor.
+The LazyDataStore instances are only used for their configuration and are not opened.
+@param tokenFile file to write the request token to when the daemon is started, which is replaced if it exists
+@param runDiscoveryOnLoad whether to run discovery when reading command files
+*/
+public TSCommandFileRunnerDaemon ( int port, int poolSize, List<LazyDataStore> dataStoreConfigList, File tokenFile,
+	boolean runDiscoveryOnLoad )
+{
+	__port = port;
+	__poolSize = Math.max(1, poolSize);
+	__dataStoreConfigList = dataStoreConfigList;
+	__tokenFile = tokenFile;
+	__runDiscoveryOnLoad = runDiscoveryOnLoad;
+	__runnerPool = new ArrayBlockingQueue<TSCommandFileRunner>(__poolSize);
+	for ( int i = 0; i < __poolSize; i++ ) {
+		TSCommandFileRunner runner = new TSCommandFileRunner();
+		if ( __dataStoreConfigList != null ) {
+			for ( LazyDataStore dataStoreConfig : __dataStoreConfigList ) {
+				runner.getProcessor().setLazyDataStore ( dataStoreConfig.getName(), dataStoreConfig.getFactory(),
+					dataStoreConfig.getProps() );
+			}
+		}
+		__runnerPool.add ( runner );
+	}
+}
+
+/**
+Check the token provided with a request.
+@param token token from the request
+@return true if the token matches the daemon's token
+*/
+private boolean checkToken ( String token )
+{
+	byte [] daemonToken = __token;
+	if ( (token == null) || (daemonToken == null) ) {
+		return false;
+	}
+	try {
+		// Compare in constant time so that the token cannot be guessed from the response time
+		return MessageDigest.isEqual ( daemonToken, token.trim().getBytes("UTF-8") );
+	}
+	catch ( IOException e ) {
+		return false;
+	}
+}
+
+/**
+Return the port that the daemon is listening on.
+@return the port that the daemon is listening on, or the requested port if not started
+*/
+public int getPort ()
+{
+	if ( __serverSocket != null ) {
+		return __serverSocket.getLocalPort();
+	}
+	return __port;
+}
+
+/**
+Handle a request connection.
+@param socket the connection
+*/
+private void handleRequest ( Socket socket )
+{	String routine = getClass().getSimpleName() + ".handleRequest";
+	try {
+		BufferedReader in = new BufferedReader ( new InputStreamReader(socket.getInputStream(), "UTF-8") );
+		PrintWriter out = new PrintWriter ( socket.getOutputStream(), true );
+		if ( !checkToken(in.readLine()) ) {
+			Message.printWarning ( 3, routine, "Request from port " + socket.getPort() + " did not provide the token - ignoring." );
+			out.println ( "Status=Failure Message=\"Token is not valid\"" );
+			return;
+		}
+		String request = in.readLine();
+		if ( request == null ) {
+			return;
+		}
+		request = request.trim();
+		String response = null;
+		if ( request.regionMatches(true, 0, "Run ", 0, 4) ) {
+			response = runCommandFile ( request.substring(4).trim() ).toString();
+		}
+		else if ( request.equalsIgnoreCase("Status") ) {
+			synchronized ( this ) {
+				response = "Status=Running Runs=" + __runCount + " FailedRuns=" + __failureCount +
+					" Processors=" + __poolSize + " IdleProcessors=" + __runnerPool.size();
+			}
+		}
+		else if ( request.equalsIgnoreCase("Shutdown") ) {
+			stop();
+			response = "Status=Stopped";
+		}
+		else {
+			response = "Status=Failure Message=\"Unrecognized request \\\"" + request + "\\\"\"";
+		}
+		out.println ( response );
+	}
+	catch ( Exception e ) {
+		Message.printWarning ( 3, routine, "Error handling request (" + e + ")." );
+		Message.printWarning ( 3, routine, e );
+	}
+	finally {
+		try {
+			socket.close();
+		}
+		catch ( IOException e ) {
+			// Ignore
+		}
+	}
+}
+
+/**
+Indicate whether the daemon is running.
+@return true if the daemon is accepting requests
+*/
+public boolean isRunning ()
+{
+	return __serverSocket != null;
+}
+
+/**
+Run a command file using a processor from the pool, waiting for a processor if all are in use.
+This can be called directly by code that embeds the daemon, in addition to socket requests.
+@param commandFile absolute path to the command file
+@return the results of the run
+*/
+public CommandFileRunResult runCommandFile ( String commandFile )
+{	String routine = getClass().getSimpleName() + ".runCommandFile";
+	CommandFileRunResult result = new CommandFileRunResult ( commandFile );
+	long startTime = System.currentTimeMillis();
+	TSCommandFileRunner runner = null;
+	try {
+		runner = __runnerPool.take();
+		File file = new File ( commandFile );
+		if ( !file.isAbsolute() || !file.canRead() ) {
+			throw new IOException ( "Command file is not an absolute path or cannot be read" );
+		}
+		TSCommandProcessor processor = runner.getProcessor();
+		// Clear the results from the previous run so that output from previous runs is not retained
+		processor.clearResults();
+		long readStartTime = System.currentTimeMillis();
+		// This replaces the commands from the previous run and sets the working directory
+		runner.readCommandFile ( file.getCanonicalPath(), __runDiscoveryOnLoad );
+		result.readTimeMs = System.currentTimeMillis() - readStartTime;
+		result.isEnabled = runner.isCommandFileEnabled();
+		if ( result.isEnabled ) {
+			long runStartTime = System.currentTimeMillis();
+			PropList runProps = new PropList ( "Run" );
+			runProps.set ( "ResetWorkflowProperties", "True" );
+			runner.runCommands ( runProps );
+			result.runTimeMs = System.currentTimeMillis() - runStartTime;
+			result.maxSeverity = TSCommandProcessorUtil.getCommandStatusMaxSeverity ( processor );
+		}
+	}
+	catch ( InterruptedException e ) {
+		result.exception = e;
+		Thread.currentThread().interrupt();
+	}
+	catch ( Exception e ) {
+		result.exception = e;
+		Message.printWarning ( 3, routine, "Error running command file \"" + commandFile + "\" (" + e + ")." );
+		Message.printWarning ( 3, routine, e );
+	}
+	finally {
+		if ( runner != null ) {
+			__runnerPool.add ( runner );
+		}
+	}
+	result.totalTimeMs = System.currentTimeMillis() - startTime;
+	synchronized ( this ) {
+		++__runCount;
+		if ( result.isFailure() ) {
+			++__failureCount;
+		}
+	}
+	Message.printStatus ( 2, routine, result.toString() );
+	return result;
+}
+
+/**
+Start the daemon, which accepts requests on a separate thread.
+A new token is written to the token file before requests are accepted.
+@exception IOException if the token file cannot be written or the socket cannot be opened
+*/
+public synchronized void start ()
+throws IOException
+{	String routine = getClass().getSimpleName() + ".start";
+	if ( __serverSocket != null ) {
+		return;
+	}
+	writeTokenFile();
+	// Only allow local connections
+	final ServerSocket serverSocket = new ServerSocket ( __port, 50, InetAddress.getLoopbackAddress() );
+	__serverSocket = serverSocket;
+	// Allow status requests while all processors are in use
+	__requestExecutor = Executors.newFixedThreadPool ( __poolSize + 1 );
+	final ExecutorService requestExecutor = __requestExecutor;
+	Thread acceptThread = new Thread ( new Runnable() {
+		public void run () {
+			while ( !serverSocket.isClosed() ) {
+				try {
+					final Socket socket = serverSocket.accept();
+					requestExecutor.submit ( new Runnable() {
+						public void run () {
+							handleRequest ( socket );
+						}
+					});
+				}
+				catch ( SocketException e ) {
+					// Socket was closed by stop()
+					break;
+				}
+				catch ( Exception e ) {
+					Message.printWarning ( 3, "TSCommandFileRunnerDaemon.accept", e );
+				}
+			}
+		}
+	}, "TSCommandFileRunnerDaemon" );
+	acceptThread.start();
+	Message.printStatus ( 2, routine, "Accepting command file run requests on port " + getPort() +
+		" using " + __poolSize + " processors." );
+}
+
+/**
+Stop the daemon.  Runs that are in progress are allowed to complete.
+*/
+public synchronized void stop ()
+{	String routine = getClass().getSimpleName() + ".stop";
+	if ( __serverSocket == null ) {
+		return;
+	}
+	try {
+		__serverSocket.close();
+	}
+	catch ( IOException e ) {
+		Message.printWarning ( 3, routine, e );
+	}
+	__serverSocket = null;
+	__requestExecutor.shutdown();
+	__requestExecutor = null;
+	__token = null;
+	if ( !__tokenFile.delete() ) {
+		Message.printWarning ( 3, routine, "Unable to delete token file \"" + __tokenFile + "\"." );
+	}
+	Message.printStatus ( 2, routine, "Stopped accepting command file run requests." );
+}
+
+/**
+Generate a new random token and write it to the token file, which is created so that only the owner can read it.
+*/
+private void writeTokenFile ()
+throws IOException
+{
+	SecureRandom random = new SecureRandom();
+	byte [] bytes = new byte[32];
+	random.nextBytes ( bytes );
+	StringBuilder b = new StringBuilder();
+	for ( int i = 0; i < bytes.length; i++ ) {
+		b.append ( String.format("%02x", bytes[i] & 0xff) );
+	}
+	String token = b.toString();
+	// Replace the file rather than writing to an existing file, which could have been created by another user
+	Path path = __tokenFile.toPath();
+	Files.deleteIfExists ( path );
+	try {
+		if ( path.getFileSystem().supportedFileAttributeViews().contains("posix") ) {
+			Files.createFile ( path, PosixFilePermissions.asFileAttribute(
+				EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)) );
+		}
+		else {
+			// Other file systems (e.g., Windows) - the file is private if in the user's folder
+			Files.createFile ( path );
+			__tokenFile.setReadable ( false, false );
+			__tokenFile.setReadable ( true, true );
+			__tokenFile.setWritable ( false, false );
+			__tokenFile.setWritable ( true, true );
+		}
+	}
+	catch ( FileAlreadyExistsException e ) {
+		throw new IOException ( "Token file \"" + __tokenFile + "\" was created by another process." );
+	}
+	OutputStream out = Files.newOutputStream ( path );
+	try {
+		out.write ( token.getBytes("UTF-8") );
+	}
+	finally {
+		out.close();
+	}
+	__token = token.getBytes("UTF-8");
+}
+
+/**
+Results of running a command file.
+*/
+public static class CommandFileRunResult
+{
+	/**
+	Command file that was run.
+	*/
+	private String commandFile = null;
+
+	/**
+	Whether the command file is enabled (if not enabled, the commands are not run).
+	*/
+	private boolean isEnabled = false;
+
+	/**
+	Maximum severity of the command status, or null if not run.
+	*/
+	private CommandStatusType maxSeverity = null;
+
+	/**
+	Exception if the run failed.
+	*/
+	private Exception exception = null;
+
+	/**
+	Time to read the command file, milliseconds.
+	*/
+	private long readTimeMs = 0;
+
+	/**
+	Time to run the commands, milliseconds.
+	*/
+	private long runTimeMs = 0;
+
+	/**
+	Total time for the request, including waiting for a processor, milliseconds.
+	*/
+	private long totalTimeMs = 0;
+
+	/**
+	Construct the results.
+	*/
+	private CommandFileRunResult ( String commandFile )
+	{
+		this.commandFile = commandFile;
+	}
+
+	/**
+	Return the command file that was run.
+	*/
+	public String getCommandFile ()
+	{
+		return this.commandFile;
+	}
+
+	/**
+	Return the exception if the run failed, or null.
+	*/
+	public Exception getException ()
+	{
+		return this.exception;
+	}
+
+	/**
+	Return the maximum severity of the command status, or null if the commands were not run.
+	*/
+	public CommandStatusType getMaxSeverity ()
+	{
+		return this.maxSeverity;
+	}
+
+	/**
+	Return the time to read the command file, milliseconds.
+	*/
+	public long getReadTimeMs ()
+	{
+		return this.readTimeMs;
+	}
+
+	/**
+	Return the time to run the commands, milliseconds.
+	*/
+	public long getRunTimeMs ()
+	{
+		return this.runTimeMs;
+	}
+
+	/**
+	Return the total time for the request, milliseconds.
+	*/
+	public long getTotalTimeMs ()
+	{
+		return this.totalTimeMs;
+	}
+
+	/**
+	Indicate whether the command file is enabled.
+	*/
+	public boolean isEnabled ()
+	{
+		return this.isEnabled;
+	}
+
+	/**
+	Indicate whether the run failed, either because of an exception or because a command had failure status.
+	*/
+	public boolean isFailure ()
+	{
+		return (this.exception != null) ||
+			((this.maxSeverity != null) && this.maxSeverity.greaterThanOrEqualTo(CommandStatusType.FAILURE));
+	}
+
+	/**
+	Return the results as a single line of text, used for the request response.
+	*/
+	public String toString ()
+	{
+		StringBuilder b = new StringBuilder();
+		if ( this.exception != null ) {
+			b.append ( "Status=Failure" );
+		}
+		else if ( this.maxSeverity != null ) {
+			b.append ( "Status=" + this.maxSeverity );
+		}
+		else {
+			b.append ( "Status=" + CommandStatusType.UNKNOWN );
+		}
+		b.append ( " CommandFile=\"" + this.commandFile + "\"" );
+		b.append ( " Enabled=" + (this.isEnabled ? "True" : "False") );
+		b.append ( " ReadTimeMs=" + this.readTimeMs );
+		b.append ( " RunTimeMs=" + this.runTimeMs );
+		b.append ( " TotalTimeMs=" + this.totalTimeMs );
+		if ( this.exception != null ) {
+			b.append ( " Message=\"" + ("" + this.exception.getMessage()).replace("\"", "'") + "\"" );
+		}
+		return b.toString();
+	}
+}
+
+}
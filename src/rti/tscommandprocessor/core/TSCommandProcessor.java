@@ -62,12 +62,19 @@ import java.net.InetAddress;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.openwaterfoundation.network.NodeNetwork;
 
@@ -112,6 +119,7 @@ import RTi.TS.TSIdent;
 import RTi.TS.TSLimits;
 import RTi.TS.TSSupplier;
 import riverside.datastore.DataStore;
+import riverside.datastore.DataStoreFactory;
 import riverside.datastore.WebServiceDataStore;
 import rti.tscommandprocessor.core.TimeSeriesView;
 
@@ -123,6 +131,10 @@ import rti.tscommandprocessor.commands.check.CheckFileCommandProcessorEventListe
 
 import rti.tscommandprocessor.commands.hecdss.HecDssAPI;
 
+// Logging commands.
+
+import rti.tscommandprocessor.commands.logging.AsyncLogWriter;
+
 // HydroBase commands.
 
 import DWR.DMI.HydroBaseDMI.HydroBaseDMI;
@@ -143,6 +155,16 @@ This class processes time series commands and manages the relevant data.
 public class TSCommandProcessor implements CommandProcessor, TSSupplier, CommandProcessorEventListener
 {
 
+/**
+Minimum number of command strings for addCommandsFromStringList() to create and initialize commands in parallel.
+*/
+private static final int PARALLEL_INITIALIZE_MIN_COMMANDS = 500;
+
+/**
+Minimum number of command strings for each thread when creating and initializing commands in parallel.
+*/
+private static final int PARALLEL_INITIALIZE_MIN_COMMANDS_PER_THREAD = 250;
+
 /**
 The legacy TSEngine class did all of the processing in TSTool.  It is now
 wrapped by this TSCommandProcessor class and code will continue to be moved
@@ -261,12 +283,84 @@ as time allows it will also be enabled within a command.
 */
 private volatile boolean __cancel_processing_requested = false;
 
+/**
+Requests that are deferred for the current thread, used when commands are run in parallel
+so that the requests that modify results can be applied in command order.
+The list is null for the thread if requests should be processed immediately.
+*/
+private ThreadLocal<List<ParallelCommandRunner.DeferredRequest>> __deferredRequestList =
+	new ThreadLocal<List<ParallelCommandRunner.DeferredRequest>>();
+
+/**
+Requests that are recorded for the current thread after they are processed, used by the CommandResultCache
+to save the results of a command that is run sequentially.
+The list is null for the thread if requests are not recorded.
+*/
+private ThreadLocal<List<ParallelCommandRunner.DeferredRequest>> __recordedRequestList =
+	new ThreadLocal<List<ParallelCommandRunner.DeferredRequest>>();
+
+/**
+Lock used to serialize processor requests and property lookups while commands are run in parallel,
+or null if commands are being run sequentially (no locking is needed).
+*/
+private volatile Object __parallelRunLock = null;
+
+/**
+Cache of command results, used when commands are run with IncrementalRun=True to skip commands that have not changed.
+The cache persists between runs and is null if incremental runs are not being used.
+*/
+private CommandResultCache __commandResultCache = null;
+
+/**
+Index of discovery results for the commands, used by command editors to list time series, ensembles,
+and tables from previous commands.  The index is a CommandListListener so that it is updated when commands change.
+*/
+private CommandDiscoveryIndex __commandDiscoveryIndex = null;
+
+/**
+Run-time metrics for the processor (commands, requests, datastore reads), which can be published as a JMX MBean.
+*/
+private TSCommandProcessorMetrics __metrics = null;
+
+/**
+Whether the metrics MBean was registered for the current run (PublishMetrics=True), in which case it is
+unregistered when the run ends.
+*/
+private boolean __metricsRegisteredForRun = false;
+
+/**
+Resource usage for the last run of each command, used to supplement the command profile.
+Weak references are used so that commands that are removed from the processor can be garbage collected.
+*/
+private Map<Command,CommandResourceUsage> __commandResourceUsageMap =
+	Collections.synchronizedMap(new WeakHashMap<Command,CommandResourceUsage>());
+
 // TODO SAM 2007-12-06 Evaluate how to make the DataTable object more generic.
 /**
 List of DataTable objects maintained by the processor.
 */
 List<DataTable> __TableList = new Vector<DataTable>();
 
+/**
+Case-insensitive TableID index for __TableList, used to look up tables without searching the list.
+The index must be notified when __TableList is modified.
+*/
+private ResultsListIndex<DataTable> __tableIndex = new ResultsListIndex<DataTable>(__TableList) {
+	protected String getIdentifier ( DataTable table ) {
+		return table.getTableID();
+	}
+};
+
+/**
+Case-insensitive EnsembleID index for __TSEnsembleList, used to look up ensembles without searching the list.
+The index must be notified when __TSEnsembleList is modified.
+*/
+private ResultsListIndex<TSEnsemble> __ensembleIndex = new ResultsListIndex<TSEnsemble>(__TSEnsembleList) {
+	protected String getIdentifier ( TSEnsemble ensemble ) {
+		return ensemble.getEnsembleID();
+	}
+};
+
 /**
 List of NodeNetwork objects maintained by the processor.
 */
@@ -290,6 +384,10 @@ public TSCommandProcessor ()
 
 	// Create a TSEngine that works parallel to this class.
 	__tsengine = new TSEngine ( this );
+	__metrics = new TSCommandProcessorMetrics ( this, __tsengine );
+	// Index discovery results, updated when commands are added, changed, or removed
+	__commandDiscoveryIndex = new CommandDiscoveryIndex ( this );
+	addCommandListListener ( __commandDiscoveryIndex );
     // Define some standard properties, even before the command processor has run
 	// TODO SAM 2010-05-26 Need to evaluate how to set important global properties up front but also
 	// dynamically in resetWorkflowProperties
@@ -515,6 +613,16 @@ throws IOException
     // Now process each line in the file and turn into a command...
     int numAdded = 0;
     int numCommandStrings = commandStrings.size();
+    // For large command lists, create and parse the commands in parallel first and then check the parameters and
+    // add the commands below in order, so that messages and listener notifications are the same as if created sequentially.
+    // This is only done when unknown commands are created because otherwise commands may be skipped.
+    Command [] initializedCommands = null;
+    Exception [] initializeExceptions = null;
+    if ( createUnknownCommandIfNotRecognized && (numCommandStrings >= PARALLEL_INITIALIZE_MIN_COMMANDS) ) {
+        initializedCommands = new Command[numCommandStrings];
+        initializeExceptions = new Exception[numCommandStrings];
+        initializeCommandsInParallel ( commandStrings, cf, initializedCommands, initializeExceptions );
+    }
     for ( int i = 0; i < numCommandStrings; i++ ) {
         line = commandStrings.get(i);
         // Trim spaces from the end of the line.  These can really cause problems with time series identifiers
@@ -527,7 +635,13 @@ throws IOException
         if ( Message.isDebugOn ) {
             Message.printDebug( 10, routine, "Creating command using trimmed string \"" + line + "\"" );
         }
-        if ( createUnknownCommandIfNotRecognized ) {
+        // If a command could not be created in parallel above, create it here so errors are handled as before
+        boolean initializedInParallel = (initializedCommands != null) && (initializedCommands[i] != null);
+        if ( initializedInParallel ) {
+            // Command was created in parallel above
+            command = initializedCommands[i];
+        }
+        else if ( createUnknownCommandIfNotRecognized ) {
             try {
                 command = cf.newCommand ( line, createUnknownCommandIfNotRecognized );
             }
@@ -548,10 +662,21 @@ throws IOException
         // Have a command instance.  Initialize the command (parse the command string) and check its arguments.
         String fixme = "FIXME! ";  // String for inserted messages
         try {
-            command.initializeCommand(
-                line, // Command string, needed to do full parse on parameters
-                this, // Processor, needed to make requests
-                true); // Do full initialization (parse)
+            if ( initializedInParallel ) {
+                // Command was parsed in parallel above so handle the exception, if any, below
+                if ( initializeExceptions[i] != null ) {
+                    throw initializeExceptions[i];
+                }
+                // Check the parameters here, the same as full initialization, because checking prints messages
+                // and uses processor properties
+                command.checkCommandParameters ( command.getCommandParameters(), null, 1 );
+            }
+            else {
+                command.initializeCommand(
+                    line, // Command string, needed to do full parse on parameters
+                    this, // Processor, needed to make requests
+                    true); // Do full initialization (parse)
+            }
         }
         catch ( InvalidCommandSyntaxException e ) {
             // Can't use cf.newCommand() because it will recognized the command
@@ -747,6 +872,67 @@ throws IOException
     }
 }
 
+/**
+Create and parse commands in parallel, for addCommandsFromStringList().
+Each command string is trimmed, the command is created with the command factory (creating UnknownCommand if
+the command is not recognized), and the command is parsed.
+The command parameters are not checked, so that messages are printed in order by the calling thread,
+and the commands are not added to the processor.
+@param commandStrings list of command strings
+@param cf command factory, which does not maintain state while creating commands
+@param commands array to receive the created commands, in the same order as the command strings
+@param exceptions array to receive the exception thrown when parsing each command, or null if no exception
+*/
+private void initializeCommandsInParallel ( final List<String> commandStrings, final TSCommandFactory cf,
+    final Command [] commands, final Exception [] exceptions )
+{   String routine = getClass().getSimpleName() + ".initializeCommandsInParallel";
+    int numCommandStrings = commandStrings.size();
+    int nThreads = Math.max(1,Math.min(Runtime.getRuntime().availableProcessors(),
+        numCommandStrings/PARALLEL_INITIALIZE_MIN_COMMANDS_PER_THREAD));
+    // Contiguous chunks of commands are processed by each thread
+    int chunkSize = (numCommandStrings + nThreads - 1)/nThreads;
+    Message.printStatus ( 2, routine, "Parsing " + numCommandStrings + " commands using " + nThreads + " threads." );
+    ExecutorService executor = Executors.newFixedThreadPool ( nThreads );
+    List<Future<Object>> futureList = new ArrayList<Future<Object>>();
+    final TSCommandProcessor processor = this;
+    try {
+        for ( int iStart = 0; iStart < numCommandStrings; iStart += chunkSize ) {
+            final int start = iStart;
+            final int end = Math.min(iStart + chunkSize, numCommandStrings);
+            futureList.add ( executor.submit ( new Callable<Object>() {
+                public Object call () {
+                    // Each chunk sets different array elements so no synchronization is needed
+                    for ( int i = start; i < end; i++ ) {
+                        String line = commandStrings.get(i).trim();
+                        try {
+                            commands[i] = cf.newCommand ( line, true );
+                            // Same as full initialization except that the parameters are checked by the calling thread
+                            commands[i].initializeCommand ( line, processor, false );
+                            commands[i].parseCommand ( line );
+                        }
+                        catch ( Exception e ) {
+                            exceptions[i] = e;
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for ( Future<Object> future : futureList ) {
+            try {
+                future.get();
+            }
+            catch ( Exception e ) {
+                Message.printWarning ( 3, routine, "Error initializing commands (" + e + ")." );
+                Message.printWarning ( 3, routine, e );
+            }
+        }
+    }
+    finally {
+        executor.shutdown();
+    }
+}
+
 /**
 Determine if the commands are a template.  In this case, applications may disable
 save features.  The special comment "#@template" indicates that the commands are a template.
@@ -772,6 +958,79 @@ public boolean areCommandsTemplate ()
     return false;
 }
 
+/**
+Check the results list indexes for changes to the identifiers of tables and ensembles that were provided to commands,
+or to the lists if they were provided to commands.  This is called by TSEngine after each command.
+*/
+protected void checkResultsListIndexes ()
+{
+    __tableIndex.checkAccessed();
+    __ensembleIndex.checkAccessed();
+}
+
+/**
+Return the index of discovery results for the commands.
+@return the index of discovery results for the commands
+*/
+CommandDiscoveryIndex getCommandDiscoveryIndex ()
+{
+    return __commandDiscoveryIndex;
+}
+
+/**
+Return the cache of command results used for incremental runs.
+@param create if true, create the cache if it does not exist; if false, discard the cache and return null
+@return the cache of command results, or null if create=false
+*/
+CommandResultCache getCommandResultCache ( boolean create )
+{
+    if ( !create ) {
+        __commandResultCache = null;
+    }
+    else if ( __commandResultCache == null ) {
+        __commandResultCache = new CommandResultCache ( this );
+    }
+    return __commandResultCache;
+}
+
+/**
+Set the list of recorded requests for the current thread, used to save the results of a command.
+Requests that modify results are processed immediately and are then added to the list.
+@param recordedRequestList list to receive requests that modify results, or null to not record requests
+*/
+void setRecordedRequestList ( List<ParallelCommandRunner.DeferredRequest> recordedRequestList )
+{
+    if ( recordedRequestList == null ) {
+        __recordedRequestList.remove();
+    }
+    else {
+        __recordedRequestList.set ( recordedRequestList );
+    }
+}
+
+/**
+Set the list of deferred requests for the current thread, used when commands are run in parallel.
+@param deferredRequestList list to receive requests that modify results, or null to process requests immediately
+*/
+void setDeferredRequestList ( List<ParallelCommandRunner.DeferredRequest> deferredRequestList )
+{
+    if ( deferredRequestList == null ) {
+        __deferredRequestList.remove();
+    }
+    else {
+        __deferredRequestList.set ( deferredRequestList );
+    }
+}
+
+/**
+Set the lock used to serialize requests while commands are run in parallel.
+@param lock the lock object, or null when commands are run sequentially
+*/
+void setParallelRunLock ( Object lock )
+{
+    __parallelRunLock = lock;
+}
+
 /**
 Clear the results of processing.  This resets the list of time series, tables, and ensembles to empty.
 Other data still closely coupled with __tsengine are cleared in its processCommands_ResetDataForRun()
@@ -782,6 +1041,7 @@ public void clearResults()
 	__tsengine.clearTimeSeriesResults();
     if ( __TableList != null ) {
         __TableList.clear();
+        __tableIndex.changed();
     }
     removeAllEnsembles();
     removeAllPatternTS();
@@ -801,6 +1061,15 @@ public void closeDataConnections ( boolean closeAll )
      HecDssAPI.closeAllFiles();
 }
 
+/**
+Stop copying shared time series when they are provided to callers.  See setCopyOnAccessTimeSeries().
+@return the copies of shared time series that were provided to callers, by original time series
+*/
+protected Map<TS,TS> endCopyOnAccess ()
+{
+    return __tsengine.endCopyOnAccess();
+}
+
 /**
 Return the Command instance at the requested position.
 @return The number of commands being managed by the processor
@@ -828,6 +1097,25 @@ public String getCommandFileName ()
 	return __commandFilename;
 }
 
+/**
+Return the resource usage for the last run of a command (CPU time, memory allocation, garbage collection,
+time series added), which supplements the command profile.
+@param command the command of interest
+@return the resource usage for the command, guaranteed to be non-null
+(isMeasured() will return false if the command has not been run)
+*/
+public CommandResourceUsage getCommandResourceUsage ( Command command )
+{
+	synchronized ( __commandResourceUsageMap ) {
+		CommandResourceUsage usage = __commandResourceUsageMap.get ( command );
+		if ( usage == null ) {
+			usage = new CommandResourceUsage();
+			__commandResourceUsageMap.put ( command, usage );
+		}
+		return usage;
+	}
+}
+
 /**
 Return the list of commands.
 @return the list of commands.
@@ -847,13 +1135,16 @@ public Boolean getCreateOutput ()
 
 /**
 Return the data store for the requested name, or null if not found.
+If the datastore was set with setLazyDataStore() and has not been opened, it is opened.
 @param name the data store name to match (case is ignored in the comparison)
 @param dataStoreClass the class of the data store to match, useful when ensuring that the data store
 is compatible with intended use - specify as null to not match class
 @return the data store for the requested name, or null if not found.
 */
 public DataStore getDataStoreForName ( String name, Class<?> dataStoreClass )
-{   for ( DataStore dataStore : getDataStores() ) {
+{   // Open the datastore if configured to open on first use, which adds it to the datastore list
+    __tsengine.openLazyDataStore ( name );
+    for ( DataStore dataStore : __tsengine.getDataStoreList() ) {
         if ( dataStore.getName().equalsIgnoreCase(name) ) {
             if ( dataStoreClass != null ) {
                 if (dataStore.getClass() == dataStoreClass ) {
@@ -875,21 +1166,46 @@ public DataStore getDataStoreForName ( String name, Class<?> dataStoreClass )
     return null;
 }
 
+/**
+Return the configuration of datastores that were set with setLazyDataStore(), including datastores that have
+been opened, which can be used to open separate datastore instances for other processors (e.g., processors that
+run at the same time, which must not share datastore connections).
+The returned instances must only be used for their configuration and must not be opened.
+@return list of datastore configurations, guaranteed to be non-null
+*/
+public List<LazyDataStore> getDataStoreConfigs ()
+{
+    return __tsengine.getDataStoreConfigs();
+}
+
+/**
+Return the names of datastores that were set with setLazyDataStore() and have not been opened.
+@return list of datastore names, guaranteed to be non-null
+*/
+public List<String> getLazyDataStoreNames ()
+{
+    return __tsengine.getLazyDataStoreNames();
+}
+
 /**
 Return the list of all DataStore instances known to the processor.  These are named database
 connections that correspond to input type/name for time series.  Active and inactive datastores are returned.
+Datastores that were set with setLazyDataStore() and have not been opened are opened.
 */
 public List<DataStore> getDataStores()
 {
+    __tsengine.openLazyDataStores();
     return __tsengine.getDataStoreList();
 }
 
 /**
 Return the list of all DataStore instances known to the processor.  These are named database
 connections that correspond to input type/name for time series.
+Datastores that were set with setLazyDataStore() and have not been opened are opened.
 */
 public List<DataStore> getDataStores ( boolean activeOnly )
 {
+	__tsengine.openLazyDataStores();
 	// Get the list of all datastores...
 	List<DataStore> datastoreList = __tsengine.getDataStoreList();
 	if ( activeOnly ) {
@@ -904,10 +1220,20 @@ public List<DataStore> getDataStores ( boolean activeOnly )
 	return datastoreList;
 }
 
+/**
+Return the list of DataStore instances that have been opened, without opening datastores that were set with
+setLazyDataStore(), for use by code that does not use datastores or that opens the configured datastores separately
+(see getDataStoreConfigs()).
+*/
+public List<DataStore> getOpenedDataStores ()
+{
+    return __tsengine.getDataStoreList();
+}
+
 /**
 Return the list of data stores for the requested type (e.g., RiversideDBDataStore).  A non-null list
 is guaranteed, but the list may be empty.  Only active datastores are returned, those that are enabled
-and status is 0 (Ok).
+and status is 0 (Ok).  Datastores that were set with setLazyDataStore() and have not been opened are opened.
 @param dataStoreClass the data store class to match (required).
 @return the list of data stores matching the requested type
 */
@@ -918,7 +1244,8 @@ public List<DataStore> getDataStoresByType ( Class<?> dataStoreClass )
 
 /**
 Return the list of data stores for the requested type (e.g., HydroBaseDataStore).  A non-null list
-is guaranteed, but the list may be empty.
+is guaranteed, but the list may be empty.  Datastores that were set with setLazyDataStore() and have not been
+opened are opened (by getDataStores()).
 @param dataStoreClass the data store class to match (required).
 @return the list of data stores matching the requested type
 */
@@ -994,32 +1321,31 @@ protected TSEnsemble getEnsemble ( String EnsembleID )
 {   if ( (EnsembleID == null) || EnsembleID.equals("") ) {
         return null;
     }
+    if ( EnsembleID.indexOf("*") < 0 ) {
+    	// Do a simple comparison as per legacy code, using the index
+    	// This guards against someone having perhaps used special characters for ensemble ID
+    	int pos = __ensembleIndex.indexOf ( EnsembleID );
+    	if ( pos < 0 ) {
+    		return null;
+    	}
+    	TSEnsemble tsensemble = __TSEnsembleList.get(pos);
+    	// The caller may change the ensemble identifier
+    	__ensembleIndex.accessed ( tsensemble );
+    	return tsensemble;
+    }
     int size = __TSEnsembleList.size();
     TSEnsemble tsensemble = null, tsensemble2;
-    String ensembleIDPattern = null;
-    if ( EnsembleID.indexOf("*") >= 0 ) {
-    	ensembleIDPattern = EnsembleID.replace("*", ".*").toUpperCase();
-    }
+    String ensembleIDPattern = EnsembleID.replace("*", ".*").toUpperCase();
     for ( int i = 0; i < size; i++ ) {
         tsensemble2 = __TSEnsembleList.get(i);
         if ( tsensemble2 == null ) {
             continue;
         }
-        // See if the ensemble ID matches the requested expression
-        if ( ensembleIDPattern == null ) {
-        	// Do a simple comparison as per legacy code
-        	// This guards against someone having perhaps used special characters for ensemble ID
-	        if ( tsensemble2.getEnsembleID().equalsIgnoreCase(EnsembleID) ) {
-	            tsensemble = tsensemble2;
-	            break;
-	        }
-        }
-        else {
-        	// Do a regular expression match
-	        if ( tsensemble2.getEnsembleID().toUpperCase().matches(ensembleIDPattern) ) {
-	            tsensemble = tsensemble2;
-	            break;
-	        }
+        // Do a regular expression match
+        if ( tsensemble2.getEnsembleID().toUpperCase().matches(ensembleIDPattern) ) {
+            tsensemble = tsensemble2;
+            __ensembleIndex.accessed ( tsensemble );
+            break;
         }
     }
     return tsensemble;
@@ -1041,6 +1367,15 @@ public boolean getIsRunning ()
 {	return __is_running;
 }
 
+/**
+Return the run-time metrics for the processor.
+@return the run-time metrics for the processor, guaranteed to be non-null
+*/
+public TSCommandProcessorMetrics getMetrics ()
+{
+	return __metrics;
+}
+
 /**
 Return data for a named property, required by the CommandProcessor
 interface.  See getPropcontents() for a list of properties that are handled.
@@ -1180,6 +1515,13 @@ open HydroBase connection information, if available.
 <td>The table results list as a List.</td>
 </tr>
 
+<tr>
+<td><b>TimeSeriesMemoryBudget</b></td>
+<td>The memory budget for time series data in the TSResultsList, MB, as an Integer.
+If the budget is exceeded after a command is run, the data for the least recently used time series are written
+to a scratch file and are read back when the time series are used.  A value of 0 (default) disables the budget.</td>
+</tr>
+
 <tr>
 <td><b>TSProductAnnotationProviderList</b></td>
 <td>A List of TSProductAnnotationProvider (for example, this is requested
@@ -1226,135 +1568,120 @@ working directory and changes from setWorkingDir() commands.
 @exception UnrecognizedRequestException if an unknown property is requested.
 */
 public Object getPropContents ( String propName ) throws Exception
-{	if ( propName.equalsIgnoreCase("AutoExtendPeriod") ) {
-		return getPropContents_AutoExtendPeriod();
-	}
-    else if ( propName.equalsIgnoreCase("AverageEnd") ) {
-        return getPropContents_AverageEnd();
-    }
-    else if ( propName.equalsIgnoreCase("AverageStart") ) {
-        return getPropContents_AverageStart();
-    }
-    else if ( propName.equalsIgnoreCase("CommandFileName") ) {
-        return getCommandFileName();
-    }
-    else if ( propName.equalsIgnoreCase("CommandsShouldClearRunStatus") ) {
-        return getPropContents_CommandsShouldClearRunStatus();
-    }
-	else if ( propName.equalsIgnoreCase("CreateOutput") ) {
-		return getPropContents_CreateOutput();
-	}
-    else if ( propName.equalsIgnoreCase("DebugLevelLogFile") ) {
-        return new Integer(Message.getDebugLevel(Message.LOG_OUTPUT));
-    }
-    else if ( propName.equalsIgnoreCase("DebugLevelScreen") ) {
-        return new Integer(Message.getDebugLevel(Message.TERM_OUTPUT));
-    }
-    else if ( propName.equalsIgnoreCase("EnsembleResultsList") ) {
-        return getPropContents_EnsembleResultsList();
-    }
-	else if ( propName.equalsIgnoreCase("HaveOutputPeriod") ) {
-		return getPropContents_HaveOutputPeriod();
-	}
-    else if ( propName.equalsIgnoreCase("HydroBaseDMIList") ) {
-        return getPropContents_HydroBaseDMIList();
-    }
-    else if ( propName.equalsIgnoreCase("HydroBaseDMIListSize") ) {
-        return getPropContents_HydroBaseDMIListSize();
-    }
-    else if ( propName.equalsIgnoreCase("IgnoreLEZero") ) {
-        return getPropContents_IgnoreLEZero();
-    }
-	else if ( propName.equalsIgnoreCase("IncludeMissingTS") ) {
-		return getPropContents_IncludeMissingTS();
-	}
-	else if ( propName.equalsIgnoreCase("InitialWorkingDir") ) {
-		return getPropContents_InitialWorkingDir();
-	}
-	else if ( propName.equalsIgnoreCase("InputEnd") ) {
-		return getPropContents_InputEnd();
-	}
-	else if ( propName.equalsIgnoreCase("InputStart") ) {
-		return getPropContents_InputStart();
-	}
-    else if ( propName.equalsIgnoreCase("NetworkResultsList") ) {
-        return getPropContents_NetworkResultsList();
-    }
-	else if ( propName.equalsIgnoreCase("OutputComments") ) {
-		return getPropContents_OutputComments();
-	}
-	else if ( propName.equalsIgnoreCase("OutputEnd") ) {
-		return getPropContents_OutputEnd();
-	}
-	else if ( propName.equalsIgnoreCase("OutputFileList") ) {
-		return getPropContents_OutputFileList();
-	}
-	else if ( propName.equalsIgnoreCase("OutputStart") ) {
-		return getPropContents_OutputStart();
-	}
-	else if ( propName.equalsIgnoreCase("OutputYearType") ) {
-		return getPropContents_OutputYearType();
-	}
-    else if ( propName.equalsIgnoreCase("PatternTSList") ) {
-        return getPropContents_PatternTSList();
-    }
-    else if ( propName.equalsIgnoreCase("StartLogEnabled") ) {
-        return getPropContents_StartLogEnabled();
-    }
-    else if ( propName.equalsIgnoreCase("TableResultsList") ) {
-        return getPropContents_TableResultsList();
-    }
-    else if ( propName.equalsIgnoreCase("TimeSeriesViewResultsList") ) {
-        return getPropContents_TimeSeriesViewResultsList();
-    }
-    else if ( propName.equalsIgnoreCase("TSEnsembleResultsListSize") ) {
-        return getPropContents_TSEnsembleResultsListSize();
-    }
-	else if ( propName.equalsIgnoreCase("TSProductAnnotationProviderList") ) {
-		return getPropContents_TSProductAnnotationProviderList();
-	}
-	else if ( propName.equalsIgnoreCase("TSResultsList") ) {
-		return getPropContents_TSResultsList();
-	}
-	else if ( propName.equalsIgnoreCase("TSResultsListSize") ) {
-		return getPropContents_TSResultsListSize();
-	}
-	else if ( propName.equalsIgnoreCase("TSViewWindowListener") ) {
-		return getPropContents_TSViewWindowListener();
-	}
-    else if ( propName.equalsIgnoreCase("WarningLevelLogFile") ) {
-        return new Integer(Message.getWarningLevel(Message.LOG_OUTPUT));
-    }
-    else if ( propName.equalsIgnoreCase("WarningLevelScreen") ) {
-        return new Integer(Message.getWarningLevel(Message.TERM_OUTPUT));
-    }
-	else if ( propName.equalsIgnoreCase("WorkingDir") ) {
-		return getPropContents_WorkingDir();
-	}
-	else if ( propName.equalsIgnoreCase("WorkingDirPortable") ) {
-		return IOUtil.toPortablePath(getPropContents_WorkingDir());
+{	TSCommandProcessorPropertyType propertyType = TSCommandProcessorPropertyType.valueOfIgnoreCase(propName);
+	Object lock = __parallelRunLock;
+	if ( lock != null ) {
+		synchronized ( lock ) {
+			return getPropContents ( propertyType, propName );
+		}
 	}
-	else if ( propName.equalsIgnoreCase("WorkingDirPosix") ) {
-		return IOUtil.toPosixPath(getPropContents_WorkingDir());
+	return getPropContents ( propertyType, propName );
+}
+
+/**
+Return the contents of a property, given the property type.
+@param propertyType the built-in property type, or null if a user-supplied property
+@param propName the property name
+@return the contents for a named property, or null if a value is not found.
+*/
+private Object getPropContents ( TSCommandProcessorPropertyType propertyType, String propName ) throws Exception
+{
+	if ( propertyType != null ) {
+	    switch ( propertyType ) {
+	    case AUTO_EXTEND_PERIOD:
+	        return getPropContents_AutoExtendPeriod();
+	    case AVERAGE_END:
+	        return getPropContents_AverageEnd();
+	    case AVERAGE_START:
+	        return getPropContents_AverageStart();
+	    case COMMAND_FILE_NAME:
+	        return getCommandFileName();
+	    case COMMANDS_SHOULD_CLEAR_RUN_STATUS:
+	        return getPropContents_CommandsShouldClearRunStatus();
+	    case CREATE_OUTPUT:
+	        return getPropContents_CreateOutput();
+	    case DEBUG_LEVEL_LOG_FILE:
+	        return new Integer(Message.getDebugLevel(Message.LOG_OUTPUT));
+	    case DEBUG_LEVEL_SCREEN:
+	        return new Integer(Message.getDebugLevel(Message.TERM_OUTPUT));
+	    case ENSEMBLE_RESULTS_LIST:
+	        return getPropContents_EnsembleResultsList();
+	    case HAVE_OUTPUT_PERIOD:
+	        return getPropContents_HaveOutputPeriod();
+	    case HYDROBASE_DMI_LIST:
+	        return getPropContents_HydroBaseDMIList();
+	    case HYDROBASE_DMI_LIST_SIZE:
+	        return getPropContents_HydroBaseDMIListSize();
+	    case IGNORE_LE_ZERO:
+	        return getPropContents_IgnoreLEZero();
+	    case INCLUDE_MISSING_TS:
+	        return getPropContents_IncludeMissingTS();
+	    case INITIAL_WORKING_DIR:
+	        return getPropContents_InitialWorkingDir();
+	    case INPUT_END:
+	        return getPropContents_InputEnd();
+	    case INPUT_START:
+	        return getPropContents_InputStart();
+	    case NETWORK_RESULTS_LIST:
+	        return getPropContents_NetworkResultsList();
+	    case OUTPUT_COMMENTS:
+	        return getPropContents_OutputComments();
+	    case OUTPUT_END:
+	        return getPropContents_OutputEnd();
+	    case OUTPUT_FILE_LIST:
+	        return getPropContents_OutputFileList();
+	    case OUTPUT_START:
+	        return getPropContents_OutputStart();
+	    case OUTPUT_YEAR_TYPE:
+	        return getPropContents_OutputYearType();
+	    case PATTERN_TS_LIST:
+	        return getPropContents_PatternTSList();
+	    case START_LOG_ENABLED:
+	        return getPropContents_StartLogEnabled();
+	    case TABLE_RESULTS_LIST:
+	        return getPropContents_TableResultsList();
+	    case TIME_SERIES_MEMORY_BUDGET:
+	        return new Integer(__tsengine.getTimeSeriesMemoryBudget());
+	    case TIME_SERIES_VIEW_RESULTS_LIST:
+	        return getPropContents_TimeSeriesViewResultsList();
+	    case TS_ENSEMBLE_RESULTS_LIST_SIZE:
+	        return getPropContents_TSEnsembleResultsListSize();
+	    case TS_PRODUCT_ANNOTATION_PROVIDER_LIST:
+	        return getPropContents_TSProductAnnotationProviderList();
+	    case TS_RESULTS_LIST:
+	        return getPropContents_TSResultsList();
+	    case TS_RESULTS_LIST_SIZE:
+	        return getPropContents_TSResultsListSize();
+	    case TS_VIEW_WINDOW_LISTENER:
+	        return getPropContents_TSViewWindowListener();
+	    case WARNING_LEVEL_LOG_FILE:
+	        return new Integer(Message.getWarningLevel(Message.LOG_OUTPUT));
+	    case WARNING_LEVEL_SCREEN:
+	        return new Integer(Message.getWarningLevel(Message.TERM_OUTPUT));
+	    case WORKING_DIR:
+	        return getPropContents_WorkingDir();
+	    case WORKING_DIR_PORTABLE:
+	        return IOUtil.toPortablePath(getPropContents_WorkingDir());
+	    case WORKING_DIR_POSIX:
+	        return IOUtil.toPosixPath(getPropContents_WorkingDir());
+	    }
 	}
-	else {
-	    // Property is not one of the individual objects that have been historically
-	    // maintained, but it may be a user-supplied property in the hashtable.
-	    Object o = __propertyHashmap.get ( propName );
-	    if ( o == null ) {
-	    	// Changed on 2016-09-18 to allow null to be returned,
-	    	// generally indicating that user-supplied property is being processed
+    // Property is not one of the individual objects that have been historically
+    // maintained, but it may be a user-supplied property in the hashtable.
+    Object o = __propertyHashmap.get ( propName );
+    if ( o == null ) {
+    	// Changed on 2016-09-18 to allow null to be returned,
+    	// generally indicating that user-supplied property is being processed
     	    //String warning = "Unknown GetPropContents request \"" + propName + "\"";
     		// TODO SAM 2007-02-07 Need to figure out a way to indicate
     		// an error and pass back useful information.
     		//throw new UnrecognizedRequestException ( warning );
-	    	return null;
-	    }
-	    else {
-	        // Return the object from the hashtable
-	        return o;
-	    }
-	}
+    	return null;
+    }
+    else {
+        // Return the object from the hashtable
+        return o;
+    }
 }
 
 /**
@@ -1408,7 +1735,13 @@ Handle the EnsembleResultsList property request.
 @return The ensemble results list, as a List of TSEnsemble.
 */
 private List<TSEnsemble> getPropContents_EnsembleResultsList()
+throws Exception
 {
+    // The caller may modify the list directly
+    __ensembleIndex.accessedAll();
+    for ( TSEnsemble ensemble : __TSEnsembleList ) {
+        __tsengine.copyOnAccess ( ensemble.getTimeSeriesList(false) );
+    }
     return __TSEnsembleList;
 }
 
@@ -1582,6 +1915,8 @@ Handle the TableResultsList property request.
 */
 private List<DataTable> getPropContents_TableResultsList()
 {
+    // The caller may modify the list directly
+    __tableIndex.accessedAll();
     return __TableList;
 }
 
@@ -1618,6 +1953,7 @@ Handle the TSResultsList property request.
 @return The time series results list, as a list of TS.
 */
 private List<TS> getPropContents_TSResultsList()
+throws Exception
 {
 	return __tsengine.getTimeSeriesList(null);
 }
@@ -1628,7 +1964,8 @@ Handle the TSResultsListSize property request.
 */
 private Integer getPropContents_TSResultsListSize()
 {
-	return new Integer( __tsengine.getTimeSeriesList(null).size());
+	// Get the size directly so that time series data are not read when LazyTimeSeriesRead=True
+	return new Integer( __tsengine.getTimeSeriesSize());
 }
 
 /**
@@ -1687,6 +2024,7 @@ public Collection<String> getPropertyNameList ( boolean includeBuiltInProperties
     	v.add ( "OutputEnd" );
         v.add ( "OutputYearType" );
         v.add ( "StartLogEnabled" );
+        v.add ( "TimeSeriesMemoryBudget" );
         v.add ( "TSEnsembleResultsListSize" );   // Useful for testing when zero time series are expected
         v.add ( "TSResultsListSize" );   // Useful for testing when zero time series are expected
         v.add ( "WarningLevelLogFile" );
@@ -1725,6 +2063,55 @@ public boolean getReadOnly ()
     return false;
 }
 
+/**
+Return the first table matching the table identifier (case-independent).
+This is equivalent to the GetTable request but does not require creating request and result objects,
+and should be used by commands that look up tables in loops.
+@param TableID table identifier to match
+@return the matching table, or null if not found
+*/
+public DataTable getTable ( String TableID )
+{   int pos = __tableIndex.indexOf ( TableID );
+    if ( pos < 0 ) {
+        return null;
+    }
+    DataTable table = __TableList.get(pos);
+    // The caller may change the table identifier
+    __tableIndex.accessed ( table );
+    return table;
+}
+
+/**
+Return the time series matching an alias or time series identifier, searching from the end of the results list.
+This is equivalent to the GetTimeSeriesForTSID request but does not require creating request and result objects.
+@param commandTag command tag used with messages, can be null
+@param TSID the alias or time series identifier to match
+@return the matching time series, or null if not found
+*/
+public TS getTimeSeriesForTSID ( String commandTag, String TSID )
+throws Exception
+{   if ( commandTag == null ) {
+        commandTag = "";
+    }
+    return __tsengine.getTimeSeries ( commandTag, TSID );
+}
+
+/**
+Return the time series to process, given TSList and related parameters.
+This is equivalent to the GetTimeSeriesToProcess request but does not require creating request and result objects,
+and should be used by commands that look up time series in loops.
+See TSEngine.getTimeSeriesToProcess() for a description of the parameters.
+@param TSList TSList parameter value (see TSListType)
+@param TSID time series identifier or pattern, can be null depending on TSList
+@param EnsembleID ensemble identifier, can be null depending on TSList
+@param TSPosition time series positions, can be null depending on TSList
+@return the time series to process, guaranteed to be non-null
+*/
+public TimeSeriesToProcess getTimeSeriesToProcess ( String TSList, String TSID, String EnsembleID, String TSPosition )
+throws Exception
+{   return __tsengine.getTimeSeriesToProcess ( TSList, TSID, EnsembleID, TSPosition );
+}
+
 /**
 Return the TSSupplier name.
 @return the TSSupplier name ("TSEngine").
@@ -1830,11 +2217,12 @@ private void notifyCommandListListenersOfAdd ( int index0, int index1 )
 
 /**
 Notify registered CommandListListeners about one or more commands being changed.
-@param index0 The index (0+) of the first command that is added.
-@param index1 The index (0+) of the last command that is added.
+This should be called by code that edits commands in place (e.g., command editors), so that results that
+depend on the commands, such as the discovery index, are updated.
+@param index0 The index (0+) of the first command that is changed.
+@param index1 The index (0+) of the last command that is changed.
 */
-@SuppressWarnings("unused")
-private void notifyCommandListListenersOfChange ( int index0, int index1 )
+public void notifyCommandListListenersOfChange ( int index0, int index1 )
 {	if ( __CommandListListener_array != null ) {
 		for ( int i = 0; i < __CommandListListener_array.length; i++ ) {
 			__CommandListListener_array[i].commandChanged(index0, index1);
@@ -2333,129 +2721,54 @@ Returned values from this request are:
 */
 public CommandProcessorRequestResultsBean processRequest ( String request, PropList request_params )
 throws Exception
-{	//return __tsengine.getPropContents ( prop );
-    if ( request.equalsIgnoreCase("AddCommandProcessorEventListener") ) {
-        return processRequest_AddCommandProcessorEventListener ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("AppendTimeSeries") ) {
-		return processRequest_AppendTimeSeries ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("AppendEnsemble") ) {
-        return processRequest_AppendEnsemble( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("CalculateTSAverageLimits") ) {
-		return processRequest_CalculateTSAverageLimits ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("DateTime") ) {
-		return processRequest_DateTime ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("GetEnsemble") ) {
-        return processRequest_GetEnsemble ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("GetEnsembleAt") ) {
-        return processRequest_GetEnsembleAt ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("GetHydroBaseDMI") ) {
-		return processRequest_GetHydroBaseDMI ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("GetNetwork") ) {
-        return processRequest_GetNetwork ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("GetNwsrfsDMI") ) {
-        return processRequest_GetNwsrfsDMI ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("GetOutputPeriodForCommand") ) {
-        return processRequest_GetOutputPeriodForCommand ( request, request_params );
-    }
-    // Put before shorter GetProperty
-    else if ( request.equalsIgnoreCase("GetPropertyHashtable") ) {
-        return processRequest_GetPropertyHashtable ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("GetProperty") ) {
-        return processRequest_GetProperty ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("GetTable") ) {
-        return processRequest_GetTable ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("GetTimeSeries") ) {
-		return processRequest_GetTimeSeries ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("GetTimeSeriesForTSID") ) {
-		return processRequest_GetTimeSeriesForTSID ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("GetTimeSeriesToProcess") ) {
-		return processRequest_GetTimeSeriesToProcess ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("GetTSIDListNoInputAboveCommand") ) {
-		return processRequest_GetTSIDListNoInputAboveCommand ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("GetWorkingDirForCommand") ) {
-		return processRequest_GetWorkingDirForCommand ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("IndexOf") ) {
-		return processRequest_IndexOf ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("ProcessCommands") ) {
-		return processRequest_ProcessCommands ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("ProcessTimeSeriesAction") ) {
-		return processRequest_ProcessTimeSeriesAction ( request, request_params );
-	}
-	else if ( request.equalsIgnoreCase("ProcessTimeSeriesResultsList") ) {
-		return processRequest_ProcessTimeSeriesResultsList ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("ReadTimeSeries") ) {
-        return processRequest_ReadTimeSeries ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("ReadTimeSeries2") ) {
-		return processRequest_ReadTimeSeries2 ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("RemoveAllFromEnsembleResultsList") ) {
-        return processRequest_RemoveAllFromEnsembleResultsList ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("RemoveAllFromTimeSeriesResultsList") ) {
-        return processRequest_RemoveAllFromTimeSeriesResultsList ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("RemoveProperty") ) {
-        return processRequest_RemoveProperty ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("RemoveTableFromResultsList") ) {
-        return processRequest_RemoveTableFromResultsList ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("RemoveTimeSeriesFromResultsList") ) {
-        return processRequest_RemoveTimeSeriesFromResultsList ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("RunCommands") ) {
-		return processRequest_RunCommands ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("DataStore") ) {
-        return processRequest_SetDataStore ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("SetHydroBaseDMI") ) {
-		return processRequest_SetHydroBaseDMI ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("SetNetwork") ) {
-        return processRequest_SetNetwork ( request, request_params );
-    }
-	else if ( request.equalsIgnoreCase("SetNWSRFSFS5FilesDMI") ) {
-		return processRequest_SetNWSRFSFS5FilesDMI ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("SetPatternTSList") ) {
-        return processRequest_SetPatternTSList ( request, request_params );
-    }
-    else if ( request.equalsIgnoreCase("SetProperty") ) {
-        return processRequest_SetProperty ( request, request_params );
+{	// Resolve the request name once using the enumeration rather than comparing with each request name
+    TSCommandProcessorRequestType requestType = TSCommandProcessorRequestType.valueOfIgnoreCase ( request );
+    List<ParallelCommandRunner.DeferredRequest> deferredRequestList = __deferredRequestList.get();
+    if ( (deferredRequestList != null) && ParallelCommandRunner.isDeferredRequest(requestType) ) {
+        // Command is being run in parallel so save the request to apply when the command's results are committed.
+        // Copy the parameters because the command may reuse the list for other requests before the commit.
+        deferredRequestList.add ( new ParallelCommandRunner.DeferredRequest(request,
+            ((request_params == null) ? null : new PropList(request_params))) );
+        return new TSCommandProcessorRequestResultsBean();
+    }
+    Object lock = __parallelRunLock;
+    long startTime = System.nanoTime();
+    CommandProcessorRequestResultsBean bean = null;
+    try {
+        if ( lock != null ) {
+            synchronized ( lock ) {
+                bean = processRequest ( requestType, request, request_params );
+            }
+        }
+        else {
+            bean = processRequest ( requestType, request, request_params );
+        }
     }
-    else if ( request.equalsIgnoreCase("SetTable") ) {
-        return processRequest_SetTable ( request, request_params );
+    finally {
+        // Use the enumeration name so that requests that differ only by case are counted together
+        __metrics.requestProcessed ( ((requestType == null) ? request : requestType.toString()), System.nanoTime() - startTime );
     }
-	else if ( request.equalsIgnoreCase("SetTimeSeries") ) {
-		return processRequest_SetTimeSeries ( request, request_params );
-	}
-    else if ( request.equalsIgnoreCase("SetTimeSeriesView") ) {
-        return processRequest_SetTimeSeriesView ( request, request_params );
+    List<ParallelCommandRunner.DeferredRequest> recordedRequestList = __recordedRequestList.get();
+    if ( (recordedRequestList != null) && ParallelCommandRunner.isDeferredRequest(requestType) ) {
+        // Copy the parameters because the command may reuse the list for other requests
+        recordedRequestList.add ( new ParallelCommandRunner.DeferredRequest(request,
+            ((request_params == null) ? null : new PropList(request_params))) );
     }
-	else {
+    return bean;
+}
+
+/**
+Process a request that has been resolved to the request type.
+@param requestType the request type, or null if the request is not recognized
+@param request the request name, as passed to processRequest()
+@param request_params An optional list of parameters to be used in the request.
+@exception Exception if the request cannot be processed.
+@return the results of a request, or null if a value is not found.
+*/
+private CommandProcessorRequestResultsBean processRequest ( TSCommandProcessorRequestType requestType,
+    String request, PropList request_params )
+throws Exception
+{   if ( requestType == null ) {
 		TSCommandProcessorRequestResultsBean bean =
 			new TSCommandProcessorRequestResultsBean();
 		String warning = "Unknown TSCommandProcessor request \"" +
@@ -2465,7 +2778,94 @@ throws Exception
 		// TODO SAM 2007-02-07 Need to figure out a way to indicate
 		// an error and pass back useful information.
 		throw new UnrecognizedRequestException ( warning );
-	}
+    }
+    switch ( requestType ) {
+        case ADD_COMMAND_PROCESSOR_EVENT_LISTENER:
+            return processRequest_AddCommandProcessorEventListener ( request, request_params );
+        case APPEND_TIME_SERIES:
+            return processRequest_AppendTimeSeries ( request, request_params );
+        case APPEND_ENSEMBLE:
+            return processRequest_AppendEnsemble ( request, request_params );
+        case CALCULATE_TS_AVERAGE_LIMITS:
+            return processRequest_CalculateTSAverageLimits ( request, request_params );
+        case DATE_TIME:
+            return processRequest_DateTime ( request, request_params );
+        case GET_ENSEMBLE:
+            return processRequest_GetEnsemble ( request, request_params );
+        case GET_ENSEMBLE_AT:
+            return processRequest_GetEnsembleAt ( request, request_params );
+        case GET_HYDROBASE_DMI:
+            return processRequest_GetHydroBaseDMI ( request, request_params );
+        case GET_NETWORK:
+            return processRequest_GetNetwork ( request, request_params );
+        case GET_NWSRFS_DMI:
+            return processRequest_GetNwsrfsDMI ( request, request_params );
+        case GET_OUTPUT_PERIOD_FOR_COMMAND:
+            return processRequest_GetOutputPeriodForCommand ( request, request_params );
+        case GET_PROPERTY_HASHTABLE:
+            return processRequest_GetPropertyHashtable ( request, request_params );
+        case GET_PROPERTY:
+            return processRequest_GetProperty ( request, request_params );
+        case GET_TABLE:
+            return processRequest_GetTable ( request, request_params );
+        case GET_TIME_SERIES:
+            return processRequest_GetTimeSeries ( request, request_params );
+        case GET_TIME_SERIES_FOR_TSID:
+            return processRequest_GetTimeSeriesForTSID ( request, request_params );
+        case GET_TIME_SERIES_TO_PROCESS:
+            return processRequest_GetTimeSeriesToProcess ( request, request_params );
+        case GET_TSID_LIST_NO_INPUT_ABOVE_COMMAND:
+            return processRequest_GetTSIDListNoInputAboveCommand ( request, request_params );
+        case GET_WORKING_DIR_FOR_COMMAND:
+            return processRequest_GetWorkingDirForCommand ( request, request_params );
+        case INDEX_OF:
+            return processRequest_IndexOf ( request, request_params );
+        case PROCESS_COMMANDS:
+            return processRequest_ProcessCommands ( request, request_params );
+        case PROCESS_TIME_SERIES_ACTION:
+            return processRequest_ProcessTimeSeriesAction ( request, request_params );
+        case PROCESS_TIME_SERIES_RESULTS_LIST:
+            return processRequest_ProcessTimeSeriesResultsList ( request, request_params );
+        case READ_TIME_SERIES:
+            return processRequest_ReadTimeSeries ( request, request_params );
+        case READ_TIME_SERIES_2:
+            return processRequest_ReadTimeSeries2 ( request, request_params );
+        case READ_TIME_SERIES_LIST:
+            return processRequest_ReadTimeSeriesList ( request, request_params );
+        case REMOVE_ALL_FROM_ENSEMBLE_RESULTS_LIST:
+            return processRequest_RemoveAllFromEnsembleResultsList ( request, request_params );
+        case REMOVE_ALL_FROM_TIME_SERIES_RESULTS_LIST:
+            return processRequest_RemoveAllFromTimeSeriesResultsList ( request, request_params );
+        case REMOVE_PROPERTY:
+            return processRequest_RemoveProperty ( request, request_params );
+        case REMOVE_TABLE_FROM_RESULTS_LIST:
+            return processRequest_RemoveTableFromResultsList ( request, request_params );
+        case REMOVE_TIME_SERIES_FROM_RESULTS_LIST:
+            return processRequest_RemoveTimeSeriesFromResultsList ( request, request_params );
+        case RUN_COMMANDS:
+            return processRequest_RunCommands ( request, request_params );
+        case DATA_STORE:
+            return processRequest_SetDataStore ( request, request_params );
+        case SET_HYDROBASE_DMI:
+            return processRequest_SetHydroBaseDMI ( request, request_params );
+        case SET_NETWORK:
+            return processRequest_SetNetwork ( request, request_params );
+        case SET_NWSRFS_FS5_FILES_DMI:
+            return processRequest_SetNWSRFSFS5FilesDMI ( request, request_params );
+        case SET_PATTERN_TS_LIST:
+            return processRequest_SetPatternTSList ( request, request_params );
+        case SET_PROPERTY:
+            return processRequest_SetProperty ( request, request_params );
+        case SET_TABLE:
+            return processRequest_SetTable ( request, request_params );
+        case SET_TIME_SERIES:
+            return processRequest_SetTimeSeries ( request, request_params );
+        case SET_TIME_SERIES_VIEW:
+            return processRequest_SetTimeSeriesView ( request, request_params );
+        default:
+            // Should not happen if all enumeration values are handled above
+            throw new UnrecognizedRequestException ( "Unhandled TSCommandProcessor request \"" + request + "\"" );
+    }
 }
 
 /**
@@ -2507,6 +2907,7 @@ throws Exception
     }
     TSEnsemble tsensemble = (TSEnsemble)o;
     __TSEnsembleList.add ( tsensemble );
+    __ensembleIndex.added ( tsensemble );
     // No data are returned in the bean.
     return bean;
 }
@@ -2607,6 +3008,13 @@ throws Exception
     }
     String EnsembleID = (String)o;
     TSEnsemble tsensemble = getEnsemble ( EnsembleID );
+    if ( tsensemble != null ) {
+        // Copy shared time series, and read deferred and spilled data, the same as for time series requested with TSList
+        __tsengine.copyOnAccess ( tsensemble.getTimeSeriesList(false) );
+        __tsengine.readLazyTimeSeriesData ( tsensemble.getTimeSeriesList(false) );
+        // The caller may change the aliases or identifiers of the time series in the ensemble
+        __tsengine.timeSeriesAccessed ( tsensemble.getTimeSeriesList(false) );
+    }
     PropList results = bean.getResultsPropList();
     // This will be set in the bean because the PropList is a reference...
     results.setUsingObject("TSEnsemble", tsensemble );
@@ -2638,6 +3046,12 @@ throws Exception
     else {
         tsensemble = __TSEnsembleList.get ( i );
     }
+    if ( tsensemble != null ) {
+        __ensembleIndex.accessed ( tsensemble );
+        __tsengine.copyOnAccess ( tsensemble.getTimeSeriesList(false) );
+        __tsengine.readLazyTimeSeriesData ( tsensemble.getTimeSeriesList(false) );
+        __tsengine.timeSeriesAccessed ( tsensemble.getTimeSeriesList(false) );
+    }
     PropList results = bean.getResultsPropList();
     // This will be set in the bean because the PropList is a reference...
     results.setUsingObject("TSEnsemble", tsensemble );
@@ -2857,22 +3271,7 @@ throws Exception
             throw new RequestParameterNotFoundException ( warning );
     }
     String TableID = (String)o;
-    int size = 0;
-    if ( __TableList != null ) {
-        size = __TableList.size();
-    }
-    DataTable table = null;
-    boolean found = false;
-    for ( int i = 0; i < size; i++ ) {
-        table = (DataTable)__TableList.get(i);
-        if ( table.getTableID().equalsIgnoreCase(TableID) ) {
-            found = true;
-            break;
-        }
-    }
-    if ( !found ) {
-        table = null;
-    }
+    DataTable table = getTable ( TableID );
     PropList results = bean.getResultsPropList();
     // This will be set in the bean because the PropList is a reference...
     results.setUsingObject("Table", table );
@@ -2925,7 +3324,7 @@ throws Exception
 	if ( o != null ) {
 		CommandTag = (String)o;
 	}
-	TS ts = __tsengine.getTimeSeries ( CommandTag, TSID );
+	TS ts = getTimeSeriesForTSID ( CommandTag, TSID );
 	PropList results = bean.getResultsPropList();
 	// This will be set in the bean because the PropList is a reference...
 	results.setUsingObject("TS", ts );
@@ -2970,7 +3369,7 @@ throws Exception
 	// Get the information from TSEngine, which is returned as a Vector
 	// with the first element being the matching time series list and the second
 	// being the indices of those time series in the time series results list.
-    TimeSeriesToProcess tsToProcess = __tsengine.getTimeSeriesToProcess ( TSList, TSID, EnsembleID, TSPosition );
+    TimeSeriesToProcess tsToProcess = getTimeSeriesToProcess ( TSList, TSID, EnsembleID, TSPosition );
 	List<TS> tsList = tsToProcess.getTimeSeriesList();
 	int [] tsPos = tsToProcess.getTimeSeriesPositions();
 	List<String> errorList = tsToProcess.getErrors();
@@ -3120,7 +3519,13 @@ throws Exception
 			bean.setWarningRecommendationText ( "This is likely a software code error.");
 			throw new RequestParameterNotFoundException ( warning );
 	}
-	__tsengine.processCommands( commands, (PropList)o_Properties );
+	try {
+		__tsengine.processCommands( commands, (PropList)o_Properties );
+	}
+	finally {
+		// Make sure that the log file is complete, even if processing failed
+		AsyncLogWriter.drainAll();
+	}
 	// No results need to be set in the bean.
 	return bean;
 }
@@ -3391,6 +3796,103 @@ throws Exception
 	return bean;
 }
 
+/**
+Process the ReadTimeSeriesList request.
+This request is the same as the ReadTimeSeries request except that a list of time series identifiers is read.
+The identifiers are grouped by datastore so that each datastore can read its time series in one request
+(see TSEngine.readTimeSeriesBulk()), which is much faster than a ReadTimeSeries request for each time series.
+The following properties are expected:
+<ol>
+<li> CommandTag - string to tag warnings for logging</li>
+<li> DefaultOutputStart - DateTime with output start date if IfNotFound=Default</li>
+<li> DefaultOutputEnd - DateTime with output date if IfNotFound=Default</li>
+<li> IfNotFound - Default, Ignore, or Warn (default)</li>
+<li> ReadData - true (default) to read data, false to only initialize time series</li>
+<li> TSIDList - list of time series identifiers to read, as List&lt;String&gt;</li>
+<li> WarningLevel - warning level for warning messages</li>
+</ol>
+@return a result bean with the following property contents:
+<ol>
+<li> TSList - list of time series, in the same order as TSIDList, with null for time series that were not found</li>
+</ol>
+*/
+private CommandProcessorRequestResultsBean processRequest_ReadTimeSeriesList (
+        String request, PropList request_params )
+throws Exception
+{   TSCommandProcessorRequestResultsBean bean = new TSCommandProcessorRequestResultsBean();
+    // Get the necessary parameters...
+    // Identifiers for time series to read
+    Object o = request_params.getContents ( "TSIDList" );
+    if ( o == null ) {
+            String warning = "Request ReadTimeSeriesList() does not provide a TSIDList parameter.";
+            bean.setWarningText ( warning );
+            bean.setWarningRecommendationText ( "This is likely a software code error.");
+            throw new RequestParameterNotFoundException ( warning );
+    }
+    @SuppressWarnings("unchecked")
+    List<String> TSIDList = (List<String>)o;
+    // Warning level to use for command logging.
+    Object o_WarningLevel = request_params.getContents ( "WarningLevel" );
+    if ( o_WarningLevel == null ) {
+            String warning = "Request ReadTimeSeriesList() does not provide a WarningLevel parameter.";
+            bean.setWarningText ( warning );
+            bean.setWarningRecommendationText ( "This is likely a software code error.");
+            throw new RequestParameterNotFoundException ( warning );
+    }
+    int warningLevel = ((Integer)o_WarningLevel).intValue();
+    // Command tag to use for command logging
+    Object o_CommandTag = request_params.getValue ( "CommandTag" );
+    if ( o_CommandTag == null ) {
+            String warning = "Request ReadTimeSeriesList() does not provide a CommandTag parameter.";
+            bean.setWarningText ( warning );
+            bean.setWarningRecommendationText ( "This is likely a software code error.");
+            throw new RequestParameterNotFoundException ( warning );
+    }
+    String commandTag = (String)o_CommandTag;
+    // IfNotFound is handled the same as for the ReadTimeSeries request
+    Object o_IfNotFound = request_params.getValue ( "IfNotFound" );
+    if ( o_IfNotFound == null ) {
+            o_IfNotFound = "Warn";  // Default
+    }
+    String IfNotFound = (String)o_IfNotFound;
+    boolean includeMissingTS = IfNotFound.equalsIgnoreCase("Default");
+    DateTime defaultOutputStart = (DateTime)request_params.getContents ( "DefaultOutputStart" );
+    DateTime defaultOutputEnd = (DateTime)request_params.getContents ( "DefaultOutputEnd" );
+    Object o_ReadData = request_params.getContents ( "ReadData" );
+    if ( o_ReadData == null ) {
+           o_ReadData = new Boolean(true); // Default
+    }
+    boolean readData = ((Boolean)o_ReadData).booleanValue();
+    List<TS> tslist = null;
+    boolean includeMissingTsOld = __tsengine.getIncludeMissingTS();
+    DateTime outputStartOld = __tsengine.getIncludeMissingTSOutputStart();
+    DateTime outputEndOld = __tsengine.getIncludeMissingTSOutputEnd();
+    try {
+        __tsengine.setIncludeMissingTS ( includeMissingTS );
+        if ( defaultOutputStart != null ) {
+        	__tsengine.setIncludeMissingTSOutputStart(defaultOutputStart);
+        }
+        if ( defaultOutputEnd != null ) {
+        	__tsengine.setIncludeMissingTSOutputEnd(defaultOutputEnd);
+        }
+        tslist = __tsengine.readTimeSeriesBulk ( warningLevel, commandTag, TSIDList, readData );
+    }
+    finally {
+    	// Reset the global property to include missing time series
+        __tsengine.setIncludeMissingTS ( includeMissingTsOld );
+        if ( defaultOutputStart != null ) {
+        	__tsengine.setIncludeMissingTSOutputStart(outputStartOld);
+        }
+        if ( defaultOutputEnd != null ) {
+        	__tsengine.setIncludeMissingTSOutputEnd(outputEndOld);
+        }
+    }
+    PropList results = bean.getResultsPropList();
+    // Return the time series.
+    results.setUsingObject ( "TSList", tslist );
+    return bean;
+}
+
 /**
 Process the RemoveAllFromEnsembleResultsList request.
 */
@@ -3463,13 +3965,13 @@ throws Exception
     }
     String TableID = (String)o;
     // Remove all tables having the same identifier.
-    DataTable table;
-    for ( int i = 0; i < __TableList.size(); i++ ) {
-        table = __TableList.get(i);
-        // Remove and decrement the counter so that the next table is checked
-        if ( table.getTableID().equalsIgnoreCase(TableID) ) {
-            __TableList.remove(i--);
+    List<Integer> positions = __tableIndex.indexesOf ( TableID );
+    if ( positions.size() > 0 ) {
+        // Remove from the end so that positions are not shifted
+        for ( int i = positions.size() - 1; i >= 0; i-- ) {
+            __TableList.remove(positions.get(i).intValue());
         }
+        __tableIndex.changed();
     }
     return bean;
 }
@@ -3511,6 +4013,7 @@ throws Exception
             if ( FreeEnsembleIfEmpty_Boolean.booleanValue() && (ensemble.size() == 0) ) {
                 Message.printStatus(2, routine, "Ensemble is empty, removing ensemble." );
                 __TSEnsembleList.remove(i);
+                __ensembleIndex.changed();
             }
         }
     }
@@ -3759,20 +4262,7 @@ throws Exception
             throw new RequestParameterNotFoundException ( warning );
     }
     DataTable o_DataTable = (DataTable)o;
-    // Loop through the tables.  If a matching table ID is found, reset.  Otherwise, add at the end.
-    int size = __TableList.size();
-    DataTable table;
-    boolean found = false;
-    for ( int i = 0; i < size; i++ ) {
-        table = (DataTable)__TableList.get(i);
-        if ( table.getTableID().equalsIgnoreCase(o_DataTable.getTableID())) {
-            __TableList.set(i,o_DataTable);
-            found = true;
-        }
-    }
-    if ( !found ) {
-        __TableList.add ( o_DataTable );
-    }
+    setTable ( o_DataTable );
     // No data are returned in the bean.
     return bean;
 }
@@ -3923,8 +4413,9 @@ private void readCommandFile_RunDiscoveryOnCommand ( Command command_read )
     if ( Message.isDebugOn ) {
         Message.printStatus(2, routine, "Running discovery mode on command:  \"" + command_read + "\"" );
     }
+    int index = indexOf(command_read);
     try {
-        ((CommandDiscoverable)command_read).runCommandDiscovery(indexOf(command_read));
+        ((CommandDiscoverable)command_read).runCommandDiscovery(index);
     }
     catch ( Exception e ) {
         // TODO SAM 2011-02-17 Need to show warning to user?  With current design, code should have complete input.
@@ -3933,6 +4424,9 @@ private void readCommandFile_RunDiscoveryOnCommand ( Command command_read )
         Message.printStatus(2, routine, message);
         Message.printWarning(3, routine, e);
     }
+    // Discovery results for the command may have changed - listeners are notified of the added commands
+    // after the read so only update the discovery index here
+    __commandDiscoveryIndex.invalidate ( index );
 }
 
 /**
@@ -4023,6 +4517,33 @@ throws Exception {
 	return __tsengine.readTimeSeriesList ( tsident, fname, date1, date2, req_units, read_data );
 }
 
+/**
+Publish the processor run-time metrics as a JMX MBean, so that the processor can be monitored with
+standard JMX tools (e.g., jconsole) while commands are running.
+The MBean remains registered until unregisterMetricsMBean() is called.
+If already registered, nothing is done.
+@exception Exception if the MBean cannot be registered
+*/
+public void registerMetricsMBean ()
+throws Exception
+{
+	__metrics.register();
+}
+
+/**
+Publish the processor run-time metrics as a JMX MBean for the current run (PublishMetrics=True).
+If not already registered, the MBean is unregistered when runCommands() completes.
+@exception Exception if the MBean cannot be registered
+*/
+void registerMetricsMBeanForRun ()
+throws Exception
+{
+	if ( !__metrics.isRegistered() ) {
+		__metrics.register();
+		__metricsRegisteredForRun = true;
+	}
+}
+
 /**
 Remove all CommandProcessorEventListener.
 */
@@ -4049,6 +4570,7 @@ private void removeAllEnsembles ()
 {
     if ( __TSEnsembleList != null ) {
         __TSEnsembleList.clear();
+        __ensembleIndex.changed();
     }
 }
 
@@ -4106,6 +4628,23 @@ public void removeCommandListListener ( CommandListListener listener )
 	}
 }
 
+/**
+Replace a time series in the ensembles, used when a shared time series is copied on first access.
+@param ts time series to replace
+@param replacement time series to use instead
+*/
+protected void replaceEnsembleTimeSeries ( TS ts, TS replacement )
+{
+    for ( TSEnsemble ensemble : __TSEnsembleList ) {
+        List<TS> tslist = ensemble.getTimeSeriesList(false);
+        for ( int i = 0; i < tslist.size(); i++ ) {
+            if ( tslist.get(i) == ts ) {
+                tslist.set ( i, replacement );
+            }
+        }
+    }
+}
+
 /**
 Reset the workflow global properties to defaults, necessary when a command processor is rerun.
 */
@@ -4191,6 +4730,7 @@ throws Exception
     __tsengine.setOutputEnd ( null );
     __tsengine.setOutputStart ( null );
     __tsengine.setOutputYearType ( YearType.CALENDAR );
+    __tsengine.setTimeSeriesMemoryBudget ( 0 );
 }
 
 /**
@@ -4234,7 +4774,20 @@ throws Exception
     // FIXME SAM 2008-07-15 Need to merge TSEngine into TSCommandProcess when all commands
     // have been converted to classes - then code size should be more manageable and can remove
     // redundant code in the two classes.
-	__tsengine.processCommands ( commands, props );
+	try {
+		__tsengine.processCommands ( commands, props );
+	}
+	finally {
+		// Make sure that the log file is complete, even if processing failed,
+		// because StartLog(Async=True) writes the log file on a background thread
+		AsyncLogWriter.drainAll();
+		// Unregister the metrics if published for the run, so that processors that are discarded after
+		// the run (e.g., for RunCommands) are not retained by the MBean server
+		if ( __metricsRegisteredForRun ) {
+			__metricsRegisteredForRun = false;
+			unregisterMetricsMBean();
+		}
+	}
 	
 	// Now finalize the results by processing the check files, if any
 
@@ -4292,6 +4845,19 @@ protected void setCreateOutput ( Boolean CreateOutput_Boolean )
 	__CreateOutput_Boolean = CreateOutput_Boolean;
 }
 
+/**
+Set the time series that are shared with another processor, for example the time series of the main processor
+that are available to For() loop iterations that are run in parallel.  The shared time series are copied when
+they are first provided to a command, so that commands do not modify the time series of the other processor.
+@param sharedList time series that are shared, typically already added to this processor
+@param sourceProcessor processor that owns the shared time series
+*/
+protected void setCopyOnAccessTimeSeries ( List<TS> sharedList, TSCommandProcessor sourceProcessor )
+{
+    __tsengine.setCopyOnAccessTimeSeries ( sharedList,
+        ((sourceProcessor == null) ? null : sourceProcessor.__tsengine) );
+}
+
 /**
 Set the list of all DataStore instances known to the processor.  These are named database
 connections that correspond to input type/name for time series.
@@ -4311,6 +4877,32 @@ public void setDataStores ( List<DataStore> dataStoreList, boolean closeOld )
     }
 }
 
+/**
+Set a datastore that will be opened on first use rather than now, for example to avoid waiting for slow
+or unreachable datastores that are not used by the commands being run.
+The datastore is opened when requested with getDataStoreForName() or when reading time series,
+and datastores that are used by commands are opened in the background when commands are run.
+The datastore is opened by getDataStores() and getDataStoresByType(), which return all datastores,
+and until opened is listed by getLazyDataStoreNames().
+@param name datastore name
+@param factory factory used to open the datastore
+@param props datastore configuration properties, passed to the factory
+*/
+public void setLazyDataStore ( String name, DataStoreFactory factory, PropList props )
+{
+    __tsengine.setLazyDataStore ( new LazyDataStore(name, factory, props) );
+}
+
+/**
+Set a datastore that will be opened on first use, using a LazyDataStore instance that may already be opened,
+for example to reuse one datastore instance for processors that are run one after the other on the same thread.
+@param lazyDataStore datastore to open on first use
+*/
+public void setLazyDataStore ( LazyDataStore lazyDataStore )
+{
+    __tsengine.setLazyDataStore ( lazyDataStore );
+}
+
 /**
 Set the initial working directory for the processor.  This is typically the location
 of the command file, or a temporary directory if the commands have not been saved.
@@ -4553,6 +5145,15 @@ public void setPropContents ( String propName, Object contents ) throws Exceptio
     else if ( propName.equalsIgnoreCase("StartLogEnabled") ) {
     	// Use the built-in properties
         setStartLogEnabled((Boolean)contents);
+    }
+    else if ( propName.equalsIgnoreCase("TimeSeriesMemoryBudget") ) {
+        // Budget in MB, may be set with SetProperty() as an Integer or String
+        if ( contents instanceof Number ) {
+            __tsengine.setTimeSeriesMemoryBudget ( ((Number)contents).intValue() );
+        }
+        else {
+            __tsengine.setTimeSeriesMemoryBudget ( Integer.parseInt(("" + contents).trim()) );
+        }
     }
 	else if ( propName.equalsIgnoreCase("TSResultsList") ) {
 		@SuppressWarnings("unchecked")
@@ -4580,6 +5181,29 @@ public void setPropContents ( String propName, Object contents ) throws Exceptio
 	}
 }
 
+/**
+Set a table in the results list.  If tables with the same table identifier (case-independent) are found,
+they are replaced.  Otherwise, the table is added at the end of the list.
+This is equivalent to the SetTable request but does not require creating request and result objects.
+@param table table to set
+*/
+public void setTable ( DataTable table )
+{
+    // Use the index to find tables with matching table ID and reset.  Otherwise, add at the end.
+    // Copy the positions because the index is updated when resetting.
+    List<Integer> positions = new ArrayList<Integer>(__tableIndex.indexesOf ( table.getTableID() ));
+    if ( positions.size() > 0 ) {
+        for ( Integer pos : positions ) {
+            __TableList.set(pos.intValue(),table);
+            __tableIndex.set ( table, pos.intValue() );
+        }
+    }
+    else {
+        __TableList.add ( table );
+        __tableIndex.added ( table );
+    }
+}
+
 /**
 Indicate whether StartLog commands should be enabled.
 @param StartLogEnabled_Boolean true if StartLog commands are enabled, false if not.
@@ -4609,4 +5233,12 @@ public int size()
 	return __CommandList.size();
 }
 
+/**
+Unregister the processor run-time metrics JMX MBean, if registered with registerMetricsMBean().
+*/
+public void unregisterMetricsMBean ()
+{
+	__metrics.unregister();
+}
+
 }
\ No newline at end of file
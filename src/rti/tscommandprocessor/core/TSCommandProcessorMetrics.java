@@ -0,0 +1,395 @@
+// TSCommandProcessorMetrics - run-time metrics for a TSCommandProcessor, published as a JMX MBean
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import RTi.Util.IO.Command;
+import RTi.Util.Message.Message;
+
+/**
+Run-time metrics for a TSCommandProcessor, which are updated by the processor as commands run and
+can be published as a JMX MBean (see TSCommandProcessor.registerMetricsMBean() and the PublishMetrics run property)
+so that standard JMX tools can monitor a processor that is running as a service.
+Counters are always maintained because they are inexpensive compared to running commands and processing requests.
+The time series counts are determined when requested and do not cause deferred time series data to be read.
+*/
+public class TSCommandProcessorMetrics implements TSCommandProcessorMetricsMBean
+{
+
+/**
+Count and time statistics for a command name, request, or datastore.
+*/
+private static class Statistic
+{
+	long started = 0;
+	long count = 0;
+	long totalTimeNs = 0;
+	long maxTimeNs = 0;
+	long values = 0;
+
+	/**
+	Add a completed operation.
+	*/
+	void add ( long timeNs )
+	{
+		++this.count;
+		this.totalTimeNs += timeNs;
+		if ( timeNs > this.maxTimeNs ) {
+			this.maxTimeNs = timeNs;
+		}
+	}
+}
+
+/**
+Bytes per data value used to estimate bytes read from datastores (values are stored as double).
+*/
+private static final int BYTES_PER_VALUE = 8;
+
+/**
+Counter used to make MBean names unique when more than one processor is registered.
+*/
+private static int __registeredCount = 0;
+
+/**
+Processor that is being monitored.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+TSEngine for the processor, used for time series counts.
+*/
+private TSEngine __tsengine = null;
+
+/**
+Statistics by command name, sorted by name.
+*/
+private Map<String,Statistic> __commandStatisticMap = new TreeMap<String,Statistic>();
+
+/**
+Statistics by processor request name, sorted by name.
+*/
+private Map<String,Statistic> __requestStatisticMap = new TreeMap<String,Statistic>();
+
+/**
+Statistics for time series reads by datastore name, sorted by name.
+*/
+private Map<String,Statistic> __dataStoreReadStatisticMap = new TreeMap<String,Statistic>();
+
+/**
+Total commands started and completed.
+*/
+private long __commandsStarted = 0;
+private long __commandsCompleted = 0;
+
+/**
+Current command index (1+), count, and command string.
+*/
+private volatile int __currentCommandIndex = 0;
+private volatile int __currentCommandCount = 0;
+private volatile String __currentCommandString = "";
+
+/**
+Name that the MBean is registered with, or null if not registered.
+*/
+private ObjectName __objectName = null;
+
+/**
+Construct the metrics for a processor.
+@param processor the processor being monitored
+@param tsengine the TSEngine for the processor
+*/
+TSCommandProcessorMetrics ( TSCommandProcessor processor, TSEngine tsengine )
+{
+	__processor = processor;
+	__tsengine = tsengine;
+}
+
+/**
+Indicate that a command has completed.
+@param command the command that completed
+@param timeNs time to run the command, nanoseconds
+*/
+void commandCompleted ( Command command, long timeNs )
+{
+	synchronized ( __commandStatisticMap ) {
+		++__commandsCompleted;
+		getStatistic ( __commandStatisticMap, command.getCommandName() ).add ( timeNs );
+	}
+}
+
+/**
+Indicate that a command has started.
+@param index index of the command in the command list (0+)
+@param count number of commands in the command list
+@param command the command that started
+*/
+void commandStarted ( int index, int count, Command command )
+{
+	__currentCommandIndex = index + 1;
+	__currentCommandCount = count;
+	__currentCommandString = command.toString();
+	synchronized ( __commandStatisticMap ) {
+		++__commandsStarted;
+		++getStatistic ( __commandStatisticMap, command.getCommandName() ).started;
+	}
+}
+
+/**
+Indicate that a time series was read from a datastore.
+@param dataStoreName name of the datastore
+@param timeNs time to read the time series, nanoseconds
+@param values number of data values read
+*/
+void dataStoreRead ( String dataStoreName, long timeNs, long values )
+{
+	synchronized ( __dataStoreReadStatisticMap ) {
+		Statistic statistic = getStatistic ( __dataStoreReadStatisticMap, dataStoreName );
+		statistic.add ( timeNs );
+		statistic.values += values;
+	}
+}
+
+/**
+Return the number of commands that have completed, including commands that failed.
+*/
+public long getCommandsCompleted ()
+{
+	synchronized ( __commandStatisticMap ) {
+		return __commandsCompleted;
+	}
+}
+
+/**
+Return the number of commands that have started.
+*/
+public long getCommandsStarted ()
+{
+	synchronized ( __commandStatisticMap ) {
+		return __commandsStarted;
+	}
+}
+
+/**
+Return statistics for each command name.
+*/
+public String [] getCommandStatistics ()
+{
+	List<String> list = new ArrayList<String>();
+	synchronized ( __commandStatisticMap ) {
+		for ( Map.Entry<String,Statistic> entry : __commandStatisticMap.entrySet() ) {
+			Statistic statistic = entry.getValue();
+			list.add ( entry.getKey() + " Started=" + statistic.started + " Completed=" + statistic.count +
+				" TotalTimeMs=" + (statistic.totalTimeNs/1000000) + " MaxTimeMs=" + (statistic.maxTimeNs/1000000) );
+		}
+	}
+	return list.toArray(new String[list.size()]);
+}
+
+/**
+Return the number of commands in the command list that is being run.
+*/
+public int getCurrentCommandCount ()
+{
+	return __currentCommandCount;
+}
+
+/**
+Return the index (1+) of the command that is running, or 0 if no command has been run.
+*/
+public int getCurrentCommandIndex ()
+{
+	return __currentCommandIndex;
+}
+
+/**
+Return the string for the command that is running, or an empty string if no command has been run.
+*/
+public String getCurrentCommandString ()
+{
+	return __currentCommandString;
+}
+
+/**
+Return statistics for time series read from each datastore.
+*/
+public String [] getDataStoreReadStatistics ()
+{
+	List<String> list = new ArrayList<String>();
+	synchronized ( __dataStoreReadStatisticMap ) {
+		for ( Map.Entry<String,Statistic> entry : __dataStoreReadStatisticMap.entrySet() ) {
+			Statistic statistic = entry.getValue();
+			list.add ( entry.getKey() + " Reads=" + statistic.count +
+				" TotalTimeMs=" + (statistic.totalTimeNs/1000000) + " MaxTimeMs=" + (statistic.maxTimeNs/1000000) +
+				" Values=" + statistic.values + " EstimatedBytes=" + (statistic.values*BYTES_PER_VALUE) );
+		}
+	}
+	return list.toArray(new String[list.size()]);
+}
+
+/**
+Return statistics for each processor request type.
+*/
+public String [] getRequestStatistics ()
+{
+	List<String> list = new ArrayList<String>();
+	synchronized ( __requestStatisticMap ) {
+		for ( Map.Entry<String,Statistic> entry : __requestStatisticMap.entrySet() ) {
+			Statistic statistic = entry.getValue();
+			list.add ( entry.getKey() + " Count=" + statistic.count +
+				" TotalTimeMs=" + (statistic.totalTimeNs/1000000) + " MaxTimeMs=" + (statistic.maxTimeNs/1000000) );
+		}
+	}
+	return list.toArray(new String[list.size()]);
+}
+
+/**
+Return the number of time series with data that are spilled to the scratch file.
+*/
+public int getSpilledTimeSeriesCount ()
+{
+	return __tsengine.getTimeSeriesMemoryManager().getSpilledCount();
+}
+
+/**
+Return the statistic for a name, adding if not found.  The caller must synchronize on the map.
+*/
+private Statistic getStatistic ( Map<String,Statistic> map, String name )
+{
+	Statistic statistic = map.get ( name );
+	if ( statistic == null ) {
+		statistic = new Statistic();
+		map.put ( name, statistic );
+	}
+	return statistic;
+}
+
+/**
+Return the number of time series in the results list.
+*/
+public int getTimeSeriesCount ()
+{
+	return __tsengine.getTimeSeriesSize();
+}
+
+/**
+Return the number of time series data values in memory for the time series in the results list.
+*/
+public long getTimeSeriesDataValueCount ()
+{
+	return __tsengine.getTimeSeriesDataValueCount();
+}
+
+/**
+Indicate whether the processor is running commands.
+*/
+public boolean isRunning ()
+{
+	return __processor.getIsRunning();
+}
+
+/**
+Register the metrics with the platform MBean server, if not already registered.
+@exception Exception if the MBean cannot be registered
+*/
+synchronized void register ()
+throws Exception
+{	String routine = getClass().getSimpleName() + ".register";
+	if ( __objectName != null ) {
+		return;
+	}
+	int id;
+	synchronized ( TSCommandProcessorMetrics.class ) {
+		id = ++__registeredCount;
+	}
+	ObjectName objectName = new ObjectName ( "rti.tscommandprocessor:type=TSCommandProcessor,name=Processor" + id );
+	MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	server.registerMBean ( this, objectName );
+	__objectName = objectName;
+	Message.printStatus ( 2, routine, "Published command processor metrics as JMX MBean \"" + objectName + "\"." );
+}
+
+/**
+Indicate that a processor request has been processed.
+@param request the request name
+@param timeNs time to process the request, nanoseconds
+*/
+void requestProcessed ( String request, long timeNs )
+{
+	synchronized ( __requestStatisticMap ) {
+		getStatistic ( __requestStatisticMap, request ).add ( timeNs );
+	}
+}
+
+/**
+Indicate whether the metrics are registered with the platform MBean server.
+*/
+synchronized boolean isRegistered ()
+{
+	return __objectName != null;
+}
+
+/**
+Reset the command, request, and datastore statistics.
+*/
+public void resetStatistics ()
+{
+	synchronized ( __commandStatisticMap ) {
+		__commandStatisticMap.clear();
+		__commandsStarted = 0;
+		__commandsCompleted = 0;
+	}
+	synchronized ( __requestStatisticMap ) {
+		__requestStatisticMap.clear();
+	}
+	synchronized ( __dataStoreReadStatisticMap ) {
+		__dataStoreReadStatisticMap.clear();
+	}
+}
+
+/**
+Unregister the metrics from the platform MBean server, if registered.
+*/
+synchronized void unregister ()
+{	String routine = getClass().getSimpleName() + ".unregister";
+	if ( __objectName == null ) {
+		return;
+	}
+	try {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean ( __objectName );
+	}
+	catch ( Exception e ) {
+		Message.printWarning ( 3, routine, e );
+	}
+	__objectName = null;
+}
+
+}
@@ -0,0 +1,102 @@
+// TSCommandProcessorMetricsMBean - management interface for TSCommandProcessor run-time metrics
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+/**
+Management interface for TSCommandProcessorMetrics, which allows metrics for a TSCommandProcessor to be
+read with standard JMX tools (e.g., jconsole) while commands are running.
+Statistics are returned as arrays of strings so that they can be displayed by any JMX client.
+*/
+public interface TSCommandProcessorMetricsMBean
+{
+
+/**
+Return the number of commands that have completed, including commands that failed.
+*/
+public long getCommandsCompleted ();
+
+/**
+Return the number of commands that have started.
+*/
+public long getCommandsStarted ();
+
+/**
+Return statistics for each command name, as strings of the form
+"CommandName Started=N Completed=N TotalTimeMs=N MaxTimeMs=N".
+*/
+public String [] getCommandStatistics ();
+
+/**
+Return the number of commands in the command list that is being run.
+*/
+public int getCurrentCommandCount ();
+
+/**
+Return the index (1+) of the command that is running, or 0 if no command has been run.
+*/
+public int getCurrentCommandIndex ();
+
+/**
+Return the string for the command that is running, or an empty string if no command has been run.
+*/
+public String getCurrentCommandString ();
+
+/**
+Return statistics for time series read from each datastore, as strings of the form
+"DataStoreName Reads=N TotalTimeMs=N MaxTimeMs=N Values=N EstimatedBytes=N".
+*/
+public String [] getDataStoreReadStatistics ();
+
+/**
+Return statistics for each processor request type, as strings of the form
+"RequestName Count=N TotalTimeMs=N MaxTimeMs=N".
+*/
+public String [] getRequestStatistics ();
+
+/**
+Return the number of time series with data that are spilled to the scratch file (see TimeSeriesMemoryBudget).
+*/
+public int getSpilledTimeSeriesCount ();
+
+/**
+Return the number of time series in the results list.
+*/
+public int getTimeSeriesCount ();
+
+/**
+Return the number of time series data values in memory for the time series in the results list.
+*/
+public long getTimeSeriesDataValueCount ();
+
+/**
+Indicate whether the processor is running commands.
+*/
+public boolean isRunning ();
+
+/**
+Reset the command, request, and datastore statistics.
+*/
+public void resetStatistics ();
+
+}
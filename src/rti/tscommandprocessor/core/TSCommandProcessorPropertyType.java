@@ -0,0 +1,122 @@
+// TSCommandProcessorPropertyType - built-in properties handled by TSCommandProcessor.getPropContents()
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+This class provides an enumeration of the built-in properties that are handled by TSCommandProcessor.getPropContents().
+Other property names are user-supplied properties, which are looked up in the processor's property map.
+The enumeration allows a property name to be resolved with one lookup, rather than comparing the property name with
+each built-in property for every call, which is important because ${Property} is expanded for many command parameters.
+*/
+public enum TSCommandProcessorPropertyType {
+
+    AUTO_EXTEND_PERIOD("AutoExtendPeriod"),
+    AVERAGE_END("AverageEnd"),
+    AVERAGE_START("AverageStart"),
+    COMMAND_FILE_NAME("CommandFileName"),
+    COMMANDS_SHOULD_CLEAR_RUN_STATUS("CommandsShouldClearRunStatus"),
+    CREATE_OUTPUT("CreateOutput"),
+    DEBUG_LEVEL_LOG_FILE("DebugLevelLogFile"),
+    DEBUG_LEVEL_SCREEN("DebugLevelScreen"),
+    ENSEMBLE_RESULTS_LIST("EnsembleResultsList"),
+    HAVE_OUTPUT_PERIOD("HaveOutputPeriod"),
+    HYDROBASE_DMI_LIST("HydroBaseDMIList"),
+    HYDROBASE_DMI_LIST_SIZE("HydroBaseDMIListSize"),
+    IGNORE_LE_ZERO("IgnoreLEZero"),
+    INCLUDE_MISSING_TS("IncludeMissingTS"),
+    INITIAL_WORKING_DIR("InitialWorkingDir"),
+    INPUT_END("InputEnd"),
+    INPUT_START("InputStart"),
+    NETWORK_RESULTS_LIST("NetworkResultsList"),
+    OUTPUT_COMMENTS("OutputComments"),
+    OUTPUT_END("OutputEnd"),
+    OUTPUT_FILE_LIST("OutputFileList"),
+    OUTPUT_START("OutputStart"),
+    OUTPUT_YEAR_TYPE("OutputYearType"),
+    PATTERN_TS_LIST("PatternTSList"),
+    START_LOG_ENABLED("StartLogEnabled"),
+    TABLE_RESULTS_LIST("TableResultsList"),
+    TIME_SERIES_MEMORY_BUDGET("TimeSeriesMemoryBudget"),
+    TIME_SERIES_VIEW_RESULTS_LIST("TimeSeriesViewResultsList"),
+    TS_ENSEMBLE_RESULTS_LIST_SIZE("TSEnsembleResultsListSize"),
+    TS_PRODUCT_ANNOTATION_PROVIDER_LIST("TSProductAnnotationProviderList"),
+    TS_RESULTS_LIST("TSResultsList"),
+    TS_RESULTS_LIST_SIZE("TSResultsListSize"),
+    TS_VIEW_WINDOW_LISTENER("TSViewWindowListener"),
+    WARNING_LEVEL_LOG_FILE("WarningLevelLogFile"),
+    WARNING_LEVEL_SCREEN("WarningLevelScreen"),
+    WORKING_DIR("WorkingDir"),
+    WORKING_DIR_PORTABLE("WorkingDirPortable"),
+    WORKING_DIR_POSIX("WorkingDirPosix");
+
+    /**
+     * Map of upper-case property names to the enumeration, initialized once when the class is loaded
+     * and only read after that, so it can be used from multiple threads.
+     */
+    private static final Map<String,TSCommandProcessorPropertyType> propertyNameMap =
+        new HashMap<String,TSCommandProcessorPropertyType>();
+
+    static {
+        for ( TSCommandProcessorPropertyType t : values() ) {
+            propertyNameMap.put(t.toString().toUpperCase(), t);
+        }
+    }
+
+    /**
+     * The property name as used with getPropContents().
+     */
+    private final String propertyName;
+
+    /**
+     * Construct a property type enumeration value.
+     * @param propertyName the property name as used with getPropContents()
+     */
+    private TSCommandProcessorPropertyType(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    /**
+     * Return the property name, as used with getPropContents().
+     * @return the property name.
+     */
+    @Override
+    public String toString() {
+        return propertyName;
+    }
+
+    /**
+     * Return the enumeration value given a property name (case-independent).
+     * @return the enumeration value given a property name (case-independent), or null if not a built-in property.
+     */
+    public static TSCommandProcessorPropertyType valueOfIgnoreCase(String name)
+    {
+        if ( name == null ) {
+            return null;
+        }
+        return propertyNameMap.get(name.toUpperCase());
+    }
+}
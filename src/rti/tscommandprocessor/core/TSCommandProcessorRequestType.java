@@ -0,0 +1,130 @@
+// TSCommandProcessorRequestType - enumeration of requests handled by TSCommandProcessor.processRequest()
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.Hashtable;
+
+/**
+This class provides an enumeration of requests that are handled by TSCommandProcessor.processRequest().
+The enumeration allows the request name to be resolved once, rather than comparing the request name with
+each supported request for every call.
+*/
+public enum TSCommandProcessorRequestType {
+
+    ADD_COMMAND_PROCESSOR_EVENT_LISTENER("AddCommandProcessorEventListener"),
+    APPEND_ENSEMBLE("AppendEnsemble"),
+    APPEND_TIME_SERIES("AppendTimeSeries"),
+    CALCULATE_TS_AVERAGE_LIMITS("CalculateTSAverageLimits"),
+    DATA_STORE("DataStore"),
+    DATE_TIME("DateTime"),
+    GET_ENSEMBLE("GetEnsemble"),
+    GET_ENSEMBLE_AT("GetEnsembleAt"),
+    GET_HYDROBASE_DMI("GetHydroBaseDMI"),
+    GET_NETWORK("GetNetwork"),
+    GET_NWSRFS_DMI("GetNwsrfsDMI"),
+    GET_OUTPUT_PERIOD_FOR_COMMAND("GetOutputPeriodForCommand"),
+    GET_PROPERTY("GetProperty"),
+    GET_PROPERTY_HASHTABLE("GetPropertyHashtable"),
+    GET_TABLE("GetTable"),
+    GET_TIME_SERIES("GetTimeSeries"),
+    GET_TIME_SERIES_FOR_TSID("GetTimeSeriesForTSID"),
+    GET_TIME_SERIES_TO_PROCESS("GetTimeSeriesToProcess"),
+    GET_TSID_LIST_NO_INPUT_ABOVE_COMMAND("GetTSIDListNoInputAboveCommand"),
+    GET_WORKING_DIR_FOR_COMMAND("GetWorkingDirForCommand"),
+    INDEX_OF("IndexOf"),
+    PROCESS_COMMANDS("ProcessCommands"),
+    PROCESS_TIME_SERIES_ACTION("ProcessTimeSeriesAction"),
+    PROCESS_TIME_SERIES_RESULTS_LIST("ProcessTimeSeriesResultsList"),
+    READ_TIME_SERIES("ReadTimeSeries"),
+    READ_TIME_SERIES_2("ReadTimeSeries2"),
+    READ_TIME_SERIES_LIST("ReadTimeSeriesList"),
+    REMOVE_ALL_FROM_ENSEMBLE_RESULTS_LIST("RemoveAllFromEnsembleResultsList"),
+    REMOVE_ALL_FROM_TIME_SERIES_RESULTS_LIST("RemoveAllFromTimeSeriesResultsList"),
+    REMOVE_PROPERTY("RemoveProperty"),
+    REMOVE_TABLE_FROM_RESULTS_LIST("RemoveTableFromResultsList"),
+    REMOVE_TIME_SERIES_FROM_RESULTS_LIST("RemoveTimeSeriesFromResultsList"),
+    RUN_COMMANDS("RunCommands"),
+    SET_HYDROBASE_DMI("SetHydroBaseDMI"),
+    SET_NETWORK("SetNetwork"),
+    SET_NWSRFS_FS5_FILES_DMI("SetNWSRFSFS5FilesDMI"),
+    SET_PATTERN_TS_LIST("SetPatternTSList"),
+    SET_PROPERTY("SetProperty"),
+    SET_TABLE("SetTable"),
+    SET_TIME_SERIES("SetTimeSeries"),
+    SET_TIME_SERIES_VIEW("SetTimeSeriesView");
+
+    /**
+     * Map of request names, as passed to processRequest(), to the enumeration.
+     * The names are case-independent but in practice are string literals with consistent case
+     * so the exact name is mapped the first time that it is used and is then found directly.
+     * Hashtable is used because requests can be made from multiple threads.
+     */
+    private static final Hashtable<String,TSCommandProcessorRequestType> requestNameMap =
+        new Hashtable<String,TSCommandProcessorRequestType>();
+
+    /**
+     * The request name as used with processRequest().
+     */
+    private final String requestName;
+
+    /**
+     * Construct a request type enumeration value.
+     * @param requestName the request name as used with processRequest()
+     */
+    private TSCommandProcessorRequestType(String requestName) {
+        this.requestName = requestName;
+    }
+
+    /**
+     * Return the request name, as used with processRequest().
+     * @return the request name.
+     */
+    @Override
+    public String toString() {
+        return requestName;
+    }
+
+    /**
+     * Return the enumeration value given a request name (case-independent).
+     * The lookup is fast after the first use of a name.
+     * @return the enumeration value given a request name (case-independent), or null if not matched.
+     */
+    public static TSCommandProcessorRequestType valueOfIgnoreCase(String name)
+    {
+        if ( name == null ) {
+            return null;
+        }
+        TSCommandProcessorRequestType t = requestNameMap.get(name);
+        if ( t != null ) {
+            return t;
+        }
+        for ( TSCommandProcessorRequestType t2 : values() ) {
+            if ( name.equalsIgnoreCase(t2.toString()) ) {
+                requestNameMap.put(name, t2);
+                return t2;
+            }
+        }
+        return null;
+    }
+}
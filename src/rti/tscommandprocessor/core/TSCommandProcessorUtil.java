@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.Vector;
 
 import rti.tscommandprocessor.commands.ts.ReadTimeSeries_Command;
+import rti.tscommandprocessor.commands.ts.TSID_Command;
 import RTi.DMI.DatabaseDataStore;
 import RTi.TS.TS;
 import RTi.TS.TSEnsemble;
@@ -106,6 +107,32 @@ Table to contain regression test results.
 */
 private static DataTable __regressionTestTable = null;
 
+/**
+Add the processor properties that are referenced in a parameter value as ${Property} to a list of resources,
+for commands that implement CommandDependencyProvider.
+@param resourceList list of resources to add to
+@param parameterValue parameter value that may contain ${Property} references (can be null)
+*/
+public static void addPropertyResources ( List<String> resourceList, String parameterValue )
+{
+    if ( (parameterValue == null) || (parameterValue.indexOf("${") < 0) ) {
+        return;
+    }
+    int searchPos = 0;
+    while ( true ) {
+        int foundPos = parameterValue.indexOf("${", searchPos);
+        if ( foundPos < 0 ) {
+            break;
+        }
+        int foundPosEnd = parameterValue.indexOf("}", foundPos + 2);
+        if ( foundPosEnd < 0 ) {
+            break;
+        }
+        resourceList.add ( CommandDependencyProvider.RESOURCE_PROPERTY + parameterValue.substring(foundPos + 2, foundPosEnd) );
+        searchPos = foundPosEnd + 1;
+    }
+}
+
 /**
 Append a time series to the processor time series results list.
 @param processor the CommandProcessor to use to get data.
@@ -403,6 +430,12 @@ public static String expandParameterValue( CommandProcessor processor, Command c
         // Just return what was provided.
         return parameterValue;
     }
+    // Use the parsed template for the parameter value if possible, which avoids scanning the string each time
+    ParameterValueTemplate template = ParameterValueTemplate.getTemplate ( parameterValue );
+    if ( template != null ) {
+        return template.expand ( processor );
+    }
+    // Else the parameter value has unmatched ${ or } so process using the original code
     // First replace escaped characters.
     // TODO SAM 2009-04-03 Evaluate this
     // Evaluate whether to write a general method for this - for now only handle // \" and \' replacement.
@@ -1067,6 +1100,70 @@ public static List<String> getDataStoreNamesFromCommandsBeforeCommand(
 	return getDataStoreNamesFromCommands ( commands, includeDatabases, includeWebServices, true );
 }
 
+/**
+Return the names of datastores that are used by commands, determined from the DataStore and TSID command
+parameters and time series identifier commands, where the datastore is the input name after "~".
+This is used to open datastores in the background before they are needed.
+Parameter values that contain ${Property} are ignored because the properties are not known until run time.
+@param commands commands to search
+@return list of datastore names (may include names that are not datastores, such as input types),
+in order of first use, guaranteed to be non-null
+*/
+public static List<String> getDataStoreNamesUsedByCommands ( List<Command> commands )
+{	List<String> names = new ArrayList<String>();
+	List<String> namesUpper = new ArrayList<String>(); // Used to ignore case when checking for duplicates
+	if ( commands == null ) {
+		return names;
+	}
+	boolean inComment = false;
+	for ( Command command : commands ) {
+		String commandString = command.toString().trim();
+		if ( commandString.startsWith("/*") ) {
+			inComment = true;
+			continue;
+		}
+		else if ( commandString.startsWith("*/") ) {
+			inComment = false;
+			continue;
+		}
+		if ( inComment || commandString.startsWith("#") || (commandString.length() == 0) ) {
+			continue;
+		}
+		String tsid = null;
+		if ( command instanceof TSID_Command ) {
+			tsid = commandString;
+		}
+		else {
+			PropList parameters = command.getCommandParameters();
+			if ( parameters != null ) {
+				String dataStore = parameters.getValue ( "DataStore" );
+				if ( (dataStore != null) && (dataStore.length() > 0) && (dataStore.indexOf("${") < 0) &&
+					!namesUpper.contains(dataStore.toUpperCase()) ) {
+					names.add ( dataStore );
+					namesUpper.add ( dataStore.toUpperCase() );
+				}
+				tsid = parameters.getValue ( "TSID" );
+			}
+		}
+		if ( (tsid != null) && (tsid.indexOf("${") < 0) ) {
+			int pos = tsid.indexOf("~");
+			if ( pos > 0 ) {
+				String dataStore = tsid.substring(pos + 1);
+				pos = dataStore.indexOf("~");
+				if ( pos >= 0 ) {
+					dataStore = dataStore.substring(0, pos);
+				}
+				dataStore = dataStore.trim();
+				if ( (dataStore.length() > 0) && !namesUpper.contains(dataStore.toUpperCase()) ) {
+					names.add ( dataStore );
+					namesUpper.add ( dataStore.toUpperCase() );
+				}
+			}
+		}
+	}
+	return names;
+}
+
 /**
 Get a list of datastore names from a list of commands.
 These strings are suitable for drop-down lists, etc.
@@ -1337,10 +1434,8 @@ public static List<TSEnsemble> getDiscoveryEnsembleFromCommandsBeforeCommand(
         // Just return a blank list...
         return new Vector<TSEnsemble>();
     }
-    // Find the commands above the position...
-    List<Command> commands = getCommandsBeforeIndex ( processor, pos );
-    // Get the time series from the commands (sort on the identifiers)...
-    return getDiscoveryEnsembleFromCommands ( commands, true );
+    // Get the ensembles from the commands above the position, using the index to avoid scanning all commands...
+    return processor.getCommandDiscoveryIndex().getEnsembleListBefore ( pos );
 }
 
 /**
@@ -1510,12 +1605,11 @@ public static List<TS> getDiscoveryTSFromCommandsBeforeCommand( TSCommandProcess
         // Just return a blank list...
         return new Vector<TS>();
     }
-    // Find the commands above the position...
-    List<Command> commands = getCommandsBeforeIndex ( processor, pos );
-    // Get the time series from the commands (sort on the identifiers)...
-    List<TS> availableTS = getDiscoveryTSFromCommands ( commands, true );
-    // Get the ensembles from the commands (sort on the identifiers)...
-    List<TSEnsemble> availableEnsembles = getDiscoveryEnsembleFromCommands ( commands, true );
+    // Get the time series and ensembles from the commands above the position,
+    // using the index to avoid scanning all commands...
+    CommandDiscoveryIndex discoveryIndex = processor.getCommandDiscoveryIndex();
+    List<TS> availableTS = discoveryIndex.getTSListBefore ( pos );
+    List<TSEnsemble> availableEnsembles = discoveryIndex.getEnsembleListBefore ( pos );
     // Now filter out the ones that match the TSList criteria.  This code is essentially the same
     // as TSEngine.getTimeSeriesToProcess(); however, the TSEngine code works on instances in the processor
     // whereas the code below works on skeleton time series from the commands.
@@ -1524,17 +1618,6 @@ public static List<TS> getDiscoveryTSFromCommandsBeforeCommand( TSCommandProcess
     return tsToProcess.getTimeSeriesList();
 }
 
-/**
-Get a list of ensemble identifiers from a list of commands.  See documentation for
-fully loaded method.  The output list is not sorted..
-@param commands Commands to search.
-@return list of table identifiers or an empty non-null list if nothing found.
-*/
-private static List<String> getEnsembleIdentifiersFromCommands ( List<Command> commands )
-{   // Default behavior...
-    return getEnsembleIdentifiersFromCommands ( commands, false );
-}
-
 /**
 Get a list of ensemble identifiers from a list of commands.  The returned strings are suitable for
 drop-down lists, etc.  Ensemble identifiers are determined as follows:
@@ -1610,10 +1693,8 @@ public static List<String> getEnsembleIdentifiersFromCommandsBeforeCommand( TSCo
         // Just return a blank list...
         return new ArrayList<String>();
     }
-    // Find the commands above the position...
-    List<Command> commands = getCommandsBeforeIndex ( processor, pos );
-    // Get the time series identifiers from the commands...
-    return getEnsembleIdentifiersFromCommands ( commands );
+    // Get the ensemble identifiers from the commands above the position, using the index to avoid scanning all commands...
+    return processor.getCommandDiscoveryIndex().getEnsembleIDListBefore ( pos );
 }
 
 /**
@@ -2024,16 +2105,6 @@ public static List<String> getTableColumnNamesFromCommandsBeforeCommand(
     return new Vector<String>();
 }
 
-/**
-Get a list of table identifiers from a list of commands.  See documentation for fully loaded method.
-@param commands Time series commands to search.
-@return list of table identifiers or an empty non-null Vector if nothing found.
-*/
-private static List<String> getTableIdentifiersFromCommands ( List<Command> commands )
-{   // Default behavior...
-    return getTableIdentifiersFromCommands ( commands, false );
-}
-
 /**
 Get a list of table identifiers from a list of commands.  The returned strings are suitable for
 drop-down lists, etc.  Table identifiers are determined as follows:
@@ -2140,10 +2211,8 @@ public static List<String> getTableIdentifiersFromCommandsBeforeCommand( TSComma
         // Just return a blank list...
         return new ArrayList<String>();
     }
-    // Find the commands above the position...
-    List<Command> commands = getCommandsBeforeIndex ( processor, pos );
-    // Get the time series identifiers from the commands...
-    return getTableIdentifiersFromCommands ( commands );
+    // Get the table identifiers from the commands above the position, using the index to avoid scanning all commands...
+    return processor.getCommandDiscoveryIndex().getTableIDListBefore ( pos );
 }
 
 /**
@@ -2466,6 +2535,8 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
         Message.printDebug( 1, routine, "Getting list of time series to process using TSList=\"" + TSList +
             "\" TSID=\"" + TSID + "\", EnsembleID=\"" + EnsembleID + "\", TSPosition=\"" + TSPosition + "\"" );
     }
+    // Matcher for TSID patterns, compiled once rather than parsing the pattern for each time series
+    TSIDPatternMatcher tsidMatcher = new TSIDPatternMatcher ( TSID );
     if ( TSList.equalsIgnoreCase(TSListType.FIRST_MATCHING_TSID.toString()) ) {
         // Search forward for the first single matching time series...
         for ( int its = 0; its < nts; its++ ) {
@@ -2479,29 +2550,14 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
                 // Don't add...
                 continue;
             }
-            if ( TSID.indexOf("~") > 0 ) {
-                // Include the input type...
-                if (ts.getIdentifier().matches(TSID,true,true)){
-                    tslist.add ( ts );
-                    tspos[count++] = its;
-                    // Only return the single index...
-                    int [] tspos2 = new int[1];
-                    tspos2[0] = tspos[0];
-                    // Only want one match...
-                    return new TimeSeriesToProcess(tslist, tspos2, errorList);
-                }
-            }
-            else {
-                // Just check the main information...
-                if(ts.getIdentifier().matches(TSID,true,false)){
-                    tslist.add ( ts );
-                    tspos[count++] = its;
-                    // Only return the single index...
-                    int [] tspos2 = new int[1];
-                    tspos2[0] = tspos[0];
-                    // Only want one match...
-                    return new TimeSeriesToProcess(tslist, tspos2, errorList);
-                }
+            if ( tsidMatcher.matches(ts) ) {
+                tslist.add ( ts );
+                tspos[count++] = its;
+                // Only return the single index...
+                int [] tspos2 = new int[1];
+                tspos2[0] = tspos[0];
+                // Only want one match...
+                return new TimeSeriesToProcess(tslist, tspos2, errorList);
             }
         }
         // Return empty list since no match
@@ -2518,29 +2574,14 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
                 // Don't add...
                 continue;
             }
-            if ( TSID.indexOf("~") > 0 ) {
-                // Include the input type...
-                if (ts.getIdentifier().matches(TSID,true,true)){
-                    tslist.add ( ts );
-                    tspos[count++] = its;
-                    // Only return the single index...
-                    int [] tspos2 = new int[1];
-                    tspos2[0] = tspos[0];
-                    // Only want one match...
-                    return new TimeSeriesToProcess(tslist, tspos2, errorList);
-                }
-            }
-            else {
-                // Just check the main information...
-                if(ts.getIdentifier().matches(TSID,true,false)){
-                    tslist.add ( ts );
-                    tspos[count++] = its;
-                    // Only return the single index...
-                    int [] tspos2 = new int[1];
-                    tspos2[0] = tspos[0];
-                    // Only want one match...
-                    return new TimeSeriesToProcess(tslist, tspos2, errorList);
-                }
+            if ( tsidMatcher.matches(ts) ) {
+                tslist.add ( ts );
+                tspos[count++] = its;
+                // Only return the single index...
+                int [] tspos2 = new int[1];
+                tspos2[0] = tspos[0];
+                // Only want one match...
+                return new TimeSeriesToProcess(tslist, tspos2, errorList);
             }
         }
         // Return empty list since no match
@@ -2616,6 +2657,8 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
         for ( int itsid = 0; itsid < size_tsid; itsid++ ) {
             String tsid = tsid_Vector.get(itsid);
             Message.printStatus( 2, routine, "Trying to match \"" + tsid + "\"" );
+            // Compile the identifier once for all the time series
+            TSIDPatternMatcher specifiedMatcher = new TSIDPatternMatcher ( tsid );
             // Loop through the available time series and see if any match..
             boolean found = false;
             for ( int its = 0; its < nts; its++ ) {
@@ -2627,23 +2670,8 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
                     continue;
                 }
                 // Compare the requested TSID with that in the time series list...
-                if ( tsid.indexOf("~") > 0 ) {
-                    // Include the input type...
-                    if (ts.getIdentifier().matches(tsid,true,true)){
-                        //Message.printStatus( 2, routine,
-                        //        "Matched using input with TSID=\"" + ts.getIdentifier() + "\"" +
-                        //        " Alias=\"" + ts.getAlias() + "\"");
-                        found = true;
-                    }
-                }
-                else {
-                    // Just check the main information...
-                    if(ts.getIdentifier().matches(tsid,true,false)){
-                        //Message.printStatus( 2, routine,
-                        //        "Matched not using input with TSID=\"" + ts.getIdentifier() + "\"" +
-                        //        " Alias=\"" + ts.getAlias() + "\"");
-                        found = true;
-                    }
+                if ( specifiedMatcher.matches(ts) ) {
+                    found = true;
                 }
                 if ( found ) {
                     // Add the time series and increment the count...
@@ -2732,17 +2760,8 @@ public static TimeSeriesToProcess getTSMatchingTSListParameters ( List<TS> tsCan
                 found = true;
             }
             else if ( TSList.equalsIgnoreCase(TSListType.ALL_MATCHING_TSID.toString()) ) {
-                if ( TSID.indexOf("~") > 0 ) {
-                    // Include the input type...
-                    if (ts.getIdentifier().matches(TSID,true,true)){
-                        found = true;
-                    }
-                }
-                else {
-                    // Just check the main information...
-                    if(ts.getIdentifier().matches(TSID,true,false)){
-                        found = true;
-                    }
+                if ( tsidMatcher.matches(ts) ) {
+                    found = true;
                 }
             }
             if ( found ) {
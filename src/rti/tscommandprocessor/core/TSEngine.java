@@ -675,9 +675,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import DWR.DMI.HydroBaseDMI.HydroBaseDMI;
 import DWR.DMI.HydroBaseDMI.HydroBaseDataStore;
@@ -691,6 +701,11 @@ import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDBDataStore;
 import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDB_DMI;
 import rti.tscommandprocessor.commands.reclamationpisces.ReclamationPiscesDMI;
 import rti.tscommandprocessor.commands.reclamationpisces.ReclamationPiscesDataStore;
+import rti.tscommandprocessor.commands.ts.DeselectTimeSeries_Command;
+import rti.tscommandprocessor.commands.ts.Free_Command;
+import rti.tscommandprocessor.commands.ts.SelectTimeSeries_Command;
+import rti.tscommandprocessor.commands.ts.SetTimeSeriesProperty_Command;
+import rti.tscommandprocessor.commands.ts.SortTimeSeries_Command;
 import rti.tscommandprocessor.commands.usgs.nwis.daily.UsgsNwisDailyDataStore;
 import rti.tscommandprocessor.commands.usgs.nwis.groundwater.UsgsNwisGroundwaterDataStore;
 import rti.tscommandprocessor.commands.usgs.nwis.instantaneous.UsgsNwisInstantaneousDataStore;
@@ -733,9 +748,11 @@ import RTi.TS.RiverWareTS;
 import RTi.TS.ShefATS;
 import RTi.TS.TS;
 import RTi.TS.TSAnalyst;
+import RTi.TS.TSData;
 import RTi.TS.TSEnsemble;
 import RTi.TS.TSHtmlFormatter;
 import RTi.TS.TSIdent;
+import RTi.TS.TSIterator;
 import RTi.TS.TSLimits;
 import RTi.TS.TSSupplier;
 import RTi.TS.TSUtil;
@@ -955,6 +972,20 @@ non-null, although the individual data stores may not be opened and need to be h
 */
 private List<DataStore> __dataStoreList = new Vector<DataStore>();
 
+/**
+Datastores that have been configured but are not opened until first used, by upper-case datastore name.
+Datastores are moved to __dataStoreList when opened.
+*/
+private Map<String,LazyDataStore> __lazyDataStoreMap = new LinkedHashMap<String,LazyDataStore>();
+
+/**
+Configuration of all datastores that were set with setLazyDataStore(), by upper-case datastore name,
+including datastores that have been opened, used to open separate datastore instances for processors that
+run at the same time (e.g., parallel For() iterations) and must not share connections.
+Synchronized using __lazyDataStoreMap.
+*/
+private Map<String,LazyDataStore> __dataStoreConfigMap = new LinkedHashMap<String,LazyDataStore>();
+
 /**
 Reference date for year to date report (only use month and day).
 */
@@ -976,6 +1007,83 @@ List of time series vector that is the result of processing.  This will always b
 */
 private List<TS> __tslist = new Vector<TS>(50,50);
 
+/**
+Hash index for __tslist, used to look up time series by alias and TSID without searching the full list.
+The index must be notified whenever __tslist is modified.
+*/
+private TimeSeriesListIndex __tslistIndex = new TimeSeriesListIndex(__tslist);
+
+/**
+Indicates whether time series read with readTimeSeries() should only have the header read,
+with the data read when the time series is first provided to a command (set with LazyTimeSeriesRead=True).
+*/
+private boolean __lazyTimeSeriesRead = false;
+
+/**
+Indicates whether deferred time series data should be read when time series are provided to callers.
+This is false while running commands that only use time series metadata (e.g., SelectTimeSeries(), Free()).
+*/
+private volatile boolean __lazyTimeSeriesReadOnAccess = true;
+
+/**
+Time series that were read without data because of LazyTimeSeriesRead=True, with the information needed to read the data.
+Time series are removed from the map when the data are read or the time series are removed from __tslist.
+*/
+private Map<TS,LazyTimeSeriesRead> __lazyTimeSeriesReadMap = new IdentityHashMap<TS,LazyTimeSeriesRead>();
+
+/**
+Lock used to read deferred time series data one time series at a time, because the datastore and database connections
+used to read are not thread-safe.  The map lock is not held while reading so that other threads can check time series.
+*/
+private Object __lazyTimeSeriesReadLock = new Object();
+
+/**
+Time series that are shared with another processor and are copied when first provided to a caller,
+so that changes made by this processor do not affect the other processor (see setCopyOnAccessTimeSeries()),
+or null if time series are not shared.
+*/
+private Set<TS> __copyOnAccessSet = null;
+
+/**
+Copies of shared time series that have been provided to callers, by original time series.
+*/
+private Map<TS,TS> __copyOnAccessMap = null;
+
+/**
+Engine of the processor that owns the shared time series, used to read deferred and spilled data before copying.
+*/
+private TSEngine __copyOnAccessSourceEngine = null;
+
+/**
+Lock used by processors that copy time series from this engine, so that the data for one time series
+are not spilled by the memory manager while the time series is copied.
+*/
+private Object __copyOnAccessLock = new Object();
+
+/**
+Memory manager for time series data, which spills data to a scratch file when the TimeSeriesMemoryBudget
+processor property is exceeded, and reads the data back when the time series is provided to callers.
+*/
+private TimeSeriesMemoryManager __tsMemoryManager = new TimeSeriesMemoryManager();
+
+/**
+Cache of time series matched by getTimeSeriesToProcess(), for TSList values that only depend on __tslist.
+The key is the TSList value (upper case) and TSID.  The cache is cleared when the __tslist modification count changes.
+The cache is not used once a command has accessed time series, because the command may have changed aliases or
+identifiers, which are only detected after the command.
+*/
+private Map<String,TimeSeriesToProcess> __tsToProcessCache = new HashMap<String,TimeSeriesToProcess>();
+
+/**
+The __tslist modification count for the contents of __tsToProcessCache.
+*/
+private long __tsToProcessCacheModificationCount = -1;
+
+/**
+Maximum number of entries in __tsToProcessCache, to limit memory use in workflows with many different TSID patterns.
+*/
+private final int __tsToProcessCacheMaxSize = 1000;
+
 /**
 WindowListener for TSViewJFrame objects, used when calling application wants to listen for
 window events on plot windows.
@@ -1014,7 +1122,7 @@ If the implementation is detected, the TSView.addTSProductDMI() method is called
 private void addTSViewTSProductDMIs ( TSViewJFrame view )
 {	// Check the HydroBase instances...
     // First add the new datastore list
-    List<DataStore> dataStoreList = __ts_processor.getDataStoresByType( HydroBaseDataStore.class );
+    List<DataStore> dataStoreList = getOpenedHydroBaseDataStores();
     // Disable HydroBase datastores as TSProduct providers.
     // - feature is not used
     // - may remove code in the future, but leave in for now as an example
@@ -1198,6 +1306,29 @@ throws Exception
 	return average_limits;
 }
 
+/**
+Check the time series data against the memory budget, spilling data for the least recently used time series
+if necessary.  Time series that are in ensembles are not spilled because ensembles provide time series
+to commands directly.
+*/
+private void checkTimeSeriesMemoryBudget ()
+{
+	if ( __tsMemoryManager.getBudget() <= 0 ) {
+		return;
+	}
+	Set<TS> ensembleTSSet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+	@SuppressWarnings("unchecked")
+	List<TSEnsemble> ensembleList = (List<TSEnsemble>)__ts_processor.getPropContents("EnsembleResultsList");
+	if ( ensembleList != null ) {
+		for ( TSEnsemble ensemble : ensembleList ) {
+			if ( ensemble != null ) {
+				ensembleTSSet.addAll ( ensemble.getTimeSeriesList(false) );
+			}
+		}
+	}
+	__tsMemoryManager.checkBudget ( __tslist, ensembleTSSet );
+}
+
 /**
 Clear the time series results.  The commands will need to be rerun to regenerate the results.
 */
@@ -1205,7 +1336,24 @@ protected void clearTimeSeriesResults ( )
 {
 	if ( __tslist != null ) {
 		__tslist.clear();
+		__tslistIndex.cleared();
 	} 
+	synchronized ( __lazyTimeSeriesReadMap ) {
+		__lazyTimeSeriesReadMap.clear();
+	}
+	__tsMemoryManager.clear();
+}
+
+/**
+Copy a TimeSeriesToProcess, used with cached results so that callers cannot modify the cached lists.
+The time series themselves are not copied.
+@param tsToProcess the instance to copy
+@return a copy of the instance
+*/
+private TimeSeriesToProcess copyTimeSeriesToProcess ( TimeSeriesToProcess tsToProcess )
+{
+    return new TimeSeriesToProcess ( new ArrayList<TS>(tsToProcess.getTimeSeriesList()),
+        tsToProcess.getTimeSeriesPositions().clone(), new ArrayList<String>(tsToProcess.getErrors()) );
 }
 
 /**
@@ -1486,6 +1634,7 @@ throws Exception
 		}
 		else {
 		    // Figure out the maximum period and start the report with that...
+			readLazyTimeSeriesData ( __tslist );
 			TSLimits report_limits = TSUtil.getPeriodFromTS ( __tslist, TSUtil.MAX_POR );
 			analyst.startDataCoverageReport ( report_limits.getDate1(),	report_limits.getDate2(), getOutputYearType() );
 		}
@@ -1831,7 +1980,7 @@ protected String [] formatOutputHeaderComments ( List<Command> commands )
 	// - only include enabled datastores
 	// - HydroBase datastores
 	String db_comments[] = null;
-    List<DataStore> dataStoreList = __ts_processor.getDataStoresByType( HydroBaseDataStore.class );
+    List<DataStore> dataStoreList = getOpenedHydroBaseDataStores();
     HydroBaseDataStore hbds = null;
     for ( DataStore dataStore: dataStoreList ) {
         hbds = (HydroBaseDataStore)dataStore;
@@ -1912,6 +2061,15 @@ private boolean getCommandsShouldClearRunStatus ()
     return clearStatus;
 }
 
+/**
+Return the lock that is used when copying time series from this engine, to be held by code in other threads that
+reads the data of time series of this engine while other processors may be copying them (see copyOnAccess()).
+*/
+protected Object getCopyOnAccessLock()
+{
+	return __copyOnAccessLock;
+}
+
 /**
 Return the list of data stores known to the TSEngine.
 */
@@ -1920,6 +2078,49 @@ protected List<DataStore> getDataStoreList()
     return __dataStoreList;
 }
 
+/**
+Return the active HydroBase datastores that have been opened, without opening datastores that are configured
+to be opened on first use, which are not needed for output annotations and comments if not used.
+@return list of HydroBase datastores, guaranteed to be non-null
+*/
+private List<DataStore> getOpenedHydroBaseDataStores ()
+{
+	List<DataStore> dataStoreList = new ArrayList<DataStore>();
+	for ( DataStore dataStore : __dataStoreList ) {
+		if ( (dataStore instanceof HydroBaseDataStore) && (dataStore.getStatus() == 0) ) {
+			dataStoreList.add ( dataStore );
+		}
+	}
+	return dataStoreList;
+}
+
+/**
+Return the configuration of datastores that were set with setLazyDataStore(), including datastores that have been opened.
+The returned instances must only be used for their configuration (name, factory, properties) and must not be opened.
+@return list of datastore configurations, guaranteed to be non-null
+*/
+protected List<LazyDataStore> getDataStoreConfigs()
+{
+	synchronized ( __lazyDataStoreMap ) {
+		return new ArrayList<LazyDataStore>(__dataStoreConfigMap.values());
+	}
+}
+
+/**
+Return the names of datastores that are configured to be opened on first use and have not been opened.
+@return list of datastore names, guaranteed to be non-null
+*/
+protected List<String> getLazyDataStoreNames()
+{
+	List<String> names = new ArrayList<String>();
+	synchronized ( __lazyDataStoreMap ) {
+		for ( LazyDataStore lazyDataStore : __lazyDataStoreMap.values() ) {
+			names.add ( lazyDataStore.getName() );
+		}
+	}
+	return names;
+}
+
 /**
 Get a date/time from a string.  The string is first expanded to fill ${Property} strings and then the
 matching property name is used to determine the date/time using the following rules:
@@ -2218,7 +2419,11 @@ throws Exception
 		return null;
 	}
     // Else return the requested time series.
-	return __tslist.get(position);
+	TS ts = copyOnAccess ( __tslist.get(position) );
+	readLazyTimeSeriesData ( ts );
+	// The caller may change the alias or identifier
+	__tslistIndex.accessed ( ts );
+	return ts;
 }
 
 /**
@@ -2226,9 +2431,15 @@ Return the list of time series.  See also getSelectedTimeSeriesList().
 @return the list of time series.  The list can be null or zero size.
 @param indices a list of indices to return or null to return all.  Only indices
 within the time series list size will be returned.
+@exception Exception if deferred or spilled time series data cannot be read while commands are running
 */
 protected List<TS> getTimeSeriesList ( int [] indices )
+throws Exception
 {	if ( indices == null ){
+		copyOnAccess ( __tslist );
+		readLazyTimeSeriesData ( __tslist );
+		// The caller may modify the list directly
+		__tslistIndex.accessedAll();
 		return __tslist;
 	}
 	else {
@@ -2243,10 +2454,75 @@ protected List<TS> getTimeSeriesList ( int [] indices )
 				v.add ( __tslist.get(indices[i]) );
 			}
 		}
+		copyOnAccess ( v );
+		readLazyTimeSeriesData ( v );
+		__tslistIndex.accessed ( v );
 		return v;
 	}
 }
 
+/**
+Return the end of the period to read time series, based on the InputEnd property.
+@return the end of the period to read, or null to read all data
+*/
+private DateTime getReadInputEnd ()
+{
+	if ( (__InputEnd_DateTime != null) && (__InputEnd_DateTime.getYear() != 0) ) {
+		return __InputEnd_DateTime;
+	}
+	return null;
+}
+
+/**
+Return the start of the period to read time series, based on the InputStart property.
+@return the start of the period to read, or null to read all data
+*/
+private DateTime getReadInputStart ()
+{
+	if ( (__InputStart_DateTime != null) && (__InputStart_DateTime.getYear() != 0) ) {
+		return __InputStart_DateTime;
+	}
+	return null;
+}
+
+/**
+Return the memory budget for time series data.
+@return the memory budget for time series data, MB, or 0 if the budget is not used
+*/
+protected int getTimeSeriesMemoryBudget ()
+{	return (int)(__tsMemoryManager.getBudget()/(1024*1024));
+}
+
+/**
+Return the memory manager for time series data, used to report memory management statistics.
+@return the memory manager for time series data
+*/
+TimeSeriesMemoryManager getTimeSeriesMemoryManager ()
+{	return __tsMemoryManager;
+}
+
+/**
+Return the number of time series data values in memory for the time series in the results list, used for metrics.
+Deferred time series data are not read and data that have been spilled to the scratch file are not counted.
+@return the number of data values in memory
+*/
+long getTimeSeriesDataValueCount ()
+{
+	List<TS> tslist = __tslist;
+	if ( tslist == null ) {
+		return 0;
+	}
+	// Copy to an array because the list may be modified while commands run
+	TS [] tsArray = tslist.toArray(new TS[0]);
+	long count = 0;
+	for ( TS ts : tsArray ) {
+		if ( (ts != null) && ts.hasData() ) {
+			count += ts.getDataSize();
+		}
+	}
+	return count;
+}
+
 /**
 Return number of time series that have been processed and are available for output.
 @return number of time series available for output.
@@ -2290,10 +2566,47 @@ protected TimeSeriesToProcess getTimeSeriesToProcess ( String TSList, String TSI
     String TSPosition )
 throws Exception
 {
+    // Matching TSID depends only on the time series list so reuse previous results if the list has not changed.
+    // Time series accessed by the current command may have changed and are only checked after the command.
+    boolean useCache = (__tslist != null) && (TSID != null) && (TSList != null) && !__tslistIndex.hasAccessed() &&
+        (TSList.equalsIgnoreCase(TSListType.ALL_MATCHING_TSID.toString()) ||
+        TSList.equalsIgnoreCase(TSListType.FIRST_MATCHING_TSID.toString()) ||
+        TSList.equalsIgnoreCase(TSListType.LAST_MATCHING_TSID.toString()) ||
+        TSList.equalsIgnoreCase(TSListType.SPECIFIED_TSID.toString()));
+    String cacheKey = null;
+    if ( useCache ) {
+        long modificationCount = __tslistIndex.getModificationCount();
+        if ( modificationCount != __tsToProcessCacheModificationCount ) {
+            __tsToProcessCache.clear();
+            __tsToProcessCacheModificationCount = modificationCount;
+        }
+        cacheKey = TSList.toUpperCase() + "\n" + TSID;
+        TimeSeriesToProcess cached = __tsToProcessCache.get(cacheKey);
+        if ( cached != null ) {
+            TimeSeriesToProcess tsToProcess = copyTimeSeriesToProcess ( cached );
+            copyOnAccess ( tsToProcess.getTimeSeriesList() );
+            readLazyTimeSeriesData ( tsToProcess.getTimeSeriesList() );
+            __tslistIndex.accessed ( tsToProcess.getTimeSeriesList() );
+            return tsToProcess;
+        }
+    }
     @SuppressWarnings("unchecked")
 	List<TSEnsemble> ensembleList = (List<TSEnsemble>)__ts_processor.getPropContents("EnsembleResultsList");
-    return TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist,
+    TimeSeriesToProcess tsToProcess = TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist,
         ensembleList, TSList, TSID, TSPosition, EnsembleID );
+    if ( useCache ) {
+        if ( __tsToProcessCache.size() >= __tsToProcessCacheMaxSize ) {
+            __tsToProcessCache.clear();
+        }
+        // Save a copy because the caller may modify the returned lists
+        __tsToProcessCache.put ( cacheKey, copyTimeSeriesToProcess(tsToProcess) );
+    }
+    // Read the data for all the time series to process together, rather than one at a time as accessed
+    copyOnAccess ( tsToProcess.getTimeSeriesList() );
+    readLazyTimeSeriesData ( tsToProcess.getTimeSeriesList() );
+    // The caller may change the aliases or identifiers
+    __tslistIndex.accessed ( tsToProcess.getTimeSeriesList() );
+    return tsToProcess;
 }
 
 /**
@@ -2356,7 +2669,7 @@ protected List<TSProductAnnotationProvider> getTSProductAnnotationProviders ()
 {	List<TSProductAnnotationProvider> apList = new ArrayList<TSProductAnnotationProvider>();
 	// Check the HydroBase instances...
     // First do the new datastores
-    List<DataStore> dataStoreList = __ts_processor.getDataStoresByType( HydroBaseDataStore.class );
+    List<DataStore> dataStoreList = getOpenedHydroBaseDataStores();
     HydroBaseDataStore hbds = null;
     for ( DataStore dataStore: dataStoreList ) {
         hbds = (HydroBaseDataStore)dataStore;
@@ -2457,50 +2770,17 @@ intuitively be referring to the latest instance in the list.
 @return Position in time series list (0 index), or -1 if not in the list.
 */
 private int indexOf ( String string, String traceID )
-{	// First search the aliases in the BinaryTS and in memory list...
-	int pos = -1;
-	if ( (string == null) || string.equals("") ) {
-		return -1;
-	}
-	if ( (traceID != null) && !traceID.equals("") ) {
-	    pos = TSUtil.indexOf ( __tslist, string, "Alias", traceID, -1 );
-	}
-	else {
-        pos = TSUtil.indexOf ( __tslist, string, "Alias", -1 );
-	}
-	if ( pos >= 0 ) {
-		return pos;
-	}
-	// Now search the identifiers (can't totally rely on indexOf() because the alias must also be empty)...
-	int size = 0;
-	if ( __tslist == null ) {
+{	if ( (string == null) || string.equals("") || (__tslist == null) ) {
 		return -1;
 	}
-	else {
-        TS ts = null;
-		size = __tslist.size();
-		for ( int i = (size - 1); i >= 0; i-- ) {
-			ts = __tslist.get(i);
-			if ( ts == null ) {
-				continue;
-			}
-			if ( ts.getIdentifier().equals(string) ) {//&& ts.getAlias().equals("") ) {}
-				if ( (traceID != null) && !traceID.equals("") ) {
-					if ( ts.getSequenceID().equalsIgnoreCase(traceID) ) {
-						return i;
-					}
-				}
-				else {
-                    return i;
-				}
-			}		
-		}
-	}
-	return -1;
+	// Use the index rather than searching the list, which is slow for large lists.
+	// The search is the same as the original, searching aliases and then identifiers from the end of the list.
+	return __tslistIndex.indexOf ( string, traceID );
 }
 
 /**
 Return the data store that matches the requested name.
+If the datastore has been configured to be opened on first use, it is opened.
 @param dataStoreName name for the data store to find.
 @return the data store that matches the given name (will return null if not matched).
 */
@@ -2512,7 +2792,60 @@ protected DataStore lookupDataStore ( String dataStoreName )
             return ds;
         }
     }
-    return null;
+    return openLazyDataStore ( dataStoreName );
+}
+
+/**
+Open a datastore that was configured to be opened on first use, and add it to the datastore list.
+If another thread is opening the datastore, wait for it to be opened.
+If the datastore could not be opened, it remains configured so that opening can be tried again
+(see LazyDataStore.open()).
+@param dataStoreName name of the datastore to open
+@return the opened datastore, or null if the name does not match a datastore that is opened on first use
+or the datastore could not be opened
+*/
+protected DataStore openLazyDataStore ( String dataStoreName )
+{
+	if ( dataStoreName == null ) {
+		return null;
+	}
+	LazyDataStore lazyDataStore = null;
+	synchronized ( __lazyDataStoreMap ) {
+		if ( __lazyDataStoreMap.size() == 0 ) {
+			return null;
+		}
+		lazyDataStore = __lazyDataStoreMap.get ( dataStoreName.toUpperCase() );
+	}
+	if ( lazyDataStore == null ) {
+		return null;
+	}
+	// Open outside of the map lock so that other datastores can be opened at the same time
+	DataStore dataStore = lazyDataStore.open();
+	synchronized ( __lazyDataStoreMap ) {
+		// Only the first thread to get here adds the datastore to the list
+		if ( (dataStore != null) && (__lazyDataStoreMap.get(dataStoreName.toUpperCase()) == lazyDataStore) ) {
+			__lazyDataStoreMap.remove ( dataStoreName.toUpperCase() );
+			setDataStore ( dataStore, false );
+		}
+	}
+	return dataStore;
+}
+
+/**
+Open all datastores that are configured to be opened on first use and add them to the datastore list,
+used when the full list of datastores is requested.  The datastores are opened in parallel.
+*/
+protected void openLazyDataStores ()
+{
+	List<String> dataStoreNames = getLazyDataStoreNames();
+	if ( dataStoreNames.size() == 0 ) {
+		return;
+	}
+	warmUpLazyDataStores ( dataStoreNames );
+	for ( String dataStoreName : dataStoreNames ) {
+		// Waits for the datastore to be opened
+		openLazyDataStore ( dataStoreName );
+	}
 }
 
 /**
@@ -2731,6 +3064,47 @@ results in incomplete products.
 <td>True - create output files.</td>
 </tr>
 
+<tr>
+<td><b>IncrementalRun</b></td>
+<td>If set to true, cache the results of commands that declare their resources with CommandDependencyProvider,
+and replay the results when the commands are run again without changes to the command, properties, or input files,
+rather than running the commands again.  Commands that create output files are always run.
+Currently only ReadTableFromDataStore() (SELECT queries, not stored procedures) and ReadUsgsNwisDaily()
+implement CommandDependencyProvider, so all other commands (e.g., ReadTimeSeries() and HydroBase reads) are always run.
+</td>
+<td>False - run all commands and discard cached results.</td>
+</tr>
+
+<tr>
+<td><b>LazyTimeSeriesRead</b></td>
+<td>If set to true, time series read with the ReadTimeSeries request (e.g., TSID commands, ReadTimeSeries())
+only have the header read, and the data are read when the time series are first provided to a command that is
+not a metadata-only command (SelectTimeSeries(), DeselectTimeSeries(), SortTimeSeries(), SetTimeSeriesProperty(), Free()).
+This reduces memory use and read time when many time series are read and few are used.
+</td>
+<td>False - read the data with the header.</td>
+</tr>
+
+<tr>
+<td><b>MaxParallelCommands</b></td>
+<td>If greater than 1, run independent commands in parallel using up to the specified number of threads.
+Only consecutive commands that implement CommandDependencyProvider are run in parallel, based on the
+resources that the commands declare, and other commands act as barriers.
+Results are applied in command order so that output is the same as for sequential processing.
+</td>
+<td>1 - run commands sequentially.</td>
+</tr>
+
+<tr>
+<td><b>PublishMetrics</b></td>
+<td>If set to True, publish the processor run-time metrics (commands started and completed, processor requests,
+datastore reads, time series in memory, current command) as a JMX MBean while the commands are run.
+The MBean is unregistered when the run ends unless it was already registered with
+TSCommandProcessor.registerMetricsMBean().
+</td>
+<td>False - metrics are maintained but not published.</td>
+</tr>
+
 <tr>
 <td><b>Recursive</b></td>
 <td>If set to true, indicates that the commands string list being processed is
@@ -2741,6 +3115,25 @@ processing.
 <td>False</td>
 </tr>
 
+<tr>
+<td><b>ResetRunData</b></td>
+<td>If set to false, do not reset the periods and other run settings, or the results, at the start of the run.
+This is used when the processor has been initialized from another processor,
+for example to run an iteration of a For() loop that has Parallel=True.
+</td>
+<td>True</td>
+</tr>
+
+<tr>
+<td><b>TimeSeriesMemoryBudget</b></td>
+<td>If greater than 0, the memory budget for time series data, MB.  If the budget is exceeded after a command is run,
+the data for the least recently used regular interval time series are written to a scratch file and are read back
+when the time series are next provided to a command.  The budget can also be set with
+SetProperty(PropertyName="TimeSeriesMemoryBudget").
+</td>
+<td>0 - do not limit memory.</td>
+</tr>
+
 <tr>
 <td><b>WorkingDir</b></td>
 <td>Will be set if a setWorkingDir() command is encountered.
@@ -2847,7 +3240,11 @@ throws Exception
     // Clear any settings that may have been left over from the previous run and which
     // can impact the current run.
     
-    processCommands_ResetDataForRunStart ( AppendResults_boolean );
+    // The data are not reset if the processor was initialized from another processor (e.g., For() iteration run in parallel).
+    String ResetRunData = appPropList.getValue ( "ResetRunData" );
+    if ( (ResetRunData == null) || !ResetRunData.equalsIgnoreCase("False") ) {
+    	processCommands_ResetDataForRunStart ( AppendResults_boolean );
+    }
 
 	// Now loop through the commands, query time series, and manipulate
 	// to produce a list of final time series.  The following loop does the initial queries.
@@ -2866,6 +3263,8 @@ throws Exception
 										// May not occur if "continue" in loop.
 	// TODO SAM 2016-03-23 Need to evaluate how to use in For() and also whether to allow disable to improve performance
 	CommandProfile commandProfile = null; // Profile to track execution time, memory use
+	CommandResourceUsage commandResourceUsage = null; // Supplements the profile with CPU time, allocation, etc.
+	int tsCountStart = 0; // Number of time series before the command is run, to count time series added by the command
 	Command commandPrev = null; // previous command in loop
 	// Initialize the If() command stack that is in effect, needed to "and" the if conditions
 	// - all tested If blocks are evaluated and if all evaluate to true, the command can be run
@@ -2911,6 +3310,57 @@ throws Exception
     List<File> outputFileList = new ArrayList<File>();
     setOutputFileList ( outputFileList );
     boolean commandsShouldClearRunStatus = getCommandsShouldClearRunStatus(); // For use below - constant for all processing
+    // Indicate whether independent commands should be run in parallel (default is to run sequentially).
+    // Only commands that implement CommandDependencyProvider are run in parallel - other commands are barriers.
+    ParallelCommandRunner parallelCommandRunner = null;
+    String MaxParallelCommands = appPropList.getValue ( "MaxParallelCommands" );
+    if ( (MaxParallelCommands != null) && StringUtil.isInteger(MaxParallelCommands.trim()) ) {
+    	int maxParallelCommands = Integer.parseInt(MaxParallelCommands.trim());
+    	if ( maxParallelCommands > 1 ) {
+    		parallelCommandRunner = new ParallelCommandRunner ( __ts_processor, maxParallelCommands );
+    	}
+    }
+	Message.printStatus(2, routine,"MaxParallelCommands=" + MaxParallelCommands +
+		" => " + ((parallelCommandRunner == null) ? "run commands sequentially" : "run independent commands in parallel") );
+    // Indicate whether time series data should be read only when the time series are used (default is to read with header).
+    String LazyTimeSeriesRead = appPropList.getValue ( "LazyTimeSeriesRead" );
+    __lazyTimeSeriesRead = (LazyTimeSeriesRead != null) && LazyTimeSeriesRead.equalsIgnoreCase("True");
+	Message.printStatus(2, routine,"LazyTimeSeriesRead=" + LazyTimeSeriesRead + " => " + __lazyTimeSeriesRead );
+    // Indicate whether unchanged commands should replay results from the previous run (default is to run all commands).
+    CommandResultCache commandResultCache = null;
+    String IncrementalRun = appPropList.getValue ( "IncrementalRun" );
+    if ( (IncrementalRun != null) && IncrementalRun.equalsIgnoreCase("True") ) {
+    	commandResultCache = __ts_processor.getCommandResultCache ( true );
+    	commandResultCache.startRun();
+    }
+    else {
+    	// Discard results from previous runs
+    	__ts_processor.getCommandResultCache ( false );
+    }
+	Message.printStatus(2, routine,"IncrementalRun=" + IncrementalRun +
+		" => " + ((commandResultCache == null) ? "run all commands" : "replay results for unchanged commands") );
+    // Limit the memory used by time series data (default is no limit, can also be set with SetProperty()).
+    String TimeSeriesMemoryBudget = appPropList.getValue ( "TimeSeriesMemoryBudget" );
+    if ( (TimeSeriesMemoryBudget != null) && StringUtil.isInteger(TimeSeriesMemoryBudget.trim()) ) {
+    	setTimeSeriesMemoryBudget ( Integer.parseInt(TimeSeriesMemoryBudget.trim()) );
+    }
+	Message.printStatus(2, routine,"TimeSeriesMemoryBudget=" + TimeSeriesMemoryBudget +
+		" => " + getTimeSeriesMemoryBudget() + " MB (0 = no limit)" );
+    // Publish run-time metrics so that the run can be monitored with JMX tools (default is not to publish).
+    String PublishMetrics = appPropList.getValue ( "PublishMetrics" );
+    if ( (PublishMetrics != null) && PublishMetrics.equalsIgnoreCase("True") ) {
+    	try {
+    		__ts_processor.registerMetricsMBeanForRun();
+    	}
+    	catch ( Exception e ) {
+    		Message.printWarning ( 3, routine, "Error publishing metrics (" + e + ")." );
+    		Message.printWarning ( 3, routine, e );
+    	}
+    }
+	Message.printStatus(2, routine,"PublishMetrics=" + PublishMetrics );
+    // Start opening datastores that are used by the commands and are configured to be opened on first use,
+    // so that slow connections are opened in parallel while the first commands run.
+    warmUpLazyDataStores ( TSCommandProcessorUtil.getDataStoreNamesUsedByCommands(commandList) );
     // Run using the command list index because the index is modified below by For() commands
 	for ( i = 0; i < size; i++ ) {
 		// 1-offset command count for messages
@@ -2954,6 +3404,25 @@ throws Exception
 			__ts_processor.notifyCommandProcessorListenersOfCommandCancelled (	i, size, command );
 			return;
 		}
+		if ( (parallelCommandRunner != null) && !inComment && ifStackOkToRun ) {
+			// If this command starts a segment of independent commands, run the segment in parallel.
+			// The runner handles initialization, notification, and errors for each command in the segment.
+			int segmentEnd = parallelCommandRunner.findSegmentEnd ( commandList, i );
+			if ( segmentEnd > i ) {
+				int nextCommand = parallelCommandRunner.runSegment ( commandList, i, segmentEnd,
+					commandsShouldClearRunStatus, outputFileList );
+				// The commands may have changed aliases or identifiers of time series that they used
+				__tslistIndex.checkAccessed();
+				__ts_processor.checkResultsListIndexes();
+				if ( nextCommand > i ) {
+					command = commandList.get(nextCommand - 1);
+				}
+				prev_command_complete_notified = true;
+				// If the segment was not completed, cancel or interrupt is handled at the top of the loop
+				i = nextCommand - 1; // Loop will increment
+				continue;
+			}
+		}
 		try { // Catch errors in all the commands.
     		command = commandList.get(i);
     		commandString = command.toString();
@@ -2982,6 +3451,13 @@ throws Exception
             stopWatch.start();
             commandProfile.setStartTime(System.currentTimeMillis());
             commandProfile.setStartHeap(Runtime.getRuntime().totalMemory());
+            commandResourceUsage = __ts_processor.getCommandResourceUsage ( command );
+            commandResourceUsage.start();
+            tsCountStart = __tslist.size();
+            // Commands that only use time series metadata do not cause lazy time series data to be read
+            __lazyTimeSeriesReadOnAccess = !((command instanceof SelectTimeSeries_Command) ||
+                (command instanceof DeselectTimeSeries_Command) || (command instanceof SortTimeSeries_Command) ||
+                (command instanceof SetTimeSeriesProperty_Command) || (command instanceof Free_Command));
     		// Notify any listeners that the command is running...
     		__ts_processor.notifyCommandProcessorListenersOfCommandStarted ( i, size, command );
     
@@ -3052,6 +3528,9 @@ throws Exception
     		}
     		// Command factory for remaining commands...
     		else {
+    			TSCommandProcessorMetrics metrics = __ts_processor.getMetrics();
+    			metrics.commandStarted ( i, size, command );
+    			long metricsStartTime = System.nanoTime();
                 // Try the Command class code...
     			try {
                     // Make sure the command is valid...
@@ -3252,6 +3731,22 @@ throws Exception
                             // will run through again
                             // Initialize or increment the for loop
                             For_Command forCommand = (For_Command)command;
+                            if ( forCommand.isParallel() ) {
+                            	int endForIndex = lookupEndForCommandIndex(commandList,forCommand.getName());
+                            	ParallelForRunner parallelForRunner = new ParallelForRunner ( this, __ts_processor, forCommand );
+                            	if ( (endForIndex > i) && parallelForRunner.canRunInParallel(commandList, i, endForIndex) ) {
+                            		// Run all iterations of the loop, each with its own processor, and merge the results in iteration order.
+                            		// If the cancel was requested, it is handled at the top of the loop.
+                            		parallelForRunner.run ( commandList, i, endForIndex, i_for_message, outputFileList );
+                            		i = endForIndex; // Loop will increment so EndFor() will be skipped
+                            		continue;
+                            	}
+                            	else if ( endForIndex > i ) {
+                            		Message.printStatus ( 3, routine, "For(Name=\"" + forCommand.getName() +
+                            			"\") contains Break(), Continue(), Exit(), commands that change global state, or commands that use a " +
+                            			"shared datastore - running iterations sequentially." );
+                            	}
+                            }
                             boolean okToRunFor;
                             try {
                                 okToRunFor = forCommand.next();
@@ -3337,7 +3832,13 @@ throws Exception
                         }
                         else {
                         	// A typical command.  Run it.
-                            command.runCommand ( i_for_message );
+                        	if ( commandResultCache != null ) {
+                        		// Results will be replayed if the command has not changed since the previous run
+                        		commandResultCache.runCommand ( command, i_for_message );
+                        	}
+                        	else {
+                        		command.runCommand ( i_for_message );
+                        	}
                             // If the command generated an output file, add it in the list of output files.
                             // This list is used by the TSTool UI to display results.
                             if ( command instanceof FileGenerator ) {
@@ -3541,8 +4042,17 @@ throws Exception
                 finally {
                     // Save the time spent running the command
                     stopWatch.stop();
+                    // The command may have changed aliases or identifiers of time series that it used, or modified the list directly
+                    __tslistIndex.checkAccessed();
+                    __ts_processor.checkResultsListIndexes();
                     commandProfile.setEndTime(System.currentTimeMillis());
                     commandProfile.setEndHeap(Runtime.getRuntime().totalMemory());
+                    commandResourceUsage.end();
+                    metrics.commandCompleted ( command, System.nanoTime() - metricsStartTime );
+                    // Time series added by the command (commands that remove or replace time series are not counted)
+                    commandResourceUsage.setTimeSeries ( __tslist, Math.min(tsCountStart,__tslist.size()) );
+                    // Spill time series data to the scratch file if the memory budget is exceeded
+                    checkTimeSeriesMemoryBudget();
                 }
     		}
 		} // Main catch
@@ -3587,6 +4097,15 @@ throws Exception
 		}
 		runtimeTotal += commandProfile.getRunTime();
 	}
+	if ( parallelCommandRunner != null ) {
+		// Include the errors and run time for commands that were run in parallel
+		error_count += parallelCommandRunner.getErrorCount();
+		runtimeTotal += parallelCommandRunner.getRuntimeTotal();
+	}
+	if ( commandResultCache != null ) {
+		// Remove cached results that were not used in this run
+		commandResultCache.endRun();
+	}
 	// If necessary, do a final notify for the last command...
 	if ( !prev_command_complete_notified ) {
 		if ( i == size ) {
@@ -3616,6 +4135,11 @@ throws Exception
 	stopwatch.stop();
 	Message.printStatus ( 1, routine, "Processing took " + runtimeTotal + " ms, " +
 		StringUtil.formatString(runtimeTotal/1000.0,"%.4f") + " seconds" );
+	if ( __tsMemoryManager.getSpillTotal() > 0 ) {
+		Message.printStatus ( 2, routine, "Time series memory manager: " + __tsMemoryManager.getSpillTotal() +
+			" spills, " + __tsMemoryManager.getFaultTotal() + " faults, " + __tsMemoryManager.getSpilledCount() +
+			" time series currently spilled, scratch file size " + __tsMemoryManager.getScratchFileSize() + " bytes" );
+	}
 
 	// Check for fatal errors (for Command classes, only warn if failures since
 	// others are likely not a problem)...
@@ -3964,6 +4488,13 @@ throws IOException
 			}
 		}
 	}
+	// The data are read in the overloaded method - the output may change the time series (e.g., graph edits)
+	if ( tslist_output == __tslist ) {
+		__tslistIndex.accessedAll();
+	}
+	else {
+		__tslistIndex.accessed ( tslist_output );
+	}
 	// Now call the overloaded method that takes a list of time series
 	processTimeSeries ( tslist_output, proplist );
 }
@@ -3988,6 +4519,16 @@ throws IOException {
 		props = new PropList ( "" );
 	}
 
+	// Read data that were deferred (LazyTimeSeriesRead=True) or spilled by the memory manager
+	try {
+		readLazyTimeSeriesData ( tslist_output );
+	}
+	catch ( Exception e ) {
+		message = "Error reading time series data for output (" + e + ").";
+		Message.printWarning ( 3, routine, e );
+		throw new IOException ( message );
+	}
+
 	// Figure out the output.  This method is going to be called with
 	// legacy -o options (batch mode) as well as new PropList syntax.  Make
 	// sure to support legacy first and then phase in new approach...
@@ -4838,25 +5379,40 @@ FIXME - need to phase out "full_period".
 */
 private TS readTimeSeries (	int wl, String commandTag, String tsidentString, boolean fullPeriod, boolean readData )
 throws Exception
-{	TS ts = null;
-	String routine = "TSEngine.readTimeSeries";
-	
-	// Figure out what dates to use for the query...
+{	// Figure out what dates to use for the query...
 
-	DateTime inputStart = null;	// Default is to read all data
-	DateTime inputEnd = null;
-	if ( (__InputStart_DateTime != null) && (__InputStart_DateTime.getYear() != 0) ) {
-		// Use the query start...
-		inputStart = __InputStart_DateTime;
-	}
-	if ( (__InputEnd_DateTime != null) && (__InputEnd_DateTime.getYear() != 0) ) {
-		// Use the query start...
-		inputEnd = __InputEnd_DateTime;
-	}
+	DateTime inputStart = getReadInputStart();
+	DateTime inputEnd = getReadInputEnd();
 
 	// Read the time series using the generic code.  The units are not specified.
+	// If lazy reads are enabled, only read the header and save the information needed to read the data later.
+
+	boolean lazyRead = readData && __lazyTimeSeriesRead;
+    TS ts = readTimeSeries0 ( tsidentString, inputStart, inputEnd, null, (readData && !lazyRead) );
 
-    ts = readTimeSeries0 ( tsidentString, inputStart, inputEnd, null, readData );
+    return readTimeSeries1 ( wl, commandTag, tsidentString, ts, inputStart, inputEnd, fullPeriod, readData );
+}
+
+/**
+Complete reading a time series that was read with readTimeSeries0(), used by readTimeSeries() and readTimeSeriesBulk().
+If the time series was not found, a default time series is created if requested.
+Otherwise, the time series is post-processed with readTimeSeries2().
+@param wl Warning level if the time series is not found.
+@param commandTag command tag for warnings
+@param tsidentString Time series identifier for time series.
+@param ts the time series that was read, or null if not found
+@param inputStart the start of the read period, or null if all data were read
+@param inputEnd the end of the read period, or null if all data were read
+@param fullPeriod If true, indicates that the full period is to be queried.
+@param readData if true, read all the data.  If false, read only the header information.
+@return the time series
+@exception Exception if there is an error processing the time series or the time series was not found
+*/
+private TS readTimeSeries1 ( int wl, String commandTag, String tsidentString, TS ts, DateTime inputStart, DateTime inputEnd,
+	boolean fullPeriod, boolean readData )
+throws Exception
+{	String routine = "TSEngine.readTimeSeries";
+	boolean lazyRead = readData && __lazyTimeSeriesRead;
 
 	if ( ts == null ) {
 		DateTime start = getOutputStart();
@@ -4908,11 +5464,153 @@ throws Exception
 		// Now do the second set of processing on the time series (e.g.,
 		// to guarantee a period that is at least as long as the output period.
 		// TODO SAM - passing tsident_string2 causes problems - the input is lost...
-        readTimeSeries2 ( ts, tsidentString, fullPeriod, readData );
+        readTimeSeries2 ( ts, tsidentString, fullPeriod, (readData && !lazyRead) );
+        if ( lazyRead ) {
+        	synchronized ( __lazyTimeSeriesReadMap ) {
+        		__lazyTimeSeriesReadMap.put ( ts, new LazyTimeSeriesRead(tsidentString, inputStart, inputEnd, fullPeriod) );
+        	}
+        }
 	}
 	return ts;
 }
 
+/**
+Read a list of time series from databases or files, equivalent to calling readTimeSeries() for each identifier,
+but with identifiers grouped by input type and name so that each datastore is only looked up once.
+Datastores that implement TimeSeriesBatchReader read each group with one request, and other datastores read
+time series one at a time.  Groups are read sequentially on the calling thread because datastores share
+database connections and the message log.  The time series are then post-processed in the original order.
+@param wl Warning level if a time series is not found.
+@param commandTag command tag for warnings
+@param tsidentStrings Time series identifiers for time series to read.
+@param readData if true, read all the data.  If false, read only the header information.
+@return list of time series in the same order as the identifiers, with null for time series that could not be found
+(warnings will have been printed)
+*/
+protected List<TS> readTimeSeriesBulk ( int wl, String commandTag, List<String> tsidentStrings, boolean readData )
+{	String routine = getClass().getSimpleName() + ".readTimeSeriesBulk";
+	DateTime inputStart = getReadInputStart();
+	DateTime inputEnd = getReadInputEnd();
+	boolean lazyRead = readData && __lazyTimeSeriesRead;
+	boolean readData0 = readData && !lazyRead;
+	int n = tsidentStrings.size();
+	TS [] tsArray = new TS[n];
+
+	// Group the identifiers by the input type and name (case-independent), which is the datastore name for datastores
+
+	Map<String,List<Integer>> groupMap = new LinkedHashMap<String,List<Integer>>();
+	for ( int i = 0; i < n; i++ ) {
+		String tsidentString = tsidentStrings.get(i);
+		if ( tsidentString == null ) {
+			continue;
+		}
+		int pos = tsidentString.indexOf("~");
+		String inputTypeAndName = (pos < 0) ? "" : tsidentString.substring(pos + 1).toUpperCase();
+		List<Integer> positions = groupMap.get(inputTypeAndName);
+		if ( positions == null ) {
+			positions = new ArrayList<Integer>();
+			groupMap.put ( inputTypeAndName, positions );
+		}
+		positions.add ( i );
+	}
+
+	// Read the groups
+
+	for ( Map.Entry<String,List<Integer>> entry : groupMap.entrySet() ) {
+		DataStore dataStore = (entry.getKey().length() == 0) ? null : lookupDataStore ( entry.getKey() );
+		readTimeSeriesBulkGroup ( dataStore, tsidentStrings, entry.getValue(), inputStart, inputEnd, readData0, tsArray );
+	}
+
+	// Post-process the time series in the original order, so that warnings and missing time series are in order
+
+	List<TS> tslist = new ArrayList<TS>(n);
+	for ( int i = 0; i < n; i++ ) {
+		TS ts = null;
+		String tsidentString = tsidentStrings.get(i);
+		if ( tsidentString != null ) {
+			try {
+				ts = readTimeSeries1 ( wl, commandTag, tsidentString, tsArray[i], inputStart, inputEnd, false, readData );
+			}
+			catch ( Exception e ) {
+				// Warning will have been printed
+				ts = null;
+			}
+		}
+		tslist.add ( ts );
+	}
+	return tslist;
+}
+
+/**
+Read a group of time series for readTimeSeriesBulk(), using the datastore's TimeSeriesBatchReader implementation
+if available, and otherwise reading time series one at a time.  Time series that the batch reader did not return
+are read one at a time.
+@param dataStore datastore for the group, or null if not a datastore
+@param tsidentStrings all time series identifiers being read
+@param positions positions in tsidentStrings for the group
+@param readStart start of the read period, or null to read all
+@param readEnd end of the read period, or null to read all
+@param readData whether to read data
+@param tsArray array of time series being filled in, same size as tsidentStrings
+*/
+private void readTimeSeriesBulkGroup ( DataStore dataStore, List<String> tsidentStrings, List<Integer> positions,
+	DateTime readStart, DateTime readEnd, boolean readData, TS [] tsArray )
+{	String routine = getClass().getSimpleName() + ".readTimeSeriesBulkGroup";
+	if ( (dataStore != null) && (dataStore instanceof TimeSeriesBatchReader) && (positions.size() > 1) ) {
+		List<String> groupTSIDList = new ArrayList<String>(positions.size());
+		for ( Integer position : positions ) {
+			groupTSIDList.add ( tsidentStrings.get(position) );
+		}
+		try {
+			long readStartTime = System.nanoTime();
+			List<TS> groupTSList = ((TimeSeriesBatchReader)dataStore).readTimeSeriesList (
+				groupTSIDList, readStart, readEnd, readData );
+			if ( (groupTSList != null) && (groupTSList.size() == positions.size()) ) {
+				// Save the read time and size for metrics, dividing the time evenly between the time series
+				int count = 0;
+				for ( TS ts : groupTSList ) {
+					if ( ts != null ) {
+						++count;
+					}
+				}
+				long readTime = (count == 0) ? 0 : (System.nanoTime() - readStartTime)/count;
+				for ( int i = 0; i < positions.size(); i++ ) {
+					TS ts = groupTSList.get(i);
+					tsArray[positions.get(i)] = ts;
+					if ( ts != null ) {
+						__ts_processor.getMetrics().dataStoreRead ( dataStore.getName(), readTime,
+							ts.hasData() ? ts.getDataSize() : 0 );
+					}
+				}
+			}
+			else {
+				Message.printWarning ( 3, routine, "Datastore \"" + dataStore.getName() +
+					"\" did not return one time series per identifier - reading time series one at a time." );
+			}
+		}
+		catch ( Exception e ) {
+			Message.printWarning ( 3, routine, "Error reading time series list from datastore \"" + dataStore.getName() +
+				"\" (" + e + ") - reading time series one at a time." );
+			Message.printWarning ( 3, routine, e );
+		}
+	}
+	for ( Integer position : positions ) {
+		if ( tsArray[position] != null ) {
+			// Read by the batch reader
+			continue;
+		}
+		String tsidentString = tsidentStrings.get(position);
+		try {
+			tsArray[position] = readTimeSeries0 ( tsidentString, readStart, readEnd, null, readData );
+		}
+		catch ( Exception e ) {
+			Message.printWarning ( 3, routine, "Error reading time series \"" + tsidentString + "\" (" + e + ")." );
+			Message.printWarning ( 3, routine, e );
+			tsArray[position] = null;
+		}
+	}
+}
+
 /**
 Read a time series.  This method is called internally by TSEngine code and when
 TSEngine serves as a TSSupplier when processing TSProducts.  It actually tries
@@ -4972,6 +5670,7 @@ throws Exception
 	// Now make a decision about which code to call to read the time
 	// series.  Always check the new convention first.
 
+	long readStartTime = System.nanoTime();
 	TS ts = null;
 	try {
 	if ((dataStore != null) && (dataStore instanceof ColoradoHydroBaseRestDataStore) ) {
@@ -5497,6 +6196,14 @@ throws Exception
         Message.printWarning ( 3, routine, nce );
         throw new TimeSeriesNotFoundException ( message );
 	}
+	if ( dataStore != null ) {
+		// Save the read time and size for metrics
+		long values = 0;
+		if ( (ts != null) && ts.hasData() ) {
+			values = ts.getDataSize();
+		}
+		__ts_processor.getMetrics().dataStoreRead ( dataStore.getName(), System.nanoTime() - readStartTime, values );
+	}
 	return ts;
 }
 
@@ -5551,6 +6258,9 @@ throws Exception
 			}
 			if ( ts.getAlias().equalsIgnoreCase( tsident_string) ) {
 				Message.printStatus ( 2, routine,"Matched alias." );
+				ts = copyOnAccess ( ts );
+				readLazyTimeSeriesData ( ts );
+				__tslistIndex.accessed ( ts );
 				return ts;
 			}
 		}
@@ -5571,6 +6281,9 @@ throws Exception
 			// If it has the input fields, then they will be checked.
 			if ( tsident.equals(tsident_string,full_tsid_check) ) {
 				Message.printStatus ( 1, routine,"Matched TSID using TSID with input fields." );
+				ts = copyOnAccess ( ts );
+				readLazyTimeSeriesData ( ts );
+				__tslistIndex.accessed ( ts );
 				return ts;
 			}
 		}
@@ -5694,8 +6407,7 @@ If false, the output period will be queried.
 */
 private void readTimeSeries2 ( TS ts, String tsident_string, boolean full_period, boolean readData )
 throws Exception
-{	String routine = "TSEngine.readTimeSeries2";
-	if ( ts == null ) {
+{	if ( ts == null ) {
 		return;
 	}
 
@@ -5709,10 +6421,32 @@ throws Exception
 		ts.setDescription ( ts.getLocation() );
 	}
 
+	// To ensure that new and old time series identifiers can be used, reset
+	// the identifier in the queried string to that which was specified in the input commands.
+
+	if ( tsident_string != null ) {
+		ts.setIdentifier ( tsident_string );
+	}
+
+	if ( readData ) {
+		readTimeSeries2Data ( ts );
+	}
+}
+
+/**
+Process the data for a time series after it is read, called by readTimeSeries2() and when the data
+for a lazy read are read.  The original data limits are computed and the period is extended to the output period if requested.
+@param ts time series to process
+@exception Exception if there is an error processing the time series.
+*/
+private void readTimeSeries2Data ( TS ts )
+throws Exception
+{	String routine = "TSEngine.readTimeSeries2Data";
+
 	// Compute the historical average here rather than having to put this code
 	// in each clause in the processTimeSeriesCommands() method.
 
-	if ( readData && ts.hasData() ) {
+	if ( ts.hasData() ) {
     	try {
             ts.setDataLimitsOriginal (calculateTSAverageLimits(ts));
     	}
@@ -5723,13 +6457,6 @@ throws Exception
     	}
 	}
 
-	// To ensure that new and old time series identifiers can be used, reset
-	// the identifier in the queried string to that which was specified in the input commands.
-
-	if ( tsident_string != null ) {
-		ts.setIdentifier ( tsident_string );
-	}
-
 	// If the output period has been specified, make sure that the time
 	// series has a period at least that long.  This will allow for data	
 	// filling and other manipulation.  Do not change the interval if the
@@ -5751,16 +6478,14 @@ throws Exception
 		limits.setDate2 ( __OutputEnd_DateTime );
 		v.add ( limits );
 		try {
-		    if ( readData ) {
-                limits = TSUtil.getPeriodFromLimits( v, TSUtil.MAX_POR);
-                // If in discovery mode in TSTool, don't want to do the following because it throws
-                // an exception.  The output period may be set in the processor from a previous run and
-                // when new commands are loaded, the "readData" check is necessary.
-    			if ( (limits.getDate1().lessThan(ts.getDate1()) ||
-    			    limits.getDate2().greaterThan(ts.getDate2())) ) {
-    				ts.changePeriodOfRecord ( limits.getDate1(), limits.getDate2() );
-    			}
-		    }
+			// If in discovery mode in TSTool, don't want to do the following because it throws
+			// an exception.  The output period may be set in the processor from a previous run and
+			// when new commands are loaded, the "readData" check in readTimeSeries2() is necessary.
+			limits = TSUtil.getPeriodFromLimits( v, TSUtil.MAX_POR);
+			if ( (limits.getDate1().lessThan(ts.getDate1()) ||
+			    limits.getDate2().greaterThan(ts.getDate2())) ) {
+				ts.changePeriodOfRecord ( limits.getDate1(), limits.getDate2() );
+			}
 		}
 		catch ( Exception e ) {
 			String message = "Unable to extend period for \"" + ts.getIdentifierString() + "\" to output period.";
@@ -5771,6 +6496,227 @@ throws Exception
 	}
 }
 
+/**
+Handle an error reading time series data that were deferred or spilled.
+While commands are running, an exception is thrown so that the command that uses the time series fails.
+Otherwise (e.g., viewing results), a warning is printed and the time series contains missing data.
+@param message message describing the error
+@exception Exception if commands are running
+*/
+private void handleTimeSeriesDataReadError ( String message )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".handleTimeSeriesDataReadError";
+	if ( __ts_processor.getIsRunning() ) {
+		throw new Exception ( message );
+	}
+	Message.printWarning ( 2, routine, message + "  The time series will contain missing values." );
+}
+
+/**
+Read the data for a time series that was read with only the header because of LazyTimeSeriesRead=True.
+The data are read using the same identifier and period that were used to read the header and are then
+copied into the time series so that references to the time series remain valid.
+Nothing is done if the time series data have already been read or reading is disabled for the current command.
+After the run, data are read when requested (e.g., to view results).
+Data that were spilled to the scratch file by the memory manager are also read back, even if reading is disabled,
+because the period of a spilled time series is not valid until the data are read back.
+@param ts time series to check
+@exception Exception if the data cannot be read while commands are running, so that the command fails
+*/
+protected void readLazyTimeSeriesData ( TS ts )
+throws Exception
+{	String routine = getClass().getSimpleName() + ".readLazyTimeSeriesData";
+	if ( ts == null ) {
+		return;
+	}
+	// Read data that were spilled by the memory manager, and indicate that the time series was accessed
+	try {
+		__tsMemoryManager.touch ( ts );
+	}
+	catch ( IOException e ) {
+		Message.printWarning ( 3, routine, e );
+		handleTimeSeriesDataReadError ( e.getMessage() );
+	}
+	if ( !__lazyTimeSeriesReadOnAccess && __ts_processor.getIsRunning() ) {
+		return;
+	}
+	LazyTimeSeriesRead lazyRead = null;
+	synchronized ( __lazyTimeSeriesReadMap ) {
+		if ( __lazyTimeSeriesReadMap.isEmpty() ) {
+			return;
+		}
+		lazyRead = __lazyTimeSeriesReadMap.get ( ts );
+	}
+	if ( lazyRead == null ) {
+		return;
+	}
+	String errorMessage = null;
+	synchronized ( __lazyTimeSeriesReadLock ) {
+		synchronized ( __lazyTimeSeriesReadMap ) {
+			if ( __lazyTimeSeriesReadMap.get(ts) != lazyRead ) {
+				// Read by another thread while waiting for the lock, or removed
+				return;
+			}
+		}
+		try {
+			TS dataTS = readTimeSeries0 ( lazyRead.tsidentString, lazyRead.readStart, lazyRead.readEnd, null, true );
+			if ( dataTS != null ) {
+				ts.setDate1 ( dataTS.getDate1() );
+				ts.setDate2 ( dataTS.getDate2() );
+				ts.setDate1Original ( dataTS.getDate1Original() );
+				ts.setDate2Original ( dataTS.getDate2Original() );
+				ts.allocateDataSpace();
+				if ( dataTS.hasDataFlags() ) {
+					ts.allocateDataFlagSpace(null, false);
+				}
+				// Set missing values also to ensure that flags, etc. are set
+				TSIterator tsi = dataTS.iterator();
+				TSData tsdata;
+				while ( (tsdata = tsi.next()) != null ) {
+					ts.setDataValue ( tsdata.getDate(), tsdata.getDataValue(), tsdata.getDataFlag(), tsdata.getDuration() );
+				}
+			}
+			else {
+				// Should not happen since the header was read
+				errorMessage = "Unable to read data for \"" + lazyRead.tsidentString + "\".";
+				ts.allocateDataSpace();
+			}
+			readTimeSeries2Data ( ts );
+		}
+		catch ( Exception e ) {
+			errorMessage = "Error reading data for \"" + lazyRead.tsidentString + "\" (" + e + ").";
+			Message.printWarning ( 3, routine, e );
+		}
+		finally {
+			// Remove after the data are set so that other threads do not use the time series before it is read
+			synchronized ( __lazyTimeSeriesReadMap ) {
+				__lazyTimeSeriesReadMap.remove ( ts );
+			}
+		}
+	}
+	if ( errorMessage != null ) {
+		Message.printWarning ( 3, routine, errorMessage );
+		handleTimeSeriesDataReadError ( errorMessage );
+	}
+}
+
+/**
+Copy a shared time series if it has not been copied, replacing the time series in the time series list and ensembles,
+so that the caller can modify the copy without changing the time series of the processor that owns the original.
+See setCopyOnAccessTimeSeries().
+@param ts time series that is being provided to a caller
+@return the copy if the time series is shared, or the time series if not shared
+@exception Exception if deferred or spilled data cannot be read for the original time series
+*/
+protected TS copyOnAccess ( TS ts )
+throws Exception
+{
+	if ( (__copyOnAccessSet == null) || (ts == null) ) {
+		return ts;
+	}
+	if ( !__copyOnAccessSet.contains(ts) ) {
+		// Not shared, or the caller has a reference to an original that has already been copied
+		TS copy = __copyOnAccessMap.get(ts);
+		return (copy == null) ? ts : copy;
+	}
+	TS copy = null;
+	if ( __copyOnAccessSourceEngine != null ) {
+		// Other processors may be copying time series from the same source, and reading the data for one time
+		// series may spill the data for another, so read and copy one time series at a time
+		synchronized ( __copyOnAccessSourceEngine.__copyOnAccessLock ) {
+			__copyOnAccessSourceEngine.readLazyTimeSeriesData ( ts );
+			copy = (TS)ts.clone();
+		}
+	}
+	else {
+		copy = (TS)ts.clone();
+	}
+	__copyOnAccessSet.remove ( ts );
+	__copyOnAccessMap.put ( ts, copy );
+	for ( int i = 0; i < __tslist.size(); i++ ) {
+		if ( __tslist.get(i) == ts ) {
+			__tslist.set ( i, copy );
+			__tslistIndex.set ( copy, i );
+		}
+	}
+	__ts_processor.replaceEnsembleTimeSeries ( ts, copy );
+	return copy;
+}
+
+/**
+Copy shared time series in a list, replacing the time series in the list with the copies.
+See copyOnAccess(TS).
+@param tslist list of time series that are being provided to a caller
+@exception Exception if deferred or spilled data cannot be read for an original time series
+*/
+protected void copyOnAccess ( List<TS> tslist )
+throws Exception
+{
+	if ( (__copyOnAccessSet == null) || (tslist == null) ) {
+		return;
+	}
+	for ( int i = 0; i < tslist.size(); i++ ) {
+		TS ts = tslist.get(i);
+		TS copy = copyOnAccess ( ts );
+		if ( copy != ts ) {
+			tslist.set ( i, copy );
+		}
+	}
+}
+
+/**
+Stop copying shared time series when they are provided to callers, used when the processor is done running.
+Shared time series that have not been copied remain in the list and ensembles.
+@return the copies of shared time series that were provided to callers, by original time series,
+or an empty map if time series are not shared
+*/
+protected Map<TS,TS> endCopyOnAccess ()
+{
+	Map<TS,TS> copyMap = __copyOnAccessMap;
+	__copyOnAccessSet = null;
+	__copyOnAccessMap = null;
+	__copyOnAccessSourceEngine = null;
+	if ( copyMap == null ) {
+		copyMap = new IdentityHashMap<TS,TS>();
+	}
+	return copyMap;
+}
+
+/**
+Read the data for time series in a list that were read with only the header because of LazyTimeSeriesRead=True,
+and read back data that were spilled by the memory manager.
+@param tslist list of time series to check
+@exception Exception if the data cannot be read while commands are running, so that the command fails
+*/
+protected void readLazyTimeSeriesData ( List<TS> tslist )
+throws Exception
+{
+	if ( tslist == null ) {
+		return;
+	}
+	synchronized ( __lazyTimeSeriesReadMap ) {
+		if ( __lazyTimeSeriesReadMap.isEmpty() && !__tsMemoryManager.hasSpilledTimeSeries() &&
+			(__tsMemoryManager.getBudget() <= 0) ) {
+			return;
+		}
+	}
+	for ( int i = 0; i < tslist.size(); i++ ) {
+		readLazyTimeSeriesData ( tslist.get(i) );
+	}
+}
+
+/**
+Indicate whether a time series was read with only the header and the data have not yet been read.
+@param ts time series to check
+@return true if the time series data have not been read
+*/
+private boolean isLazyTimeSeriesRead ( TS ts )
+{
+	synchronized ( __lazyTimeSeriesReadMap ) {
+		return __lazyTimeSeriesReadMap.containsKey ( ts );
+	}
+}
+
 /**
 Call readTimeSeries2() for every time series in the Vector, with the
 full_period parameter having a value of true.  This version is called by read commands.
@@ -5803,6 +6749,11 @@ throws Exception
 		if ( ts == null ) {
 			continue;
 		}
+		if ( readData && isLazyTimeSeriesRead(ts) ) {
+			// Data will be processed when read
+			readTimeSeries2 ( ts, null, full_period, false );
+			continue;
+		}
 		readTimeSeries2 ( ts, null, full_period, readData );
 	}
 }
@@ -5813,6 +6764,11 @@ Remove all time series in the results list.
 protected void removeAllTimeSeries ()
 {
     __tslist.clear();
+    __tslistIndex.cleared();
+    synchronized ( __lazyTimeSeriesReadMap ) {
+        __lazyTimeSeriesReadMap.clear();
+    }
+    __tsMemoryManager.clear();
 }
 
 /**
@@ -5821,7 +6777,11 @@ Remove the time series at the specified index.
 */
 protected void removeTimeSeries ( int index )
 {
+    synchronized ( __lazyTimeSeriesReadMap ) {
+        __lazyTimeSeriesReadMap.remove ( __tslist.get(index) );
+    }
     __tslist.remove ( index );
+    __tslistIndex.removed();
 }
 
 /**
@@ -5850,6 +6810,22 @@ protected void setAverageStart ( DateTime start )
 {   __AverageStart_DateTime = start;
 }
 
+/**
+Set the time series that are shared with another processor, which are copied when first provided to a caller
+so that the original time series are not modified.  The shared time series are typically in the time series list
+and ensembles of this processor, and are replaced by the copies.  Call endCopyOnAccess() when done.
+@param sharedList time series that are shared
+@param sourceEngine engine of the processor that owns the shared time series, used to read deferred and
+spilled data before copying, or null if not needed
+*/
+protected void setCopyOnAccessTimeSeries ( List<TS> sharedList, TSEngine sourceEngine )
+{
+	__copyOnAccessSet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+	__copyOnAccessSet.addAll ( sharedList );
+	__copyOnAccessMap = new IdentityHashMap<TS,TS>();
+	__copyOnAccessSourceEngine = sourceEngine;
+}
+
 /**
 Set a DataStore instance in the list that is being maintained for use.
 The DataStore identifier is used to lookup the instance.  If a match is found,
@@ -5919,6 +6895,22 @@ protected void setDataStore ( DataStore dataStore, boolean closeOld )
 	}
 }
 
+/**
+Set a datastore that will be opened on first use, rather than when configured.
+If a datastore with the same name has already been opened, the opened datastore will continue to be used.
+@param lazyDataStore datastore to open on first use
+*/
+protected void setLazyDataStore ( LazyDataStore lazyDataStore )
+{
+	if ( lazyDataStore == null ) {
+		return;
+	}
+	synchronized ( __lazyDataStoreMap ) {
+		__lazyDataStoreMap.put ( lazyDataStore.getName().toUpperCase(), lazyDataStore );
+		__dataStoreConfigMap.put ( lazyDataStore.getName().toUpperCase(), lazyDataStore );
+	}
+}
+
 /**
 Set a HydroBaseDMI instance in the list that is being maintained for use for database queries.
 The input name in the DMI is used to lookup the instance.  If a match is found,
@@ -6096,6 +7088,15 @@ private void setPreviewExportedOutput ( boolean PreviewExportedOutput_boolean )
     __PreviewExportedOutput_boolean = PreviewExportedOutput_boolean;
 }
 
+/**
+Set the memory budget for time series data.  If the budget is exceeded after a command is run,
+the data for the least recently used time series are spilled to a scratch file.
+@param budget the memory budget for time series data, MB, or 0 to not limit memory
+*/
+protected void setTimeSeriesMemoryBudget ( int budget )
+{	__tsMemoryManager.setBudget ( (budget > 0) ? budget*1024L*1024L : 0 );
+}
+
 /**
 Set the time series in either the __tslist vector.
 @param id Identifier for time series (alias or TSIdent string).
@@ -6133,8 +7134,10 @@ throws Exception
     if ( __tslist == null ) {
 		// Create a new Vector.
 		__tslist = new Vector<TS> ( 50, 50 );
+		__tslistIndex.reset ( __tslist );
 	}
 	// Position is zero index...
+	boolean append = (position == __tslist.size());
 	if ( position >= __tslist.size() ) {
 		// Append to the list.  Fill in intervening positions with null references...
 		for ( int i = __tslist.size(); i <= position; i++ ) {
@@ -6144,6 +7147,12 @@ throws Exception
 	// Now update at the requested position...
 	__tslist.remove ( position );
 	__tslist.add ( position, ts );
+	if ( append ) {
+		__tslistIndex.appended ( ts );
+	}
+	else {
+		__tslistIndex.set ( ts, position );
+	}
 }
 
 /**
@@ -6152,6 +7161,16 @@ Set the time series list, for example, when being processed through TSCommandsPr
 */
 protected void setTimeSeriesList ( List<TS> tslist )
 {	__tslist = tslist;
+	__tslistIndex.reset ( __tslist );
+}
+
+/**
+Indicate that time series were provided to a caller other than by the TSEngine methods (e.g., in an ensemble),
+so that changes to their aliases or identifiers are indexed after the command.
+@param tslist list of time series that were provided
+*/
+protected void timeSeriesAccessed ( List<TS> tslist )
+{	__tslistIndex.accessed ( tslist );
 }
 
 /**
@@ -6284,6 +7303,57 @@ private void writeStateModTS ( List<TS> tslist, String output_file, String preci
 	}
 }
 
+/**
+Start opening, in the background, datastores that are configured to be opened on first use.
+This does not wait for the datastores to be opened.  Commands that use a datastore before it is opened
+will wait for it to be opened by openLazyDataStore().
+@param dataStoreNames names of datastores that will be used (names that do not match datastores
+that are opened on first use are ignored)
+*/
+protected void warmUpLazyDataStores ( List<String> dataStoreNames )
+{	String routine = getClass().getSimpleName() + ".warmUpLazyDataStores";
+	List<LazyDataStore> openList = new ArrayList<LazyDataStore>();
+	List<String> openNames = new ArrayList<String>();
+	synchronized ( __lazyDataStoreMap ) {
+		for ( String dataStoreName : dataStoreNames ) {
+			LazyDataStore lazyDataStore = __lazyDataStoreMap.get ( dataStoreName.toUpperCase() );
+			if ( (lazyDataStore != null) && !lazyDataStore.isOpened() && !openList.contains(lazyDataStore) ) {
+				openList.add ( lazyDataStore );
+				openNames.add ( lazyDataStore.getName() );
+			}
+		}
+	}
+	if ( openList.size() == 0 ) {
+		return;
+	}
+	Message.printStatus ( 2, routine, "Opening " + openList.size() + " datastores used by commands in the background: " +
+		openNames );
+	// Use daemon threads so that an application can exit while a slow datastore is being opened
+	ExecutorService executor = Executors.newFixedThreadPool ( Math.min(openList.size(), Runtime.getRuntime().availableProcessors()),
+		new ThreadFactory() {
+			public Thread newThread ( Runnable r ) {
+				Thread thread = new Thread ( r, "TSEngine.warmUpLazyDataStores" );
+				thread.setDaemon ( true );
+				return thread;
+			}
+		});
+	try {
+		for ( final LazyDataStore lazyDataStore : openList ) {
+			executor.submit ( new Callable<Object>() {
+				public Object call () {
+					// Only open here - the datastore is added to the datastore list by openLazyDataStore()
+					// on the thread that uses it, so that the list is not modified while commands use it
+					return lazyDataStore.open();
+				}
+			});
+		}
+	}
+	finally {
+		// Tasks that were submitted will complete but the caller does not wait
+		executor.shutdown();
+	}
+}
+
 public void windowActivated ( WindowEvent e )
 {
 }
@@ -0,0 +1,165 @@
+// TSIDPatternMatcher - matcher for a time series identifier pattern, compiled once for use with many time series
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.regex.Pattern;
+
+import RTi.TS.TS;
+import RTi.TS.TSIdent;
+
+/**
+Matcher for a time series identifier pattern (e.g., "*.USGS.Streamflow.Day"), as used with TSList=AllMatchingTSID.
+The pattern is parsed once and the location part is compiled into a regular expression that is used to quickly
+reject time series that cannot match, so that TSIdent.matches(), which parses the pattern for each call,
+is only called for candidates.  The alias is also checked because TSIdent.matches() checks the alias.
+The result of matches() is therefore always the same as TSIdent.matches().
+*/
+public class TSIDPatternMatcher
+{
+
+/**
+The time series identifier pattern.
+*/
+private String __tsidPattern = null;
+
+/**
+Whether input type and name are included in the comparison (pattern contains "~").
+*/
+private boolean __includeInput = false;
+
+/**
+Compiled regular expression for the location part, or null if the location cannot be used to reject time series.
+*/
+private Pattern __locationPattern = null;
+
+/**
+Compiled regular expression for the full pattern, to check the alias, or null if the alias cannot be checked.
+*/
+private Pattern __aliasPattern = null;
+
+/**
+Construct a matcher for a time series identifier pattern.
+@param tsidPattern time series identifier pattern, using * for wildcards, optionally with ~ input type and name
+*/
+public TSIDPatternMatcher ( String tsidPattern )
+{
+	__tsidPattern = tsidPattern;
+	if ( tsidPattern == null ) {
+		return;
+	}
+	__includeInput = tsidPattern.indexOf("~") > 0;
+	// The location and alias are only used to reject time series when they contain simple characters,
+	// so that the check is never more strict than TSIdent.matches().
+	// A location of only wildcards does not reject anything so is not used.
+	TSIdent tsident = null;
+	try {
+		tsident = new TSIdent ( tsidPattern );
+	}
+	catch ( Exception e ) {
+		// Pattern will be passed to TSIdent.matches() for all time series
+		return;
+	}
+	String location = tsident.getLocation();
+	if ( isSimpleGlob(location) && (location.replace("*","").length() > 0) && isSimpleGlob(tsidPattern.replace(".","").replace("~","")) ) {
+		__locationPattern = compileGlob ( location );
+		__aliasPattern = compileGlob ( tsidPattern );
+	}
+}
+
+/**
+Compile a glob pattern into a case-insensitive regular expression.
+The glob must have been checked with isSimpleGlob(), other than "." and "~",
+and "." is allowed to match any character, which can only make the check less strict.
+*/
+private Pattern compileGlob ( String glob )
+{
+	return Pattern.compile(glob.replace("*", ".*"), Pattern.CASE_INSENSITIVE);
+}
+
+/**
+Return the pattern used by the matcher.
+@return the pattern used by the matcher
+*/
+public String getPattern ()
+{
+	return __tsidPattern;
+}
+
+/**
+Indicate whether a glob contains only characters that are not special in regular expressions
+(other than the * wildcard) and are not special in time series identifiers (location type, sequence ID).
+*/
+private boolean isSimpleGlob ( String glob )
+{
+	if ( (glob == null) || (glob.length() == 0) ) {
+		return false;
+	}
+	int len = glob.length();
+	for ( int i = 0; i < len; i++ ) {
+		char c = glob.charAt(i);
+		if ( !Character.isLetterOrDigit(c) && (c != '*') && (c != '_') && (c != '-') && (c != ' ') ) {
+			return false;
+		}
+	}
+	return true;
+}
+
+/**
+Determine whether a time series matches the pattern, checking the alias and the identifier.
+@param ts time series to check
+@return true if the time series matches the pattern, the same as ts.getIdentifier().matches(pattern,true,includeInput)
+*/
+public boolean matches ( TS ts )
+{
+	if ( (ts == null) || (__tsidPattern == null) ) {
+		return false;
+	}
+	TSIdent tsident = ts.getIdentifier();
+	if ( __locationPattern != null ) {
+		// Quick check to reject time series that cannot match, which is the typical case for large lists
+		boolean possible = false;
+		String location = tsident.getLocation();
+		if ( (location != null) && __locationPattern.matcher(location).matches() ) {
+			possible = true;
+		}
+		if ( !possible ) {
+			String mainLocation = tsident.getMainLocation();
+			if ( (mainLocation != null) && __locationPattern.matcher(mainLocation).matches() ) {
+				possible = true;
+			}
+		}
+		if ( !possible ) {
+			String alias = ts.getAlias();
+			if ( (alias != null) && (alias.length() > 0) && __aliasPattern.matcher(alias).matches() ) {
+				possible = true;
+			}
+		}
+		if ( !possible ) {
+			return false;
+		}
+	}
+	return tsident.matches(__tsidPattern,true,__includeInput);
+}
+
+}
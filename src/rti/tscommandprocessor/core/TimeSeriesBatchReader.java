@@ -0,0 +1,54 @@
+// TimeSeriesBatchReader - interface for datastores that can read a list of time series in one request
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.util.List;
+
+import RTi.TS.TS;
+import RTi.Util.Time.DateTime;
+
+/**
+Interface for datastores that can read a list of time series in one request (e.g., one database query or
+web service call), which is much faster than reading each time series separately when many time series are read.
+TSEngine.readTimeSeriesBulk() groups time series identifiers by datastore and passes each group to the datastore
+if the datastore implements this interface.  Otherwise, the time series are read one at a time.
+Time series that are returned as null (e.g., because the batch request could not include them) are then read
+one at a time with the datastore's normal read.
+*/
+public interface TimeSeriesBatchReader
+{
+
+/**
+Read a list of time series.
+@param tsidentStrings time series identifiers to read, including the input type and name (e.g., "...~DataStoreName")
+@param readStart first date/time to read, or null to read all available data
+@param readEnd last date/time to read, or null to read all available data
+@param readData if true, read the data; if false, only read the time series header
+@return list of time series in the same order as the identifiers, with null for time series that were not read,
+which will be read one at a time
+@exception Exception if there is an error reading the time series (the time series will then be read one at a time)
+*/
+public List<TS> readTimeSeriesList ( List<String> tsidentStrings, DateTime readStart, DateTime readEnd, boolean readData )
+throws Exception;
+
+}
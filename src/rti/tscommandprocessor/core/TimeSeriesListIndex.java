@@ -0,0 +1,642 @@
+// TimeSeriesListIndex - hash index for the time series results list managed by TSEngine
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import RTi.TS.TS;
+import RTi.TS.TSIdent;
+import RTi.Util.Message.Message;
+
+/**
+Hash index for the time series results list that is managed by TSEngine.
+The index allows looking up time series by alias and TSID without walking the full list,
+which otherwise makes large workflows quadratic because most commands look up time series.
+<p>
+The index does not own the list.  TSEngine must call the notification methods
+(appended(), set(), removed(), cleared(), reset()) when it modifies the list.
+Because commands can modify a time series alias or identifier after it is in the list,
+TSEngine also calls accessed() for time series that are provided to callers, and accessedAll() when the list
+itself is provided, which allows the list to be modified directly (e.g., sort).
+TSEngine calls checkAccessed() after each command, which only compares the accessed time series with the indexed state,
+so the work is proportional to the number of time series that the command used rather than the size of the list.
+<p>
+The lookup semantics are the same as the original linear search:  aliases are checked first (case-insensitive),
+then TSIDs (TSIdent.equals()), in each case searching from the end of the list so that the latest match wins.
+The TSID index uses a coarse key (location and data type) and candidates are confirmed with TSIdent.equals().
+*/
+class TimeSeriesListIndex
+{
+
+/**
+Information about an indexed time series, used to detect changes.
+*/
+private static class Entry
+{
+	TS ts = null;
+	TSIdent tsident = null;
+	String alias = null;
+	String location = null;
+	String source = null;
+	String type = null;
+	String interval = null;
+	String scenario = null;
+	String sequenceID = null;
+	String inputType = null;
+	String inputName = null;
+	String aliasKey = null;
+	String tsidKey = null;
+}
+
+/**
+Time series list that is indexed.
+*/
+private List<TS> __tslist = null;
+
+/**
+Entries in the same order as the time series list.
+*/
+private List<Entry> __entryList = new ArrayList<Entry>();
+
+/**
+Map of upper-case alias to positions in the list, ascending.
+*/
+private Map<String,List<Integer>> __aliasMap = new HashMap<String,List<Integer>>();
+
+/**
+Map of TSID key (see getTSIDKey()) to positions in the list, ascending.
+*/
+private Map<String,List<Integer>> __tsidMap = new HashMap<String,List<Integer>>();
+
+/**
+Indicates that the index must be rebuilt before the next lookup.
+*/
+private boolean __rebuildNeeded = true;
+
+/**
+Map of time series to position in the list, used to update the index for accessed time series.
+*/
+private Map<TS,Integer> __positionMap = new IdentityHashMap<TS,Integer>();
+
+/**
+Indicates that the same time series object is in the list more than once,
+in which case accessed time series are checked by comparing the full list.
+*/
+private boolean __hasDuplicates = false;
+
+/**
+Time series that have been provided to callers since the last check, and which may have been modified.
+*/
+private Set<TS> __accessedSet = Collections.newSetFromMap(new IdentityHashMap<TS,Boolean>());
+
+/**
+Indicates that the list was provided to callers since the last check, and may have been modified directly.
+*/
+private boolean __accessedAll = false;
+
+/**
+Count of modifications to the list, incremented each time the list or a time series identifier or alias changes.
+This is used to invalidate information derived from the list, such as cached TSList matches.
+*/
+private long __modificationCount = 0;
+
+/**
+Construct an index for a time series list.
+@param tslist time series list to index
+*/
+public TimeSeriesListIndex ( List<TS> tslist )
+{
+	reset ( tslist );
+}
+
+/**
+Indicate that a time series was provided to a caller, which may modify its alias or identifier.
+The time series will be checked by the next call to checkAccessed().
+@param ts time series that was provided
+*/
+public void accessed ( TS ts )
+{
+	if ( (ts != null) && !__accessedAll ) {
+		__accessedSet.add ( ts );
+	}
+}
+
+/**
+Indicate that time series were provided to a caller, which may modify their aliases or identifiers.
+@param tslist list of time series that were provided
+*/
+public void accessed ( List<TS> tslist )
+{
+	if ( (tslist == null) || __accessedAll ) {
+		return;
+	}
+	for ( TS ts : tslist ) {
+		if ( ts != null ) {
+			__accessedSet.add ( ts );
+		}
+	}
+}
+
+/**
+Indicate that the list was provided to a caller, which may modify the list or any time series in the list.
+The full list will be checked by the next call to checkAccessed().
+*/
+public void accessedAll ()
+{
+	__accessedAll = true;
+	__accessedSet.clear();
+}
+
+/**
+Add a position to a key's position list, keeping the list sorted.
+*/
+private void addPosition ( Map<String,List<Integer>> map, String key, int position )
+{
+	if ( key == null ) {
+		return;
+	}
+	List<Integer> positions = map.get(key);
+	if ( positions == null ) {
+		positions = new ArrayList<Integer>(1);
+		map.put(key, positions);
+	}
+	int size = positions.size();
+	if ( (size == 0) || (positions.get(size - 1) < position) ) {
+		// Typical case - appending to the end of the list
+		positions.add(position);
+	}
+	else {
+		int pos = Collections.binarySearch(positions, position);
+		if ( pos < 0 ) {
+			positions.add((-pos - 1), position);
+		}
+	}
+}
+
+/**
+Indicate that a time series was appended to the end of the list.
+@param ts time series that was appended
+*/
+public void appended ( TS ts )
+{
+	++__modificationCount;
+	if ( __rebuildNeeded ) {
+		return;
+	}
+	if ( __entryList.size() != (__tslist.size() - 1) ) {
+		__rebuildNeeded = true;
+		return;
+	}
+	addEntry ( __entryList.size(), ts );
+}
+
+/**
+Add an entry for a time series at the end of the entry list.
+*/
+private void addEntry ( int position, TS ts )
+{
+	Entry entry = createEntry ( ts );
+	__entryList.add ( entry );
+	addPosition ( __aliasMap, entry.aliasKey, position );
+	addPosition ( __tsidMap, entry.tsidKey, position );
+	addToPositionMap ( ts, position );
+}
+
+/**
+Add a time series to the position map.
+*/
+private void addToPositionMap ( TS ts, int position )
+{
+	if ( ts == null ) {
+		return;
+	}
+	Integer previous = __positionMap.put ( ts, position );
+	if ( (previous != null) && (previous.intValue() != position) ) {
+		__hasDuplicates = true;
+	}
+}
+
+/**
+Check the time series that were provided to callers since the last check, and update the index
+for time series that have a different alias or identifier than when indexed.
+This is called after each command.  Only reference comparisons are done on the alias and identifier parts.
+If the list itself was provided to a caller, the full list is compared with the index.
+*/
+public void checkAccessed ()
+{
+	// If a rebuild is needed, the rebuild will index the current state
+	if ( !__rebuildNeeded ) {
+		boolean checkAll = __accessedAll || (__entryList.size() != __tslist.size()) ||
+			(__hasDuplicates && !__accessedSet.isEmpty());
+		if ( !checkAll ) {
+			for ( TS ts : __accessedSet ) {
+				Integer position = __positionMap.get ( ts );
+				if ( position == null ) {
+					// Not in the list (e.g., time series only in an ensemble)
+					continue;
+				}
+				int pos = position.intValue();
+				if ( __tslist.get(pos) != ts ) {
+					// List was modified without notification
+					checkAll = true;
+					break;
+				}
+				if ( hasChanged(__entryList.get(pos), ts) ) {
+					reindex ( ts, pos );
+					++__modificationCount;
+				}
+			}
+		}
+		if ( checkAll && hasChanged() ) {
+			__rebuildNeeded = true;
+			++__modificationCount;
+		}
+	}
+	__accessedSet.clear();
+	__accessedAll = false;
+}
+
+/**
+Indicate that the list was cleared.
+*/
+public void cleared ()
+{
+	++__modificationCount;
+	__entryList.clear();
+	__aliasMap.clear();
+	__tsidMap.clear();
+	__positionMap.clear();
+	__hasDuplicates = false;
+	__accessedSet.clear();
+	__accessedAll = false;
+	__rebuildNeeded = false;
+}
+
+/**
+Create an index entry for a time series.
+*/
+private Entry createEntry ( TS ts )
+{
+	Entry entry = new Entry();
+	entry.ts = ts;
+	if ( ts != null ) {
+		entry.alias = ts.getAlias();
+		if ( (entry.alias != null) && (entry.alias.length() > 0) ) {
+			entry.aliasKey = entry.alias.toUpperCase();
+		}
+		entry.tsident = ts.getIdentifier();
+		if ( entry.tsident != null ) {
+			entry.location = entry.tsident.getLocation();
+			entry.source = entry.tsident.getSource();
+			entry.type = entry.tsident.getType();
+			entry.interval = entry.tsident.getInterval();
+			entry.scenario = entry.tsident.getScenario();
+			entry.sequenceID = entry.tsident.getSequenceID();
+			entry.inputType = entry.tsident.getInputType();
+			entry.inputName = entry.tsident.getInputName();
+		}
+		entry.tsidKey = getTSIDKey ( entry.tsident );
+	}
+	return entry;
+}
+
+/**
+Determine whether the list has changed since it was indexed.
+Only reference comparisons are done on the time series, alias, and identifier parts
+so this is fast even for large lists.
+@return true if the list has changed since it was indexed
+*/
+private boolean hasChanged ()
+{
+	int size = __tslist.size();
+	if ( size != __entryList.size() ) {
+		return true;
+	}
+	for ( int i = 0; i < size; i++ ) {
+		if ( hasChanged(__entryList.get(i), __tslist.get(i)) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+/**
+Determine whether a time series in the list is different from its index entry.
+@param entry the index entry for a position in the list
+@param ts the time series at the position in the list
+@return true if the time series is not the same object or its alias or identifier has changed
+*/
+private boolean hasChanged ( Entry entry, TS ts )
+{
+	if ( ts != entry.ts ) {
+		return true;
+	}
+	if ( ts == null ) {
+		return false;
+	}
+	if ( !stringsEqual(ts.getAlias(), entry.alias) ) {
+		return true;
+	}
+	TSIdent tsident = ts.getIdentifier();
+	if ( tsident != entry.tsident ) {
+		return true;
+	}
+	if ( (tsident != null) &&
+		(!stringsEqual(tsident.getLocation(), entry.location) ||
+		!stringsEqual(tsident.getSource(), entry.source) ||
+		!stringsEqual(tsident.getType(), entry.type) ||
+		!stringsEqual(tsident.getInterval(), entry.interval) ||
+		!stringsEqual(tsident.getScenario(), entry.scenario) ||
+		!stringsEqual(tsident.getSequenceID(), entry.sequenceID) ||
+		!stringsEqual(tsident.getInputType(), entry.inputType) ||
+		!stringsEqual(tsident.getInputName(), entry.inputName)) ) {
+		return true;
+	}
+	return false;
+}
+
+/**
+Return the modification count for the list, which changes when time series are added, set, or removed,
+or when the alias or identifier of a time series in the list changes.
+Information derived from the list can be reused as long as the count does not change.
+@return the modification count for the list
+*/
+public long getModificationCount ()
+{
+	updateIfNeeded();
+	return __modificationCount;
+}
+
+/**
+Indicate whether time series or the list were provided to callers since the last call to checkAccessed(),
+in which case the aliases and identifiers may have changed since they were indexed.
+@return true if time series were accessed since the last check
+*/
+public boolean hasAccessed ()
+{
+	return __accessedAll || !__accessedSet.isEmpty();
+}
+
+/**
+Return the key used with the TSID map, which is the upper-case location and data type.
+The key is intentionally coarse (sequence ID, location type, interval, etc. are ignored) so that any identifiers
+that match with TSIdent.equals() have the same key.  Candidates are confirmed with TSIdent.equals().
+@param tsident time series identifier
+@return the key, or null if the identifier is null
+*/
+private String getTSIDKey ( TSIdent tsident )
+{
+	if ( tsident == null ) {
+		return null;
+	}
+	String location = tsident.getLocation();
+	String type = tsident.getType();
+	if ( location == null ) {
+		location = "";
+	}
+	if ( type == null ) {
+		type = "";
+	}
+	// Remove sequence ID and location type, if present
+	int pos = location.indexOf('[');
+	if ( pos >= 0 ) {
+		location = location.substring(0,pos);
+	}
+	pos = location.lastIndexOf(':');
+	if ( pos >= 0 ) {
+		location = location.substring(pos + 1);
+	}
+	StringBuilder b = new StringBuilder(location.length() + type.length() + 1);
+	b.append(location.toUpperCase());
+	b.append('|');
+	b.append(type.toUpperCase());
+	return b.toString();
+}
+
+/**
+Return the position of a time series in the list.  The search is done as follows:
+<ol>
+<li>	If the string matches a time series alias (case-insensitive), return the last matching position.</li>
+<li>	Else, if the string matches a time series identifier (using TSIdent.equals()), return the last matching position.</li>
+<li>	Return -1.</li>
+</ol>
+@param string the alias and/or time series identifier to look for.
+@param sequenceID if specified as non-null and non-blank, the sequence identifier is also checked to find a match.
+@return position in time series list (0 index), or -1 if not in the list.
+*/
+public int indexOf ( String string, String sequenceID )
+{
+	if ( (string == null) || string.equals("") ) {
+		return -1;
+	}
+	boolean checkSequenceID = (sequenceID != null) && !sequenceID.equals("");
+	updateIfNeeded();
+	// First search the aliases
+	List<Integer> positions = __aliasMap.get(string.toUpperCase());
+	if ( positions != null ) {
+		for ( int i = positions.size() - 1; i >= 0; i-- ) {
+			TS ts = __tslist.get(positions.get(i));
+			if ( (ts == null) || !string.equalsIgnoreCase(ts.getAlias()) ) {
+				continue;
+			}
+			if ( !checkSequenceID || sequenceID.equalsIgnoreCase(ts.getSequenceID()) ) {
+				return positions.get(i);
+			}
+		}
+	}
+	// Now search the identifiers
+	TSIdent tsident = null;
+	try {
+		tsident = new TSIdent ( string );
+	}
+	catch ( Exception e ) {
+		// Unable to parse so search the full list, same as original search
+		Message.printDebug ( 2, "TimeSeriesListIndex.indexOf", "Unable to parse \"" + string + "\" - searching full list." );
+		return indexOfTSIDLinear ( string, sequenceID );
+	}
+	positions = __tsidMap.get(getTSIDKey(tsident));
+	if ( positions != null ) {
+		for ( int i = positions.size() - 1; i >= 0; i-- ) {
+			TS ts = __tslist.get(positions.get(i));
+			if ( (ts == null) || !ts.getIdentifier().equals(string) ) {
+				continue;
+			}
+			if ( !checkSequenceID || ts.getSequenceID().equalsIgnoreCase(sequenceID) ) {
+				return positions.get(i);
+			}
+		}
+	}
+	return -1;
+}
+
+/**
+Search the full list for a matching time series identifier, from the end of the list.
+This is used as a fall-back when a search string cannot be parsed into a TSIdent.
+*/
+private int indexOfTSIDLinear ( String string, String sequenceID )
+{
+	boolean checkSequenceID = (sequenceID != null) && !sequenceID.equals("");
+	for ( int i = (__tslist.size() - 1); i >= 0; i-- ) {
+		TS ts = __tslist.get(i);
+		if ( (ts == null) || !ts.getIdentifier().equals(string) ) {
+			continue;
+		}
+		if ( !checkSequenceID || ts.getSequenceID().equalsIgnoreCase(sequenceID) ) {
+			return i;
+		}
+	}
+	return -1;
+}
+
+/**
+Rebuild the index from the list.
+*/
+private void rebuild ()
+{
+	__entryList.clear();
+	__aliasMap.clear();
+	__tsidMap.clear();
+	__positionMap.clear();
+	__hasDuplicates = false;
+	int size = __tslist.size();
+	for ( int i = 0; i < size; i++ ) {
+		addEntry ( i, __tslist.get(i) );
+	}
+	__rebuildNeeded = false;
+}
+
+/**
+Update the index entry for a time series at a position, for example because its alias changed.
+*/
+private void reindex ( TS ts, int position )
+{
+	Entry entry = __entryList.get(position);
+	removePosition ( __aliasMap, entry.aliasKey, position );
+	removePosition ( __tsidMap, entry.tsidKey, position );
+	if ( (entry.ts != null) && (entry.ts != ts) ) {
+		Integer previous = __positionMap.get ( entry.ts );
+		if ( (previous != null) && (previous.intValue() == position) ) {
+			__positionMap.remove ( entry.ts );
+		}
+	}
+	entry = createEntry ( ts );
+	__entryList.set ( position, entry );
+	addPosition ( __aliasMap, entry.aliasKey, position );
+	addPosition ( __tsidMap, entry.tsidKey, position );
+	addToPositionMap ( ts, position );
+}
+
+/**
+Indicate that a time series was removed from the list.
+Positions after the removed time series shift so the index is rebuilt before the next lookup.
+This allows many time series to be removed (e.g., with Free()) without rebuilding for each.
+*/
+public void removed ()
+{
+	++__modificationCount;
+	__rebuildNeeded = true;
+}
+
+/**
+Remove a position from a key's position list.
+*/
+private void removePosition ( Map<String,List<Integer>> map, String key, int position )
+{
+	if ( key == null ) {
+		return;
+	}
+	List<Integer> positions = map.get(key);
+	if ( positions == null ) {
+		return;
+	}
+	int pos = Collections.binarySearch(positions, position);
+	if ( pos >= 0 ) {
+		positions.remove(pos);
+	}
+	if ( positions.size() == 0 ) {
+		map.remove(key);
+	}
+}
+
+/**
+Reset the index to use a new list, for example when the list is replaced in TSEngine.
+@param tslist time series list to index
+*/
+public void reset ( List<TS> tslist )
+{
+	__tslist = tslist;
+	__rebuildNeeded = true;
+	++__modificationCount;
+}
+
+/**
+Indicate that a time series was set at an existing position in the list.
+@param ts time series that was set
+@param position position in the list (0 index)
+*/
+public void set ( TS ts, int position )
+{
+	++__modificationCount;
+	if ( __rebuildNeeded ) {
+		return;
+	}
+	if ( (position >= __entryList.size()) || (__entryList.size() != __tslist.size()) ) {
+		// Set beyond the end of the indexed list (may have added null padding) - rebuild
+		__rebuildNeeded = true;
+		return;
+	}
+	reindex ( ts, position );
+}
+
+/**
+Compare two strings, handling nulls.  Reference comparison is checked first for performance.
+*/
+private boolean stringsEqual ( String s1, String s2 )
+{
+	if ( s1 == s2 ) {
+		return true;
+	}
+	if ( (s1 == null) || (s2 == null) ) {
+		return false;
+	}
+	return s1.equals(s2);
+}
+
+/**
+Rebuild the index, if needed.
+*/
+private void updateIfNeeded ()
+{
+	if ( __rebuildNeeded ) {
+		rebuild();
+	}
+}
+
+}
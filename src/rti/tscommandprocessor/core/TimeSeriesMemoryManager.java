@@ -0,0 +1,600 @@
+// TimeSeriesMemoryManager - limits memory used by time series data by spilling data to a scratch file
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+package rti.tscommandprocessor.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import RTi.TS.IrregularTS;
+import RTi.TS.TS;
+import RTi.TS.TSData;
+import RTi.TS.TSIterator;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
+
+/**
+Memory manager for the data in the time series results list, used when the TimeSeriesMemoryBudget processor property
+is set.  The data size of each time series is tracked and, after each command, if the total exceeds the budget,
+the data for the least recently used time series are written to a scratch file and the data arrays are released.
+The data are read back (a "fault") when the time series is next provided to a caller, and TSEngine must call touch()
+for every time series that it provides from the results list (see TSEngine.readLazyTimeSeriesData()).
+<p>
+A time series data array is released by setting the period to the first date and reallocating the data,
+so that the period in the header always matches the allocated data and a time series that is used without calling
+touch() contains a single missing value rather than causing an error.  The original period is saved and is restored
+when the data are read back.  The identifier and properties are not changed.
+Only regular interval time series are spilled, and time series that are in ensembles are not spilled because
+ensembles provide time series to commands without using TSEngine.  Time series that are removed from the results
+list are forgotten, including any spilled data.
+<p>
+Each time series keeps its extent in the scratch file after the data are read back, so that the data can be spilled
+again to the same place if they fit.  Extents of forgotten time series, and extents that are too small for the data,
+are added to a free list and reused before the scratch file is extended, so that the scratch file does not grow
+when the same data are spilled and read back many times.
+*/
+class TimeSeriesMemoryManager
+{
+
+/**
+Minimum data size for a time series to be spilled, bytes, to avoid spilling many small time series.
+*/
+private static final long MIN_SPILL_BYTES = 64*1024;
+
+/**
+Information about a time series being managed.
+*/
+private static class Entry
+{
+	/**
+	Estimated data size when resident, bytes.
+	*/
+	long bytes = 0;
+
+	/**
+	Last access, from the access counter.
+	*/
+	long lastAccess = 0;
+
+	/**
+	Whether the data have been spilled to the scratch file.
+	Read without the manager lock when the data are read back, while holding the entry lock.
+	*/
+	volatile boolean spilled = false;
+
+	/**
+	Position and length of spilled data in the scratch file.
+	*/
+	long position = 0;
+	int length = 0;
+
+	/**
+	Length of the extent at the position that is reserved for the time series, 0 if none.
+	The extent is kept when the data are read back so that the data can be spilled again to the same place.
+	*/
+	int capacity = 0;
+
+	/**
+	Number of values that were spilled.
+	*/
+	int count = 0;
+
+	/**
+	Whether data flags and durations were spilled.
+	*/
+	boolean hasFlags = false;
+
+	/**
+	Period of the time series when spilled.
+	*/
+	DateTime date1 = null;
+	DateTime date2 = null;
+}
+
+/**
+Budget for resident time series data, bytes, or 0 if memory is not managed.
+*/
+private long __budget = 0;
+
+/**
+Managed time series.
+*/
+private Map<TS,Entry> __entryMap = new IdentityHashMap<TS,Entry>();
+
+/**
+Access counter, used to determine the least recently used time series.
+*/
+private long __accessCounter = 0;
+
+/**
+Scratch file and channel, created when first needed.
+*/
+private File __scratchFile = null;
+private RandomAccessFile __scratchRandomAccessFile = null;
+private FileChannel __scratchChannel = null;
+
+/**
+Free extents in the scratch file (position to length), which are reused before the scratch file is extended.
+*/
+private TreeMap<Long,Long> __freeExtentMap = new TreeMap<Long,Long>();
+
+/**
+End of the extents that have been allocated in the scratch file, where the file is extended.
+*/
+private long __scratchFileEnd = 0;
+
+/**
+Number of time series that are spilled.
+*/
+private int __spilledCount = 0;
+
+/**
+Number of times that time series data were spilled, since the manager was created.
+*/
+private long __spillTotal = 0;
+
+/**
+Number of times that spilled time series data were read back, since the manager was created.
+*/
+private long __faultTotal = 0;
+
+/**
+Construct the memory manager.
+*/
+TimeSeriesMemoryManager ()
+{
+}
+
+/**
+Allocate an extent in the scratch file, reusing the first free extent that is large enough.
+@param length length of the extent, bytes
+@return the position of the extent
+*/
+private long allocateExtent ( int length )
+{
+	for ( Map.Entry<Long,Long> extent : __freeExtentMap.entrySet() ) {
+		long position = extent.getKey();
+		long extentLength = extent.getValue();
+		if ( extentLength >= length ) {
+			__freeExtentMap.remove ( position );
+			if ( extentLength > length ) {
+				__freeExtentMap.put ( position + length, extentLength - length );
+			}
+			return position;
+		}
+	}
+	long position = __scratchFileEnd;
+	__scratchFileEnd += length;
+	return position;
+}
+
+/**
+Check the resident time series data against the budget, spilling the least recently used time series if necessary.
+This should be called between commands.
+@param tslist the time series results list
+@param excludeSet time series that must not be spilled (e.g., time series in ensembles)
+*/
+synchronized void checkBudget ( List<TS> tslist, Set<TS> excludeSet )
+{	String routine = getClass().getSimpleName() + ".checkBudget";
+	if ( __budget <= 0 ) {
+		return;
+	}
+	// Add time series that are new and update the size of resident time series
+	Map<TS,Entry> entryMap = new IdentityHashMap<TS,Entry>();
+	long residentBytes = 0;
+	for ( int i = 0; i < tslist.size(); i++ ) {
+		TS ts = tslist.get(i);
+		if ( (ts == null) || entryMap.containsKey(ts) ) {
+			continue;
+		}
+		Entry entry = __entryMap.remove ( ts );
+		if ( entry == null ) {
+			entry = new Entry();
+			entry.lastAccess = ++__accessCounter;
+		}
+		if ( !entry.spilled ) {
+			entry.bytes = getDataBytes ( ts );
+			residentBytes += entry.bytes;
+		}
+		entryMap.put ( ts, entry );
+	}
+	// Time series that are no longer in the list are forgotten and their extents are freed.
+	// The entry lock waits for data that are being read back so that the extent is not reused during the read.
+	for ( Entry entry : __entryMap.values() ) {
+		synchronized ( entry ) {
+			if ( entry.spilled ) {
+				--__spilledCount;
+				entry.spilled = false;
+			}
+			freeExtent ( entry.position, entry.capacity );
+			entry.capacity = 0;
+		}
+	}
+	__entryMap = entryMap;
+	if ( __spilledCount == 0 ) {
+		truncateScratchFile();
+	}
+	// Spill least recently used time series until within the budget
+	while ( residentBytes > __budget ) {
+		TS lruTS = null;
+		Entry lruEntry = null;
+		for ( Map.Entry<TS,Entry> mapEntry : __entryMap.entrySet() ) {
+			Entry entry = mapEntry.getValue();
+			if ( entry.spilled || (entry.bytes < MIN_SPILL_BYTES) || excludeSet.contains(mapEntry.getKey()) ) {
+				continue;
+			}
+			if ( (lruEntry == null) || (entry.lastAccess < lruEntry.lastAccess) ) {
+				lruTS = mapEntry.getKey();
+				lruEntry = entry;
+			}
+		}
+		if ( lruEntry == null ) {
+			// Nothing else can be spilled
+			break;
+		}
+		if ( !isSpillable(lruTS) ) {
+			// Do not check again
+			lruEntry.bytes = 0;
+			continue;
+		}
+		try {
+			spill ( lruTS, lruEntry );
+			residentBytes -= lruEntry.bytes;
+		}
+		catch ( Exception e ) {
+			Message.printWarning ( 3, routine, "Error spilling data for \"" + lruTS.getIdentifierString() +
+				"\" to scratch file - will not spill more data (" + e + ")." );
+			Message.printWarning ( 3, routine, e );
+			break;
+		}
+	}
+}
+
+/**
+Forget all time series and delete the scratch file.  Spilled data are discarded.
+*/
+synchronized void clear ()
+{
+	__entryMap.clear();
+	__spilledCount = 0;
+	__freeExtentMap.clear();
+	__scratchFileEnd = 0;
+	if ( __scratchChannel != null ) {
+		try {
+			__scratchRandomAccessFile.close();
+		}
+		catch ( IOException e ) {
+			// Ignore
+		}
+		__scratchFile.delete();
+		__scratchChannel = null;
+		__scratchRandomAccessFile = null;
+		__scratchFile = null;
+	}
+}
+
+/**
+Add an extent to the free extents, merging with adjacent free extents.
+An extent at the end of the allocated extents is removed from the allocated extents instead.
+@param position position of the extent
+@param length length of the extent, bytes, or 0 if no extent
+*/
+private void freeExtent ( long position, long length )
+{
+	if ( length <= 0 ) {
+		return;
+	}
+	Map.Entry<Long,Long> previous = __freeExtentMap.floorEntry ( position );
+	if ( (previous != null) && ((previous.getKey() + previous.getValue()) == position) ) {
+		__freeExtentMap.remove ( previous.getKey() );
+		position = previous.getKey();
+		length += previous.getValue();
+	}
+	Long nextLength = __freeExtentMap.remove ( position + length );
+	if ( nextLength != null ) {
+		length += nextLength;
+	}
+	if ( (position + length) == __scratchFileEnd ) {
+		__scratchFileEnd = position;
+	}
+	else {
+		__freeExtentMap.put ( position, length );
+	}
+}
+
+/**
+Return the memory budget.
+@return the memory budget for time series data, bytes, or 0 if memory is not managed
+*/
+synchronized long getBudget ()
+{
+	return __budget;
+}
+
+/**
+Estimate the memory used by time series data, bytes.
+*/
+private long getDataBytes ( TS ts )
+{
+	if ( !ts.hasData() ) {
+		return 0;
+	}
+	long bytesPerValue = 8;
+	if ( ts.hasDataFlags() ) {
+		// Reference to flag string
+		bytesPerValue += 8;
+	}
+	return ts.getDataSize()*bytesPerValue;
+}
+
+/**
+Return the number of times that spilled time series data were read back.
+@return the number of times that spilled time series data were read back
+*/
+synchronized long getFaultTotal ()
+{
+	return __faultTotal;
+}
+
+/**
+Return the number of time series that are currently spilled.
+@return the number of time series that are currently spilled
+*/
+synchronized int getSpilledCount ()
+{
+	return __spilledCount;
+}
+
+/**
+Return the number of times that time series data were spilled.
+@return the number of times that time series data were spilled
+*/
+synchronized long getSpillTotal ()
+{
+	return __spillTotal;
+}
+
+/**
+Return the size of the scratch file, bytes.
+@return the size of the scratch file, bytes
+*/
+synchronized long getScratchFileSize ()
+{
+	if ( __scratchChannel == null ) {
+		return 0;
+	}
+	try {
+		return __scratchChannel.size();
+	}
+	catch ( IOException e ) {
+		return 0;
+	}
+}
+
+/**
+Indicate whether any time series are spilled, used to avoid checking time series when nothing is spilled.
+@return true if any time series are spilled
+*/
+synchronized boolean hasSpilledTimeSeries ()
+{
+	return __spilledCount > 0;
+}
+
+/**
+Determine whether a time series can be spilled.
+*/
+private boolean isSpillable ( TS ts )
+{
+	if ( (ts instanceof IrregularTS) || (ts.getDataIntervalBase() == TimeInterval.IRREGULAR) ) {
+		return false;
+	}
+	return ts.hasData() && (ts.getDate1() != null) && (ts.getDate2() != null);
+}
+
+/**
+Read data from the scratch file.
+*/
+private byte [] readScratchFile ( long position, int length )
+throws IOException
+{
+	ByteBuffer buffer = ByteBuffer.allocate ( length );
+	while ( buffer.hasRemaining() ) {
+		if ( __scratchChannel.read(buffer, position + buffer.position()) < 0 ) {
+			throw new IOException ( "Unexpected end of scratch file." );
+		}
+	}
+	return buffer.array();
+}
+
+/**
+Set the memory budget.  If the budget is set to 0, spilled time series are not read back until accessed.
+@param budget the memory budget for time series data, bytes, or 0 to not manage memory
+*/
+synchronized void setBudget ( long budget )
+{
+	__budget = budget;
+}
+
+/**
+Write the data for a time series to the scratch file and release the data array.
+*/
+private void spill ( TS ts, Entry entry )
+throws IOException
+{
+	ByteArrayOutputStream bos = new ByteArrayOutputStream ( (int)Math.min(entry.bytes + 1024, Integer.MAX_VALUE - 8) );
+	DataOutputStream out = new DataOutputStream ( bos );
+	boolean hasFlags = ts.hasDataFlags();
+	TSIterator tsi = ts.iterator();
+	TSData tsdata;
+	int count = 0;
+	while ( (tsdata = tsi.next()) != null ) {
+		out.writeDouble ( tsdata.getDataValue() );
+		if ( hasFlags ) {
+			String flag = tsdata.getDataFlag();
+			out.writeUTF ( (flag == null) ? "" : flag );
+			out.writeInt ( tsdata.getDuration() );
+		}
+		++count;
+	}
+	out.flush();
+	byte [] bytes = bos.toByteArray();
+	if ( __scratchChannel == null ) {
+		__scratchFile = File.createTempFile ( "TSEngine-", ".spill" );
+		__scratchFile.deleteOnExit();
+		__scratchRandomAccessFile = new RandomAccessFile ( __scratchFile, "rw" );
+		__scratchChannel = __scratchRandomAccessFile.getChannel();
+	}
+	if ( bytes.length > entry.capacity ) {
+		// The data do not fit in the extent used when previously spilled
+		freeExtent ( entry.position, entry.capacity );
+		entry.capacity = 0;
+		entry.position = allocateExtent ( bytes.length );
+		entry.capacity = bytes.length;
+	}
+	long position = entry.position;
+	ByteBuffer buffer = ByteBuffer.wrap ( bytes );
+	while ( buffer.hasRemaining() ) {
+		__scratchChannel.write ( buffer, position + buffer.position() );
+	}
+	entry.length = bytes.length;
+	entry.count = count;
+	entry.hasFlags = hasFlags;
+	entry.date1 = new DateTime ( ts.getDate1() );
+	entry.date2 = new DateTime ( ts.getDate2() );
+	// Release the data array by allocating for one value - the period is restored when the data are read back
+	ts.setDate2 ( new DateTime(entry.date1) );
+	ts.allocateDataSpace();
+	entry.spilled = true;
+	++__spilledCount;
+	++__spillTotal;
+}
+
+/**
+Indicate that a time series is being accessed, reading the data back from the scratch file if spilled.
+The scratch file is read without holding the manager lock, so that other time series can be accessed
+and checked at the same time, and the entry lock ensures that only one thread reads the data for a time series.
+If the data cannot be read, the time series is restored to its original period with missing data.
+@param ts the time series being accessed
+@exception IOException if the spilled data cannot be read
+*/
+void touch ( TS ts )
+throws IOException
+{
+	Entry entry = null;
+	synchronized ( this ) {
+		entry = __entryMap.get ( ts );
+		if ( entry == null ) {
+			return;
+		}
+		entry.lastAccess = ++__accessCounter;
+		if ( !entry.spilled ) {
+			return;
+		}
+	}
+	IOException readException = null;
+	synchronized ( entry ) {
+		if ( !entry.spilled ) {
+			// Read by another thread
+			return;
+		}
+		try {
+			byte [] bytes = readScratchFile ( entry.position, entry.length );
+			DataInputStream in = new DataInputStream ( new ByteArrayInputStream(bytes) );
+			ts.setDate1 ( new DateTime(entry.date1) );
+			ts.setDate2 ( new DateTime(entry.date2) );
+			ts.allocateDataSpace();
+			if ( entry.hasFlags ) {
+				ts.allocateDataFlagSpace ( null, false );
+			}
+			TSIterator tsi = ts.iterator();
+			TSData tsdata;
+			for ( int i = 0; (i < entry.count) && ((tsdata = tsi.next()) != null); i++ ) {
+				double value = in.readDouble();
+				if ( entry.hasFlags ) {
+					String flag = in.readUTF();
+					ts.setDataValue ( tsdata.getDate(), value, flag, in.readInt() );
+				}
+				else {
+					ts.setDataValue ( tsdata.getDate(), value );
+				}
+			}
+		}
+		catch ( Exception e ) {
+			readException = new IOException ( "Error reading spilled data for \"" + ts.getIdentifierString() +
+				"\" from scratch file (" + e + ").", e );
+			// Restore the original period with missing data so that the header matches the data
+			ts.setDate1 ( new DateTime(entry.date1) );
+			ts.setDate2 ( new DateTime(entry.date2) );
+			ts.allocateDataSpace();
+		}
+		entry.spilled = false;
+	}
+	synchronized ( this ) {
+		// The entry is not counted if it was forgotten (removed from the results list) while the data were read
+		if ( __entryMap.get(ts) == entry ) {
+			--__spilledCount;
+			if ( __spilledCount == 0 ) {
+				truncateScratchFile();
+			}
+		}
+		++__faultTotal;
+	}
+	if ( readException != null ) {
+		throw readException;
+	}
+}
+
+/**
+Truncate the scratch file when no time series are spilled, so that space is reused.
+All extents are released because no time series data are in the scratch file.
+*/
+private void truncateScratchFile ()
+{
+	__freeExtentMap.clear();
+	__scratchFileEnd = 0;
+	for ( Entry entry : __entryMap.values() ) {
+		entry.capacity = 0;
+	}
+	if ( __scratchChannel != null ) {
+		try {
+			__scratchChannel.truncate ( 0 );
+		}
+		catch ( IOException e ) {
+			// Space will be reused when the manager is cleared
+		}
+	}
+}
+
+}
@@ -0,0 +1,122 @@
+// DelimitedLineTokenizerBenchmark - benchmark comparing DelimitedLineTokenizer with StringUtil.breakStringList()
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.delimited;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.String.StringUtil;
+
+/**
+Benchmark comparing the DelimitedLineTokenizer used by ReadDelimitedFile() with the previous code, which
+split each line with StringUtil.breakStringList() and parsed values with Double.parseDouble().
+Each operation tokenizes a block of sensor export lines (date/time followed by values) and sums the values.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DelimitedLineTokenizerBenchmark
+{
+
+/**
+Number of lines in the block.
+*/
+private static final int LINE_COUNT = 1000;
+
+/**
+Number of value columns on each line.
+*/
+@Param({"1", "10", "50"})
+public int valueCount;
+
+/**
+Lines to tokenize.
+*/
+private String [] __lines = null;
+
+/**
+Tokenizer, reused for each line as in ReadDelimitedFile().
+*/
+private DelimitedLineTokenizer __tokenizer = null;
+
+@Setup
+public void setup ()
+{
+	Random random = new Random ( 1 );
+	__lines = new String[LINE_COUNT];
+	for ( int i = 0; i < LINE_COUNT; i++ ) {
+		StringBuilder b = new StringBuilder();
+		b.append ( String.format(Locale.US, "2000-01-%02d %02d:%02d", 1 + (i/1440)%28, (i/60)%24, i%60) );
+		for ( int j = 0; j < valueCount; j++ ) {
+			b.append ( ',' );
+			b.append ( String.format(Locale.US, "%.3f", random.nextDouble()*1000.0) );
+		}
+		__lines[i] = b.toString();
+	}
+	__tokenizer = new DelimitedLineTokenizer ( ",", false );
+}
+
+@Benchmark
+public double breakStringList ()
+{
+	double sum = 0.0;
+	for ( String line : __lines ) {
+		List<String> tokens = StringUtil.breakStringList ( line, ",", StringUtil.DELIM_ALLOW_STRINGS );
+		int size = tokens.size();
+		for ( int i = 1; i < size; i++ ) {
+			sum += Double.parseDouble ( tokens.get(i).trim() );
+		}
+	}
+	return sum;
+}
+
+@Benchmark
+public double tokenizer ()
+{
+	double sum = 0.0;
+	for ( String line : __lines ) {
+		int size = __tokenizer.tokenize ( line );
+		for ( int i = 1; i < size; i++ ) {
+			double value = __tokenizer.parseSimpleDouble ( i );
+			if ( Double.isNaN(value) ) {
+				value = Double.parseDouble ( __tokenizer.getTrimmedToken(i) );
+			}
+			sum += value;
+		}
+	}
+	return sum;
+}
+
+}
@@ -0,0 +1,114 @@
+// BenchmarkData - synthetic time series lists and command files for benchmarks
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.TS.DayTS;
+import RTi.TS.TS;
+
+/**
+Synthetic time series lists and command files for benchmarks.
+The data are generated rather than read so that results can be compared between machines and versions.
+*/
+class BenchmarkData
+{
+
+/**
+Number of commands in each group written by writeCommandFile().
+*/
+private static final int COMMANDS_PER_GROUP = 4;
+
+/**
+Create a list of time series with identifiers "LOC00000.USGS.Streamflow.Day" and aliases "Flow00000".
+Data are not allocated because the benchmarks only look up and match time series.
+@param size number of time series to create
+@return list of time series
+*/
+static List<TS> createTSList ( int size )
+throws Exception
+{
+	List<TS> tslist = new ArrayList<TS>(size);
+	for ( int i = 0; i < size; i++ ) {
+		TS ts = new DayTS();
+		ts.setIdentifier ( getTSID(i) );
+		ts.setAlias ( getAlias(i) );
+		tslist.add ( ts );
+	}
+	return tslist;
+}
+
+/**
+Return the alias used for a time series created by createTSList().
+@param i position of the time series in the list
+@return the alias
+*/
+static String getAlias ( int i )
+{
+	return String.format("Flow%05d", i);
+}
+
+/**
+Return the time series identifier used for a time series created by createTSList().
+@param i position of the time series in the list
+@return the time series identifier
+*/
+static String getTSID ( int i )
+{
+	return String.format("LOC%05d.USGS.Streamflow.Day", i);
+}
+
+/**
+Write a command file that creates, scales and references time series, similar to a large generated workflow.
+Each group of commands sets a property, creates a time series, and scales it using the property,
+so that a run exercises the command factory, property expansion and time series lookup.
+@param file command file to write
+@param commandCount number of commands to write, rounded up to a full group
+*/
+static void writeCommandFile ( File file, int commandCount )
+throws IOException
+{
+	PrintWriter out = new PrintWriter ( file, "UTF-8" );
+	try {
+		out.println ( "# Generated command file with " + commandCount + " commands for benchmarks" );
+		out.println ( "SetOutputPeriod(OutputStart=\"2000-01-01\",OutputEnd=\"2000-12-31\")" );
+		int groupCount = (commandCount + COMMANDS_PER_GROUP - 1)/COMMANDS_PER_GROUP;
+		for ( int i = 0; i < groupCount; i++ ) {
+			out.println ( "# Group " + i );
+			out.println ( "SetProperty(PropertyName=\"Factor\",PropertyType=Double,PropertyValue=\"" + (1.0 + (i%10)/10.0) + "\")" );
+			out.println ( "NewTimeSeries(Alias=\"" + getAlias(i) + "\",NewTSID=\"" + getTSID(i) +
+				"\",Description=\"Generated\",SetStart=\"2000-01-01\",SetEnd=\"2000-12-31\",Units=\"CFS\",InitialValue=1.0)" );
+			out.println ( "Scale(TSList=AllMatchingTSID,TSID=\"" + getAlias(i) + "\",ScaleValue=\"${Factor}\")" );
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+}
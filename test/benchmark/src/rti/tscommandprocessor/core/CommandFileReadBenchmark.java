@@ -0,0 +1,116 @@
+// CommandFileReadBenchmark - benchmark for reading large generated command files
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import RTi.Util.Message.Message;
+
+/**
+Benchmark for reading large generated command files, which is mostly time spent in TSCommandFactory.
+The factory benchmark creates each command on the calling thread, and the read benchmark uses
+readCommandFile(), which creates and initializes commands on worker threads for large files.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommandFileReadBenchmark
+{
+
+/**
+Number of commands in the generated command file, including comments.
+*/
+@Param({"10000", "100000"})
+public int commandCount;
+
+/**
+Generated command file.
+*/
+private File __commandFile = null;
+
+/**
+Lines in the command file.
+*/
+private List<String> __lines = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	// Avoid measuring warnings printed to the console
+	Message.setWarningLevel ( Message.TERM_OUTPUT, 0 );
+	__commandFile = File.createTempFile ( "CommandFileReadBenchmark-", ".tstool" );
+	BenchmarkData.writeCommandFile ( __commandFile, commandCount );
+	__lines = Files.readAllLines ( __commandFile.toPath(), Charset.forName("UTF-8") );
+}
+
+@TearDown
+public void tearDown ()
+{
+	if ( __commandFile != null ) {
+		__commandFile.delete();
+	}
+}
+
+@Benchmark
+public void factory ( Blackhole blackhole )
+throws Exception
+{
+	TSCommandFactory factory = new TSCommandFactory();
+	for ( String line : __lines ) {
+		blackhole.consume ( factory.newCommand(line, true) );
+	}
+}
+
+@Benchmark
+public TSCommandProcessor readCommandFile ()
+throws Exception
+{
+	TSCommandProcessor processor = new TSCommandProcessor();
+	processor.readCommandFile ( __commandFile.getCanonicalPath(), true, false, false );
+	return processor;
+}
+
+}
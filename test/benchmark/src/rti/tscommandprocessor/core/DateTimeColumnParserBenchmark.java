@@ -0,0 +1,106 @@
+// DateTimeColumnParserBenchmark - benchmark comparing DateTimeColumnParser with the general date/time parsers
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeParser;
+
+/**
+Benchmark comparing DateTimeColumnParser with DateTimeParser (if a format is specified) and DateTime.parse()
+(if no format is specified), as used by ReadDelimitedFile() and TableToTimeSeries() for each row.
+Each operation parses a column of 15-minute date/time strings, reusing the previous result as the readers do.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DateTimeColumnParserBenchmark
+{
+
+/**
+Number of strings in the column.
+*/
+private static final int ROW_COUNT = 1000;
+
+/**
+Date/time format, or blank to determine the format from the strings.
+*/
+@Param({"", "C:%Y-%m-%d %H:%M"})
+public String dateTimeFormat;
+
+/**
+Date/time strings to parse.
+*/
+private String [] __strings = null;
+
+@Setup
+public void setup ()
+{
+	__strings = new String[ROW_COUNT];
+	for ( int i = 0; i < ROW_COUNT; i++ ) {
+		int minutes = i*15;
+		__strings[i] = String.format(Locale.US, "2000-01-%02d %02d:%02d", 1 + minutes/1440, (minutes/60)%24, minutes%60);
+	}
+}
+
+@Benchmark
+public int general ()
+throws Exception
+{
+	DateTimeParser dateTimeParser = dateTimeFormat.isEmpty() ? null : new DateTimeParser ( dateTimeFormat );
+	DateTime dt = null;
+	int sum = 0;
+	for ( String s : __strings ) {
+		dt = (dateTimeParser == null) ? DateTime.parse(s) : dateTimeParser.parse(dt, s);
+		sum += dt.getMinute();
+	}
+	return sum;
+}
+
+@Benchmark
+public int column ()
+throws Exception
+{
+	DateTimeColumnParser parser = new DateTimeColumnParser ( dateTimeFormat );
+	DateTime dt = null;
+	int sum = 0;
+	for ( String s : __strings ) {
+		dt = parser.parse ( dt, s );
+		sum += dt.getMinute();
+	}
+	return sum;
+}
+
+}
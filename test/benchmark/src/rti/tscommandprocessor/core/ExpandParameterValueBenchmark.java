@@ -0,0 +1,102 @@
+// ExpandParameterValueBenchmark - benchmark for expanding ${Property} references in command parameters
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.IO.Command;
+import RTi.Util.IO.PropList;
+
+/**
+Benchmark for TSCommandProcessorUtil.expandParameterValue(), which is called for most parameters of
+most commands when commands are run.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpandParameterValueBenchmark
+{
+
+/**
+Processor with the properties that are referenced.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Command passed to the expansion, as when called from a command.
+*/
+private Command __command = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__processor = new TSCommandProcessor();
+	setProperty ( "InputFolder", "C:/Data/Input" );
+	setProperty ( "Scenario", "Baseline" );
+	setProperty ( "Factor", "1.5" );
+	__command = new TSCommandFactory().newCommand (
+		"Scale(TSList=AllMatchingTSID,TSID=\"Flow00001\",ScaleValue=\"${Factor}\")", true );
+}
+
+/**
+Set a processor property as done by SetProperty().
+*/
+private void setProperty ( String name, String value )
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.setUsingObject ( "PropertyName", name );
+	requestParams.setUsingObject ( "PropertyValue", value );
+	__processor.processRequest ( "SetProperty", requestParams );
+}
+
+@Benchmark
+public String noProperties ()
+{
+	return TSCommandProcessorUtil.expandParameterValue ( __processor, __command, "LOC00001.USGS.Streamflow.Day" );
+}
+
+@Benchmark
+public String oneProperty ()
+{
+	return TSCommandProcessorUtil.expandParameterValue ( __processor, __command, "${Factor}" );
+}
+
+@Benchmark
+public String threeProperties ()
+{
+	return TSCommandProcessorUtil.expandParameterValue ( __processor, __command,
+		"${InputFolder}/${Scenario}/Flow-${Factor}.csv" );
+}
+
+}
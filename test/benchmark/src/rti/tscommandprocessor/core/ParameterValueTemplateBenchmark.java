@@ -0,0 +1,142 @@
+// ParameterValueTemplateBenchmark - benchmark comparing parsed and scanned property expansion
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.IO.PropList;
+
+/**
+Benchmark comparing the expansion of ${Property} references using ParameterValueTemplate with the
+scan that expandParameterValue() used before templates were added.
+Both use the current getPropContents(), so the difference is only due to parsing the parameter value.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterValueTemplateBenchmark
+{
+
+/**
+Parameter value to expand.
+*/
+@Param({"LOC00001.USGS.Streamflow.Day", "${Factor}", "${InputFolder}/${Scenario}/Flow-${Factor}.csv",
+	"${WorkingDir}/${Scenario}.csv"})
+public String parameterValue;
+
+/**
+Processor with the properties that are referenced.
+*/
+private TSCommandProcessor __processor = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__processor = new TSCommandProcessor();
+	setProperty ( "InputFolder", "C:/Data/Input" );
+	setProperty ( "Scenario", "Baseline" );
+	setProperty ( "Factor", "1.5" );
+}
+
+/**
+Set a processor property as done by SetProperty().
+*/
+private void setProperty ( String name, String value )
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.setUsingObject ( "PropertyName", name );
+	requestParams.setUsingObject ( "PropertyValue", value );
+	__processor.processRequest ( "SetProperty", requestParams );
+}
+
+/**
+Expand the parameter value by scanning for ${ and }, the same as the original expandParameterValue() code.
+*/
+private String expandScan ( String parameterValue )
+{
+	parameterValue = parameterValue.replace("\\\"", "\"" );
+	parameterValue = parameterValue.replace("\\'", "'" );
+	int searchPos = 0;
+	int foundPos;
+	int foundPosEnd;
+	String propname = null;
+	String delimStart = "${";
+	String delimEnd = "}";
+	while ( searchPos < parameterValue.length() ) {
+		foundPos = parameterValue.indexOf(delimStart, searchPos);
+		foundPosEnd = parameterValue.indexOf(delimEnd, (searchPos + delimStart.length()));
+		if ( (foundPos < 0) && (foundPosEnd < 0)  ) {
+			return parameterValue;
+		}
+		propname = parameterValue.substring((foundPos+2),foundPosEnd);
+		Object propval = null;
+		String propvalString = "";
+		try {
+			propval = __processor.getPropContents ( propname );
+			propvalString = "" + propval;
+		}
+		catch ( Exception e ) {
+			propvalString = delimStart + propname + delimEnd;
+		}
+		if ( propval == null ) {
+			propvalString = delimStart + propname + delimEnd;
+		}
+		StringBuffer b = new StringBuffer();
+		if ( foundPos > 0 ) {
+			b.append ( parameterValue.substring(0,foundPos) );
+		}
+		b.append ( propvalString );
+		if ( parameterValue.length() > (foundPosEnd + 1) ) {
+			b.append ( parameterValue.substring(foundPosEnd + 1) );
+		}
+		parameterValue = b.toString();
+		searchPos = foundPos + propvalString.length();
+	}
+	return parameterValue;
+}
+
+@Benchmark
+public String template ()
+{
+	return TSCommandProcessorUtil.expandParameterValue ( __processor, null, parameterValue );
+}
+
+@Benchmark
+public String scan ()
+{
+	return expandScan ( parameterValue );
+}
+
+}
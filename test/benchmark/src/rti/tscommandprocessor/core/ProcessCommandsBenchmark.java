@@ -0,0 +1,106 @@
+// ProcessCommandsBenchmark - benchmark for reading and running a generated command file
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import RTi.Util.Message.Message;
+
+/**
+Benchmark for reading and running a generated command file, which measures the overall effect of the
+processor changes (command factory, discovery, property expansion, time series lookup).
+Each invocation uses a new processor so that the time series list starts empty.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProcessCommandsBenchmark
+{
+
+/**
+Number of commands in the generated command file.
+*/
+@Param({"10000"})
+public int commandCount;
+
+/**
+Generated command file.
+*/
+private File __commandFile = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	// Avoid measuring warnings printed to the console
+	Message.setWarningLevel ( Message.TERM_OUTPUT, 0 );
+	__commandFile = File.createTempFile ( "ProcessCommandsBenchmark-", ".tstool" );
+	BenchmarkData.writeCommandFile ( __commandFile, commandCount );
+}
+
+@TearDown
+public void tearDown ()
+{
+	if ( __commandFile != null ) {
+		__commandFile.delete();
+	}
+}
+
+@Benchmark
+public TSCommandProcessor readCommandFile ()
+throws Exception
+{
+	TSCommandProcessor processor = new TSCommandProcessor();
+	processor.readCommandFile ( __commandFile.getCanonicalPath(), true, false, true );
+	return processor;
+}
+
+@Benchmark
+public TSCommandProcessor readAndRunCommandFile ()
+throws Exception
+{
+	TSCommandProcessor processor = new TSCommandProcessor();
+	processor.readCommandFile ( __commandFile.getCanonicalPath(), true, false, true );
+	processor.runCommands ( null, null );
+	return processor;
+}
+
+}
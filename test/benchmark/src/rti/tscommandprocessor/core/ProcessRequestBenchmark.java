@@ -0,0 +1,108 @@
+// ProcessRequestBenchmark - benchmark for requests made by commands to the processor
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.IO.CommandProcessorRequestResultsBean;
+import RTi.Util.IO.PropList;
+
+/**
+Benchmark for TSCommandProcessor.processRequest(), which commands use to get time series and properties.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessRequestBenchmark
+{
+
+/**
+Number of time series in the processor.
+*/
+@Param({"1000", "10000"})
+public int size;
+
+/**
+Processor with the time series and properties.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Request parameters, created once as a command would for repeated requests.
+*/
+private PropList __getPropertyParams = null;
+private PropList __getTimeSeriesParams = null;
+private PropList __getTimeSeriesToProcessParams = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__processor = new TSCommandProcessor();
+	__processor.setPropContents ( "TSResultsList", BenchmarkData.createTSList(size) );
+	PropList setParams = new PropList ( "" );
+	setParams.setUsingObject ( "PropertyName", "Factor" );
+	setParams.setUsingObject ( "PropertyValue", "1.5" );
+	__processor.processRequest ( "SetProperty", setParams );
+	__getPropertyParams = new PropList ( "" );
+	__getPropertyParams.set ( "PropertyName", "Factor" );
+	__getTimeSeriesParams = new PropList ( "" );
+	__getTimeSeriesParams.set ( "CommandTag", "Benchmark" );
+	__getTimeSeriesParams.set ( "TSID", BenchmarkData.getAlias(size/2) );
+	__getTimeSeriesToProcessParams = new PropList ( "" );
+	__getTimeSeriesToProcessParams.set ( "TSList", "AllMatchingTSID" );
+	__getTimeSeriesToProcessParams.set ( "TSID", BenchmarkData.getTSID(size/2) );
+}
+
+@Benchmark
+public CommandProcessorRequestResultsBean getProperty ()
+throws Exception
+{
+	return __processor.processRequest ( "GetProperty", __getPropertyParams );
+}
+
+@Benchmark
+public CommandProcessorRequestResultsBean getTimeSeriesForTSID ()
+throws Exception
+{
+	return __processor.processRequest ( "GetTimeSeriesForTSID", __getTimeSeriesParams );
+}
+
+@Benchmark
+public CommandProcessorRequestResultsBean getTimeSeriesToProcess ()
+throws Exception
+{
+	return __processor.processRequest ( "GetTimeSeriesToProcess", __getTimeSeriesToProcessParams );
+}
+
+}
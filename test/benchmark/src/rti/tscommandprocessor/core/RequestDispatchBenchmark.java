@@ -0,0 +1,136 @@
+// RequestDispatchBenchmark - benchmark comparing string requests and typed processor methods
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.TS.TS;
+import RTi.Util.IO.CommandProcessorRequestResultsBean;
+import RTi.Util.IO.PropList;
+import RTi.Util.Table.DataTable;
+
+/**
+Benchmark comparing processRequest(), called with a new PropList as commands do, with the typed methods
+(getTable(), getTimeSeriesForTSID(), getTimeSeriesToProcess()) that do not create request and result objects.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestDispatchBenchmark
+{
+
+/**
+Number of time series and tables in the processor.
+*/
+private static final int SIZE = 1000;
+
+/**
+Processor with the time series and tables.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Alias, TSID and table identifier to look up.
+*/
+private String __alias = null;
+private String __tsid = null;
+private String __tableID = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__processor = new TSCommandProcessor();
+	__processor.setPropContents ( "TSResultsList", BenchmarkData.createTSList(SIZE) );
+	for ( int i = 0; i < SIZE; i++ ) {
+		DataTable table = new DataTable();
+		table.setTableID ( "Table" + i );
+		__processor.setTable ( table );
+	}
+	__alias = BenchmarkData.getAlias(SIZE/2);
+	__tsid = BenchmarkData.getTSID(SIZE/2);
+	__tableID = "Table" + (SIZE/2);
+}
+
+@Benchmark
+public Object requestGetTable ()
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.set ( "TableID", __tableID );
+	CommandProcessorRequestResultsBean bean = __processor.processRequest( "GetTable", requestParams );
+	return bean.getResultsPropList().getContents ( "Table" );
+}
+
+@Benchmark
+public DataTable typedGetTable ()
+{
+	return __processor.getTable ( __tableID );
+}
+
+@Benchmark
+public Object requestGetTimeSeriesForTSID ()
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.set ( "CommandTag", "Benchmark" );
+	requestParams.set ( "TSID", __alias );
+	CommandProcessorRequestResultsBean bean = __processor.processRequest( "GetTimeSeriesForTSID", requestParams );
+	return bean.getResultsPropList().getContents ( "TS" );
+}
+
+@Benchmark
+public TS typedGetTimeSeriesForTSID ()
+throws Exception
+{
+	return __processor.getTimeSeriesForTSID ( "Benchmark", __alias );
+}
+
+@Benchmark
+public Object requestGetTimeSeriesToProcess ()
+throws Exception
+{
+	PropList requestParams = new PropList ( "" );
+	requestParams.set ( "TSList", "AllMatchingTSID" );
+	requestParams.set ( "TSID", __tsid );
+	CommandProcessorRequestResultsBean bean = __processor.processRequest( "GetTimeSeriesToProcess", requestParams );
+	return bean.getResultsPropList().getContents ( "TSToProcessList" );
+}
+
+@Benchmark
+public TimeSeriesToProcess typedGetTimeSeriesToProcess ()
+throws Exception
+{
+	return __processor.getTimeSeriesToProcess ( "AllMatchingTSID", __tsid, null, null );
+}
+
+}
@@ -0,0 +1,89 @@
+// TSCommandFactoryBenchmark - benchmark for creating commands from command strings
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.Util.IO.Command;
+
+/**
+Benchmark for TSCommandFactory.newCommand(), which is called for each line when a command file is read.
+Commands near the start and end of the factory's list of command names are included,
+as well as a comment and an unrecognized command.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TSCommandFactoryBenchmark
+{
+
+/**
+Factory used to create commands.
+*/
+private TSCommandFactory __factory = null;
+
+@Setup
+public void setup ()
+{
+	__factory = new TSCommandFactory();
+}
+
+@Benchmark
+public Command comment ()
+throws Exception
+{
+	return __factory.newCommand ( "# Comment describing the workflow", true );
+}
+
+@Benchmark
+public Command newTimeSeries ()
+throws Exception
+{
+	return __factory.newCommand ( "NewTimeSeries(Alias=\"Flow00001\",NewTSID=\"LOC00001.USGS.Streamflow.Day\"," +
+		"SetStart=\"2000-01-01\",SetEnd=\"2000-12-31\",InitialValue=1.0)", true );
+}
+
+@Benchmark
+public Command writeTimeSeriesToJson ()
+throws Exception
+{
+	return __factory.newCommand ( "WriteTimeSeriesToJson(OutputFile=\"results.json\")", true );
+}
+
+@Benchmark
+public Command unknown ()
+throws Exception
+{
+	return __factory.newCommand ( "NotACommand(Parameter=\"Value\")", true );
+}
+
+}
@@ -0,0 +1,107 @@
+// TSEngineIndexOfBenchmark - benchmark for TSEngine.indexOf() on large time series lists
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.TS.TS;
+
+/**
+Benchmark for TSEngine.indexOf(), which is called by most commands to find time series by alias or identifier.
+Lookups cycle through the list so that matches near the start (the slowest for a backward search) are included.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TSEngineIndexOfBenchmark
+{
+
+/**
+Number of time series in the list.
+*/
+@Param({"1000", "10000", "40000"})
+public int size;
+
+/**
+Engine with the time series list.
+*/
+private TSEngine __tsengine = null;
+
+/**
+Aliases and identifiers to look up.
+*/
+private String [] __aliases = null;
+private String [] __tsids = null;
+
+/**
+Position of the next lookup.
+*/
+private int __next = 0;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	List<TS> tslist = BenchmarkData.createTSList(size);
+	__tsengine = new TSEngine ( new TSCommandProcessor() );
+	__tsengine.setTimeSeriesList ( tslist );
+	__aliases = new String[size];
+	__tsids = new String[size];
+	for ( int i = 0; i < size; i++ ) {
+		__aliases[i] = BenchmarkData.getAlias(i);
+		__tsids[i] = BenchmarkData.getTSID(i);
+	}
+}
+
+@Benchmark
+public int indexOfAlias ()
+{
+	__next = (__next + 7919) % size;
+	return __tsengine.indexOf ( __aliases[__next] );
+}
+
+@Benchmark
+public int indexOfTSID ()
+{
+	__next = (__next + 7919) % size;
+	return __tsengine.indexOf ( __tsids[__next] );
+}
+
+@Benchmark
+public int indexOfNotFound ()
+{
+	return __tsengine.indexOf ( "NOTFOUND.USGS.Streamflow.Day" );
+}
+
+}
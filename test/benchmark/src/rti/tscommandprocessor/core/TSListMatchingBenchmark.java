@@ -0,0 +1,95 @@
+// TSListMatchingBenchmark - benchmark for matching time series to TSList parameters
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.TS.TS;
+
+/**
+Benchmark for TSCommandProcessorUtil.getTSMatchingTSListParameters(), which is used by commands that
+process a list of time series (e.g., TSList=AllMatchingTSID).
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TSListMatchingBenchmark
+{
+
+/**
+Number of time series in the list.
+*/
+@Param({"1000", "10000", "40000"})
+public int size;
+
+/**
+Time series list to match.
+*/
+private List<TS> __tslist = null;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__tslist = BenchmarkData.createTSList(size);
+}
+
+@Benchmark
+public TimeSeriesToProcess allMatchingSingleTSID ()
+{
+	return TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist, null, "AllMatchingTSID",
+		BenchmarkData.getTSID(size/2), null, null );
+}
+
+@Benchmark
+public TimeSeriesToProcess allMatchingWildcard ()
+{
+	return TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist, null, "AllMatchingTSID",
+		"LOC0001*.USGS.Streamflow.Day", null, null );
+}
+
+@Benchmark
+public TimeSeriesToProcess lastMatchingAlias ()
+{
+	return TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist, null, "LastMatchingTSID",
+		BenchmarkData.getAlias(size/2), null, null );
+}
+
+@Benchmark
+public TimeSeriesToProcess allTS ()
+{
+	return TSCommandProcessorUtil.getTSMatchingTSListParameters ( __tslist, null, "AllTS", null, null, null );
+}
+
+}
@@ -0,0 +1,138 @@
+// TimeSeriesListIndexBenchmark - benchmark comparing indexed and linear time series lookup
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import RTi.TS.TS;
+
+/**
+Benchmark comparing TimeSeriesListIndex.indexOf() with the linear search that TSEngine.indexOf() used before
+the index was added.  The indexed lookup cost should not increase with the list size.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeSeriesListIndexBenchmark
+{
+
+/**
+Number of time series in the list.
+*/
+@Param({"1000", "10000", "40000"})
+public int size;
+
+/**
+Time series list and its index.
+*/
+private List<TS> __tslist = null;
+private TimeSeriesListIndex __index = null;
+
+/**
+Aliases and identifiers to look up.
+*/
+private String [] __aliases = null;
+private String [] __tsids = null;
+
+/**
+Position of the next lookup.
+*/
+private int __next = 0;
+
+@Setup
+public void setup ()
+throws Exception
+{
+	__tslist = BenchmarkData.createTSList(size);
+	__index = new TimeSeriesListIndex ( __tslist );
+	__aliases = new String[size];
+	__tsids = new String[size];
+	for ( int i = 0; i < size; i++ ) {
+		__aliases[i] = BenchmarkData.getAlias(i);
+		__tsids[i] = BenchmarkData.getTSID(i);
+	}
+}
+
+/**
+Search the list from the end, the same as the original TSEngine.indexOf() code.
+*/
+private int indexOfLinear ( String string, String sequenceID )
+{
+	boolean checkSequenceID = (sequenceID != null) && !sequenceID.equals("");
+	for ( int i = __tslist.size() - 1; i >= 0; i-- ) {
+		TS ts = __tslist.get(i);
+		if ( (ts != null) && string.equalsIgnoreCase(ts.getAlias()) &&
+			(!checkSequenceID || sequenceID.equalsIgnoreCase(ts.getSequenceID())) ) {
+			return i;
+		}
+	}
+	for ( int i = __tslist.size() - 1; i >= 0; i-- ) {
+		TS ts = __tslist.get(i);
+		if ( (ts != null) && ts.getIdentifier().equals(string) &&
+			(!checkSequenceID || sequenceID.equalsIgnoreCase(ts.getSequenceID())) ) {
+			return i;
+		}
+	}
+	return -1;
+}
+
+@Benchmark
+public int indexedAlias ()
+{
+	__next = (__next + 7919) % size;
+	return __index.indexOf ( __aliases[__next], null );
+}
+
+@Benchmark
+public int linearAlias ()
+{
+	__next = (__next + 7919) % size;
+	return indexOfLinear ( __aliases[__next], null );
+}
+
+@Benchmark
+public int indexedTSID ()
+{
+	__next = (__next + 7919) % size;
+	return __index.indexOf ( __tsids[__next], null );
+}
+
+@Benchmark
+public int linearTSID ()
+{
+	__next = (__next + 7919) % size;
+	return indexOfLinear ( __tsids[__next], null );
+}
+
+}
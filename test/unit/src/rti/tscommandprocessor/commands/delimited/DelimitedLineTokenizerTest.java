@@ -0,0 +1,183 @@
+// DelimitedLineTokenizerTest - unit tests for DelimitedLineTokenizer
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.delimited;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import RTi.Util.String.StringUtil;
+
+/**
+Unit tests for DelimitedLineTokenizer, which must give the same tokens as StringUtil.breakStringList()
+and the same numbers as Double.parseDouble().
+*/
+public class DelimitedLineTokenizerTest
+{
+
+/**
+Comma-delimited lines to test, including empty tokens, whitespace, and quoted strings.
+*/
+private static final String [] COMMA_LINES = {
+	"a,b,c",
+	"2000-01-01,1.5,,2.5",
+	"2000-01-01 12:00, 1.5 , -2.25,M",
+	",leading,empty",
+	"a,,,d",
+	"trailing,",
+	"single",
+	"\"quoted, with comma\",1.0,'single quoted'",
+	"Date,\"Flow, cfs\",Flag"
+};
+
+/**
+Tab-delimited lines to test.
+*/
+private static final String [] TAB_LINES = {
+	"a\tb\tc",
+	"2000-01-01\t1.5\t\t2.5",
+	"a\t\t\td",
+	"\tleading"
+};
+
+/**
+Check that the tokens are the same as from StringUtil.breakStringList().
+*/
+private void checkTokens ( String [] lines, String delim, boolean treatConsecutiveDelimitersAsOne )
+{
+	int breakFlag = StringUtil.DELIM_ALLOW_STRINGS;
+	if ( treatConsecutiveDelimitersAsOne ) {
+		breakFlag |= StringUtil.DELIM_SKIP_BLANKS;
+	}
+	DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer ( delim, treatConsecutiveDelimitersAsOne );
+	for ( String line : lines ) {
+		List<String> expected = StringUtil.breakStringList ( line, delim, breakFlag );
+		int tokenCount = tokenizer.tokenize ( line );
+		assertEquals ( "Token count for \"" + line + "\"", expected.size(), tokenCount );
+		for ( int i = 0; i < tokenCount; i++ ) {
+			assertEquals ( "Token " + i + " for \"" + line + "\"", expected.get(i), tokenizer.getToken(i) );
+			assertEquals ( "Trimmed token " + i + " for \"" + line + "\"", expected.get(i).trim(), tokenizer.getTrimmedToken(i) );
+			assertEquals ( "Empty token " + i + " for \"" + line + "\"", expected.get(i).trim().isEmpty(),
+				tokenizer.isTrimmedTokenEmpty(i) );
+		}
+	}
+}
+
+/**
+Check that a simple number is parsed to exactly the same double as Double.parseDouble().
+*/
+private void checkSimpleDouble ( String s )
+{
+	double value = DelimitedLineTokenizer.parseSimpleDouble ( s, 0, s.length() );
+	assertEquals ( "Bits for \"" + s + "\"", Double.doubleToRawLongBits(Double.parseDouble(s)), Double.doubleToRawLongBits(value) );
+}
+
+/**
+Test that comma-delimited lines give the same tokens as StringUtil.breakStringList().
+*/
+@Test
+public void testCommaTokens () throws Exception
+{
+	checkTokens ( COMMA_LINES, ",", false );
+	checkTokens ( COMMA_LINES, ",", true );
+}
+
+/**
+Test that tab-delimited lines give the same tokens as StringUtil.breakStringList().
+*/
+@Test
+public void testTabTokens () throws Exception
+{
+	checkTokens ( TAB_LINES, "\t", false );
+	checkTokens ( TAB_LINES, "\t", true );
+}
+
+/**
+Test that multiple delimiter characters give the same tokens as StringUtil.breakStringList().
+*/
+@Test
+public void testMultipleDelimiterTokens () throws Exception
+{
+	String [] lines = { "a, b;c", "1.5;;2.5,3.5", "x , ; y" };
+	checkTokens ( lines, ",;", false );
+	checkTokens ( lines, ",;", true );
+}
+
+/**
+Test that simple numbers are parsed to exactly the same doubles as Double.parseDouble().
+*/
+@Test
+public void testParseSimpleDoubleExact () throws Exception
+{
+	String [] values = { "0", "-0", "0.0", "1", "-1", "0.1", "0.3", "1.5", "-2.25", "123.456", "999999999999999",
+		"0.00000000000001", "12345.6789012345", "100", "007.50" };
+	for ( String value : values ) {
+		checkSimpleDouble ( value );
+	}
+	// Random values formatted with different numbers of decimals, as in data files
+	Random random = new Random ( 1 );
+	for ( int i = 0; i < 100000; i++ ) {
+		int decimals = random.nextInt(7);
+		double d = (random.nextDouble() - 0.5)*Math.pow(10, random.nextInt(9));
+		checkSimpleDouble ( String.format(Locale.US, "%." + decimals + "f", d) );
+	}
+}
+
+/**
+Test that values that are not simple numbers return NaN so that the caller uses Double.parseDouble().
+*/
+@Test
+public void testParseSimpleDoubleNotSimple () throws Exception
+{
+	String [] values = { "", "-", ".5", "-.5", "1.", "1e5", "1.5E-3", "+1", "1,000", "NaN", "M", "1.2.3",
+		"1234567890123456", "0.1234567890123456" };
+	for ( String value : values ) {
+		assertTrue ( "NaN for \"" + value + "\"", Double.isNaN(DelimitedLineTokenizer.parseSimpleDouble(value, 0, value.length())) );
+	}
+}
+
+/**
+Test that numbers are parsed from tokens in the line, ignoring surrounding whitespace,
+and that quoted lines return NaN.
+*/
+@Test
+public void testParseSimpleDoubleToken () throws Exception
+{
+	DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer ( ",", false );
+	tokenizer.tokenize ( "2000-01-01, 1.5 ,-2.25,,1e3" );
+	assertTrue ( Double.isNaN(tokenizer.parseSimpleDouble(0)) );
+	assertEquals ( 1.5, tokenizer.parseSimpleDouble(1), 0.0 );
+	assertEquals ( -2.25, tokenizer.parseSimpleDouble(2), 0.0 );
+	assertTrue ( Double.isNaN(tokenizer.parseSimpleDouble(3)) );
+	assertTrue ( Double.isNaN(tokenizer.parseSimpleDouble(4)) );
+	tokenizer.tokenize ( "\"2000-01-01\",1.5" );
+	assertTrue ( Double.isNaN(tokenizer.parseSimpleDouble(1)) );
+}
+
+}
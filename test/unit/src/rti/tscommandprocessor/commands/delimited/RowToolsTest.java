@@ -0,0 +1,142 @@
+// RowToolsTest - unit tests for RowTools
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.commands.delimited;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import RTi.Util.Time.DateTime;
+
+/**
+Unit tests for RowTools conversions between row values, DateTime, and milliseconds.
+*/
+public class RowToolsTest
+{
+
+/**
+Create a DateTime with the given parts.
+*/
+private DateTime createDateTime ( int year, int month, int day, int hour, int minute, int second, int hsecond )
+{
+	DateTime dt = new DateTime();
+	dt.setDay ( 1 );
+	dt.setYear ( year );
+	dt.setMonth ( month );
+	dt.setDay ( day );
+	dt.setHour ( hour );
+	dt.setMinute ( minute );
+	dt.setSecond ( second );
+	dt.setHSecond ( hsecond );
+	return dt;
+}
+
+/**
+Test that missing values are detected.
+*/
+@Test
+public void testIsMissing () throws Exception
+{
+	assertTrue ( RowTools.isMissing(null) );
+	assertTrue ( RowTools.isMissing("") );
+	assertTrue ( RowTools.isMissing(" \t ") );
+	assertFalse ( RowTools.isMissing("0") );
+	assertFalse ( RowTools.isMissing(" x ") );
+	assertFalse ( RowTools.isMissing(Double.valueOf(1.0)) );
+}
+
+/**
+Test conversion of numbers and strings to double.
+*/
+@Test
+public void testToDouble () throws Exception
+{
+	assertEquals ( 1.5, RowTools.toDouble(Double.valueOf(1.5)), 0.0 );
+	assertEquals ( 3.0, RowTools.toDouble(Integer.valueOf(3)), 0.0 );
+	assertEquals ( -2.25, RowTools.toDouble("-2.25"), 0.0 );
+	try {
+		RowTools.toDouble ( null );
+		fail ( "Expected exception for null" );
+	}
+	catch ( IllegalArgumentException e ) {
+		// Expected
+	}
+}
+
+/**
+Test that DateTime is converted to the same milliseconds as a UTC calendar, and that
+setEpochMillis() sets the same parts, for dates before and after 1970 including leap days.
+*/
+@Test
+public void testEpochMillisRoundTrip () throws Exception
+{
+	GregorianCalendar calendar = new GregorianCalendar ( TimeZone.getTimeZone("UTC") );
+	calendar.clear();
+	calendar.set ( 1900, Calendar.JANUARY, 1, 0, 0, 0 );
+	DateTime dt = new DateTime();
+	// Step by a little more than a day so that all hours are tested
+	for ( int i = 0; i < 80000; i++ ) {
+		int year = calendar.get(Calendar.YEAR);
+		int month = calendar.get(Calendar.MONTH) + 1;
+		int day = calendar.get(Calendar.DAY_OF_MONTH);
+		int hour = calendar.get(Calendar.HOUR_OF_DAY);
+		int minute = calendar.get(Calendar.MINUTE);
+		int second = calendar.get(Calendar.SECOND);
+		long millis = RowTools.toEpochMillis ( createDateTime(year, month, day, hour, minute, second, 50) );
+		assertEquals ( "Milliseconds for " + calendar.getTime(), calendar.getTimeInMillis() + 500, millis );
+		RowTools.setEpochMillis ( dt, millis );
+		assertEquals ( year, dt.getYear() );
+		assertEquals ( month, dt.getMonth() );
+		assertEquals ( day, dt.getDay() );
+		assertEquals ( hour, dt.getHour() );
+		assertEquals ( minute, dt.getMinute() );
+		assertEquals ( second, dt.getSecond() );
+		assertEquals ( 50, dt.getHSecond() );
+		calendar.add ( Calendar.SECOND, 86400 + 3600 + 61 );
+	}
+}
+
+/**
+Test that strings are converted to the same milliseconds as the parsed DateTime.
+*/
+@Test
+public void testToEpochMillisString () throws Exception
+{
+	String [] strings = { "1970-01-01", "2000-02-29", "2000-02-29 23", "2012-06-30 12:30", "2012-06-30 12:30:45",
+		"1969-12-31 23:59:59" };
+	for ( String s : strings ) {
+		assertEquals ( s, RowTools.toEpochMillis(DateTime.parse(s)), RowTools.toEpochMillis(s) );
+	}
+	assertEquals ( 0L, RowTools.toEpochMillis("1970-01-01") );
+	assertEquals ( 951782400000L, RowTools.toEpochMillis("2000-02-29") );
+}
+
+}
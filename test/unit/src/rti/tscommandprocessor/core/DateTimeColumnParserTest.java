@@ -0,0 +1,212 @@
+// DateTimeColumnParserTest - unit tests for DateTimeColumnParser
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.DateTimeParser;
+
+/**
+Unit tests for DateTimeColumnParser, which must give the same results and errors as DateTimeParser
+(if a format is specified) or DateTime.parse() (if no format is specified).
+*/
+public class DateTimeColumnParserTest
+{
+
+/**
+Create hourly date/time strings in the form YYYY-MM-DD hh:mm, crossing day, month, and year boundaries,
+including a leap day.
+*/
+private List<String> createHourlyStrings ( String start, int count )
+{
+	List<String> strings = new ArrayList<String>();
+	int year = Integer.parseInt(start.substring(0,4));
+	int month = Integer.parseInt(start.substring(5,7));
+	int day = Integer.parseInt(start.substring(8,10));
+	int hour = 0;
+	for ( int i = 0; i < count; i++ ) {
+		strings.add ( String.format(Locale.US, "%04d-%02d-%02d %02d:00", year, month, day, hour) );
+		if ( ++hour == 24 ) {
+			hour = 0;
+			if ( ++day > getDaysInMonth(year, month) ) {
+				day = 1;
+				if ( ++month > 12 ) {
+					month = 1;
+					++year;
+				}
+			}
+		}
+	}
+	return strings;
+}
+
+/**
+Return the number of days in a month.
+*/
+private int getDaysInMonth ( int year, int month )
+{
+	if ( month == 2 ) {
+		return ((year%4 == 0) && ((year%100 != 0) || (year%400 == 0))) ? 29 : 28;
+	}
+	return ((month == 4) || (month == 6) || (month == 9) || (month == 11)) ? 30 : 31;
+}
+
+/**
+Check that the parser gives the same results and errors as the general parser for a list of strings.
+@param dateTimeFormat format for the parsers, or null to compare with DateTime.parse()
+@param strings strings to parse
+@param reuse if true, pass the previous result to the parser to reuse
+*/
+private void checkParse ( String dateTimeFormat, List<String> strings, boolean reuse )
+{
+	DateTimeColumnParser parser = new DateTimeColumnParser ( dateTimeFormat );
+	DateTimeParser dateTimeParser = (dateTimeFormat == null) ? null : new DateTimeParser ( dateTimeFormat );
+	DateTime previous = null;
+	for ( String s : strings ) {
+		DateTime expected = null;
+		try {
+			expected = (dateTimeParser == null) ? DateTime.parse(s) : dateTimeParser.parse(null, s);
+		}
+		catch ( Exception e ) {
+			expected = null;
+		}
+		DateTime actual = null;
+		try {
+			actual = parser.parse ( (reuse ? previous : null), s );
+		}
+		catch ( Exception e ) {
+			if ( expected != null ) {
+				fail ( "Parse of \"" + s + "\" failed but general parser gives " + expected + " (" + e + ")" );
+			}
+			continue;
+		}
+		if ( expected == null ) {
+			fail ( "Parse of \"" + s + "\" gives " + actual + " but general parser fails" );
+		}
+		assertEquals ( "Result for \"" + s + "\"", expected.toString(), actual.toString() );
+		assertEquals ( "Precision for \"" + s + "\"", expected.getPrecision(), actual.getPrecision() );
+		assertEquals ( "Hour for \"" + s + "\"", expected.getHour(), actual.getHour() );
+		assertEquals ( "Minute for \"" + s + "\"", expected.getMinute(), actual.getMinute() );
+		assertEquals ( "Second for \"" + s + "\"", expected.getSecond(), actual.getSecond() );
+		previous = actual;
+	}
+}
+
+/**
+Test strings without a format, which are compiled from the first string.
+*/
+@Test
+public void testNoFormat () throws Exception
+{
+	List<String> strings = createHourlyStrings ( "1999-12-30", 24*70 );
+	checkParse ( null, strings, false );
+	checkParse ( null, strings, true );
+	List<String> days = new ArrayList<String>();
+	for ( String s : strings ) {
+		days.add ( s.substring(0,10) );
+	}
+	checkParse ( null, days, false );
+	checkParse ( null, days, true );
+	List<String> months = new ArrayList<String>();
+	for ( String s : strings ) {
+		months.add ( s.substring(0,7) );
+	}
+	checkParse ( null, months, true );
+}
+
+/**
+Test strings with a C-style format that is compiled.
+*/
+@Test
+public void testFormat () throws Exception
+{
+	List<String> strings = createHourlyStrings ( "2003-12-30", 24*70 );
+	checkParse ( "C:%Y-%m-%d %H:%M", strings, false );
+	checkParse ( "C:%Y-%m-%d %H:%M", strings, true );
+	List<String> usStrings = new ArrayList<String>();
+	for ( String s : strings ) {
+		// MM/DD/YYYY hh
+		usStrings.add ( s.substring(5,7) + "/" + s.substring(8,10) + "/" + s.substring(0,4) + " " + s.substring(11,13) );
+	}
+	checkParse ( "C:%m/%d/%Y %H", usStrings, true );
+}
+
+/**
+Test strings that are invalid or do not match the compiled format, which must give the same results and errors
+as the general parser.
+*/
+@Test
+public void testInvalidAndMixed () throws Exception
+{
+	List<String> strings = new ArrayList<String>();
+	strings.add ( "2001-01-01 00:00" );
+	strings.add ( "2001-02-29 00:00" ); // Not a leap year
+	strings.add ( "2001-13-01 00:00" );
+	strings.add ( "2001-01-01 24:00" );
+	strings.add ( "2001-01-01 00:60" );
+	strings.add ( "2001-01-0x 00:00" );
+	strings.add ( "2001/01/01 00:00" );
+	strings.add ( "2001-01-02" ); // Different form, must use the general parser
+	strings.add ( "2001-01-02 01:00" );
+	strings.add ( "2001-01-02 01:00" ); // Same as previous
+	checkParse ( null, strings, false );
+	checkParse ( null, strings, true );
+	checkParse ( "C:%Y-%m-%d %H:%M", strings, true );
+}
+
+/**
+Test that a result is reused only when it is the result of the previous call.
+*/
+@Test
+public void testReuse () throws Exception
+{
+	DateTimeColumnParser parser = new DateTimeColumnParser ( null );
+	DateTime dt1 = parser.parse ( null, "2000-01-01 00:00" );
+	DateTime dt2 = parser.parse ( dt1, "2000-01-01 01:00" );
+	DateTime dt3 = parser.parse ( dt2, "2000-01-01 02:00" );
+	assertSame ( dt2, dt3 );
+	assertEquals ( 2, dt3.getHour() );
+	// A DateTime that is not the previous result is not modified
+	DateTime other = new DateTime ( dt3 );
+	DateTime dt4 = parser.parse ( other, "2000-01-01 03:00" );
+	assertNotSame ( other, dt4 );
+	assertEquals ( 2, other.getHour() );
+	assertEquals ( 3, dt4.getHour() );
+	// Without reuse, a new instance is returned even for the same string
+	DateTime dt5 = parser.parse ( null, "2000-01-01 03:00" );
+	assertNotSame ( dt4, dt5 );
+	assertEquals ( dt4.toString(), dt5.toString() );
+}
+
+}
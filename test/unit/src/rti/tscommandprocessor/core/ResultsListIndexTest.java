@@ -0,0 +1,129 @@
+// ResultsListIndexTest - unit tests for ResultsListIndex
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+Unit tests for ResultsListIndex, which must give the same results as searching the list
+for matching identifiers (case-insensitive).
+*/
+public class ResultsListIndexTest
+{
+
+/**
+Object with a modifiable identifier, similar to a table or ensemble.
+*/
+private static class Item
+{
+	String id = null;
+	Item ( String id ) {
+		this.id = id;
+	}
+}
+
+/**
+Identifiers used to generate items, including case variations.
+*/
+private static final String [] IDS = { "Table1", "TABLE1", "Table2", "Stations", "Renamed" };
+
+/**
+Create an index for a list of items.
+*/
+private ResultsListIndex<Item> createIndex ( List<Item> list )
+{
+	return new ResultsListIndex<Item>(list) {
+		protected String getIdentifier ( Item item ) {
+			return item.id;
+		}
+	};
+}
+
+/**
+Check that the index gives the same positions as searching the list.
+*/
+private void checkLookups ( ResultsListIndex<Item> index, List<Item> list )
+{
+	for ( String id : IDS ) {
+		List<Integer> expected = new ArrayList<Integer>();
+		for ( int i = 0; i < list.size(); i++ ) {
+			if ( id.equalsIgnoreCase(list.get(i).id) ) {
+				expected.add ( i );
+			}
+		}
+		assertEquals ( "Lookup of \"" + id + "\"", expected, index.indexesOf(id) );
+		assertEquals ( (expected.size() == 0) ? -1 : expected.get(0).intValue(), index.indexOf(id) );
+	}
+}
+
+/**
+Test lookups for a random mix of list modifications and identifier changes of accessed objects.
+*/
+@Test
+public void testModifications ()
+{
+	Random random = new Random(1);
+	List<Item> list = new ArrayList<Item>();
+	ResultsListIndex<Item> index = createIndex ( list );
+	for ( int i = 0; i < 2000; i++ ) {
+		int action = random.nextInt(10);
+		if ( (action < 4) || list.isEmpty() ) {
+			Item item = new Item ( IDS[random.nextInt(IDS.length)] );
+			list.add ( item );
+			index.added ( item );
+		}
+		else if ( action < 5 ) {
+			int position = random.nextInt(list.size());
+			Item item = new Item ( list.get(position).id );
+			list.set ( position, item );
+			index.set ( item, position );
+		}
+		else if ( action < 6 ) {
+			list.remove ( random.nextInt(list.size()) );
+			index.changed();
+		}
+		else if ( action < 9 ) {
+			// Command gets an object and changes its identifier
+			Item item = list.get(random.nextInt(list.size()));
+			index.accessed ( item );
+			item.id = IDS[random.nextInt(IDS.length)];
+			index.checkAccessed();
+		}
+		else {
+			// Command gets the list and changes it directly
+			index.accessedAll();
+			list.add ( 0, new Item(IDS[random.nextInt(IDS.length)]) );
+			index.checkAccessed();
+		}
+		checkLookups ( index, list );
+	}
+}
+
+}
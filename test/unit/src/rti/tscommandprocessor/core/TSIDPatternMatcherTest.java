@@ -0,0 +1,125 @@
+// TSIDPatternMatcherTest - unit tests for TSIDPatternMatcher
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import RTi.TS.DayTS;
+import RTi.TS.TS;
+
+/**
+Unit tests for TSIDPatternMatcher, which must give the same result as TSIdent.matches()
+because the compiled location check is only used to reject time series that cannot match.
+*/
+public class TSIDPatternMatcherTest
+{
+
+/**
+Patterns to test, including patterns that are and are not compiled.
+*/
+private static final String [] PATTERNS = {
+	"*",
+	"*.*.*.*",
+	"*.USGS.Streamflow.Day",
+	"0821*.*.*.*",
+	"08213500.USGS.Streamflow.Day",
+	"alamosa.*.*.*",
+	"*Norte*.*.*.*",
+	"Del Norte.*.*.*",
+	"ALAMOSA-*.*.*.*",
+	"Flow*",
+	"flow*",
+	"*.*.*.*~DateValue~*",
+	"*.*.*.*[1990]",
+	"ALAMOSA.*.*.*.Scenario",
+	"ALAMOSA"
+};
+
+/**
+Create the time series to match.
+*/
+private List<TS> createTimeSeries ()
+throws Exception
+{
+	String [] tsids = {
+		"08213500.USGS.Streamflow.Day",
+		"08213501.USGS.Streamflow.Day",
+		"ALAMOSA.USGS.Streamflow.Day",
+		"ALAMOSA-SUB.NWS.Stage.Day",
+		"ALAMOSA.USGS.Streamflow.Day.Scenario",
+		"Del Norte.USGS.Streamflow.Day",
+		"RIOGRANDE.USGS.Streamflow.Day[1990]",
+		"RIOGRANDE.USGS.Streamflow.Day~DateValue~file.dv"
+	};
+	String [] aliases = { "", "Flow1", "FLOWALAMOSA", "ALAMOSA" };
+	List<TS> tslist = new ArrayList<TS>();
+	for ( String tsid : tsids ) {
+		for ( String alias : aliases ) {
+			TS ts = new DayTS();
+			ts.setIdentifier ( tsid );
+			ts.setAlias ( alias );
+			tslist.add ( ts );
+		}
+	}
+	return tslist;
+}
+
+/**
+Test that the matcher gives the same result as TSIdent.matches().
+*/
+@Test
+public void testMatchesSameAsTSIdent ()
+throws Exception
+{
+	List<TS> tslist = createTimeSeries();
+	for ( String pattern : PATTERNS ) {
+		TSIDPatternMatcher matcher = new TSIDPatternMatcher ( pattern );
+		boolean includeInput = pattern.indexOf("~") > 0;
+		for ( TS ts : tslist ) {
+			assertEquals ( "Pattern \"" + pattern + "\" with \"" + ts.getIdentifierString() + "\" alias \"" +
+				ts.getAlias() + "\"", ts.getIdentifier().matches(pattern,true,includeInput), matcher.matches(ts) );
+		}
+	}
+}
+
+/**
+Test that a null pattern and null time series do not match.
+*/
+@Test
+public void testNull ()
+throws Exception
+{
+	TS ts = new DayTS();
+	ts.setIdentifier ( "ALAMOSA.USGS.Streamflow.Day" );
+	assertFalse ( new TSIDPatternMatcher(null).matches(ts) );
+	assertFalse ( new TSIDPatternMatcher("*").matches(null) );
+}
+
+}
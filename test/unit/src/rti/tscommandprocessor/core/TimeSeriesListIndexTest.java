@@ -0,0 +1,340 @@
+// TimeSeriesListIndexTest - unit tests for TimeSeriesListIndex
+
+/* NoticeStart
+
+CDSS Time Series Processor Java Library
+CDSS Time Series Processor Java Library is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+CDSS Time Series Processor Java Library is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    CDSS Time Series Processor Java Library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CDSS Time Series Processor Java Library.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.tscommandprocessor.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import RTi.TS.DayTS;
+import RTi.TS.TS;
+
+/**
+Unit tests for TimeSeriesListIndex, which must give the same results as searching the list
+from the end, first by alias and then by TSID.
+*/
+public class TimeSeriesListIndexTest
+{
+
+/**
+Locations used to generate time series, with few values so that identifiers are duplicated.
+*/
+private static final String [] LOCATIONS = { "08213500", "RIOGRANDE", "ALAMOSA", "Del Norte" };
+
+/**
+Aliases used to generate time series, including case variations.
+*/
+private static final String [] ALIASES = { "", "Flow", "FLOW", "Stage", "Alias1" };
+
+/**
+Create a time series with an identifier and alias.
+*/
+private TS createTS ( String tsid, String alias )
+throws Exception
+{
+	TS ts = new DayTS();
+	ts.setIdentifier ( tsid );
+	ts.setAlias ( alias );
+	return ts;
+}
+
+/**
+Create a time series with a random identifier and alias.
+*/
+private TS createTS ( Random random )
+throws Exception
+{
+	String tsid = LOCATIONS[random.nextInt(LOCATIONS.length)] + ".USGS.Streamflow.Day";
+	if ( random.nextInt(4) == 0 ) {
+		tsid = tsid + "[" + (1990 + random.nextInt(3)) + "]";
+	}
+	return createTS ( tsid, ALIASES[random.nextInt(ALIASES.length)] );
+}
+
+/**
+Search the list from the end, the same as the original TSEngine.indexOf() code.
+*/
+private int indexOfLinear ( List<TS> tslist, String string, String sequenceID )
+{
+	boolean checkSequenceID = (sequenceID != null) && !sequenceID.equals("");
+	for ( int i = tslist.size() - 1; i >= 0; i-- ) {
+		TS ts = tslist.get(i);
+		if ( (ts != null) && string.equalsIgnoreCase(ts.getAlias()) &&
+			(!checkSequenceID || sequenceID.equalsIgnoreCase(ts.getSequenceID())) ) {
+			return i;
+		}
+	}
+	for ( int i = tslist.size() - 1; i >= 0; i-- ) {
+		TS ts = tslist.get(i);
+		if ( (ts != null) && ts.getIdentifier().equals(string) &&
+			(!checkSequenceID || sequenceID.equalsIgnoreCase(ts.getSequenceID())) ) {
+			return i;
+		}
+	}
+	return -1;
+}
+
+/**
+Check that the index gives the same result as the linear search for all aliases and identifiers.
+*/
+private void checkLookups ( TimeSeriesListIndex index, List<TS> tslist )
+{
+	List<String> strings = new ArrayList<String>();
+	for ( String alias : ALIASES ) {
+		if ( alias.length() > 0 ) {
+			strings.add ( alias );
+			strings.add ( alias.toLowerCase() );
+		}
+	}
+	for ( String location : LOCATIONS ) {
+		strings.add ( location + ".USGS.Streamflow.Day" );
+		strings.add ( location.toLowerCase() + ".usgs.streamflow.day" );
+	}
+	strings.add ( "Renamed" );
+	strings.add ( "NotInList" );
+	String [] sequenceIDs = { null, "", "1990", "1991", "1992" };
+	for ( String string : strings ) {
+		for ( String sequenceID : sequenceIDs ) {
+			assertEquals ( "Lookup of \"" + string + "\" sequence \"" + sequenceID + "\"",
+				indexOfLinear(tslist, string, sequenceID), index.indexOf(string, sequenceID) );
+		}
+	}
+}
+
+/**
+Test lookups after appending time series one at a time.
+*/
+@Test
+public void testAppended ()
+throws Exception
+{
+	Random random = new Random(1);
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	for ( int i = 0; i < 200; i++ ) {
+		TS ts = createTS ( random );
+		tslist.add ( ts );
+		index.appended ( ts );
+		if ( (i % 20) == 0 ) {
+			checkLookups ( index, tslist );
+		}
+	}
+	checkLookups ( index, tslist );
+}
+
+/**
+Test lookups after a random mix of the list modifications that TSEngine notifies the index about.
+*/
+@Test
+public void testModifications ()
+throws Exception
+{
+	Random random = new Random(2);
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	for ( int i = 0; i < 2000; i++ ) {
+		int action = random.nextInt(10);
+		if ( (action < 5) || tslist.isEmpty() ) {
+			TS ts = createTS ( random );
+			tslist.add ( ts );
+			index.appended ( ts );
+		}
+		else if ( action < 7 ) {
+			int position = random.nextInt(tslist.size());
+			TS ts = createTS ( random );
+			tslist.set ( position, ts );
+			index.set ( ts, position );
+		}
+		else if ( action < 9 ) {
+			tslist.remove ( random.nextInt(tslist.size()) );
+			index.removed ();
+		}
+		else if ( random.nextInt(10) == 0 ) {
+			tslist.clear();
+			index.cleared();
+		}
+		if ( (i % 100) == 0 ) {
+			checkLookups ( index, tslist );
+		}
+	}
+	checkLookups ( index, tslist );
+}
+
+/**
+Test that a change to the alias of an accessed time series is indexed by checkAccessed().
+*/
+@Test
+public void testAccessedAliasChange ()
+throws Exception
+{
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	for ( int i = 0; i < 10; i++ ) {
+		TS ts = createTS ( LOCATIONS[i % LOCATIONS.length] + ".USGS.Streamflow.Day", "Alias" + i );
+		tslist.add ( ts );
+		index.appended ( ts );
+	}
+	assertEquals ( 3, index.indexOf("Alias3", null) );
+	// Command gets the time series and changes the alias
+	TS ts = tslist.get(3);
+	index.accessed ( ts );
+	ts.setAlias ( "Renamed" );
+	long modificationCount = index.getModificationCount();
+	index.checkAccessed();
+	assertEquals ( 3, index.indexOf("Renamed", null) );
+	assertEquals ( -1, index.indexOf("Alias3", null) );
+	assertEquals ( modificationCount + 1, index.getModificationCount() );
+	// An earlier time series renamed to the same alias does not hide the later one
+	TS ts1 = tslist.get(1);
+	index.accessed ( ts1 );
+	ts1.setAlias ( "Renamed" );
+	index.checkAccessed();
+	assertEquals ( 3, index.indexOf("Renamed", null) );
+	checkLookups ( index, tslist );
+	// A later time series renamed to the same alias is found first
+	TS ts7 = tslist.get(7);
+	index.accessed ( ts7 );
+	ts7.setAlias ( "renamed" );
+	index.checkAccessed();
+	assertEquals ( 7, index.indexOf("Renamed", null) );
+	checkLookups ( index, tslist );
+}
+
+/**
+Test that a change to the identifier of an accessed time series is indexed by checkAccessed().
+*/
+@Test
+public void testAccessedIdentifierChange ()
+throws Exception
+{
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	TS ts = createTS ( "ALAMOSA.USGS.Streamflow.Day", "" );
+	tslist.add ( ts );
+	index.appended ( ts );
+	assertEquals ( 0, index.indexOf("ALAMOSA.USGS.Streamflow.Day", null) );
+	index.accessed ( ts );
+	ts.setIdentifier ( "RIOGRANDE.USGS.Streamflow.Day" );
+	index.checkAccessed();
+	assertEquals ( -1, index.indexOf("ALAMOSA.USGS.Streamflow.Day", null) );
+	assertEquals ( 0, index.indexOf("RIOGRANDE.USGS.Streamflow.Day", null) );
+}
+
+/**
+Test that hasAccessed() indicates time series provided to callers until checkAccessed() is called.
+*/
+@Test
+public void testHasAccessed ()
+throws Exception
+{
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	TS ts = createTS ( "ALAMOSA.USGS.Streamflow.Day", "Alias0" );
+	tslist.add ( ts );
+	index.appended ( ts );
+	assertFalse ( index.hasAccessed() );
+	index.accessed ( ts );
+	assertTrue ( index.hasAccessed() );
+	index.checkAccessed();
+	assertFalse ( index.hasAccessed() );
+	index.accessedAll();
+	assertTrue ( index.hasAccessed() );
+	index.checkAccessed();
+	assertFalse ( index.hasAccessed() );
+}
+
+/**
+Test that changes to time series that were accessed are detected for random changes.
+*/
+@Test
+public void testAccessedRandom ()
+throws Exception
+{
+	Random random = new Random(3);
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	for ( int i = 0; i < 100; i++ ) {
+		TS ts = createTS ( random );
+		tslist.add ( ts );
+		index.appended ( ts );
+	}
+	for ( int i = 0; i < 200; i++ ) {
+		// Simulate a command that accesses a few time series and changes some of them
+		int naccessed = 1 + random.nextInt(3);
+		for ( int j = 0; j < naccessed; j++ ) {
+			TS ts = tslist.get(random.nextInt(tslist.size()));
+			index.accessed ( ts );
+			if ( random.nextBoolean() ) {
+				ts.setAlias ( ALIASES[random.nextInt(ALIASES.length)] );
+			}
+			if ( random.nextInt(4) == 0 ) {
+				ts.setIdentifier ( LOCATIONS[random.nextInt(LOCATIONS.length)] + ".USGS.Streamflow.Day" );
+			}
+		}
+		index.checkAccessed();
+		checkLookups ( index, tslist );
+	}
+}
+
+/**
+Test that direct modification of the list is detected when the list was accessed.
+*/
+@Test
+public void testAccessedAll ()
+throws Exception
+{
+	Random random = new Random(4);
+	List<TS> tslist = new ArrayList<TS>();
+	TimeSeriesListIndex index = new TimeSeriesListIndex ( tslist );
+	for ( int i = 0; i < 50; i++ ) {
+		TS ts = createTS ( random );
+		tslist.add ( ts );
+		index.appended ( ts );
+	}
+	checkLookups ( index, tslist );
+	// Command gets the list and sorts it
+	index.accessedAll();
+	Collections.sort ( tslist, new Comparator<TS>() {
+		public int compare ( TS ts1, TS ts2 ) {
+			return ts1.getIdentifierString().compareTo(ts2.getIdentifierString());
+		}
+	});
+	index.checkAccessed();
+	checkLookups ( index, tslist );
+	// Command gets the list and adds to it
+	index.accessedAll();
+	tslist.add ( createTS("NEW.USGS.Streamflow.Day", "Renamed") );
+	index.checkAccessed();
+	checkLookups ( index, tslist );
+}
+
+}